@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Persistence;
+
+import org.apache.openjpa.benchmark.entity.Customer;
+import org.apache.openjpa.benchmark.entity.OrderLine;
+import org.apache.openjpa.benchmark.entity.PurchaseOrder;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactory;
+import org.apache.openjpa.persistence.OpenJPAPersistence;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Base state for benchmarks which need an EntityManagerFactory. A new
+ * factory and in-memory database are created for every trial; subclasses
+ * add their own configuration through {@link #configure} and seed data
+ * through {@link #populate}.
+ */
+@State(Scope.Benchmark)
+public abstract class AbstractPersistenceBenchmark {
+
+    public static final String UNIT = "benchmark";
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    @Param({ "DERBY", "H2" })
+    public BenchmarkDatabase database;
+
+    protected OpenJPAEntityManagerFactory emf;
+
+    @Setup
+    public void createFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.putAll(database.getProperties(getClass().getSimpleName()
+            + DATABASES.incrementAndGet()));
+        configure(props);
+        emf = OpenJPAPersistence.cast(Persistence.createEntityManagerFactory(UNIT, props));
+        populate();
+    }
+
+    @TearDown
+    public void closeFactory() {
+        if (emf != null && emf.isOpen())
+            emf.close();
+        emf = null;
+    }
+
+    /**
+     * Add benchmark specific properties. Does nothing by default.
+     */
+    protected void configure(Map<String, Object> props) {
+    }
+
+    /**
+     * Seed the database before measurement. Does nothing by default.
+     */
+    protected void populate() {
+    }
+
+    /**
+     * Persist <code>customers</code> customers, each owning
+     * <code>orders</code> orders of <code>lines</code> lines. Ids are
+     * assigned densely starting at 1 for every type.
+     */
+    protected void populate(int customers, int orders, int lines) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            long orderId = 0;
+            long lineId = 0;
+            for (int c = 1; c <= customers; c++) {
+                Customer customer = new Customer(c, "customer-" + c, "city-" + (c % 10), c % 5);
+                for (int o = 0; o < orders; o++) {
+                    PurchaseOrder order = new PurchaseOrder(++orderId, "NEW");
+                    for (int l = 0; l < lines; l++)
+                        order.addLine(new OrderLine(++lineId, "product-" + l, l + 1, 9.99));
+                    customer.addOrder(order);
+                }
+                em.persist(customer);
+                if (c % 500 == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Embedded databases the benchmarks can run against. Each benchmark trial
+ * gets its own in-memory database so that state never leaks between runs.
+ */
+public enum BenchmarkDatabase {
+
+    DERBY("org.apache.derby.jdbc.EmbeddedDriver", "jdbc:derby:memory:%s;create=true", "derby"),
+    H2("org.h2.Driver", "jdbc:h2:mem:%s;DB_CLOSE_DELAY=-1", "h2");
+
+    private final String _driver;
+    private final String _url;
+    private final String _dictionary;
+
+    BenchmarkDatabase(String driver, String url, String dictionary) {
+        _driver = driver;
+        _url = url;
+        _dictionary = dictionary;
+    }
+
+    /**
+     * Connection properties for a fresh database of the given name.
+     */
+    public Map<String, Object> getProperties(String name) {
+        Map<String, Object> props = new HashMap<>();
+        props.put("openjpa.ConnectionDriverName", _driver);
+        props.put("openjpa.ConnectionURL", String.format(_url, name));
+        props.put("openjpa.ConnectionUserName", "sa");
+        props.put("openjpa.ConnectionPassword", "");
+        props.put("openjpa.jdbc.DBDictionary", _dictionary);
+        return props;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.util.CacheMap;
+import org.apache.openjpa.util.StripedCacheMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures contention on the cache maps backing the DataCache and
+ * QueryCache. Runs with as many threads as there are processors by default;
+ * use <code>-t</code> to change that.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(Threads.MAX)
+@Fork(1)
+public class CacheMapBenchmark {
+
+    private static final int SIZE = 10000;
+
+    @Param({ "default", "striped" })
+    public String map;
+
+    @Param({ "false", "true" })
+    public boolean lru;
+
+    private CacheMap _cache;
+
+    @Setup
+    public void createMap() {
+        _cache = ("striped".equals(map)) ? new StripedCacheMap(lru, SIZE)
+            : new CacheMap(lru, SIZE);
+        for (int i = 0; i < SIZE; i++)
+            _cache.put(i, Integer.toString(i));
+    }
+
+    /**
+     * Cache hits only.
+     */
+    @Benchmark
+    public Object get() {
+        return _cache.get(ThreadLocalRandom.current().nextInt(SIZE));
+    }
+
+    /**
+     * Nine hits for every put of a key that may not be cached, causing
+     * evictions to the soft map.
+     */
+    @Benchmark
+    public Object mixed() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextInt(10) == 0) {
+            int key = random.nextInt(SIZE * 2);
+            return _cache.put(key, Integer.toString(key));
+        }
+        return _cache.get(random.nextInt(SIZE));
+    }
+}
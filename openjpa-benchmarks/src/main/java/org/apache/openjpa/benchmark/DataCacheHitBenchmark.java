@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.apache.openjpa.benchmark.entity.Customer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures DataCache hits with the default cached data and with the
+ * per-class data generated when <code>openjpa.DynamicDataStructs</code> is
+ * enabled. The cache is warmed before measurement, so every find is a hit.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataCacheHitBenchmark extends AbstractPersistenceBenchmark {
+
+    private static final int CUSTOMERS = 1000;
+
+    private static final int FINDS = 100;
+
+    @Param({ "false", "true" })
+    public boolean dynamicDataStructs;
+
+    @Override
+    protected void configure(Map<String, Object> props) {
+        props.put("openjpa.DataCache", "true(CacheSize=" + (CUSTOMERS * 2) + ")");
+        props.put("openjpa.RemoteCommitProvider", "sjvm");
+        props.put("openjpa.DynamicDataStructs", String.valueOf(dynamicDataStructs));
+    }
+
+    @Override
+    protected void populate() {
+        populate(CUSTOMERS, 0, 0);
+
+        EntityManager em = emf.createEntityManager();
+        try {
+            for (long id = 1; id <= CUSTOMERS; id++)
+                em.find(Customer.class, id);
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Loads {@value #FINDS} instances from the cache into a new persistence
+     * context, so that the cost of the persistence context is spread over
+     * the hits.
+     */
+    @Benchmark
+    @OperationsPerInvocation(FINDS)
+    public int find() {
+        int start = ThreadLocalRandom.current().nextInt(CUSTOMERS - FINDS);
+        int sum = 0;
+        EntityManager em = emf.createEntityManager();
+        try {
+            for (int i = 1; i <= FINDS; i++)
+                sum += em.find(Customer.class, (long) start + i).getRating();
+        } finally {
+            em.close();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.benchmark.entity.Customer;
+import org.apache.openjpa.benchmark.entity.PurchaseOrder;
+import org.apache.openjpa.persistence.FetchPlan;
+import org.apache.openjpa.persistence.OpenJPAEntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures detaching a persistence context of about ten thousand entities.
+ * <ul>
+ * <li><code>each</code> detaches every entity through
+ * <code>detachAll(Collection)</code> with the <code>DetachManager</code>.</li>
+ * <li><code>full</code> clears the context with the
+ * <code>DetachManager</code>.</li>
+ * <li><code>lite</code> clears the context with the
+ * <code>DetachManagerLite</code>.</li>
+ * <li><code>parallel</code> clears the context with the
+ * <code>DetachManagerLite</code> on the common fork join pool.</li>
+ * </ul>
+ * Loading the context is not measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DetachAllBenchmark extends AbstractPersistenceBenchmark {
+
+    private static final int CUSTOMERS = 100;
+
+    private static final int ORDERS = 10;
+
+    private static final int LINES = 9;
+
+    @Param({ "each", "full", "lite", "parallel" })
+    public String detach;
+
+    private OpenJPAEntityManager _em;
+    private List<Object> _entities;
+
+    @Override
+    protected void configure(Map<String, Object> props) {
+        if ("lite".equals(detach))
+            props.put("openjpa.DetachState", "loaded(LiteAutoDetach=true)");
+        else if ("parallel".equals(detach))
+            props.put("openjpa.DetachState",
+                "loaded(LiteAutoDetach=true, ParallelThreshold=1000)");
+    }
+
+    @Override
+    protected void populate() {
+        populate(CUSTOMERS, ORDERS, LINES);
+    }
+
+    @Setup(Level.Invocation)
+    public void load() {
+        _em = emf.createEntityManager();
+        _em.getFetchPlan().addFetchGroup(FetchPlan.GROUP_ALL)
+            .setMaxFetchDepth(FetchPlan.DEPTH_INFINITE);
+        _entities = new ArrayList<>();
+        for (Customer customer : _em.createQuery("select c from Customer c",
+            Customer.class).getResultList()) {
+            _entities.add(customer);
+            for (PurchaseOrder order : customer.getOrders()) {
+                _entities.add(order);
+                _entities.addAll(order.getLines());
+            }
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void close() {
+        _em.close();
+        _em = null;
+        _entities = null;
+    }
+
+    @Benchmark
+    public int detachAll() {
+        if ("each".equals(detach))
+            _em.detachAll(_entities.toArray());
+        else
+            _em.clear();
+        return _entities.size();
+    }
+}
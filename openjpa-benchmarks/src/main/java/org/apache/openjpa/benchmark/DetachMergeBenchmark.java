@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.benchmark.entity.Customer;
+import org.apache.openjpa.benchmark.entity.OrderLine;
+import org.apache.openjpa.benchmark.entity.PurchaseOrder;
+import org.apache.openjpa.persistence.FetchPlan;
+import org.apache.openjpa.persistence.OpenJPAEntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures detach and merge of a single customer graph of
+ * <code>orders * lines</code> order lines.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DetachMergeBenchmark extends AbstractPersistenceBenchmark {
+
+    @Param({ "10", "100" })
+    public int orders;
+
+    @Param({ "10", "100" })
+    public int lines;
+
+    private Customer _detached;
+    private int _quantity;
+
+    @Override
+    protected void populate() {
+        populate(1, orders, lines);
+    }
+
+    @Setup(Level.Iteration)
+    public void detachGraph() {
+        _detached = detach();
+    }
+
+    @Benchmark
+    public Customer detach() {
+        OpenJPAEntityManager em = emf.createEntityManager();
+        try {
+            em.getFetchPlan().addFetchGroup(FetchPlan.GROUP_ALL)
+                .setMaxFetchDepth(FetchPlan.DEPTH_INFINITE);
+            return em.detachCopy(em.find(Customer.class, 1L));
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public Customer merge() {
+        // touch every line so that the merge has real changes to flush
+        _quantity++;
+        for (PurchaseOrder order : _detached.getOrders())
+            for (OrderLine line : order.getLines())
+                line.setQuantity(_quantity);
+
+        OpenJPAEntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            Customer merged = em.merge(_detached);
+            em.getTransaction().commit();
+            return merged;
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.apache.openjpa.benchmark.entity.Customer;
+import org.apache.openjpa.persistence.OpenJPAEntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures find-by-id through <code>JDBCStoreManager.find</code> and
+ * <code>JDBCStoreManager.loadAll</code>, with and without the DataCache in
+ * front of them. The <code>offheap</code> setting uses the off-heap cache.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FindBenchmark extends AbstractPersistenceBenchmark {
+
+    private static final int CUSTOMERS = 1000;
+
+    private static final int FIND_ALL = 100;
+
+    @Param({ "false", "true", "offheap" })
+    public String dataCache;
+
+    @Override
+    protected void configure(Map<String, Object> props) {
+        if (isCached()) {
+            props.put("openjpa.DataCache", dataCache + "(CacheSize=" + (CUSTOMERS * 2) + ")");
+            props.put("openjpa.RemoteCommitProvider", "sjvm");
+        }
+    }
+
+    @Override
+    protected void populate() {
+        populate(CUSTOMERS, 0, 0);
+        if (!isCached())
+            return;
+
+        // warm the cache so that the measurement only sees hits
+        EntityManager em = emf.createEntityManager();
+        try {
+            for (long id = 1; id <= CUSTOMERS; id++)
+                em.find(Customer.class, id);
+        } finally {
+            em.close();
+        }
+    }
+
+    private boolean isCached() {
+        return !"false".equals(dataCache);
+    }
+
+    @Benchmark
+    public Customer find() {
+        long id = ThreadLocalRandom.current().nextInt(CUSTOMERS) + 1;
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.find(Customer.class, id);
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FIND_ALL)
+    public Collection<Customer> findAll() {
+        int start = ThreadLocalRandom.current().nextInt(CUSTOMERS - FIND_ALL);
+        List<Long> ids = new ArrayList<>(FIND_ALL);
+        for (int i = 1; i <= FIND_ALL; i++)
+            ids.add((long) start + i);
+
+        OpenJPAEntityManager em = emf.createEntityManager();
+        try {
+            return em.findAll(Customer.class, ids);
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.persistence.EntityManager;
+
+import org.apache.openjpa.benchmark.entity.Customer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures persist throughput through <code>BrokerImpl.flush</code>: one
+ * instance per transaction, and a large number of instances flushed in a
+ * single transaction so that statement batching kicks in.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistBenchmark extends AbstractPersistenceBenchmark {
+
+    private static final int BATCH = 500;
+
+    @Param({ "-1", "0" })
+    public int batchLimit;
+
+    private final AtomicLong _ids = new AtomicLong();
+
+    @Override
+    protected void configure(Map<String, Object> props) {
+        props.put("openjpa.jdbc.DBDictionary", database.name().toLowerCase()
+            + "(BatchLimit=" + batchLimit + ")");
+    }
+
+    @Benchmark
+    public void persist() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.persist(newCustomer());
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void persistBatch() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            for (int i = 0; i < BATCH; i++)
+                em.persist(newCustomer());
+            em.flush();
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    private Customer newCustomer() {
+        long id = _ids.incrementAndGet();
+        return new Customer(id, "customer-" + id, "city", 1);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.benchmark.entity.Customer;
+import org.apache.openjpa.persistence.OpenJPAEntityManager;
+import org.apache.openjpa.persistence.OpenJPAPersistence;
+import org.apache.openjpa.persistence.OpenJPAQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures JPQL compilation and execution through <code>QueryImpl</code>.
+ * With <code>cached=false</code> both the QueryCompilationCache and the
+ * prepared SQL cache are turned off, so every call parses and compiles the
+ * query again.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark extends AbstractPersistenceBenchmark {
+
+    private static final int CUSTOMERS = 1000;
+
+    private static final String JPQL = "SELECT c FROM Customer c "
+        + "WHERE c.city = :city AND c.rating > :rating ORDER BY c.name";
+
+    @Param({ "false", "true" })
+    public boolean cached;
+
+    @Override
+    protected void configure(Map<String, Object> props) {
+        props.put("openjpa.QueryCompilationCache", String.valueOf(cached));
+        props.put("openjpa.jdbc.QuerySQLCache", String.valueOf(cached));
+    }
+
+    @Override
+    protected void populate() {
+        populate(CUSTOMERS, 0, 0);
+    }
+
+    @Benchmark
+    public Object compile() {
+        OpenJPAEntityManager em = emf.createEntityManager();
+        try {
+            return OpenJPAPersistence.cast(em.createQuery(JPQL, Customer.class)).compile();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public List<Customer> execute() {
+        OpenJPAEntityManager em = emf.createEntityManager();
+        try {
+            OpenJPAQuery<Customer> q = OpenJPAPersistence.cast(em.createQuery(JPQL, Customer.class));
+            q.setParameter("city", "city-" + ThreadLocalRandom.current().nextInt(10));
+            q.setParameter("rating", 2);
+            List<Customer> result = q.getResultList();
+            result.size();
+            return result;
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.apache.openjpa.benchmark.entity.Customer;
+import org.apache.openjpa.benchmark.entity.PurchaseOrder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures walking lazy to-many relations of a query result, which issues
+ * one select per owner unless the <code>batch</code> eager fetch mode is
+ * used.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RelationTraversalBenchmark extends AbstractPersistenceBenchmark {
+
+    private static final int CUSTOMERS = 200;
+
+    @Param({ "parallel", "batch" })
+    public String eagerFetchMode;
+
+    @Override
+    protected void configure(Map<String, Object> props) {
+        props.put("openjpa.jdbc.EagerFetchMode", eagerFetchMode);
+    }
+
+    @Override
+    protected void populate() {
+        populate(CUSTOMERS, 3, 2);
+    }
+
+    @Benchmark
+    public int traverse() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            List<Customer> customers = em.createQuery(
+                "select c from Customer c", Customer.class).getResultList();
+            int lines = 0;
+            for (Customer customer : customers)
+                for (PurchaseOrder order : customer.getOrders())
+                    lines += order.getLines().size();
+            return lines;
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -34,8 +34,10 @@ public class FetchModeValue
     public static final String EAGER_NONE = "none";
     public static final String EAGER_JOIN = "join";
     public static final String EAGER_PARALLEL = "parallel";
+    public static final String EAGER_BATCH = "batch";
 
     private static String[] ALIASES = new String[]{
+        EAGER_BATCH, String.valueOf(EagerFetchModes.EAGER_BATCH),
         EAGER_PARALLEL, String.valueOf(EagerFetchModes.EAGER_PARALLEL),
         EAGER_JOIN, String.valueOf(EagerFetchModes.EAGER_JOIN),
         EAGER_NONE, String.valueOf(EagerFetchModes.EAGER_NONE),
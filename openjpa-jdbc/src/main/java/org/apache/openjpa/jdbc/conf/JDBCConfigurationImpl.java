@@ -28,6 +28,7 @@ import org.apache.openjpa.conf.OpenJPAConfigurationImpl;
 import org.apache.openjpa.jdbc.identifier.DBIdentifierUtil;
 import org.apache.openjpa.jdbc.kernel.BatchingConstraintUpdateManager;
 import org.apache.openjpa.jdbc.kernel.BatchingOperationOrderUpdateManager;
+import org.apache.openjpa.jdbc.kernel.BatchingStatementOrderUpdateManager;
 import org.apache.openjpa.jdbc.kernel.EagerFetchModes;
 import org.apache.openjpa.jdbc.kernel.JDBCBrokerFactory;
 import org.apache.openjpa.jdbc.kernel.LRSSizes;
@@ -239,6 +240,8 @@ public class JDBCConfigurationImpl
             BatchingConstraintUpdateManager.class.getName(),
             "batching-operation-order",
             BatchingOperationOrderUpdateManager.class.getName(),
+            "batching-statement-order",
+            BatchingStatementOrderUpdateManager.class.getName(),
         };
         updateManagerPlugin.setAliases(aliases);
         updateManagerPlugin.setDefault(aliases[0]);
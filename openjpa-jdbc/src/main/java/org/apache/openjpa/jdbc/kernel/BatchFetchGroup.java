@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.jdbc.kernel;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.openjpa.kernel.OpenJPAStateManager;
+
+/**
+ * The instances loaded by a single result, used to batch the loading of
+ * their lazy relations under {@link EagerFetchModes#EAGER_BATCH}. Members
+ * are weakly held so that the group does not keep instances alive after the
+ * context has released them.
+ *
+ * @since 3.2.3
+ */
+class BatchFetchGroup {
+
+    private final List<WeakReference<OpenJPAStateManager>> _members =
+        new ArrayList<>();
+
+    /**
+     * Add an instance to the group.
+     */
+    public synchronized void add(OpenJPAStateManager sm) {
+        _members.add(new WeakReference<>(sm));
+    }
+
+    /**
+     * Return the members of the group that are still reachable, in the order
+     * in which they were added.
+     */
+    public synchronized List<OpenJPAStateManager> getMembers() {
+        List<OpenJPAStateManager> members = new ArrayList<>(_members.size());
+        OpenJPAStateManager sm;
+        for (WeakReference<OpenJPAStateManager> ref : _members) {
+            sm = ref.get();
+            if (sm != null)
+                members.add(sm);
+        }
+        return members;
+    }
+}
@@ -43,12 +43,25 @@ import org.apache.openjpa.util.OpenJPAException;
 
 public class BatchingConstraintUpdateManager extends ConstraintUpdateManager {
 
+    private final FlushStatistics _stats = new FlushStatistics();
+
+    /**
+     * The statements executed by this update manager.
+     *
+     * @since 3.2.3
+     */
+    public FlushStatistics getFlushStatistics() {
+        return _stats;
+    }
+
     @Override
     protected PreparedStatementManager newPreparedStatementManager(
         JDBCStore store, Connection conn) {
         int batchLimit = dict.getBatchLimit();
-        return new BatchingPreparedStatementManagerImpl(store, conn,
-            batchLimit);
+        BatchingPreparedStatementManagerImpl psMgr =
+            new BatchingPreparedStatementManagerImpl(store, conn, batchLimit);
+        psMgr.setStatistics(_stats);
+        return psMgr;
     }
 
     /*
@@ -23,8 +23,11 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.openjpa.jdbc.meta.ClassMapping;
 import org.apache.openjpa.jdbc.schema.Column;
@@ -54,6 +57,11 @@ public class BatchingPreparedStatementManagerImpl extends
     private List<RowImpl> _batchedRows = new ArrayList<>();
     private int _batchLimit;
     private boolean _disableBatch = false;
+    private FlushStatistics _stats = null;
+
+    // instances whose auto-assigned keys are pending in the batch
+    private final Set<OpenJPAStateManager> _autoAssigned =
+        Collections.newSetFromMap(new IdentityHashMap<>());
 
     /**
      * Constructor. Supply connection.
@@ -71,6 +79,11 @@ public class BatchingPreparedStatementManagerImpl extends
      */
     @Override
     protected void flushAndUpdate(RowImpl row) throws SQLException {
+        // the values of a row are fixed once its SQL is generated, so the
+        // keys of the instances it refers to have to be assigned first
+        if (!_autoAssigned.isEmpty() && dependsOnBatch(row))
+            flushBatch();
+
         if (isBatchDisabled(row)) {
             // if there were some statements batched before, then
             // we need to flush them out first before processing the
@@ -102,6 +115,7 @@ public class BatchingPreparedStatementManagerImpl extends
                 } finally {
                     _batchedSql = null;
                     _batchedRows.clear();
+                    _autoAssigned.clear();
                 }
                 break;
             default:
@@ -111,6 +125,34 @@ public class BatchingPreparedStatementManagerImpl extends
             _batchedSql = sql;
         }
         _batchedRows.add(row);
+        if (getBatchAutoAssignColNames(getAutoAssignColumns(row), row) != null)
+            _autoAssigned.add(row.getPrimaryKey());
+    }
+
+    /**
+     * Whether the given row refers to an instance whose auto-assigned key
+     * is pending in the batch. Primary and secondary rows delay the values
+     * that refer to such instances until their SQL is generated.
+     */
+    private boolean dependsOnBatch(RowImpl row) {
+        if (_autoAssigned.contains(row.getPrimaryKey()))
+            return true;
+        for (OpenJPAStateManager sm : row.getDelayedReferences())
+            if (_autoAssigned.contains(sm))
+                return true;
+        return false;
+    }
+
+    /**
+     * Return the names of the auto-assigned columns to read back from a
+     * batch of the given row, or null if the keys are not read back.
+     */
+    private String[] getBatchAutoAssignColNames(Column[] autoAssign,
+        RowImpl row) {
+        if (!_dict.supportsBatchGeneratedKeys
+            || !Boolean.TRUE.equals(_dict.supportsGetGeneratedKeys))
+            return null;
+        return getAutoAssignColNames(autoAssign, row);
     }
 
     /*
@@ -150,12 +192,21 @@ public class BatchingPreparedStatementManagerImpl extends
         if (batchedSql != null &&  batchSize > 0) {
             PreparedStatement ps = null;
             try {
-                RowImpl onerow = null;
-                ps = prepareStatement(batchedSql);
+                RowImpl onerow = batchedRows.get(0);
+                Column[] autoAssign = getAutoAssignColumns(onerow);
+                String[] autoAssignColNames =
+                    getBatchAutoAssignColNames(autoAssign, onerow);
+                int rowsPerInsert = getMultiRowInsertSize(onerow, autoAssign,
+                    batchSize);
+                if (rowsPerInsert > 1) {
+                    flushMultiRowInserts(batchedRows, rowsPerInsert);
+                    return;
+                }
+                ps = prepareStatement(batchedSql, autoAssignColNames);
                 if (batchSize == 1) {
                     // execute a single row.
-                    onerow = batchedRows.get(0);
-                    flushSingleRow(onerow, ps);
+                    flushSingleRow(onerow, ps, autoAssign,
+                        autoAssignColNames);
                 } else {
                     // cache has more than one rows, execute as batch.
                     int count = 0;
@@ -164,7 +215,8 @@ public class BatchingPreparedStatementManagerImpl extends
                     while (itr.hasNext()) {
                         onerow = itr.next();
                         if (_batchLimit == 1) {
-                            flushSingleRow(onerow, ps);
+                            flushSingleRow(onerow, ps, autoAssign,
+                                autoAssignColNames);
                         } else {
                             if (count < _batchLimit || _batchLimit == -1) {
                                 if (ps != null)
@@ -174,7 +226,11 @@ public class BatchingPreparedStatementManagerImpl extends
                             } else {
                                 // reach the batchLimit, execute the batch
                                 int[] rtn = executeBatch(ps);
+                                batchExecuted(count);
                                 checkUpdateCount(rtn, batchedRowsBaseIndex, ps);
+                                populateAutoAssignCols(ps, autoAssign,
+                                    autoAssignColNames, batchedRowsBaseIndex,
+                                    count);
 
                                 batchedRowsBaseIndex += _batchLimit;
 
@@ -188,7 +244,10 @@ public class BatchingPreparedStatementManagerImpl extends
                     }
                     // end of the loop, execute the batch
                     int[] rtn = executeBatch(ps);
+                    batchExecuted(count);
                     checkUpdateCount(rtn, batchedRowsBaseIndex, ps);
+                    populateAutoAssignCols(ps, autoAssign, autoAssignColNames,
+                        batchedRowsBaseIndex, count);
                 }
             } catch (SQLException se) {
                 //If we look at PreparedStatementManagerImpl.flushAndUpdate (which is the 'non-batch' code path
@@ -233,6 +292,7 @@ public class BatchingPreparedStatementManagerImpl extends
             } finally {
                 _batchedSql = null;
                 batchedRows.clear();
+                _autoAssigned.clear();
                 if (ps != null) {
                     ps.clearParameters();
                     try {
@@ -248,7 +308,8 @@ public class BatchingPreparedStatementManagerImpl extends
     /*
      * Execute an update of a single row.
      */
-    private void flushSingleRow(RowImpl row, PreparedStatement ps)
+    private void flushSingleRow(RowImpl row, PreparedStatement ps,
+        Column[] autoAssign, String[] autoAssignColNames)
         throws SQLException {
         if (ps != null)
             row.flush(ps, _dict, _store);
@@ -262,6 +323,129 @@ public class BatchingPreparedStatementManagerImpl extends
                 throw new SQLException(_loc.get("update-failed-no-failed-obj",
                     String.valueOf(count), row.getSQL(_dict)).getMessage());
         }
+        if (autoAssignColNames != null)
+            populateAutoAssignCols(ps, autoAssign, autoAssignColNames, row);
+    }
+
+    /*
+     * Return the number of rows to coalesce into each insert of a batch of
+     * the given row, or 0 to execute the rows one by one.
+     */
+    private int getMultiRowInsertSize(RowImpl row, Column[] autoAssign,
+        int batchSize) {
+        if (batchSize < 2 || row.getAction() != Row.ACTION_INSERT
+            || (autoAssign != null && autoAssign.length > 0))
+            return 0;
+        return Math.min(_dict.getMultiRowInsertSize(row.getBoundParameterCount()),
+            batchSize);
+    }
+
+    /*
+     * Flush the given inserts as statements of the given number of rows
+     * each, followed by a statement for the remaining rows.
+     */
+    private void flushMultiRowInserts(List<RowImpl> rows, int rowsPerInsert)
+        throws SQLException {
+        int full = rows.size() - rows.size() % rowsPerInsert;
+        executeMultiRowInserts(rows.subList(0, full), rowsPerInsert);
+        if (full < rows.size())
+            executeMultiRowInserts(rows.subList(full, rows.size()),
+                rows.size() - full);
+    }
+
+    /*
+     * Execute the given inserts as a batch of statements of the given number
+     * of rows each. The rows have the same SQL, so the statement is built
+     * from the columns of the first.
+     */
+    private void executeMultiRowInserts(List<RowImpl> rows, int rowsPerInsert)
+        throws SQLException {
+        String multiSql = rows.get(0).getMultiRowInsertSQL(_dict,
+            rowsPerInsert);
+        PreparedStatement ps = null;
+        int first = 0;
+        try {
+            ps = prepareStatement(multiSql);
+            int count = 0;
+            int idx = 1;
+            RowImpl row;
+            for (int i = 0; i < rows.size(); i++) {
+                row = rows.get(i);
+                row.flush(ps, idx, _dict, _store);
+                idx += row.getBoundParameterCount();
+                if ((i + 1) % rowsPerInsert != 0)
+                    continue;
+
+                addBatch(ps, row, count++);
+                idx = 1;
+                if (count == _batchLimit || i + 1 == rows.size()) {
+                    checkInsertCount(executeBatch(ps), rows, first,
+                        rowsPerInsert, multiSql);
+                    batchExecuted(count * rowsPerInsert);
+                    first = i + 1;
+                    count = 0;
+                }
+            }
+        } catch (SQLException se) {
+            int index = (se instanceof ReportingSQLException)
+                ? ((ReportingSQLException) se).getIndexOfFirstFailedObject()
+                : -1;
+            index = (index < 0) ? first : first + index * rowsPerInsert;
+            if (index < rows.size())
+                throw SQLExceptions.getStore(se,
+                    rows.get(index).getFailedObject(), _dict);
+            throw SQLExceptions.getStore(se, ps, _dict);
+        } finally {
+            if (ps != null) {
+                try {
+                    ps.close();
+                } catch (SQLException sqex) {
+                    throw SQLExceptions.getStore(sqex, ps, _dict);
+                }
+            }
+        }
+    }
+
+    /*
+     * Check that each multi-row insert of a batch inserted all its rows.
+     * The first row of a statement that did not is reported as failed.
+     */
+    private void checkInsertCount(int[] count, List<RowImpl> rows, int first,
+        int rowsPerInsert, String sql) {
+        for (int i = 0; i < count.length; i++) {
+            if (count[i] == rowsPerInsert
+                || count[i] == Statement.SUCCESS_NO_INFO)
+                continue;
+            SQLException se = new SQLException(_loc.get(
+                "update-failed-no-failed-obj", String.valueOf(count[i]), sql).
+                getMessage());
+            throw SQLExceptions.getStore(se,
+                rows.get(first + i * rowsPerInsert).getFailedObject(), _dict);
+        }
+    }
+
+    /*
+     * Assign the keys generated by an executed batch to the instances of
+     * its rows, in the order the rows were added to the batch.
+     */
+    private void populateAutoAssignCols(PreparedStatement ps,
+        Column[] autoAssign, String[] autoAssignColNames,
+        int batchedRowsBaseIndex, int count)
+        throws SQLException {
+        if (autoAssignColNames == null)
+            return;
+
+        List<Object> vals = getGeneratedKeys(ps, autoAssignColNames);
+        if (vals.size() != count * autoAssign.length)
+            throw new SQLException(_loc.get("batch-generated-keys",
+                String.valueOf(vals.size()), String.valueOf(count),
+                getBatchedSql()).getMessage());
+
+        List<RowImpl> batchedRows = getBatchedRows();
+        for (int i = 0; i < count; i++)
+            setObjectId(vals.subList(i * autoAssign.length,
+                (i + 1) * autoAssign.length), autoAssign, autoAssignColNames,
+                batchedRows.get(batchedRowsBaseIndex + i));
     }
 
     /*
@@ -347,6 +531,38 @@ public class BatchingPreparedStatementManagerImpl extends
         _batchLimit = batchLimit;
     }
 
+    /**
+     * The statistics to record executed statements in, or null.
+     *
+     * @since 3.2.3
+     */
+    public FlushStatistics getStatistics() {
+        return _stats;
+    }
+
+    /**
+     * The statistics to record executed statements in, or null.
+     *
+     * @since 3.2.3
+     */
+    public void setStatistics(FlushStatistics stats) {
+        _stats = stats;
+    }
+
+    private void batchExecuted(int rows) {
+        if (_stats != null && rows > 0)
+            _stats.batchExecuted(rows);
+    }
+
+    @Override
+    protected int executeUpdate(PreparedStatement stmnt, String sql,
+        RowImpl row) throws SQLException {
+        int count = super.executeUpdate(stmnt, sql, row);
+        if (_stats != null)
+            _stats.statementExecuted();
+        return count;
+    }
+
     public List<RowImpl> getBatchedRows() {
         return _batchedRows;
     }
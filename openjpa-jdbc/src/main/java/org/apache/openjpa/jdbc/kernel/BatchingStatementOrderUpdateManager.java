@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.jdbc.kernel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.apache.openjpa.jdbc.sql.Row;
+import org.apache.openjpa.jdbc.sql.RowImpl;
+import org.apache.openjpa.kernel.OpenJPAStateManager;
+import org.apache.openjpa.lib.graph.Edge;
+import org.apache.openjpa.lib.graph.Graph;
+
+/**
+ * <P>Batch update manager that reorders the rows of a flush so that rows
+ * with the same SQL are adjacent, and so execute in as few JDBC batches as
+ * possible. Rows that do not depend on other rows are grouped by their SQL.
+ * Rows in the foreign key graph keep the order of their dependencies, and
+ * among the rows whose dependencies have been flushed, those with the SQL of
+ * the previous row are flushed first.</P>
+ * <P>You can plug-in this update manager through the following property:
+ * <PRE>
+ * < property name="openjpa.jdbc.UpdateManager"
+ *   value="batching-statement-order" />
+ * </PRE></P>
+ *
+ * @since 3.2.3
+ */
+public class BatchingStatementOrderUpdateManager
+    extends BatchingConstraintUpdateManager {
+
+    @Override
+    protected Collection orderNodes(Graph graph, Collection nodes) {
+        if (nodes.size() < 3)
+            return nodes;
+
+        // the topological order tells which row of an edge goes first
+        Map<Object, Node> index = new IdentityHashMap<>();
+        List<Node> order = new ArrayList<>(nodes.size());
+        for (Object row : nodes) {
+            Node node = new Node((RowImpl) row, order.size(),
+                groupKey((RowImpl) row));
+            index.put(row, node);
+            order.add(node);
+        }
+        for (Edge edge : graph.getEdges()) {
+            Node from = index.get(edge.getFrom());
+            Node to = index.get(edge.getTo());
+            if (from == null || to == null || from == to)
+                continue;
+            if (from.position < to.position) {
+                from.next.add(to);
+                to.previous++;
+            } else {
+                to.next.add(from);
+                from.previous++;
+            }
+        }
+
+        PriorityQueue<Node> ready = new PriorityQueue<>();
+        Map<String, PriorityQueue<Node>> readyBySQL = new LinkedHashMap<>();
+        for (Node node : order)
+            if (node.previous == 0)
+                ready(node, ready, readyBySQL);
+
+        List<RowImpl> rows = new ArrayList<>(order.size());
+        String sql = null;
+        Node node;
+        while (rows.size() < order.size()) {
+            node = (sql == null) ? null : poll(readyBySQL.get(sql));
+            if (node == null) {
+                node = poll(ready);
+                sql = node.sql;
+            }
+            node.flushed = true;
+            rows.add(node.row);
+            for (Node next : node.next)
+                if (--next.previous == 0)
+                    ready(next, ready, readyBySQL);
+        }
+        return rows;
+    }
+
+    @Override
+    protected void flush(Collection rows, PreparedStatementManager psMgr) {
+        if (rows.size() < 3) {
+            super.flush(rows, psMgr);
+            return;
+        }
+
+        // these rows do not depend on each other. Only rows whose SQL is
+        // final are grouped; the others refer to instances whose keys are
+        // assigned when earlier rows execute, so they keep their order
+        // after the grouped rows and their SQL is generated on flush
+        Map<String, List<RowImpl>> bySQL = new LinkedHashMap<>();
+        List<RowImpl> pending = null;
+        RowImpl row;
+        String sql;
+        for (Object o : rows) {
+            row = (RowImpl) o;
+            if (row.isValid() && !isSQLFinal(row)) {
+                if (pending == null)
+                    pending = new ArrayList<>();
+                pending.add(row);
+                continue;
+            }
+            sql = (row.isValid()) ? row.getSQL(dict) : null;
+            bySQL.computeIfAbsent(sql, k -> new ArrayList<>()).add(row);
+        }
+        if (bySQL.size() + ((pending == null) ? 0 : 1) == 1) {
+            super.flush(rows, psMgr);
+            return;
+        }
+
+        List<RowImpl> grouped = new ArrayList<>(rows.size());
+        for (List<RowImpl> group : bySQL.values())
+            grouped.addAll(group);
+        if (pending != null)
+            grouped.addAll(pending);
+        super.flush(grouped, psMgr);
+    }
+
+    /**
+     * Return the key to group the given row of the graph by. This is the
+     * SQL of the row, unless its SQL is not final yet; these rows are
+     * grouped by their table instead.
+     */
+    private String groupKey(RowImpl row) {
+        if (!isSQLFinal(row))
+            return row.getAction() + " " + row.getTable().getFullIdentifier().
+                getName();
+        return row.getSQL(dict);
+    }
+
+    /**
+     * Return true if the SQL of the given row can be generated now. It can
+     * not if the row refers to an instance whose key is auto-assigned by
+     * an earlier row, of any kind: generating the SQL fixes the values of
+     * the row before the key is assigned. The primary key of an insert is
+     * not among the values of its SQL.
+     */
+    static boolean isSQLFinal(RowImpl row) {
+        if (row.getAction() != Row.ACTION_INSERT
+            && isUnassigned(row.getPrimaryKey()))
+            return false;
+        for (OpenJPAStateManager sm : row.getDelayedReferences())
+            if (isUnassigned(sm))
+                return false;
+        return true;
+    }
+
+    private static boolean isUnassigned(OpenJPAStateManager sm) {
+        return sm != null && sm.getObjectId() == null;
+    }
+
+    private static void ready(Node node, PriorityQueue<Node> ready,
+        Map<String, PriorityQueue<Node>> readyBySQL) {
+        ready.add(node);
+        readyBySQL.computeIfAbsent(node.sql, k -> new PriorityQueue<>()).
+            add(node);
+    }
+
+    /**
+     * Return the first node of the given queue that has not been flushed.
+     */
+    private static Node poll(PriorityQueue<Node> queue) {
+        if (queue == null)
+            return null;
+        Node node;
+        while ((node = queue.poll()) != null)
+            if (!node.flushed)
+                return node;
+        return null;
+    }
+
+    /**
+     * A row of the graph, ordered by its topological position.
+     */
+    private static class Node implements Comparable<Node> {
+        final RowImpl row;
+        final int position;
+        final String sql;
+        final List<Node> next = new ArrayList<>(2);
+        int previous = 0;
+        boolean flushed = false;
+
+        Node(RowImpl row, int position, String sql) {
+            this.row = row;
+            this.position = position;
+            this.sql = sql;
+        }
+
+        @Override
+        public int compareTo(Node other) {
+            return Integer.compare(position, other.position);
+        }
+    }
+}
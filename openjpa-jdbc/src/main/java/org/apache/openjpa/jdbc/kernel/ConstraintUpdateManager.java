@@ -348,11 +348,23 @@ public class ConstraintUpdateManager
 
         // flush delete updates to null fks, then all rows in order, then
         // the insert updates to set circular fk values
-        Collection nodes = dfa.getSortedNodes();
+        Collection nodes = orderNodes(graph, dfa.getSortedNodes());
         flush(deleteUpdates, nodes, psMgr);
         flush(insertUpdates, psMgr);
     }
 
+    /**
+     * Return the order to flush the rows of the given graph in. By default,
+     * the rows are flushed in the given topological order.
+     *
+     * @param graph the graph of rows, free of cycles
+     * @param nodes the rows of the graph in topological order
+     * @since 3.2.3
+     */
+    protected Collection orderNodes(Graph graph, Collection nodes) {
+        return nodes;
+    }
+
     protected void flush(Collection deleteUpdates, Collection nodes, PreparedStatementManager psMgr) {
         flush(deleteUpdates, psMgr);
         for (Object node : nodes) {
@@ -42,4 +42,15 @@ public interface EagerFetchModes {
      * using either joins or parallel queries.
      */
     int EAGER_PARALLEL = 2;
+
+    /**
+     * Constant indicating to load relations and subclass data like
+     * {@link #EAGER_PARALLEL}, and in addition to batch the loading of lazy
+     * relations: when an unloaded relation of an instance is accessed, the
+     * same field is loaded with one select for all the other instances that
+     * were loaded by the same result.
+     *
+     * @since 3.2.3
+     */
+    int EAGER_BATCH = 3;
 }
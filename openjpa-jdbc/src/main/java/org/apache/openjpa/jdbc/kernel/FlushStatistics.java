@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.jdbc.kernel;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the statements executed by a batching update manager. A statement
+ * is either a single row update or a JDBC batch. Thread safe.
+ *
+ * @since 3.2.3
+ */
+public class FlushStatistics {
+
+    private final AtomicLong _statements = new AtomicLong();
+    private final AtomicLong _batches = new AtomicLong();
+    private final AtomicLong _rows = new AtomicLong();
+    private final AtomicLong _batchedRows = new AtomicLong();
+
+    /**
+     * Record the execution of a single row.
+     */
+    public void statementExecuted() {
+        _statements.incrementAndGet();
+        _rows.incrementAndGet();
+    }
+
+    /**
+     * Record the execution of a batch of the given number of rows.
+     */
+    public void batchExecuted(int rows) {
+        _statements.incrementAndGet();
+        _batches.incrementAndGet();
+        _rows.addAndGet(rows);
+        _batchedRows.addAndGet(rows);
+    }
+
+    /**
+     * The number of statements executed, counting each batch once.
+     */
+    public long getStatementCount() {
+        return _statements.get();
+    }
+
+    /**
+     * The number of batches executed.
+     */
+    public long getBatchCount() {
+        return _batches.get();
+    }
+
+    /**
+     * The number of rows flushed, batched or not.
+     */
+    public long getRowCount() {
+        return _rows.get();
+    }
+
+    /**
+     * The number of rows flushed in batches.
+     */
+    public long getBatchedRowCount() {
+        return _batchedRows.get();
+    }
+
+    /**
+     * The average number of rows per batch.
+     */
+    public double getRowsPerBatch() {
+        long batches = _batches.get();
+        return (batches == 0) ? 0 : (double) _batchedRows.get() / batches;
+    }
+
+    /**
+     * Clear the counts.
+     */
+    public void reset() {
+        _statements.set(0);
+        _batches.set(0);
+        _rows.set(0);
+        _batchedRows.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "statements=" + getStatementCount() + ", batches="
+            + getBatchCount() + ", rows=" + getRowCount()
+            + ", rows per batch=" + getRowsPerBatch();
+    }
+}
@@ -35,6 +35,7 @@ public class InstanceResultObjectProvider
     extends SelectResultObjectProvider {
 
     private final ClassMapping _mapping;
+    private BatchFetchGroup _batch = null;
 
     /**
      * Constructor.
@@ -50,6 +51,24 @@ public class InstanceResultObjectProvider
         _mapping = mapping;
     }
 
+    @Override
+    public void open()
+        throws SQLException {
+        super.open();
+        openBatchFetchGroup();
+    }
+
+    /**
+     * Start the group of loaded instances whose lazy relations are loaded
+     * together under {@link EagerFetchModes#EAGER_BATCH}.
+     */
+    protected void openBatchFetchGroup() {
+        _batch = null;
+        if (getStore() instanceof JDBCStoreManager)
+            _batch = ((JDBCStoreManager) getStore()).newBatchFetchGroup
+                (_mapping, getFetchConfiguration());
+    }
+
     @Override
     public Object getResultObject()
         throws SQLException {
@@ -58,6 +77,8 @@ public class InstanceResultObjectProvider
         if (mapping == null)
             mapping = _mapping;
         Object ret = res.load(mapping, getStore(), getFetchConfiguration());
+        if (ret != null && _batch != null)
+            ((JDBCStoreManager) getStore()).addToBatchFetchGroup(_batch, ret);
         if (ret != null && ret instanceof ProxyCalendar) {
             ret = ((ProxyCalendar) ret).copy(ret);
         }
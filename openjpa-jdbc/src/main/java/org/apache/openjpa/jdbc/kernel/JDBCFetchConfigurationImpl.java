@@ -162,7 +162,8 @@ public class JDBCFetchConfigurationImpl
         if (mode != DEFAULT
             && mode != EagerFetchModes.EAGER_NONE
             && mode != EagerFetchModes.EAGER_JOIN
-            && mode != EagerFetchModes.EAGER_PARALLEL)
+            && mode != EagerFetchModes.EAGER_PARALLEL
+            && mode != EagerFetchModes.EAGER_BATCH)
             throw new IllegalArgumentException(_loc.get("bad-fetch-mode", mode).getMessage());
 
         if (mode == DEFAULT) {
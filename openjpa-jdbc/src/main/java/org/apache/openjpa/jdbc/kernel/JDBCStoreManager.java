@@ -23,12 +23,16 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.io.Closeable;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 import javax.sql.DataSource;
 
@@ -40,12 +44,15 @@ import org.apache.openjpa.jdbc.conf.JDBCConfiguration;
 import org.apache.openjpa.jdbc.meta.ClassMapping;
 import org.apache.openjpa.jdbc.meta.Discriminator;
 import org.apache.openjpa.jdbc.meta.FieldMapping;
+import org.apache.openjpa.jdbc.meta.Joinable;
 import org.apache.openjpa.jdbc.meta.ValueMapping;
 import org.apache.openjpa.jdbc.meta.strats.SuperclassDiscriminatorStrategy;
 import org.apache.openjpa.jdbc.sql.DBDictionary;
 import org.apache.openjpa.jdbc.sql.JoinSyntaxes;
 import org.apache.openjpa.jdbc.sql.Joins;
+import org.apache.openjpa.jdbc.schema.Column;
 import org.apache.openjpa.jdbc.sql.Result;
+import org.apache.openjpa.jdbc.sql.SQLBuffer;
 import org.apache.openjpa.jdbc.sql.SQLExceptions;
 import org.apache.openjpa.jdbc.sql.SQLFactory;
 import org.apache.openjpa.jdbc.sql.Select;
@@ -54,6 +61,7 @@ import org.apache.openjpa.jdbc.sql.Union;
 import org.apache.openjpa.kernel.BrokerImpl;
 import org.apache.openjpa.kernel.FetchConfiguration;
 import org.apache.openjpa.kernel.FinderCache;
+import org.apache.openjpa.kernel.LockLevels;
 import org.apache.openjpa.kernel.LockManager;
 import org.apache.openjpa.kernel.OpenJPAStateManager;
 import org.apache.openjpa.kernel.PCState;
@@ -111,6 +119,13 @@ public class JDBCStoreManager implements StoreManager, JDBCStore {
     private List<CancelPreparedStatement> _cancelPreparedStatementsPool = new ArrayList<>();
     private List<CancelStatement> _cancelStatementPool = new ArrayList<>();
 
+    // max number of instances initialized by a single loadAll select when
+    // the dictionary does not limit the size of IN clauses
+    private static final int LOAD_ALL_BATCH_SIZE = 1000;
+
+    // batch fetch group of each instance loaded under EAGER_BATCH
+    private Map<OpenJPAStateManager, BatchFetchGroup> _batchGroups = null;
+
     @Override
     public StoreContext getContext() {
         return _ctx;
@@ -663,6 +678,10 @@ public class JDBCStoreManager implements StoreManager, JDBCStore {
                 && mapping.customLoad(sm, this, null, jfetch))
                 removeLoadedFields(sm, fields);
 
+            // load lazy relations for the whole batch fetch group at once
+            if (_batchGroups != null && lockLevel == LockLevels.LOCK_NONE
+                && batchLoad(mapping, sm, fields, jfetch))
+                removeLoadedFields(sm, fields);
 
             //### select is kind of a big object, and in some cases we don't
             //### use it... would it be worth it to have a small shell select
@@ -737,7 +756,432 @@ public class JDBCStoreManager implements StoreManager, JDBCStore {
     @Override
     public Collection loadAll(Collection sms, PCState state, int load,
         FetchConfiguration fetch, Object context) {
-        return ImplHelper.loadAll(sms, this, state, load, fetch, context);
+        // without an existing result, initialize hollow instances of the
+        // same mapping with one select per batch of primary keys; whatever
+        // cannot be batched is loaded one at a time as before
+        if (context != null || sms.size() < 2)
+            return ImplHelper.loadAll(sms, this, state, load, fetch, context);
+
+        JDBCFetchConfiguration jfetch = (JDBCFetchConfiguration) fetch;
+        Map<ClassMapping, List<OpenJPAStateManager>> batches = null;
+        List<OpenJPAStateManager> rest = null;
+        OpenJPAStateManager sm;
+        ClassMapping mapping;
+        List<OpenJPAStateManager> batch;
+        for (Object o : sms) {
+            sm = (OpenJPAStateManager) o;
+            mapping = (ClassMapping) sm.getMetaData();
+            if (sm.getManagedInstance() == null
+                && isBatchInitializable(sm.getObjectId(), mapping)) {
+                if (batches == null)
+                    batches = new LinkedHashMap<>();
+                batch = batches.get(mapping);
+                if (batch == null) {
+                    batch = new ArrayList<>();
+                    batches.put(mapping, batch);
+                }
+                batch.add(sm);
+            } else {
+                if (rest == null)
+                    rest = new ArrayList<>();
+                rest.add(sm);
+            }
+        }
+        if (batches == null)
+            return ImplHelper.loadAll(sms, this, state, load, fetch, context);
+
+        Collection failed = null;
+        try {
+            for (Map.Entry<ClassMapping, List<OpenJPAStateManager>> entry
+                : batches.entrySet()) {
+                batch = entry.getValue();
+                if (batch.size() == 1) {
+                    if (rest == null)
+                        rest = new ArrayList<>();
+                    rest.add(batch.get(0));
+                } else
+                    failed = initializeAll(entry.getKey(), batch, state,
+                        jfetch, failed);
+            }
+        } catch (ClassNotFoundException cnfe) {
+            throw new UserException(cnfe);
+        } catch (SQLException se) {
+            throw SQLExceptions.getStore(se, _dict, fetch.getReadLockLevel());
+        }
+
+        if (rest != null) {
+            Collection restFailed = ImplHelper.loadAll(rest, this, state,
+                load, fetch, context);
+            if (!restFailed.isEmpty()) {
+                if (failed == null)
+                    failed = new ArrayList();
+                failed.addAll(restFailed);
+            }
+        }
+        return (failed == null) ? Collections.EMPTY_LIST : failed;
+    }
+
+    /**
+     * Whether an uninitialized instance with the given oid can be loaded
+     * together with other instances of the same mapping. The oid must
+     * identify the exact type, either by itself or because the mapping has
+     * no subclasses, and the mapping's primary key columns must hold the
+     * oid values directly.
+     */
+    private boolean isBatchInitializable(Object oid, ClassMapping mapping) {
+        if (oid == null)
+            return false;
+        if ((!(oid instanceof OpenJPAId) || ((OpenJPAId) oid).hasSubclasses())
+            && mapping.getPCSubclassMappings().length > 0)
+            return false;
+        return mapping.isMapped()
+            && mapping.getEmbeddingMapping() == null
+            && mapping.isPrimaryKeyObjectId(false);
+    }
+
+    /**
+     * Initialize the given hollow instances of a single mapping with chunked
+     * <code>pk IN (...)</code> selects. The chunk size is bounded by the
+     * dictionary's IN clause limit. Returns the given collection of failed
+     * ids, with the ids of instances that have no datastore record added.
+     */
+    private Collection initializeAll(ClassMapping mapping,
+        List<OpenJPAStateManager> sms, PCState state,
+        JDBCFetchConfiguration fetch, Collection failed)
+        throws ClassNotFoundException, SQLException {
+        Column[] pks = mapping.getPrimaryKeyColumns();
+        int limit = (_dict.inClauseLimit > 0) ? _dict.inClauseLimit
+            : LOAD_ALL_BATCH_SIZE;
+        limit = Math.max(1, limit / pks.length);
+
+        ClassMapping base = mapping;
+        while (base.getJoinablePCSuperclassMapping() != null)
+            base = base.getJoinablePCSuperclassMapping();
+
+        BatchFetchGroup group = newBatchFetchGroup(mapping, fetch);
+        Map<Object, OpenJPAStateManager> pending = new HashMap<>();
+        for (int start = 0; start < sms.size(); start += limit) {
+            List<OpenJPAStateManager> chunk = sms.subList(start,
+                Math.min(start + limit, sms.size()));
+
+            pending.clear();
+            for (OpenJPAStateManager sm : chunk) {
+                Boolean custom = customLoad(sm, mapping, state, fetch);
+                if (custom == null)
+                    pending.put(sm.getObjectId(), sm);
+                else if (!custom)
+                    failed = addFailedId(sm, failed);
+            }
+            if (pending.isEmpty())
+                continue;
+
+            Select sel = _sql.newSelect();
+            sel.selectIdentifier(mapping, Select.SUBS_EXACT, this, fetch,
+                EagerFetchModes.EAGER_PARALLEL);
+            List<Object[]> vals = new ArrayList<>(pending.size());
+            for (OpenJPAStateManager sm : pending.values())
+                vals.add(getPrimaryKeyValues(sm.getObjectId(), mapping, pks));
+            sel.where(getPrimaryKeyCondition(sel, pks, vals));
+            sel.setExpectedResultCount(pending.size(), false);
+            if (_log.isTraceEnabled()) {
+                _log.trace("initializeAll: " + mapping.getDescribedType()
+                    + " count=" + pending.size());
+            }
+
+            ConnectionInfo info = new ConnectionInfo();
+            info.mapping = mapping;
+            Result res = sel.execute(this, fetch);
+            try {
+                info.result = res;
+                Object oid;
+                OpenJPAStateManager sm;
+                while (res.next()) {
+                    oid = base.getObjectId(this, res, null, true, null);
+                    sm = (oid == null) ? null : pending.remove(oid);
+                    if (sm == null)
+                        continue;
+                    info.mapping = mapping;
+                    if (initializeState(sm, state, fetch, info)
+                        && group != null)
+                        addToBatchFetchGroup(group, sm);
+                }
+            } finally {
+                res.close();
+            }
+
+            // no row for these instances
+            for (OpenJPAStateManager sm : pending.values())
+                failed = addFailedId(sm, failed);
+        }
+        return failed;
+    }
+
+    /**
+     * Create a condition restricting the given select to the given primary
+     * key values.
+     */
+    private SQLBuffer getPrimaryKeyCondition(Select sel, Column[] pks,
+        List<Object[]> pkVals) {
+        SQLBuffer buf = new SQLBuffer(_dict);
+        String[] aliases = new String[pks.length];
+        for (int i = 0; i < pks.length; i++)
+            aliases[i] = sel.getColumnAlias(pks[i]);
+
+        int count = 0;
+        if (pks.length == 1)
+            buf.append(aliases[0]).append(" IN (");
+        else
+            buf.append("(");
+        for (Object[] vals : pkVals) {
+            if (pks.length == 1) {
+                if (count++ > 0)
+                    buf.append(", ");
+                buf.appendValue(vals[0], pks[0]);
+                continue;
+            }
+
+            if (count++ > 0)
+                buf.append(" OR ");
+            buf.append("(");
+            for (int i = 0; i < vals.length; i++) {
+                if (i > 0)
+                    buf.append(" AND ");
+                buf.append(aliases[i]);
+                if (vals[i] == null)
+                    buf.append(" IS ");
+                else
+                    buf.append(" = ");
+                buf.appendValue(vals[i], pks[i]);
+            }
+            buf.append(")");
+        }
+        buf.append(")");
+        return buf;
+    }
+
+    /**
+     * Return the values of the given primary key columns for the given oid.
+     */
+    private Object[] getPrimaryKeyValues(Object oid, ClassMapping mapping,
+        Column[] cols) {
+        Object[] vals = new Object[cols.length];
+        if (mapping.getIdentityType() != ClassMetaData.ID_APPLICATION) {
+            vals[0] = ((Id) oid).getId();
+            return vals;
+        }
+
+        Object[] pks = ApplicationIds.toPKValues(oid, mapping);
+        Joinable join;
+        for (int i = 0; i < cols.length; i++) {
+            join = mapping.assertJoinable(cols[i]);
+            vals[i] = join.getJoinValue(pks[mapping.getField
+                (join.getFieldIndex()).getPrimaryKeyIndex()], cols[i], this);
+        }
+        return vals;
+    }
+
+    private static Collection addFailedId(OpenJPAStateManager sm,
+        Collection failed) {
+        if (failed == null)
+            failed = new ArrayList();
+        failed.add(sm.getId());
+        return failed;
+    }
+
+    /**
+     * Return a new group for the instances of the given mapping loaded by
+     * a single result, or null if none of the mapping's relations use
+     * {@link EagerFetchModes#EAGER_BATCH}.
+     *
+     * @since 3.2.3
+     */
+    BatchFetchGroup newBatchFetchGroup(ClassMapping mapping,
+        JDBCFetchConfiguration fetch) {
+        if (mapping == null)
+            return null;
+        if (fetch.getEagerFetchMode() == EagerFetchModes.EAGER_BATCH)
+            return new BatchFetchGroup();
+        for (FieldMapping fm : mapping.getFieldMappings())
+            if (fm.getEagerFetchMode() == EagerFetchModes.EAGER_BATCH)
+                return new BatchFetchGroup();
+        return null;
+    }
+
+    /**
+     * Add the given loaded instance, or the instances of the given collection
+     * or map values, to the given batch fetch group.
+     *
+     * @since 3.2.3
+     */
+    void addToBatchFetchGroup(BatchFetchGroup group, Object pc) {
+        if (pc instanceof Collection) {
+            for (Object o : (Collection<?>) pc)
+                addToBatchFetchGroup(group, o);
+            return;
+        }
+        if (pc instanceof Map) {
+            for (Object o : ((Map<?, ?>) pc).values())
+                addToBatchFetchGroup(group, o);
+            return;
+        }
+
+        OpenJPAStateManager sm = (pc instanceof OpenJPAStateManager)
+            ? (OpenJPAStateManager) pc : _ctx.getStateManager(pc);
+        if (sm == null || sm.getOwner() != null)
+            return;
+
+        _ctx.lock();
+        try {
+            if (_batchGroups == null)
+                _batchGroups = new WeakHashMap<>();
+            if (!_batchGroups.containsKey(sm)) {
+                group.add(sm);
+                _batchGroups.put(sm, group);
+            }
+        } finally {
+            _ctx.unlock();
+        }
+    }
+
+    /**
+     * Whether the given field is loaded in batches.
+     */
+    private static boolean isBatchFetch(FieldMapping fm,
+        JDBCFetchConfiguration fetch) {
+        int mode = fm.getEagerFetchMode();
+        if (mode == FetchConfiguration.DEFAULT)
+            mode = fetch.getEagerFetchMode();
+        return mode == EagerFetchModes.EAGER_BATCH;
+    }
+
+    /**
+     * Load the requested lazy relations of the given instance together with
+     * the same fields of the other instances in its batch fetch group.
+     * Return true if any field was loaded.
+     */
+    private boolean batchLoad(ClassMapping mapping, OpenJPAStateManager sm,
+        BitSet fields, JDBCFetchConfiguration fetch)
+        throws SQLException {
+        BatchFetchGroup group;
+        _ctx.lock();
+        try {
+            group = _batchGroups.get(sm);
+        } finally {
+            _ctx.unlock();
+        }
+        if (group == null)
+            return false;
+
+        FieldMapping[] fms = mapping.getFieldMappings();
+        List<OpenJPAStateManager> members = null;
+        boolean loaded = false;
+        for (int i = 0, len = Math.min(fields.length(), fms.length);
+            i < len; i++) {
+            if (!fields.get(i) || sm.getLoaded().get(i)
+                || !isBatchFetch(fms[i], fetch) || fms[i].isBiMTo1JT())
+                continue;
+            if (members == null)
+                members = group.getMembers();
+            if (batchLoad(fms[i], sm, members, fetch))
+                loaded = true;
+        }
+        return loaded;
+    }
+
+    /**
+     * Load the given field of the given instance and of all group members
+     * that have not loaded it yet with one parallel eager select per batch
+     * of primary keys. Return false if the field cannot be batched.
+     */
+    private boolean batchLoad(FieldMapping fm, OpenJPAStateManager sm,
+        List<OpenJPAStateManager> members, JDBCFetchConfiguration fetch)
+        throws SQLException {
+        ClassMapping owner = fm.getDefiningMapping();
+        fm = owner.getFieldMapping(fm.getIndex());
+        Select sel = _sql.newSelect();
+        if (fm.supportsSelect(sel, Select.EAGER_PARALLEL, sm, this, fetch) == 0)
+            return false;
+
+        // the requesting instance comes first so that it is always loaded
+        List<OpenJPAStateManager> batch = new ArrayList<>();
+        batch.add(sm);
+        int idx = fm.getIndex();
+        Class<?> type = owner.getDescribedType();
+        for (OpenJPAStateManager member : members) {
+            if (member == sm || member.getManagedInstance() == null
+                || !member.isPersistent() || member.isNew()
+                || member.isDeleted() || member.isDetached()
+                || member.getPCState() == PCState.HOLLOW
+                || member.getLoaded().get(idx)
+                || !type.isAssignableFrom(member.getMetaData().
+                    getDescribedType())
+                || fm.supportsSelect(sel, Select.EAGER_PARALLEL, member,
+                    this, fetch) == 0)
+                continue;
+            batch.add(member);
+        }
+        if (batch.size() < 2)
+            return false;
+
+        Column[] pks = owner.getPrimaryKeyColumns();
+        int limit = (_dict.inClauseLimit > 0) ? _dict.inClauseLimit
+            : LOAD_ALL_BATCH_SIZE;
+        limit = Math.max(1, limit / pks.length);
+        if (_log.isTraceEnabled()) {
+            _log.trace("batchLoad: " + fm + " count=" + batch.size());
+        }
+
+        // the loaded relations form a group of their own, so that walking
+        // the object graph one level deeper is batched as well
+        ClassMapping rel = fm.getElementMapping().getTypeMapping();
+        if (rel == null)
+            rel = fm.getTypeMapping();
+        JDBCFetchConfiguration efetch = fetch.traverseJDBC(fm);
+        BatchFetchGroup related = newBatchFetchGroup(rel, efetch);
+        List<Object[]> vals = new ArrayList<>();
+        Object val;
+        SelectExecutor esel;
+        int unions;
+        Object res;
+        for (int start = 0; start < batch.size(); start += limit) {
+            List<OpenJPAStateManager> chunk = batch.subList(start,
+                Math.min(start + limit, batch.size()));
+
+            vals.clear();
+            for (OpenJPAStateManager member : chunk) {
+                val = owner.toDataStoreValue(member.getManagedInstance(), pks,
+                    this);
+                vals.add((pks.length == 1) ? new Object[]{ val }
+                    : (Object[]) val);
+            }
+            if (start > 0)
+                sel = _sql.newSelect();
+            sel.where(getPrimaryKeyCondition(sel, pks, vals));
+
+            unions = fm.supportsSelect(sel, Select.EAGER_PARALLEL, null, this,
+                fetch);
+            esel = (unions > 1) ? sel.whereClone(unions) : sel;
+            fm.selectEagerParallel(esel, null, this, efetch,
+                EagerFetchModes.EAGER_PARALLEL);
+            res = esel.execute(this, fetch);
+            try {
+                for (OpenJPAStateManager member : chunk)
+                    res = fm.loadEagerParallel(member, this, efetch, res);
+            } finally {
+                if (res instanceof Closeable)
+                    try {
+                        ((Closeable) res).close();
+                    } catch (Exception e) {
+                        if (_log.isWarnEnabled())
+                            _log.warn(_loc.get("batch-close-failed", fm), e);
+                    }
+            }
+            if (related != null)
+                for (OpenJPAStateManager member : chunk)
+                    addToBatchFetchGroup(related, member.fetchField(idx,
+                        false));
+        }
+        return true;
     }
 
     @Override
@@ -988,6 +1432,7 @@ public class JDBCStoreManager implements StoreManager, JDBCStore {
     public void close() {
         if (_conn != null)
             _conn.free();
+        _batchGroups = null;
     }
 
     /////////////
@@ -1279,7 +1724,9 @@ public class JDBCStoreManager implements StoreManager, JDBCStore {
             // try to select with join first
             jtype = (fm.getNullValue() == FieldMetaData.NULL_EXCEPTION)
                     ? Select.EAGER_INNER : Select.EAGER_OUTER;
-            if (mode != EagerFetchModes.EAGER_PARALLEL && !fm.isEagerSelectToMany()
+            if (mode != EagerFetchModes.EAGER_PARALLEL
+                    && mode != EagerFetchModes.EAGER_BATCH
+                    && !fm.isEagerSelectToMany()
                     && fm.supportsSelect(sel, jtype, sm, this, fetch) > 0
                     && sel.eagerClone(fm, jtype, false, 1) != null)
                 continue;
@@ -1307,7 +1754,7 @@ public class JDBCStoreManager implements StoreManager, JDBCStore {
             }
 
             // finally, try parallel
-            if (eager == EagerFetchModes.EAGER_PARALLEL
+            if (eager >= EagerFetchModes.EAGER_PARALLEL
                     && (sels = fm.supportsSelect(sel, Select.EAGER_PARALLEL, sm,
                     this, fetch)) != 0)
                 sel.eagerClone(fm, Select.EAGER_PARALLEL,
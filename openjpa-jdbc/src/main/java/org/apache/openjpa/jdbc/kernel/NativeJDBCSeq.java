@@ -23,6 +23,13 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.MessageFormat;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.sql.DataSource;
 
 import org.apache.openjpa.conf.OpenJPAConfiguration;
 import org.apache.openjpa.jdbc.conf.JDBCConfiguration;
@@ -78,6 +85,10 @@ public class NativeJDBCSeq
     private String _select = null;
     private long _nextValue = 0;
     private long _maxValue = -1;
+    private int _prefetch = 0;
+    private ExecutorService _executor = null;
+    private volatile SeqBlock _block = null;
+    private Future<SeqBlock> _next = null;
 
     private DBIdentifier _schema = DBIdentifier.NULL;
 
@@ -85,6 +96,9 @@ public class NativeJDBCSeq
     private boolean alreadyLoggedAlterSeqFailure = false;
     private boolean alreadyLoggedAlterSeqDisabled = false;
 
+    // held across the allocation of a new block of values
+    private final ReentrantLock _lock = new ReentrantLock();
+
     /**
      * The sequence name. Defaults to <code>OPENJPA_SEQUENCE</code>.
      */
@@ -128,6 +142,29 @@ public class NativeJDBCSeq
         _allocate = allocate;
     }
 
+    /**
+     * The number of values left in the current block of values when the
+     * next block is fetched in the background. Defaults to 0, which fetches
+     * the next block once the current block is exhausted, in the thread
+     * that needs the value. When set, the values of a block are handed out
+     * without locking.
+     *
+     * @since 3.2.3
+     */
+    public int getPrefetchThreshold() {
+        return _prefetch;
+    }
+
+    /**
+     * The number of values left in the current block of values when the
+     * next block is fetched in the background.
+     *
+     * @since 3.2.3
+     */
+    public void setPrefetchThreshold(int prefetch) {
+        _prefetch = prefetch;
+    }
+
     /**
      * @see Sequence#getIncrement
      */
@@ -193,21 +230,37 @@ public class NativeJDBCSeq
         _select = MessageFormat.format(format, new Object[]{name, String.valueOf(_allocate * _increment)});
 
         type = dict.nativeSequenceType;
+        if (_prefetch > 0)
+            _executor = SeqBlock.newExecutor(this);
+    }
+
+    @Override
+    public void close() {
+        if (_executor != null)
+            _executor.shutdown();
     }
 
     @Override
-    protected synchronized Object nextInternal(JDBCStore store, ClassMapping mapping)
+    protected Object nextInternal(JDBCStore store, ClassMapping mapping)
         throws SQLException {
-        if (!alterIncrementBy) {
-            allocateInternal(0, store, mapping);
-            alterIncrementBy = true;
-        }
-        if (_nextValue >= _maxValue) {
-            allocateInternal(0, store, mapping);
+        if (_executor != null)
+            return nextPrefetched(store);
+
+        _lock.lock();
+        try {
+            if (!alterIncrementBy) {
+                allocateInternal(0, store, mapping);
+                alterIncrementBy = true;
+            }
+            if (_nextValue >= _maxValue) {
+                allocateInternal(0, store, mapping);
+            }
+            long result = _nextValue;
+            _nextValue += _increment;
+            return result;
+        } finally {
+            _lock.unlock();
         }
-        long result = _nextValue;
-        _nextValue += _increment;
-        return result;
     }
 
     /**
@@ -217,7 +270,122 @@ public class NativeJDBCSeq
      * @param mapping ignored
      */
     @Override
-    protected synchronized void allocateInternal(int additional, JDBCStore store, ClassMapping mapping)
+    protected void allocateInternal(int additional, JDBCStore store, ClassMapping mapping)
+        throws SQLException {
+        _lock.lock();
+        try {
+            if (_executor == null)
+                allocateSequence(store);
+            else if (_block == null)
+                _block = nextBlock(store);
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * Return the next value of the current block, fetching the next block
+     * once the values left drop to the prefetch threshold.
+     */
+    private long nextPrefetched(JDBCStore store)
+        throws SQLException {
+        while (true) {
+            SeqBlock block = _block;
+            if (block != null) {
+                long value = block.next();
+                if (block.contains(value)) {
+                    if (block.isThreshold(value))
+                        prefetch(store);
+                    return value;
+                }
+            }
+
+            _lock.lock();
+            try {
+                if (_block == block)
+                    _block = nextBlock(store);
+            } finally {
+                _lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Start fetching the next block in the background.
+     */
+    private void prefetch(JDBCStore store) {
+        final DataSource ds = _conf.getDataSource2(store.getContext());
+        _lock.lock();
+        try {
+            if (_next == null)
+                _next = _executor.submit(() -> prefetchBlock(ds));
+        } catch (RejectedExecutionException ree) {
+            // closed; the next block is fetched when it is needed
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * Return the block fetched in the background, or fetch one if there is
+     * none. Called with the lock held.
+     */
+    private SeqBlock nextBlock(JDBCStore store)
+        throws SQLException {
+        Future<SeqBlock> next = _next;
+        _next = null;
+        Throwable failure = null;
+        if (next != null) {
+            try {
+                return next.get();
+            } catch (ExecutionException ee) {
+                failure = ee.getCause();
+                Log log = _conf.getLog(OpenJPAConfiguration.LOG_RUNTIME);
+                if (log.isWarnEnabled())
+                    log.warn(_loc.get("seq-prefetch-failed", _seqName),
+                        failure);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            allocateSequence(store);
+        } catch (SQLException | RuntimeException e) {
+            if (failure != null)
+                e.addSuppressed(failure);
+            throw e;
+        }
+        alterIncrementBy = true;
+        return new SeqBlock(_nextValue, _maxValue, _increment, _prefetch);
+    }
+
+    /**
+     * Fetch a block of values with a connection of the given data source.
+     */
+    private SeqBlock prefetchBlock(DataSource ds)
+        throws SQLException {
+        Connection conn = ds.getConnection();
+        try {
+            long start = getSequence(conn);
+            if (!conn.getAutoCommit())
+                conn.commit();
+            return new SeqBlock(start, start + _allocate * _increment,
+                _increment, _prefetch);
+        } catch (SQLException | RuntimeException e) {
+            try {
+                if (!conn.getAutoCommit())
+                    conn.rollback();
+            } catch (SQLException se) {}
+            throw e;
+        } finally {
+            try { conn.close(); } catch (SQLException se) {}
+        }
+    }
+
+    /**
+     * Fetch the next block of sequence values. Called with the lock held.
+     */
+    private void allocateSequence(JDBCStore store)
         throws SQLException {
         Connection conn = getConnection(store);
         try {
@@ -62,6 +62,7 @@ public class PagingResultObjectProvider
     private final BitSet[] _paged;
     private int _pos = -1; // logical pos
     private int _pagePos = -1; // pos of page start
+    private BatchFetchGroup _batch = null;
 
     /**
      * Return a bit set representing batch select fields that will be paged,
@@ -86,7 +87,7 @@ public class PagingResultObjectProvider
 
         // not configured for eager selects?
         eagerMode = Math.min(eagerMode, fetch.getEagerFetchMode());
-        if (eagerMode != EagerFetchModes.EAGER_PARALLEL)
+        if (eagerMode < EagerFetchModes.EAGER_PARALLEL)
             return null;
 
         // are there any mappings that require batched selects?
@@ -190,6 +191,10 @@ public class PagingResultObjectProvider
         throws SQLException {
         super.open();
         _pos = -1;
+        _batch = null;
+        for (int i = 0; i < _mappings.length && _batch == null; i++)
+            _batch = ((JDBCStoreManager) getStore()).newBatchFetchGroup
+                (_mappings[i], getFetchConfiguration());
     }
 
     @Override
@@ -257,6 +262,8 @@ public class PagingResultObjectProvider
             // fields to exclude from the initial load of the objects
             _page[i] = storeMgr.load(mapping, getFetchConfiguration(),
                 _paged[idx], res);
+            if (_page[i] != null && _batch != null)
+                storeMgr.addToBatchFetchGroup(_batch, _page[i]);
             if (i != _page.length - 1 && !getResult().next()) {
                 setSize(_pos + i + 1);
                 break;
@@ -49,6 +49,7 @@ public class PreparedResultObjectProvider extends InstanceResultObjectProvider {
 
     @Override
     public void open() throws SQLException {
-        // do nothing
+        // the result is already open
+        openBatchFetchGroup();
     }
 }
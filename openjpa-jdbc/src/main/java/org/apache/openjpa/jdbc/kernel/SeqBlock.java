@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.jdbc.kernel;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Block of sequence values that is handed out without locking, used by the
+ * sequences that allocate their next block in the background once the
+ * values left in the current block drop to a threshold.
+ *
+ * @since 3.2.3
+ */
+final class SeqBlock {
+
+    private final AtomicLong _next;
+    private final long _max;
+    private final long _mark;
+    private final int _step;
+
+    /**
+     * @param start the first value of the block
+     * @param max the value after the last value of the block
+     * @param step the difference between two values of the block
+     * @param threshold the number of values left when the next block
+     * should be allocated
+     */
+    SeqBlock(long start, long max, int step, int threshold) {
+        _next = new AtomicLong(start);
+        _max = max;
+        _step = step;
+        _mark = Math.max(start, max - (long) threshold * step);
+    }
+
+    /**
+     * Return the next value of the block. The value is only valid if
+     * {@link #contains} it.
+     */
+    long next() {
+        return _next.getAndAdd(_step);
+    }
+
+    /**
+     * Whether the given value returned by {@link #next} is in the block.
+     */
+    boolean contains(long value) {
+        return value < _max;
+    }
+
+    /**
+     * Return the number of values left in the block.
+     */
+    long available() {
+        return Math.max(0, (_max - _next.get()) / _step);
+    }
+
+    /**
+     * Whether the next block should be allocated once the given value is
+     * handed out. This is true for one value of the block only.
+     */
+    boolean isThreshold(long value) {
+        return value == _mark;
+    }
+
+    /**
+     * Return the executor that allocates the next blocks of the given
+     * sequence.
+     */
+    static ExecutorService newExecutor(Object seq) {
+        final String name = "openjpa-seq-" + seq.getClass().getSimpleName();
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
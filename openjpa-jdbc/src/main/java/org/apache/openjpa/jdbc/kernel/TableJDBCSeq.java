@@ -25,6 +25,13 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.sql.DataSource;
 
 import javax.transaction.NotSupportedException;
 
@@ -87,6 +94,8 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
     private transient Log _log = null;
     private int _alloc = 50;
     private int _intValue = 1;
+    private int _prefetch = 0;
+    private transient ExecutorService _executor = null;
     private final ConcurrentHashMap<ClassMapping, Status> _stat = new ConcurrentHashMap<>();
 
     private DBIdentifier _table = DBIdentifier.newTable(DEFAULT_TABLE);
@@ -208,6 +217,30 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
         _intValue = intValue;
     }
 
+    /**
+     * The number of values left in the current block of values when the
+     * next block is allocated in the background. Defaults to 0, which
+     * allocates the next block once the current block is exhausted, in the
+     * thread that needs the value. When set, the values of a block are
+     * handed out without locking. Only applies to non-transactional
+     * sequences whose connections are not enlisted in a JTA transaction.
+     *
+     * @since 3.2.3
+     */
+    public int getPrefetchThreshold() {
+        return _prefetch;
+    }
+
+    /**
+     * The number of values left in the current block of values when the
+     * next block is allocated in the background.
+     *
+     * @since 3.2.3
+     */
+    public void setPrefetchThreshold(int prefetch) {
+        _prefetch = prefetch;
+    }
+
     /**
      * Sets the names of the columns on which a unique constraint is set.
      * @param columnsNames are passed as a single String concatenated with
@@ -249,6 +282,14 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
     @Override
     public void endConfiguration() {
         buildTable();
+        if (_prefetch > 0)
+            _executor = SeqBlock.newExecutor(this);
+    }
+
+    @Override
+    public void close() {
+        if (_executor != null)
+            _executor.shutdown();
     }
 
 
@@ -298,15 +339,20 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
         if (stat == null)
             throw new InvalidStateException(_loc.get("bad-seq-type",
                 getClass(), mapping));
+        if (isPrefetching())
+            return nextPrefetched(store, mapping, stat);
 
         while (true) {
-            synchronized (stat) {
+            stat.lock.lock();
+            try {
                 // make sure seq is at least 1, since autoassigned ids of 0 can
                 // conflict with uninitialized values
                 stat.seq = Math.max(stat.seq, 1);
                 if (stat.seq < stat.max)
                     return stat.seq++;
                 allocateSequence(store, mapping, stat, _alloc, true);
+            } finally {
+                stat.lock.unlock();
             }
         }
     }
@@ -340,18 +386,155 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
         Status stat = getStatus(mapping);
         if (stat == null)
             return;
+        if (isPrefetching()) {
+            stat.lock.lock();
+            try {
+                if (stat.block == null || stat.block.available() < count)
+                    stat.block = allocateBlock(store, mapping,
+                        Math.max(count, _alloc));
+            } finally {
+                stat.lock.unlock();
+            }
+            return;
+        }
 
         while (true) {
             int available;
-            synchronized (stat) {
+            stat.lock.lock();
+            try {
                 available = (int) (stat.max - stat.seq);
                 if (available >= count)
                     return;
+            } finally {
+                stat.lock.unlock();
             }
             allocateSequence(store, mapping, stat, count - available, false);
         }
     }
 
+    /**
+     * Whether blocks of values are allocated in the background.
+     */
+    private boolean isPrefetching() {
+        return _executor != null && !suspendInJTA()
+            && (type == TYPE_DEFAULT || type == TYPE_NONTRANSACTIONAL);
+    }
+
+    /**
+     * Return the next value of the current block of the given status,
+     * allocating the next block once the values left drop to the
+     * prefetch threshold.
+     */
+    private long nextPrefetched(JDBCStore store, ClassMapping mapping,
+        Status stat)
+        throws SQLException {
+        while (true) {
+            SeqBlock block = stat.block;
+            if (block != null) {
+                long value = block.next();
+                if (block.contains(value)) {
+                    if (block.isThreshold(value))
+                        prefetch(store, mapping, stat);
+                    return value;
+                }
+            }
+
+            stat.lock.lock();
+            try {
+                if (stat.block == block)
+                    stat.block = nextBlock(store, mapping, stat);
+            } finally {
+                stat.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Start the allocation of the next block of the given status in the
+     * background.
+     */
+    private void prefetch(JDBCStore store, final ClassMapping mapping,
+        Status stat) {
+        final DataSource ds = _conf.getDataSource2(store.getContext());
+        stat.lock.lock();
+        try {
+            if (stat.prefetch == null)
+                stat.prefetch = _executor.submit(() ->
+                    prefetchBlock(ds, mapping));
+        } catch (RejectedExecutionException ree) {
+            // closed; the next block is allocated when it is needed
+        } finally {
+            stat.lock.unlock();
+        }
+    }
+
+    /**
+     * Return the block allocated in the background for the given status,
+     * or allocate one if there is none. Called with the lock held.
+     */
+    private SeqBlock nextBlock(JDBCStore store, ClassMapping mapping,
+        Status stat)
+        throws SQLException {
+        Future<SeqBlock> prefetch = stat.prefetch;
+        stat.prefetch = null;
+        Throwable failure = null;
+        if (prefetch != null) {
+            try {
+                return prefetch.get();
+            } catch (ExecutionException ee) {
+                failure = ee.getCause();
+                if (_log.isWarnEnabled())
+                    _log.warn(_loc.get("seq-prefetch-failed", mapping),
+                        failure);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            return allocateBlock(store, mapping, _alloc);
+        } catch (SQLException | RuntimeException e) {
+            if (failure != null)
+                e.addSuppressed(failure);
+            throw e;
+        }
+    }
+
+    /**
+     * Allocate a block of the given number of values.
+     */
+    private SeqBlock allocateBlock(JDBCStore store, ClassMapping mapping,
+        int alloc)
+        throws SQLException {
+        Status block = new Status();
+        allocateSequence(store, mapping, block, alloc, true);
+        return new SeqBlock(Math.max(block.seq, 1), block.max, 1, _prefetch);
+    }
+
+    /**
+     * Allocate a block of values with a connection of the given data
+     * source. The sequence row was inserted by the allocation of the
+     * first block.
+     */
+    private SeqBlock prefetchBlock(DataSource ds, ClassMapping mapping)
+        throws SQLException {
+        Status block = new Status();
+        Connection conn = ds.getConnection();
+        try {
+            if (conn.getAutoCommit())
+                conn.setAutoCommit(false);
+            if (!setSequence(mapping, block, _alloc, true, conn))
+                throw new SQLException(_loc.get("no-seq-row", mapping,
+                    _table).getMessage());
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            try { conn.rollback(); } catch (SQLException se) {}
+            throw e;
+        } finally {
+            try { conn.close(); } catch (SQLException se) {}
+        }
+        return new SeqBlock(Math.max(block.seq, 1), block.max, 1, _prefetch);
+    }
+
     /**
      * Return the appropriate status object for the given class, or null
      * if cannot handle the given class. The mapping may be null.
@@ -625,11 +808,14 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
         }
 
         // setup new sequence range
-        synchronized (stat) {
+        stat.lock.lock();
+        try {
             if (updateStatSeq && stat.seq < cur)
                 stat.seq = cur;
             if (stat.max < cur + inc)
                 stat.max = cur + inc;
+        } finally {
+            stat.lock.unlock();
         }
         return true;
     }
@@ -820,6 +1006,15 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
         private static final long serialVersionUID = 1L;
         public long seq = 1L;
         public long max = 0L;
+
+        // guards seq and max, also while a new block is allocated
+        public final ReentrantLock lock = new ReentrantLock();
+
+        // with a prefetch threshold, the values are handed out from the
+        // block without the lock, and the next block is allocated in the
+        // background
+        transient volatile SeqBlock block;
+        transient Future<SeqBlock> prefetch;
     }
 
     /**
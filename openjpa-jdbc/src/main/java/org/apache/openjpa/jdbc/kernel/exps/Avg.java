@@ -18,12 +18,15 @@
  */
 package org.apache.openjpa.jdbc.kernel.exps;
 
+import org.apache.openjpa.kernel.exps.StandardAggregate;
+
 /**
  * Average.
  *
  * @author Abe White
  */
-class Avg extends NullableAggregateUnaryOp { // OPENJPA-1794
+class Avg extends NullableAggregateUnaryOp
+    implements StandardAggregate { // OPENJPA-1794
     private static final long serialVersionUID = 1L;
 
     /**
@@ -42,4 +45,14 @@ class Avg extends NullableAggregateUnaryOp { // OPENJPA-1794
     public boolean isAggregate() {
         return true;
     }
+
+    @Override
+    public int getFunction() {
+        return AVG;
+    }
+
+    @Override
+    public boolean isDistinct() {
+        return getValue() instanceof Distinct;
+    }
 }
@@ -21,6 +21,7 @@ package org.apache.openjpa.jdbc.kernel.exps;
 import org.apache.openjpa.jdbc.schema.Column;
 import org.apache.openjpa.jdbc.sql.SQLBuffer;
 import org.apache.openjpa.jdbc.sql.Select;
+import org.apache.openjpa.kernel.exps.StandardAggregate;
 
 /**
  * Count non-null values.
@@ -28,7 +29,8 @@ import org.apache.openjpa.jdbc.sql.Select;
  * @author Abe White
  */
 class Count
-    extends UnaryOp {
+    extends UnaryOp
+    implements StandardAggregate {
 
     
     private static final long serialVersionUID = 1L;
@@ -98,5 +100,13 @@ class Count
         }
     }
 
-}
+    @Override
+    public int getFunction() {
+        return COUNT;
+    }
 
+    @Override
+    public boolean isDistinct() {
+        return isCountDistinct;
+    }
+}
@@ -18,12 +18,15 @@
  */
 package org.apache.openjpa.jdbc.kernel.exps;
 
+import org.apache.openjpa.kernel.exps.StandardAggregate;
+
 /**
  * Minimum.
  *
  * @author Abe White
  */
-class Min extends NullableAggregateUnaryOp { // OPENJPA-1794
+class Min extends NullableAggregateUnaryOp
+    implements StandardAggregate { // OPENJPA-1794
     private static final long serialVersionUID = 1L;
 
     /**
@@ -42,5 +45,14 @@ class Min extends NullableAggregateUnaryOp { // OPENJPA-1794
     public boolean isAggregate() {
         return true;
     }
-}
 
+    @Override
+    public int getFunction() {
+        return MIN;
+    }
+
+    @Override
+    public boolean isDistinct() {
+        return getValue() instanceof Distinct;
+    }
+}
@@ -18,12 +18,15 @@
  */
 package org.apache.openjpa.jdbc.kernel.exps;
 
+import org.apache.openjpa.kernel.exps.StandardAggregate;
+
 /**
  * Sum.
  *
  * @author Abe White
  */
-class Sum extends NullableAggregateUnaryOp { // OPENJPA-1794
+class Sum extends NullableAggregateUnaryOp
+    implements StandardAggregate { // OPENJPA-1794
     private static final long serialVersionUID = 1L;
 
     /**
@@ -65,4 +68,14 @@ class Sum extends NullableAggregateUnaryOp { // OPENJPA-1794
     public boolean isAggregate() {
         return true;
     }
+
+    @Override
+    public int getFunction() {
+        return SUM;
+    }
+
+    @Override
+    public boolean isDistinct() {
+        return getValue() instanceof Distinct;
+    }
 }
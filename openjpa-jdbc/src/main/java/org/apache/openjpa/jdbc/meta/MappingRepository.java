@@ -153,10 +153,13 @@ public class MappingRepository extends MetaDataRepository {
      */
     public SchemaGroup getSchemaGroup() {
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 if (_schema == null)
                     _schema = ((JDBCConfiguration) getConfiguration()).getSchemaFactoryInstance().readSchema();
                 return _schema;
+            } finally {
+                unlock();
             }
         } else {
             if (_schema == null)
@@ -170,8 +173,11 @@ public class MappingRepository extends MetaDataRepository {
      */
     public void setSchemaGroup(SchemaGroup schema) {
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 _schema = schema;
+            } finally {
+                unlock();
             }
         } else {
             _schema = schema;
@@ -183,10 +189,13 @@ public class MappingRepository extends MetaDataRepository {
      */
     public StrategyInstaller getStrategyInstaller() {
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 if (_installer == null)
                     _installer = new RuntimeStrategyInstaller(this);
                 return _installer;
+            } finally {
+                unlock();
             }
         } else {
             if (_installer == null)
@@ -200,8 +209,11 @@ public class MappingRepository extends MetaDataRepository {
      */
     public void setStrategyInstaller(StrategyInstaller installer) {
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 _installer = installer;
+            } finally {
+                unlock();
             }
         } else {
             _installer = installer;
@@ -214,8 +226,11 @@ public class MappingRepository extends MetaDataRepository {
     public QueryResultMapping getQueryResultMapping(Class<?> cls, String name, ClassLoader loader, boolean mustExist) {
         QueryResultMapping res;
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 res = getQueryResultMappingInternal(cls, name, loader);
+            } finally {
+                unlock();
             }
         } else {
             res = getQueryResultMappingInternal(cls, name, loader);
@@ -260,9 +275,12 @@ public class MappingRepository extends MetaDataRepository {
      */
     public QueryResultMapping[] getQueryResultMappings() {
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 Collection values = _results.values();
                 return (QueryResultMapping[]) values.toArray(new QueryResultMapping[values.size()]);
+            } finally {
+                unlock();
             }
         } else {
             Collection values = _results.values();
@@ -276,8 +294,11 @@ public class MappingRepository extends MetaDataRepository {
      */
     public QueryResultMapping getCachedQueryResultMapping(Class cls, String name) {
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 return (QueryResultMapping) _results.get(getQueryResultKey(cls, name));
+            } finally {
+                unlock();
             }
         } else {
             return (QueryResultMapping) _results.get(getQueryResultKey(cls, name));
@@ -289,8 +310,11 @@ public class MappingRepository extends MetaDataRepository {
      */
     public QueryResultMapping addQueryResultMapping(Class cls, String name) {
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 return addQueryResultMappingInternal(cls, name);
+            } finally {
+                unlock();
             }
         } else {
             return addQueryResultMappingInternal(cls, name);
@@ -309,8 +333,11 @@ public class MappingRepository extends MetaDataRepository {
      */
     public boolean removeQueryResultMapping(QueryResultMapping res) {
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 return _results.remove(getQueryResultKey(res)) != null;
+            } finally {
+                unlock();
             }
         } else {
             return _results.remove(getQueryResultKey(res)) != null;
@@ -322,10 +349,13 @@ public class MappingRepository extends MetaDataRepository {
      */
     public boolean removeQueryResultMapping(Class cls, String name) {
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 if (name == null)
                     return false;
                 return _results.remove(getQueryResultKey(cls, name)) != null;
+            } finally {
+                unlock();
             }
         } else {
             if (name == null)
@@ -374,10 +404,13 @@ public class MappingRepository extends MetaDataRepository {
     @Override
     public void clear() {
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 super.clear();
                 _schema = null;
                 _results.clear();
+            } finally {
+                unlock();
             }
         } else {
             super.clear();
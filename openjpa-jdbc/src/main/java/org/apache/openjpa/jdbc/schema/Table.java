@@ -25,6 +25,7 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.openjpa.jdbc.identifier.DBIdentifier;
 import org.apache.openjpa.jdbc.identifier.DBIdentifier.DBIdentifierType;
@@ -70,6 +71,10 @@ public class Table
     private int _colNum = 0;
     private boolean _isAssociation = false;
     private QualifiedDBIdentifier _fullPath = null;
+    private transient volatile Map<Object, String> _sqlTemplates = null;
+
+    // the most statement templates cached per table
+    private static final int MAX_SQL_TEMPLATES = 1024;
 
     /**
      * Default constructor.
@@ -318,6 +323,41 @@ public class Table
         return _rels;
     }
 
+    /**
+     * Return the cached SQL of statements on the rows of this table with the
+     * given key, or null if none.
+     *
+     * @see #putSQLTemplate
+     * @since 3.2.3
+     */
+    public String getSQLTemplate(Object key) {
+        Map<Object, String> templates = _sqlTemplates;
+        return (templates == null) ? null : templates.get(key);
+    }
+
+    /**
+     * Cache the SQL of statements on the rows of this table with the given
+     * key, and return the SQL to use: the SQL already cached with an equal
+     * key, if any. The key identifies everything the SQL is generated from,
+     * such as the action and the columns of the row that are set.
+     *
+     * @since 3.2.3
+     */
+    public String putSQLTemplate(Object key, String sql) {
+        Map<Object, String> templates = _sqlTemplates;
+        if (templates == null) {
+            synchronized (this) {
+                if (_sqlTemplates == null)
+                    _sqlTemplates = new ConcurrentHashMap<>();
+                templates = _sqlTemplates;
+            }
+        }
+        if (templates.size() >= MAX_SQL_TEMPLATES)
+            return sql;
+        String cached = templates.putIfAbsent(key, sql);
+        return (cached == null) ? sql : cached;
+    }
+
     /**
      * Return the list of column names, used only for informative (error) messages.
      * @return
@@ -438,6 +478,7 @@ public class Table
             _colMap = new LinkedHashMap<>();
         _colMap.put(normalizeColumnKey(name), col);
         _cols = null;
+        _sqlTemplates = null;
         return col;
     }
 
@@ -463,6 +504,7 @@ public class Table
             _colMap = new LinkedHashMap<>();
         _colMap.put(normalizeColumnKey(name), col);
         _cols = null;
+        _sqlTemplates = null;
         return col;
     }
 
@@ -497,6 +539,7 @@ public class Table
         removeName(sName);
         _colMap.remove(sName);
         _cols = null;
+        _sqlTemplates = null;
         if (col.isAutoAssigned())
             _autoAssign = null;
         if (col.isRelationId())
@@ -27,6 +27,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.openjpa.jdbc.conf.JDBCConfiguration;
 import org.apache.openjpa.jdbc.conf.JDBCConfigurationImpl;
@@ -60,6 +61,7 @@ public class TableSchemaFactory
     private static final Localizer _loc = Localizer.forPackage
         (TableSchemaFactory.class);
     private static boolean _refreshedTable = false;
+    private static final ReentrantLock _refreshLock = new ReentrantLock();
 
     private JDBCConfiguration _conf = null;
     private Log _log = null;
@@ -68,6 +70,7 @@ public class TableSchemaFactory
     private DBIdentifier _schemaColumnName = DBIdentifier.newColumn("SCHEMA_DEF");
     private Column _pkColumn = null;
     private Column _schemaColumn = null;
+    private final ReentrantLock _lock = new ReentrantLock();
 
     /**
      * The name of the schema definition table. Defaults to
@@ -146,13 +149,16 @@ public class TableSchemaFactory
     }
 
     @Override
-    public synchronized SchemaGroup readSchema() {
+    public SchemaGroup readSchema() {
         String schema = null;
+        _lock.lock();
         try {
             schema = readSchemaColumn();
         } catch (SQLException se) {
             if (_log.isWarnEnabled())
                 _log.warn(_loc.get("bad-sch-read", se));
+        } finally {
+            _lock.unlock();
         }
         if (schema == null)
             return new SchemaGroup();
@@ -189,7 +195,8 @@ public class TableSchemaFactory
             // exist yet; create it now; note that though we synchronize
             // here, other JVMs can still be trying to create the table at
             // the same time (unlikely, since this is a dev-tool op)
-            synchronized (TableSchemaFactory.class) {
+            _refreshLock.lock();
+            try {
                 if (!_refreshedTable) {
                     _refreshedTable = true;
                     try {
@@ -210,6 +217,8 @@ public class TableSchemaFactory
                     throw SQLExceptions.getStore(se,
                         _conf.getDBDictionaryInstance());
                 }
+            } finally {
+                _refreshLock.unlock();
             }
         }
     }
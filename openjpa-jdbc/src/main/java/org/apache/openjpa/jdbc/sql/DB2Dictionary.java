@@ -337,6 +337,9 @@ public class DB2Dictionary
         switch (db2ServerType) {
         case db2UDBV82OrLater:
             lastGeneratedKeyQuery = "SELECT IDENTITY_VAL_LOCAL() FROM " + SYSDUMMY;
+            // only DB2 LUW accepts a list of rows in INSERT ... VALUES
+            supportsMultiRowInsert = true;
+            maxParameterCount = 32767;
             break;
         case  db2ZOSV8xOrLater:
             // DB2 Z/OS
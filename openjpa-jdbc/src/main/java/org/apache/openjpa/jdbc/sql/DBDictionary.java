@@ -220,6 +220,8 @@ public class DBDictionary
     public boolean supportsAlterTableWithDropColumn = true;
     public boolean supportsComments = false;
     public Boolean supportsGetGeneratedKeys = null;
+    public boolean supportsBatchGeneratedKeys = false;
+    public boolean supportsMultiRowInsert = false;
     public String reservedWords = null;
     public String systemSchemas = null;
     public String systemTables = null;
@@ -313,6 +315,7 @@ public class DBDictionary
     public int maxEmbeddedBlobSize = -1;
     public int maxEmbeddedClobSize = -1;
     public int inClauseLimit = -1;
+    public int maxParameterCount = -1;
 
     /**
      * Attention, while this is named datePrecision it actually only get used for Timestamp handling!
@@ -513,6 +516,12 @@ public class DBDictionary
     // any positive number = batch limit
     public int batchLimit = NO_BATCH;
 
+    // multiRowInsertLimit value:
+    // -1 = as many rows as maxParameterCount allows
+    // 0  = no multi-row inserts
+    // any positive number = maximum rows per insert
+    public int multiRowInsertLimit = 0;
+
     public final Map<Integer,Set<String>> sqlStateCodes =
         new HashMap<>();
 
@@ -5571,6 +5580,51 @@ public class DBDictionary
         batchLimit = limit;
     }
 
+    /**
+     * Return the number of rows to insert with each multi-row insert of rows
+     * bound with the given number of parameters. Rows are not coalesced
+     * into multi-row inserts if the result is less than 2.
+     *
+     * @see #getMultiRowInsertSQL
+     * @since 3.2.3
+     */
+    public int getMultiRowInsertSize(int paramCount) {
+        if (!supportsMultiRowInsert || multiRowInsertLimit == 0)
+            return 0;
+        int rows = (multiRowInsertLimit < 0) ? Integer.MAX_VALUE
+            : multiRowInsertLimit;
+        if (maxParameterCount > 0 && paramCount > 0)
+            rows = Math.min(rows, maxParameterCount / paramCount);
+        return rows;
+    }
+
+    /**
+     * Return the SQL to insert the given number of rows at once into the
+     * given table. Each row sets the given comma-separated columns to the
+     * given comma-separated values. The values of the rows are bound in
+     * order.
+     *
+     * @param table the full name of the table
+     * @param columns the column names
+     * @param values the value markers and raw values of a row
+     * @param rows the number of rows
+     * @see RowImpl#getMultiRowInsertSQL
+     * @since 3.2.3
+     */
+    public String getMultiRowInsertSQL(String table, String columns,
+        String values, int rows) {
+        StringBuilder buf = new StringBuilder(table.length()
+            + columns.length() + 24 + (values.length() + 4) * rows);
+        buf.append("INSERT INTO ").append(table).append(" (").append(columns).
+            append(") VALUES ");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0)
+                buf.append(", ");
+            buf.append("(").append(values).append(")");
+        }
+        return buf.toString();
+    }
+
     /**
      * Validate the batch process. In some cases, we can't batch the statements
      * due to some restrictions. For example, if the GeneratedType=IDENTITY,
@@ -5581,7 +5635,11 @@ public class DBDictionary
             OpenJPAStateManager  sm, ClassMapping cmd ) {
         boolean disableBatch = false;
         if (getBatchLimit()== 0) return false;
-        if (autoAssign != null && sm != null) {
+        // rows with auto-assigned keys can only be batched when the driver
+        // returns the keys of every row of the batch
+        if (autoAssign != null && sm != null
+            && !(supportsBatchGeneratedKeys
+            && Boolean.TRUE.equals(supportsGetGeneratedKeys))) {
             FieldMetaData[] fmd = cmd.getPrimaryKeyFields();
             int i = 0;
             while (!disableBatch && i < fmd.length) {
@@ -5964,6 +6022,8 @@ public class DBDictionary
     /**
      * Return parameter marker for INSERT and UPDATE statements.
      * Usually it is <code>?</code> but some database-specific types might require customization.
+     * The statements of rows are shared, so the marker may only depend on
+     * the column and on whether the value is {@link RowImpl#NULL}.
      *
      * @param col column definition
      * @param val value to be inserted/updated
@@ -69,6 +69,7 @@ public class DerbyDictionary
         supportsNullUniqueColumn = false;
 
         supportsComments = true;
+        supportsMultiRowInsert = true;
 
         // Derby does still not support 'WITH TIMEZONE' from the SQL92 standard
 
@@ -183,6 +184,15 @@ public class DerbyDictionary
         }
     }
 
+    /**
+     * Derby parses a list of rows recursively, and overflows the stack
+     * for long lists.
+     */
+    @Override
+    public int getMultiRowInsertSize(int paramCount) {
+        return Math.min(super.getMultiRowInsertSize(paramCount), 100);
+    }
+
     @Override
     public boolean isFatalException(int subtype, SQLException ex) {
         int errorCode = ex.getErrorCode();
@@ -163,6 +163,7 @@ public class H2Dictionary extends DBDictionary {
         autoAssignClause = "IDENTITY";
         autoAssignTypeName = "INTEGER";
         nextSequenceQuery = "CALL NEXT VALUE FOR {0}";
+        supportsMultiRowInsert = true;
 
         stringLengthFunction = "LENGTH({0})";
         trimLeadingFunction = "LTRIM({0})";
@@ -245,6 +246,7 @@ public class H2Dictionary extends DBDictionary {
         super.connectedConfiguration(conn);
         if (versionLaterThan(1)) {
             supportsGetGeneratedKeys = true;
+            supportsBatchGeneratedKeys = true;
             supportsNullTableForGetPrimaryKeys = false;
             supportsNullTableForGetIndexInfo = false;
             autoAssignClause = "GENERATED ALWAYS AS IDENTITY";
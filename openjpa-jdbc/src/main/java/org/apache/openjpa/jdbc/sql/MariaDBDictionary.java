@@ -116,6 +116,8 @@ public class MariaDBDictionary extends DBDictionary {
         supportsAutoAssign = true;
         lastGeneratedKeyQuery = "SELECT LAST_INSERT_ID()";
         autoAssignClause = "AUTO_INCREMENT";
+        supportsMultiRowInsert = true;
+        maxParameterCount = 65535;
 
         clobTypeName = "TEXT";
         longVarcharTypeName = "TEXT";
@@ -113,6 +113,9 @@ public class MySQLDictionary
         supportsAutoAssign = true;
         lastGeneratedKeyQuery = "SELECT LAST_INSERT_ID()";
         autoAssignClause = "AUTO_INCREMENT";
+        supportsBatchGeneratedKeys = true;
+        supportsMultiRowInsert = true;
+        maxParameterCount = 65535;
 
         clobTypeName = "TEXT";
         longVarcharTypeName = "TEXT";
@@ -149,6 +149,9 @@ public class PostgresDictionary extends DBDictionary {
         lastGeneratedKeyQuery = "SELECT CURRVAL(''{1}_{0}_seq'')";
         supportsAutoAssign = true;
         autoAssignTypeName = "BIGSERIAL";
+        supportsBatchGeneratedKeys = true;
+        supportsMultiRowInsert = true;
+        maxParameterCount = 32767;
         nextSequenceQuery = "SELECT NEXTVAL(''{0}'')";
 
         useGetBytesForBlobs = true;
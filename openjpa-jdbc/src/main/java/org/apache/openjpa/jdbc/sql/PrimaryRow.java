@@ -19,6 +19,9 @@
 package org.apache.openjpa.jdbc.sql;
 
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 
 import org.apache.openjpa.jdbc.meta.ClassMapping;
@@ -263,6 +266,14 @@ public class PrimaryRow
         }
     }
 
+    @Override
+    public Collection<OpenJPAStateManager> getDelayedReferences() {
+        List<OpenJPAStateManager> refs = addDelayedReferences(null, _fkSet);
+        refs = addDelayedReferences(refs, _fkWhere);
+        refs = addDelayedReferences(refs, _relSet);
+        return (refs == null) ? Collections.emptyList() : refs;
+    }
+
     /**
      * Return the recorded value for the given relation id column. Only
      * values that are dependent on a new, unflushed auto-assigned instance
@@ -29,8 +29,13 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Time;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 
 import org.apache.openjpa.jdbc.kernel.JDBCStore;
@@ -129,6 +134,37 @@ public class RowImpl
         return null;
     }
 
+    /**
+     * Return the instances that the foreign keys and relation ids of this
+     * row refer to but whose values were delayed until the SQL of the row
+     * is generated, because their keys may be auto-assigned on insert.
+     * Generating the SQL binds their keys, so it must wait until they are
+     * assigned. This implementation does not delay values.
+     *
+     * @since 3.2.3
+     */
+    public Collection<OpenJPAStateManager> getDelayedReferences() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Add the non-null instances of the given array to the given list,
+     * creating it if needed.
+     */
+    protected static List<OpenJPAStateManager> addDelayedReferences
+        (List<OpenJPAStateManager> refs, OpenJPAStateManager[] sms) {
+        if (sms == null)
+            return refs;
+        for (OpenJPAStateManager sm : sms) {
+            if (sm == null)
+                continue;
+            if (refs == null)
+                refs = new ArrayList<>(2);
+            refs.add(sm);
+        }
+        return refs;
+    }
+
     /**
      * This implementation does not track failed objects.
      */
@@ -834,8 +870,49 @@ public class RowImpl
 
     /**
      * Generate the SQL for this row; the result of this method is cached.
+     * Rows of a table with the same action and the same set and where
+     * columns share a single SQL string, cached on the table.
      */
     protected String generateSQL(DBDictionary dict) {
+        SQLTemplateKey key = newSQLTemplateKey(dict);
+        if (key == null)
+            return buildSQL(dict);
+
+        Table table = getTable();
+        String sql = table.getSQLTemplate(key);
+        if (sql == null)
+            sql = table.putSQLTemplate(key, buildSQL(dict));
+        return sql;
+    }
+
+    /**
+     * Return the key of the SQL of this row, or null if the SQL contains
+     * raw values and so cannot be shared with other rows.
+     */
+    private SQLTemplateKey newSQLTemplateKey(DBDictionary dict) {
+        int len = _cols.length;
+        long[] bits = new long[(len * 4 + 63) / 64];
+        int i = (getAction() == ACTION_DELETE) ? len : 0;
+        for (; i < _vals.length; i++) {
+            if (_vals[i] == null)
+                continue;
+            if (_types[i] == RAW || (i >= len && _types[i - len] == RAW))
+                return null;
+            setBit(bits, i);
+            if (_vals[i] == NULL)
+                setBit(bits, i + 2 * len);
+        }
+        return new SQLTemplateKey(dict, _cols, getAction(), bits);
+    }
+
+    private static void setBit(long[] bits, int i) {
+        bits[i >>> 6] |= 1L << i;
+    }
+
+    /**
+     * Build the SQL for this row.
+     */
+    private String buildSQL(DBDictionary dict) {
         switch (getAction()) {
             case ACTION_UPDATE:
                 return getUpdateSQL(dict);
@@ -883,26 +960,48 @@ public class RowImpl
         StringBuilder vals = new StringBuilder();
         buf.append("INSERT INTO ").
             append(dict.getFullName(getTable(), false)).append(" (");
+        appendInsertValues(buf, vals, dict);
+        buf.append(") VALUES (").append(vals.toString()).append(")");
+        return buf.toString();
+    }
 
+    /**
+     * Return the SQL to insert the given number of rows in one statement.
+     * Each row has the columns and the value markers of this insert, and
+     * so must have the same SQL as this row. The values of the rows are
+     * bound in order, each with {@link #getBoundParameterCount} parameters.
+     *
+     * @since 3.2.3
+     */
+    public String getMultiRowInsertSQL(DBDictionary dict, int rows) {
+        StringBuilder cols = new StringBuilder();
+        StringBuilder vals = new StringBuilder();
+        appendInsertValues(cols, vals, dict);
+        return dict.getMultiRowInsertSQL(dict.getFullName(getTable(), false),
+            cols.toString(), vals.toString(), rows);
+    }
+
+    /**
+     * Append the columns and the value markers of this insert.
+     */
+    private void appendInsertValues(StringBuilder cols, StringBuilder vals,
+        DBDictionary dict) {
         boolean hasVal = false;
         for (int i = 0; i < _cols.length; i++) {
             if (_vals[i] == null)
                 continue;
 
             if (hasVal) {
-                buf.append(", ");
+                cols.append(", ");
                 vals.append(", ");
             }
-            buf.append(dict.getColumnDBName(_cols[i]));
+            cols.append(dict.getColumnDBName(_cols[i]));
             if (_types[i] == RAW)
                 vals.append(_vals[i]);
             else
                 vals.append(dict.getMarkerForInsertUpdate(_cols[i], _vals[i]));
             hasVal = true;
         }
-
-        buf.append(") VALUES (").append(vals.toString()).append(")");
-        return buf.toString();
     }
 
     /**
@@ -1006,6 +1105,28 @@ public class RowImpl
         setFlushed(true);
     }
 
+    /**
+     * Return the number of parameters the row's values are flushed with,
+     * unlike {@link #getParameterCount} which counts all values. The row's
+     * SQL must have been generated.
+     *
+     * @since 3.2.3
+     */
+    public int getBoundParameterCount() {
+        int count = 0;
+        int i = (getAction() == ACTION_DELETE) ? _cols.length: 0;
+        int half = _vals.length / 2;
+        for (; i < _vals.length; i++) {
+            if (_vals[i] == null)
+                continue;
+            if (_vals[i] == NULL && getAction() != ACTION_INSERT && i >= half)
+                continue;
+            if (_vals[i] == NULL || _types[i] != RAW)
+                count++;
+        }
+        return count;
+    }
+
     /**
      * The array value array index for the given column's value.
      */
@@ -1082,4 +1203,43 @@ public class RowImpl
     public void setFlushed(boolean isFlushed) {
         _isFlushed = isFlushed;
     }
+
+    /**
+     * Identifies the SQL generated for a row: the dictionary, the columns
+     * and action of the row, and which of its set and where values are
+     * given and null.
+     */
+    private static final class SQLTemplateKey {
+        private final DBDictionary _dict;
+        private final Column[] _cols;
+        private final int _action;
+        private final long[] _bits;
+        private final int _hash;
+
+        SQLTemplateKey(DBDictionary dict, Column[] cols, int action,
+            long[] bits) {
+            _dict = dict;
+            _cols = cols;
+            _action = action;
+            _bits = bits;
+            _hash = 31 * Arrays.hashCode(bits) + action;
+        }
+
+        @Override
+        public int hashCode() {
+            return _hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (other == this)
+                return true;
+            if (!(other instanceof SQLTemplateKey))
+                return false;
+            SQLTemplateKey key = (SQLTemplateKey) other;
+            return _hash == key._hash && _action == key._action
+                && _dict == key._dict && _cols == key._cols
+                && Arrays.equals(_bits, key._bits);
+        }
+    }
 }
@@ -85,6 +85,11 @@ public class SQLServerDictionary extends AbstractSQLServerDictionary {
 
         indexPhysicalForeignKeys = true; // MS-SQLServer does not automatically create an index for a foreign key so we will
 
+        // a request takes at most 2100 parameters, including the ones the
+        // driver adds to prepare the statement
+        supportsMultiRowInsert = true;
+        maxParameterCount = 2098;
+
         // reservedWordSet subset that CANNOT be used as valid column names
         // (i.e., without surrounding them with double-quotes)
         // generated at 2021-05-02T16:15:30.630 via org.apache.openjpa.reservedwords.ReservedWordsIT
@@ -347,6 +352,14 @@ public class SQLServerDictionary extends AbstractSQLServerDictionary {
         super.setXMLTypeEncoding("UTF-16");
     }
 
+    /**
+     * SQL Server inserts at most 1000 rows with a single VALUES clause.
+     */
+    @Override
+    public int getMultiRowInsertSize(int paramCount) {
+        return Math.min(super.getMultiRowInsertSize(paramCount), 1000);
+    }
+
     @Override
     public boolean isFatalException(int subtype,  SQLException ex) {
         String errorState = ex.getSQLState();
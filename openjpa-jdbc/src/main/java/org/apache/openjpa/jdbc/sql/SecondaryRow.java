@@ -19,6 +19,9 @@
 package org.apache.openjpa.jdbc.sql;
 
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 import org.apache.openjpa.jdbc.meta.ClassMapping;
 import org.apache.openjpa.jdbc.meta.RelationId;
@@ -118,6 +121,13 @@ public class SecondaryRow
         }
     }
 
+    @Override
+    public Collection<OpenJPAStateManager> getDelayedReferences() {
+        List<OpenJPAStateManager> refs = addDelayedReferences(null, _fks);
+        refs = addDelayedReferences(refs, _rels);
+        return (refs == null) ? Collections.emptyList() : refs;
+    }
+
     /**
      * Return the index into our relation id array of the value for the
      * given column.
@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.jdbc.kernel;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.openjpa.jdbc.conf.JDBCConfiguration;
+import org.apache.openjpa.jdbc.conf.JDBCConfigurationImpl;
+import org.apache.openjpa.jdbc.identifier.DBIdentifier;
+import org.apache.openjpa.jdbc.schema.Column;
+import org.apache.openjpa.jdbc.schema.Table;
+import org.apache.openjpa.jdbc.sql.DBDictionary;
+import org.apache.openjpa.jdbc.sql.PrimaryRow;
+import org.apache.openjpa.jdbc.sql.Row;
+import org.apache.openjpa.jdbc.sql.RowImpl;
+import org.apache.openjpa.meta.JavaTypes;
+import org.apache.openjpa.util.OpenJPAException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the multi-row inserts of {@link BatchingPreparedStatementManagerImpl}
+ * against statements that record their parameters.
+ */
+public class MultiRowInsertTest {
+
+    private JDBCConfiguration _conf;
+    private DBDictionary _dict;
+    private Table _table;
+    private Column _id;
+    private Column _name;
+    private Column _created;
+
+    // the statements prepared by the manager, in order
+    private final List<RecordedStatement> _statements = new ArrayList<>();
+    private int[] _counts;
+
+    @Before
+    public void setUp() {
+        _conf = new JDBCConfigurationImpl();
+        _dict = new DBDictionary();
+        _dict.supportsMultiRowInsert = true;
+        _dict.multiRowInsertLimit = 2;
+        _dict.batchLimit = 100;
+
+        _table = new Table("ITEM", null);
+        _id = column("ID", JavaTypes.LONG, Types.BIGINT);
+        _name = column("NAME", JavaTypes.STRING, Types.VARCHAR);
+        _created = column("CREATED", JavaTypes.DATE, Types.TIMESTAMP);
+        column("NOTE", JavaTypes.STRING, Types.VARCHAR);
+    }
+
+    @After
+    public void tearDown() {
+        _conf.close();
+    }
+
+    @Test
+    public void testSQLIsBuiltFromTheColumnsOfTheRow() throws SQLException {
+        RowImpl row = row(1);
+        row.setRaw(_created, "CURRENT_TIMESTAMP");
+        Assert.assertEquals("INSERT INTO ITEM (ID, NAME, CREATED) "
+            + "VALUES (?, ?, CURRENT_TIMESTAMP)", row.getSQL(_dict));
+        Assert.assertEquals(row.getSQL(_dict),
+            row.getMultiRowInsertSQL(_dict, 1));
+        Assert.assertEquals("INSERT INTO ITEM (ID, NAME, CREATED) "
+            + "VALUES (?, ?, CURRENT_TIMESTAMP), (?, ?, CURRENT_TIMESTAMP), "
+            + "(?, ?, CURRENT_TIMESTAMP)", row.getMultiRowInsertSQL(_dict, 3));
+        Assert.assertEquals(2, row.getBoundParameterCount());
+    }
+
+    @Test
+    public void testNullValuesAreBound() throws SQLException {
+        RowImpl row = new PrimaryRow(_table, Row.ACTION_INSERT, null);
+        row.setLong(_id, 1);
+        row.setString(_name, null);
+        Assert.assertEquals("INSERT INTO ITEM (ID, NAME) VALUES (?, ?), "
+            + "(?, ?)", row.getMultiRowInsertSQL(_dict, 2));
+        Assert.assertEquals(2, row.getBoundParameterCount());
+    }
+
+    @Test
+    public void testRowsAreBoundInOrderAndSplitByTheLimit()
+        throws SQLException {
+        flush(row(0), row(1), row(2), row(3), row(4));
+
+        Assert.assertEquals(2, _statements.size());
+        RecordedStatement pairs = _statements.get(0);
+        Assert.assertEquals("INSERT INTO ITEM (ID, NAME) VALUES (?, ?), "
+            + "(?, ?)", pairs.sql);
+        Assert.assertEquals(Arrays.asList(
+            Arrays.asList(0L, "name0", 1L, "name1"),
+            Arrays.asList(2L, "name2", 3L, "name3")), pairs.batches);
+        Assert.assertEquals(1, pairs.executions);
+
+        RecordedStatement rest = _statements.get(1);
+        Assert.assertEquals("INSERT INTO ITEM (ID, NAME) VALUES (?, ?)",
+            rest.sql);
+        Assert.assertEquals(Arrays.asList(Arrays.asList(4L, "name4")),
+            rest.batches);
+    }
+
+    @Test
+    public void testParameterLimitCapsTheRowsPerStatement()
+        throws SQLException {
+        _dict.multiRowInsertLimit = -1;
+        _dict.maxParameterCount = 7;
+        flush(row(0), row(1), row(2), row(3), row(4), row(5), row(6));
+
+        // three rows of two parameters each fit in seven parameters
+        Assert.assertEquals(2, _statements.size());
+        Assert.assertEquals(2, _statements.get(0).batches.size());
+        Assert.assertEquals(6, _statements.get(0).batches.get(0).size());
+        Assert.assertEquals(Arrays.asList(Arrays.asList(6L, "name6")),
+            _statements.get(1).batches);
+    }
+
+    @Test
+    public void testBatchLimitSplitsTheBatches() throws SQLException {
+        _dict.batchLimit = 2;
+        flush(row(0), row(1), row(2), row(3), row(4), row(5), row(6),
+            row(7));
+
+        Assert.assertEquals(1, _statements.size());
+        Assert.assertEquals(4, _statements.get(0).batches.size());
+        Assert.assertEquals(2, _statements.get(0).executions);
+    }
+
+    @Test
+    public void testFailedCountReportsTheFirstRowOfItsStatement()
+        throws SQLException {
+        RowImpl[] rows = { row(0), row(1), row(2), row(3), row(4), row(5) };
+        for (int i = 0; i < rows.length; i++)
+            rows[i].setFailedObject("item" + i);
+        _counts = new int[]{ 2, Statement.SUCCESS_NO_INFO, 1 };
+        try {
+            flush(rows);
+            Assert.fail();
+        } catch (OpenJPAException ke) {
+            Assert.assertEquals("item4", ke.getFailedObject());
+        }
+    }
+
+    private Column column(String name, int javaType, int type) {
+        Column col = _table.addColumn(DBIdentifier.newColumn(name));
+        col.setJavaType(javaType);
+        col.setType(type);
+        return col;
+    }
+
+    private RowImpl row(long id) throws SQLException {
+        RowImpl row = new PrimaryRow(_table, Row.ACTION_INSERT, null);
+        row.setLong(_id, id);
+        row.setString(_name, "name" + id);
+        return row;
+    }
+
+    /**
+     * Flush the given rows through a batching manager and its batch.
+     */
+    private void flush(RowImpl... rows) throws SQLException {
+        JDBCStore store = (JDBCStore) Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class[]{ JDBCStore.class },
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getDBDictionary":
+                        return _dict;
+                    case "getConfiguration":
+                        return _conf;
+                    default:
+                        throw new UnsupportedOperationException(
+                            method.getName());
+                }
+            });
+        BatchingPreparedStatementManagerImpl psMgr =
+            new BatchingPreparedStatementManagerImpl(store, null,
+                _dict.getBatchLimit()) {
+            @Override
+            protected PreparedStatement prepareStatement(String sql,
+                String[] autoAssignColNames) {
+                RecordedStatement stmnt = new RecordedStatement(sql);
+                _statements.add(stmnt);
+                return stmnt.proxy();
+            }
+        };
+        for (RowImpl row : rows)
+            psMgr.flush(row);
+        if (!psMgr.getExceptions().isEmpty())
+            throw (RuntimeException) psMgr.getExceptions().iterator().next();
+        psMgr.flushBatch();
+    }
+
+    /**
+     * A prepared statement that records the parameters of each batch.
+     */
+    private class RecordedStatement {
+        final String sql;
+        final List<List<Object>> batches = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        int executions = 0;
+        private int _executed = 0;
+
+        RecordedStatement(String sql) {
+            this.sql = sql;
+        }
+
+        PreparedStatement proxy() {
+            return (PreparedStatement) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class[]{ PreparedStatement.class },
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.startsWith("set") && args.length >= 2
+                        && args[0] instanceof Integer) {
+                        int idx = (Integer) args[0];
+                        while (params.size() < idx)
+                            params.add(null);
+                        params.set(idx - 1, (name.equals("setNull"))
+                            ? null : args[1]);
+                        return null;
+                    }
+                    switch (name) {
+                        case "addBatch":
+                            batches.add(params);
+                            params = new ArrayList<>();
+                            return null;
+                        case "executeBatch":
+                            executions++;
+                            int[] counts = new int[batches.size() - _executed];
+                            Arrays.fill(counts, Statement.SUCCESS_NO_INFO);
+                            if (_counts != null)
+                                counts = Arrays.copyOf(_counts, counts.length);
+                            _executed = batches.size();
+                            return counts;
+                        case "executeUpdate":
+                            executions++;
+                            return 1;
+                        case "getWarnings":
+                            return null;
+                        default:
+                            return null;
+                    }
+                });
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.jdbc.sql;
+
+import java.sql.SQLException;
+import java.sql.Types;
+
+import org.apache.openjpa.jdbc.identifier.DBIdentifier;
+import org.apache.openjpa.jdbc.schema.Column;
+import org.apache.openjpa.jdbc.schema.Table;
+import org.apache.openjpa.meta.JavaTypes;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that rows only share the SQL cached on their table when it was
+ * generated from the same action, set and null values, and dictionary.
+ */
+public class SQLTemplateTest {
+
+    private DBDictionary _dict;
+    private Table _table;
+    private Column _id;
+    private Column _name;
+    private Column _note;
+
+    @Before
+    public void setUp() {
+        _dict = new MarkerDictionary();
+        _table = new Table("ITEM", null);
+        _id = column("ID", JavaTypes.LONG, Types.BIGINT);
+        _name = column("NAME", JavaTypes.STRING, Types.VARCHAR);
+        _note = column("NOTE", JavaTypes.STRING, Types.VARCHAR);
+    }
+
+    @Test
+    public void testRowsWithTheSamePatternShareSQL() throws SQLException {
+        RowImpl first = insert(1, "a", null);
+        RowImpl second = insert(2, "b", null);
+        Assert.assertEquals("INSERT INTO ITEM (ID, NAME) VALUES (?, "
+            + "CAST(? AS VARCHAR))", first.getSQL(_dict));
+        Assert.assertSame(first.getSQL(_dict), second.getSQL(_dict));
+    }
+
+    @Test
+    public void testDefaultedColumnsAreNotShared() throws SQLException {
+        String all = insert(1, "a", "x").getSQL(_dict);
+        String defaulted = insert(2, "b", null).getSQL(_dict);
+        Assert.assertEquals("INSERT INTO ITEM (ID, NAME, NOTE) VALUES (?, "
+            + "CAST(? AS VARCHAR), CAST(? AS VARCHAR))", all);
+        Assert.assertEquals("INSERT INTO ITEM (ID, NAME) VALUES (?, "
+            + "CAST(? AS VARCHAR))", defaulted);
+        Assert.assertEquals(all, insert(3, "c", "y").getSQL(_dict));
+    }
+
+    @Test
+    public void testNullValuesAreNotShared() throws SQLException {
+        String value = insert(1, "a", null).getSQL(_dict);
+        RowImpl row = new RowImpl(_table, Row.ACTION_INSERT);
+        row.setLong(_id, 2);
+        row.setNull(_name, true);
+        Assert.assertEquals("INSERT INTO ITEM (ID, NAME) VALUES (?, ?)",
+            row.getSQL(_dict));
+        Assert.assertEquals(value, insert(3, "c", null).getSQL(_dict));
+    }
+
+    @Test
+    public void testNullWhereValuesAreNotShared() throws SQLException {
+        String value = update(1, "a").getSQL(_dict);
+        String none = update(2, null).getSQL(_dict);
+        Assert.assertEquals("UPDATE ITEM SET NOTE = CAST(? AS VARCHAR) "
+            + "WHERE ID = ? AND NAME = ?", value);
+        Assert.assertEquals("UPDATE ITEM SET NOTE = CAST(? AS VARCHAR) "
+            + "WHERE ID = ? AND NAME IS NULL", none);
+        Assert.assertSame(value, update(3, "c").getSQL(_dict));
+        Assert.assertSame(none, update(4, null).getSQL(_dict));
+    }
+
+    @Test
+    public void testDictionariesAreNotShared() throws SQLException {
+        String marked = insert(1, "a", null).getSQL(_dict);
+        String plain = insert(2, "b", null).getSQL(new DBDictionary());
+        Assert.assertEquals("INSERT INTO ITEM (ID, NAME) VALUES (?, ?)",
+            plain);
+        Assert.assertSame(marked, insert(3, "c", null).getSQL(_dict));
+    }
+
+    @Test
+    public void testActionsAreNotShared() throws SQLException {
+        RowImpl delete = new RowImpl(_table, Row.ACTION_DELETE);
+        delete.whereLong(_id, 1);
+        RowImpl update = new RowImpl(_table, Row.ACTION_UPDATE);
+        update.setLong(_id, 1);
+        update.whereLong(_id, 1);
+        Assert.assertEquals("DELETE FROM ITEM WHERE ID = ?",
+            delete.getSQL(_dict));
+        Assert.assertEquals("UPDATE ITEM SET ID = ? WHERE ID = ?",
+            update.getSQL(_dict));
+        Assert.assertEquals("INSERT INTO ITEM (ID) VALUES (?)",
+            insert(1, null, null).getSQL(_dict));
+    }
+
+    @Test
+    public void testRawValuesAreNotCached() throws SQLException {
+        RowImpl row = insert(1, null, null);
+        row.setRaw(_name, "'a'");
+        Assert.assertEquals("INSERT INTO ITEM (ID, NAME) VALUES (?, 'a')",
+            row.getSQL(_dict));
+        row = insert(2, null, null);
+        row.setRaw(_name, "'b'");
+        Assert.assertEquals("INSERT INTO ITEM (ID, NAME) VALUES (?, 'b')",
+            row.getSQL(_dict));
+    }
+
+    private Column column(String name, int javaType, int type) {
+        Column col = _table.addColumn(DBIdentifier.newColumn(name));
+        col.setJavaType(javaType);
+        col.setType(type);
+        return col;
+    }
+
+    private RowImpl insert(long id, String name, String note)
+        throws SQLException {
+        RowImpl row = new RowImpl(_table, Row.ACTION_INSERT);
+        row.setLong(_id, id);
+        if (name != null)
+            row.setString(_name, name);
+        if (note != null)
+            row.setString(_note, note);
+        return row;
+    }
+
+    private RowImpl update(long id, String name) throws SQLException {
+        RowImpl row = new RowImpl(_table, Row.ACTION_UPDATE);
+        row.setString(_note, "x");
+        row.whereLong(_id, id);
+        if (name == null)
+            row.whereNull(_name);
+        else
+            row.whereString(_name, name);
+        return row;
+    }
+
+    /**
+     * Decorates the markers of non-null strings, like the XML markers of
+     * {@link OracleDictionary}.
+     */
+    private static class MarkerDictionary extends DBDictionary {
+        @Override
+        public String getMarkerForInsertUpdate(Column col, Object val) {
+            if (col.getType() == Types.VARCHAR && val != RowImpl.NULL)
+                return "CAST(? AS VARCHAR)";
+            return super.getMarkerForInsertUpdate(col, val);
+        }
+    }
+}
@@ -35,6 +35,7 @@ public abstract class DetachOptions
 
     private boolean _liteAutoDetach = false;
     private boolean _detachProxyFields = true;
+    private int _parallelThreshold = 0;
 
     /**
      * The {@link DetachState} constant.
@@ -161,6 +162,28 @@ public abstract class DetachOptions
         return _detachProxyFields;
     }
 
+    /**
+     * The number of instances from which lite detachment of the whole
+     * persistence context is spread over the common fork join pool.
+     * Only applies to contexts which are not multithreaded. Defaults to 0,
+     * which detaches on the calling thread only.
+     *
+     * @since 3.2.3
+     */
+    public int getParallelThreshold() {
+        return _parallelThreshold;
+    }
+
+    /**
+     * The number of instances from which lite detachment of the whole
+     * persistence context is spread over the common fork join pool.
+     *
+     * @since 3.2.3
+     */
+    public void setParallelThreshold(int threshold) {
+        _parallelThreshold = threshold;
+    }
+
     /**
      * Detach loaded state.
      */
@@ -27,6 +27,7 @@ import org.apache.openjpa.lib.conf.Configuration;
 import org.apache.openjpa.lib.conf.PluginValue;
 import org.apache.openjpa.lib.util.ParseException;
 import org.apache.openjpa.util.CacheMap;
+import org.apache.openjpa.util.StripedCacheMap;
 
 /**
  * A cache of compiled queries.
@@ -39,6 +40,7 @@ public class QueryCompilationCacheValue
 
     public static final String[] ALIASES = {
         "true", CacheMap.class.getName(),
+        "striped", StripedCacheMap.class.getName(),
         "all", ConcurrentHashMap.class.getName(),
         "false", null,
     };
@@ -29,7 +29,7 @@ import org.apache.openjpa.lib.util.StringUtil;
 /**
  * Value type used to represent a {@link RemoteCommitProvider}. This
  * plugin allows users to specify whether to transmit the ids of added objects
- * in the remote commit events distributed.
+ * in the remote commit events distributed, and how to coalesce events.
  *
  * @author Abe White
  */
@@ -44,6 +44,9 @@ public class RemoteCommitProviderValue
 
     private Options _opts = null;
     private Boolean _transmitPersIds = null;
+    private Integer _coalesceMillis = null;
+    private Integer _coalesceMaxSize = null;
+    private Integer _coalesceExtentThreshold = null;
 
     public RemoteCommitProviderValue() {
         super("RemoteCommitProvider", true);
@@ -55,6 +58,9 @@ public class RemoteCommitProviderValue
         super.setProperties(props);
         _opts = null;
         _transmitPersIds = null;
+        _coalesceMillis = null;
+        _coalesceMaxSize = null;
+        _coalesceExtentThreshold = null;
     }
 
     @Override
@@ -62,6 +68,9 @@ public class RemoteCommitProviderValue
         super.setString(str);
         _opts = null;
         _transmitPersIds = null;
+        _coalesceMillis = null;
+        _coalesceMaxSize = null;
+        _coalesceExtentThreshold = null;
     }
 
     /**
@@ -115,6 +124,12 @@ public class RemoteCommitProviderValue
         parseOptions();
         if (_transmitPersIds != null)
             mgr.setTransmitPersistedObjectIds(_transmitPersIds);
+        if (_coalesceMillis != null)
+            mgr.setCoalesceMillis(_coalesceMillis);
+        if (_coalesceMaxSize != null)
+            mgr.setCoalesceMaxSize(_coalesceMaxSize);
+        if (_coalesceExtentThreshold != null)
+            mgr.setCoalesceExtentThreshold(_coalesceExtentThreshold);
     }
 
     /**
@@ -138,5 +153,15 @@ public class RemoteCommitProviderValue
             ("transmitPersistedObjectIds", "TransmitPersistedObjectIds", null));
         if (transmit != null)
             _transmitPersIds = Boolean.valueOf (transmit);
+        _coalesceMillis = removeInt("coalesceMillis", "CoalesceMillis");
+        _coalesceMaxSize = removeInt("coalesceMaxSize", "CoalesceMaxSize");
+        _coalesceExtentThreshold = removeInt("coalesceExtentThreshold",
+            "CoalesceExtentThreshold");
 	}
+
+    private Integer removeInt(String key, String key2) {
+        String val = StringUtil.trimToNull(_opts.removeProperty(key, key2,
+            null));
+        return (val == null) ? null : Integer.valueOf(val);
+    }
 }
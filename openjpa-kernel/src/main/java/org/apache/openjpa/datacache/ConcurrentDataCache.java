@@ -21,6 +21,7 @@ package org.apache.openjpa.datacache;
 import org.apache.openjpa.event.RemoteCommitListener;
 import org.apache.openjpa.lib.util.Localizer;
 import org.apache.openjpa.util.CacheMap;
+import org.apache.openjpa.util.StripedCacheMap;
 
 /**
  * A {@link DataCache} implementation that is optimized for concurrent
@@ -45,6 +46,7 @@ public class ConcurrentDataCache
     private int _cacheSize = Integer.MIN_VALUE;
     private int _softRefs = Integer.MIN_VALUE;
     protected boolean _lru = false;
+    protected boolean _striped = false;
 
     /**
      * Returns the underlying {@link CacheMap} that this cache is using.
@@ -129,12 +131,22 @@ public class ConcurrentDataCache
      * invoke {@link AbstractDataCache#keyRemoved}.
      */
     protected CacheMap newCacheMap() {
-        CacheMap res = new CacheMap(_lru) {
-            @Override
-            protected void entryRemoved(Object key, Object value, boolean expired) {
-                keyRemoved(key, expired);
-            }
-        };
+        CacheMap res;
+        if (_striped) {
+            res = new StripedCacheMap(_lru) {
+                @Override
+                protected void entryRemoved(Object key, Object value, boolean expired) {
+                    keyRemoved(key, expired);
+                }
+            };
+        } else {
+            res = new CacheMap(_lru) {
+                @Override
+                protected void entryRemoved(Object key, Object value, boolean expired) {
+                    keyRemoved(key, expired);
+                }
+            };
+        }
 
         return res;
     }
@@ -190,4 +202,18 @@ public class ConcurrentDataCache
     public boolean getLru() {
         return _lru;
     }
+
+    /**
+     * Whether to use a {@link StripedCacheMap}, which locks only the stripe
+     * of the accessed key instead of the whole map. Defaults to false.
+     *
+     * @since 3.2.3
+     */
+    public void setStriped(boolean striped) {
+        _striped = striped;
+    }
+
+    public boolean getStriped() {
+        return _striped;
+    }
 }
@@ -22,6 +22,7 @@ import java.util.Collection;
 
 import org.apache.openjpa.event.RemoteCommitListener;
 import org.apache.openjpa.util.CacheMap;
+import org.apache.openjpa.util.StripedCacheMap;
 
 /**
  * A {@link QueryCache} implementation that is optimized for concurrent
@@ -40,6 +41,7 @@ public class ConcurrentQueryCache
     private static final long serialVersionUID = 1L;
     private CacheMap _cache;
     protected boolean _lru = false;
+    protected boolean _striped = false;
     private int _cacheSize = Integer.MIN_VALUE;
     private int _softRefs = Integer.MIN_VALUE;
 
@@ -122,7 +124,8 @@ public class ConcurrentQueryCache
      * Return the map to use as an internal cache.
      */
     protected CacheMap newCacheMap() {
-        CacheMap res = new CacheMap(_lru);
+        CacheMap res = (_striped) ? new StripedCacheMap(_lru)
+            : new CacheMap(_lru);
 
         return res;
     }
@@ -177,4 +180,18 @@ public class ConcurrentQueryCache
     public boolean getLru() {
         return _lru;
     }
+
+    /**
+     * Whether to use a {@link StripedCacheMap}, which locks only the stripe
+     * of the accessed key instead of the whole map. Defaults to false.
+     *
+     * @since 3.2.3
+     */
+    public void setStriped(boolean striped) {
+        _striped = striped;
+    }
+
+    public boolean getStriped() {
+        return _striped;
+    }
 }
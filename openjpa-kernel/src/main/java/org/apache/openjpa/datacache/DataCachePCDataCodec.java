@@ -0,0 +1,581 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.datacache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.openjpa.kernel.AbstractPCData;
+import org.apache.openjpa.kernel.PCDataImpl;
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.meta.MetaDataRepository;
+import org.apache.openjpa.util.Id;
+import org.apache.openjpa.util.IntId;
+import org.apache.openjpa.util.LongId;
+import org.apache.openjpa.util.Serialization;
+import org.apache.openjpa.util.StringId;
+
+/**
+ * Compact binary encoding of {@link DataCachePCData} instances, used by
+ * {@link OffHeapDataCache}. Common field value and oid types are written
+ * with a one-byte tag and variable-length integers; classes are written as
+ * small ids registered with this codec, so encoded data is only meaningful
+ * to the codec that produced it. Values of other types fall back to java
+ * serialization.
+ *
+ * @since 3.2.3
+ */
+class DataCachePCDataCodec {
+
+    private static final byte FORMAT = 1;
+
+    private static final byte FIELD_LOADED = 1;
+    private static final byte FIELD_INTERMEDIATE = 2;
+    private static final byte FIELD_IMPL = 4;
+
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte BYTE = 3;
+    private static final byte SHORT = 4;
+    private static final byte CHAR = 5;
+    private static final byte INT = 6;
+    private static final byte LONG = 7;
+    private static final byte FLOAT = 8;
+    private static final byte DOUBLE = 9;
+    private static final byte STRING = 10;
+    private static final byte BIGDECIMAL = 11;
+    private static final byte BIGINTEGER = 12;
+    private static final byte DATE = 13;
+    private static final byte SQL_DATE = 14;
+    private static final byte SQL_TIME = 15;
+    private static final byte TIMESTAMP = 16;
+    private static final byte BYTES = 17;
+    private static final byte LIST = 18;
+    private static final byte ARRAY = 19;
+    private static final byte MAP = 20;
+    private static final byte EMPTY_MAP = 21;
+    private static final byte LONG_ID = 22;
+    private static final byte INT_ID = 23;
+    private static final byte STRING_ID = 24;
+    private static final byte DATASTORE_ID = 25;
+    private static final byte EMBEDDED = 26;
+    private static final byte SERIALIZED = 27;
+
+    private final MetaDataRepository _repos;
+    private final String _cache;
+
+    private final Map<Class<?>, Integer> _typeIds = new ConcurrentHashMap<>();
+    private volatile Class<?>[] _types = new Class<?>[0];
+
+    public DataCachePCDataCodec(MetaDataRepository repos, String cache) {
+        _repos = repos;
+        _cache = cache;
+    }
+
+    /**
+     * Encode the given data, or return null if it cannot be encoded.
+     */
+    public byte[] encode(DataCachePCData data) {
+        if (!(data instanceof AbstractPCData))
+            return null;
+
+        Output out = new Output();
+        out.writeByte(FORMAT);
+        out.writeVarLong(data.getTimeOut());
+        try {
+            writeBody(out, (AbstractPCData) data);
+        } catch (IOException ioe) {
+            // not serializable
+            return null;
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode data encoded by this codec for the instance with the given oid.
+     */
+    public DataCachePCData decode(Object oid, byte[] bytes) {
+        Input in = new Input(bytes);
+        if (in.readByte() != FORMAT)
+            return null;
+        long exp = in.readVarLong();
+        return readBody(in, oid, exp);
+    }
+
+    private void writeBody(Output out, AbstractPCData data)
+        throws IOException {
+        out.writeVarInt(typeId(data.getType()));
+        PCDataImpl impl = (data instanceof PCDataImpl) ? (PCDataImpl) data
+            : null;
+
+        writeValue(out, data.getVersion());
+        writeValue(out, data.getImplData());
+
+        int len = _repos.getMetaData(data.getType(), null, true)
+            .getFields().length;
+        out.writeVarInt(len);
+        Object intermediate;
+        Object fieldImpl;
+        byte state;
+        for (int i = 0; i < len; i++) {
+            intermediate = (impl == null) ? null : impl.getIntermediate(i);
+            fieldImpl = (impl == null) ? null : impl.getImplData(i);
+            state = 0;
+            if (data.isLoaded(i))
+                state |= FIELD_LOADED;
+            else if (intermediate != null)
+                state |= FIELD_INTERMEDIATE;
+            if (fieldImpl != null)
+                state |= FIELD_IMPL;
+
+            out.writeByte(state);
+            if ((state & FIELD_LOADED) != 0)
+                writeValue(out, data.getData(i));
+            else if ((state & FIELD_INTERMEDIATE) != 0)
+                writeValue(out, intermediate);
+            if ((state & FIELD_IMPL) != 0)
+                writeValue(out, fieldImpl);
+        }
+    }
+
+    private DataCachePCDataImpl readBody(Input in, Object oid, long exp) {
+        Class<?> type = type(in.readVarInt());
+        ClassMetaData meta = _repos.getMetaData(type, null, true);
+        DataCachePCDataImpl data = new DataCachePCDataImpl(oid, meta, _cache,
+            exp);
+        data.setVersion(readValue(in));
+        data.setImplData(readValue(in));
+
+        int len = in.readVarInt();
+        byte state;
+        for (int i = 0; i < len; i++) {
+            state = in.readByte();
+            if ((state & FIELD_LOADED) != 0)
+                data.setData(i, readValue(in));
+            else if ((state & FIELD_INTERMEDIATE) != 0)
+                data.setIntermediate(i, readValue(in));
+            if ((state & FIELD_IMPL) != 0)
+                data.setImplData(i, readValue(in));
+        }
+        return data;
+    }
+
+    private void writeValue(Output out, Object val)
+        throws IOException {
+        if (val == null) {
+            out.writeByte(NULL);
+            return;
+        }
+
+        Class<?> cls = val.getClass();
+        if (cls == String.class) {
+            out.writeByte(STRING);
+            out.writeString((String) val);
+        } else if (cls == Integer.class) {
+            out.writeByte(INT);
+            out.writeVarLong((Integer) val);
+        } else if (cls == Long.class) {
+            out.writeByte(LONG);
+            out.writeVarLong((Long) val);
+        } else if (cls == Boolean.class) {
+            out.writeByte(((Boolean) val) ? TRUE : FALSE);
+        } else if (cls == Double.class) {
+            out.writeByte(DOUBLE);
+            out.writeLong(Double.doubleToRawLongBits((Double) val));
+        } else if (cls == Float.class) {
+            out.writeByte(FLOAT);
+            out.writeVarLong(Float.floatToRawIntBits((Float) val));
+        } else if (cls == Short.class) {
+            out.writeByte(SHORT);
+            out.writeVarLong((Short) val);
+        } else if (cls == Byte.class) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) val);
+        } else if (cls == Character.class) {
+            out.writeByte(CHAR);
+            out.writeVarLong((Character) val);
+        } else if (cls == BigDecimal.class) {
+            BigDecimal dec = (BigDecimal) val;
+            out.writeByte(BIGDECIMAL);
+            out.writeVarLong(dec.scale());
+            out.writeBytes(dec.unscaledValue().toByteArray());
+        } else if (cls == BigInteger.class) {
+            out.writeByte(BIGINTEGER);
+            out.writeBytes(((BigInteger) val).toByteArray());
+        } else if (cls == Date.class) {
+            out.writeByte(DATE);
+            out.writeVarLong(((Date) val).getTime());
+        } else if (cls == java.sql.Date.class) {
+            out.writeByte(SQL_DATE);
+            out.writeVarLong(((Date) val).getTime());
+        } else if (cls == java.sql.Time.class) {
+            out.writeByte(SQL_TIME);
+            out.writeVarLong(((Date) val).getTime());
+        } else if (cls == Timestamp.class) {
+            Timestamp ts = (Timestamp) val;
+            out.writeByte(TIMESTAMP);
+            out.writeVarLong(ts.getTime());
+            out.writeVarInt(ts.getNanos());
+        } else if (cls == byte[].class) {
+            out.writeByte(BYTES);
+            out.writeBytes((byte[]) val);
+        } else if (cls == Object[].class) {
+            Object[] arr = (Object[]) val;
+            out.writeByte(ARRAY);
+            out.writeVarInt(arr.length);
+            for (Object o : arr)
+                writeValue(out, o);
+        } else if (val instanceof AbstractPCData.ProxyDataList) {
+            AbstractPCData.ProxyDataList list =
+                (AbstractPCData.ProxyDataList) val;
+            out.writeByte(LIST);
+            out.writeVarInt(list.nextSequence);
+            out.writeVarInt(list.size());
+            for (Object o : list)
+                writeValue(out, o);
+        } else if (cls == HashMap.class) {
+            Map<?, ?> map = (Map<?, ?>) val;
+            out.writeByte(MAP);
+            out.writeVarInt(map.size());
+            for (Map.Entry<?, ?> e : map.entrySet()) {
+                writeValue(out, e.getKey());
+                writeValue(out, e.getValue());
+            }
+        } else if (val == Collections.EMPTY_MAP) {
+            out.writeByte(EMPTY_MAP);
+        } else if (cls == LongId.class) {
+            LongId id = (LongId) val;
+            out.writeByte(LONG_ID);
+            writeIdType(out, id.getType(), id.hasSubclasses());
+            out.writeVarLong(id.getId());
+        } else if (cls == IntId.class) {
+            IntId id = (IntId) val;
+            out.writeByte(INT_ID);
+            writeIdType(out, id.getType(), id.hasSubclasses());
+            out.writeVarLong(id.getId());
+        } else if (cls == StringId.class) {
+            StringId id = (StringId) val;
+            out.writeByte(STRING_ID);
+            writeIdType(out, id.getType(), id.hasSubclasses());
+            out.writeString(id.getId());
+        } else if (cls == Id.class) {
+            Id id = (Id) val;
+            out.writeByte(DATASTORE_ID);
+            writeIdType(out, id.getType(), id.hasSubclasses());
+            out.writeVarLong(id.getId());
+        } else if (val instanceof DataCachePCDataImpl) {
+            DataCachePCDataImpl embed = (DataCachePCDataImpl) val;
+            out.writeByte(EMBEDDED);
+            writeValue(out, embed.getId());
+            writeBody(out, embed);
+        } else if (val instanceof Serializable) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+                oos.writeObject(val);
+            }
+            out.writeByte(SERIALIZED);
+            out.writeBytes(bytes.toByteArray());
+        } else
+            throw new IOException(cls.getName());
+    }
+
+    private Object readValue(Input in) {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case BYTE:
+                return in.readByte();
+            case SHORT:
+                return (short) in.readVarLong();
+            case CHAR:
+                return (char) in.readVarLong();
+            case INT:
+                return (int) in.readVarLong();
+            case LONG:
+                return in.readVarLong();
+            case FLOAT:
+                return Float.intBitsToFloat((int) in.readVarLong());
+            case DOUBLE:
+                return Double.longBitsToDouble(in.readLong());
+            case STRING:
+                return in.readString();
+            case BIGDECIMAL:
+                int scale = (int) in.readVarLong();
+                return new BigDecimal(new BigInteger(in.readBytes()), scale);
+            case BIGINTEGER:
+                return new BigInteger(in.readBytes());
+            case DATE:
+                return new Date(in.readVarLong());
+            case SQL_DATE:
+                return new java.sql.Date(in.readVarLong());
+            case SQL_TIME:
+                return new java.sql.Time(in.readVarLong());
+            case TIMESTAMP:
+                Timestamp ts = new Timestamp(in.readVarLong());
+                ts.setNanos(in.readVarInt());
+                return ts;
+            case BYTES:
+                return in.readBytes();
+            case ARRAY:
+                Object[] arr = new Object[in.readVarInt()];
+                for (int i = 0; i < arr.length; i++)
+                    arr[i] = readValue(in);
+                return arr;
+            case LIST:
+                int seq = in.readVarInt();
+                int size = in.readVarInt();
+                AbstractPCData.ProxyDataList list =
+                    new AbstractPCData.ProxyDataList(size);
+                list.nextSequence = seq;
+                for (int i = 0; i < size; i++)
+                    list.add(readValue(in));
+                return list;
+            case MAP:
+                size = in.readVarInt();
+                Map<Object, Object> map = new HashMap<>(size);
+                Object key;
+                for (int i = 0; i < size; i++) {
+                    key = readValue(in);
+                    map.put(key, readValue(in));
+                }
+                return map;
+            case EMPTY_MAP:
+                return Collections.EMPTY_MAP;
+            case LONG_ID:
+                Class<?> type = type(in.readVarInt());
+                boolean subs = in.readBoolean();
+                return new LongId(type, in.readVarLong(), subs);
+            case INT_ID:
+                type = type(in.readVarInt());
+                subs = in.readBoolean();
+                return new IntId(type, (int) in.readVarLong(), subs);
+            case STRING_ID:
+                type = type(in.readVarInt());
+                subs = in.readBoolean();
+                return new StringId(type, in.readString(), subs);
+            case DATASTORE_ID:
+                type = type(in.readVarInt());
+                subs = in.readBoolean();
+                return new Id(type, in.readVarLong(), subs);
+            case EMBEDDED:
+                Object oid = readValue(in);
+                return readBody(in, oid, -1);
+            case SERIALIZED:
+                try (ObjectInputStream ois = new Serialization.
+                    ClassResolvingObjectInputStream(new ByteArrayInputStream(
+                    in.readBytes()))) {
+                    return ois.readObject();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            default:
+                throw new IllegalStateException(String.valueOf(tag));
+        }
+    }
+
+    /**
+     * Write the type of an oid and whether it includes subclasses; the key
+     * follows.
+     */
+    private void writeIdType(Output out, Class<?> type, boolean subs) {
+        out.writeVarInt(typeId(type));
+        out.writeByte(subs ? TRUE : FALSE);
+    }
+
+    /**
+     * Return the id of the given class, registering it if needed.
+     */
+    private int typeId(Class<?> cls) {
+        Integer id = _typeIds.get(cls);
+        if (id != null)
+            return id;
+
+        synchronized (this) {
+            id = _typeIds.get(cls);
+            if (id == null) {
+                Class<?>[] types = new Class<?>[_types.length + 1];
+                System.arraycopy(_types, 0, types, 0, _types.length);
+                id = _types.length;
+                types[id] = cls;
+                _types = types;
+                _typeIds.put(cls, id);
+            }
+            return id;
+        }
+    }
+
+    private Class<?> type(int id) {
+        return _types[id];
+    }
+
+    /**
+     * Growable output buffer.
+     */
+    private static class Output {
+
+        private byte[] _buf = new byte[128];
+        private int _pos = 0;
+
+        private void ensure(int len) {
+            if (_pos + len > _buf.length) {
+                byte[] buf = new byte[Math.max(_buf.length * 2, _pos + len)];
+                System.arraycopy(_buf, 0, buf, 0, _pos);
+                _buf = buf;
+            }
+        }
+
+        public void writeByte(int b) {
+            ensure(1);
+            _buf[_pos++] = (byte) b;
+        }
+
+        public void writeLong(long l) {
+            ensure(8);
+            for (int i = 56; i >= 0; i -= 8)
+                _buf[_pos++] = (byte) (l >>> i);
+        }
+
+        /**
+         * Write an unsigned variable-length int.
+         */
+        public void writeVarInt(int i) {
+            ensure(5);
+            while ((i & ~0x7F) != 0) {
+                _buf[_pos++] = (byte) ((i & 0x7F) | 0x80);
+                i >>>= 7;
+            }
+            _buf[_pos++] = (byte) i;
+        }
+
+        /**
+         * Write a zig-zag encoded variable-length long.
+         */
+        public void writeVarLong(long l) {
+            ensure(10);
+            l = (l << 1) ^ (l >> 63);
+            while ((l & ~0x7FL) != 0) {
+                _buf[_pos++] = (byte) ((l & 0x7F) | 0x80);
+                l >>>= 7;
+            }
+            _buf[_pos++] = (byte) l;
+        }
+
+        public void writeBytes(byte[] bytes) {
+            writeVarInt(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, _buf, _pos, bytes.length);
+            _pos += bytes.length;
+        }
+
+        public void writeString(String str) {
+            writeBytes(str.getBytes(StandardCharsets.UTF_8));
+        }
+
+        public byte[] toByteArray() {
+            byte[] bytes = new byte[_pos];
+            System.arraycopy(_buf, 0, bytes, 0, _pos);
+            return bytes;
+        }
+    }
+
+    /**
+     * Reader over encoded bytes.
+     */
+    private static class Input {
+
+        private final byte[] _buf;
+        private int _pos = 0;
+
+        public Input(byte[] buf) {
+            _buf = buf;
+        }
+
+        public byte readByte() {
+            return _buf[_pos++];
+        }
+
+        public boolean readBoolean() {
+            return readByte() == TRUE;
+        }
+
+        public long readLong() {
+            long l = 0;
+            for (int i = 0; i < 8; i++)
+                l = (l << 8) | (_buf[_pos++] & 0xFF);
+            return l;
+        }
+
+        public int readVarInt() {
+            int i = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = _buf[_pos++];
+                i |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return i;
+        }
+
+        public long readVarLong() {
+            long l = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = _buf[_pos++];
+                l |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return (l >>> 1) ^ -(l & 1);
+        }
+
+        public byte[] readBytes() {
+            byte[] bytes = new byte[readVarInt()];
+            System.arraycopy(_buf, _pos, bytes, 0, bytes.length);
+            _pos += bytes.length;
+            return bytes;
+        }
+
+        public String readString() {
+            int len = readVarInt();
+            String str = new String(_buf, _pos, len, StandardCharsets.UTF_8);
+            _pos += len;
+            return str;
+        }
+    }
+}
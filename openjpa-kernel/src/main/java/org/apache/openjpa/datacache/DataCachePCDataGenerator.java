@@ -77,6 +77,19 @@ public class DataCachePCDataGenerator extends PCDataGenerator {
             ((Timed) data).setTimeout(-1);
     }
 
+    /**
+     * Fields that are ordered, or that other fields are ordered by, are
+     * only cached depending on the state of the instance. Leave their
+     * types to {@link DataCachePCDataImpl}.
+     */
+    @Override
+    protected boolean isGeneratable(ClassMetaData meta) {
+        for (FieldMetaData fmd : meta.getFields())
+            if (fmd.getOrders().length > 0 || fmd.isUsedInOrderBy())
+                return false;
+        return true;
+    }
+
     @Override
     protected void decorate(BCClass bc, ClassMetaData meta) {
         enhanceToData(bc);
@@ -91,13 +104,18 @@ public class DataCachePCDataGenerator extends PCDataGenerator {
             new Class []{ FieldMetaData.class, Object.class,
             StoreContext.class });
         Code code = meth.getCode(true);
-        // if (fmd.isLRS ()))
+        // if (fmd.isLRS () || fmd.isStream ())
         // 		return NULL;
         code.aload().setParam(0);
         code.invokevirtual().setMethod(FieldMetaData.class, "isLRS",
             boolean.class, null);
+        JumpInstruction iflrs = code.ifne();
+        code.aload().setParam(0);
+        code.invokevirtual().setMethod(FieldMetaData.class, "isStream",
+            boolean.class, null);
         JumpInstruction ifins = code.ifeq();
-        code.getstatic().setField(AbstractPCData.class, "NULL", Object.class);
+        iflrs.setTarget(code.getstatic().setField(AbstractPCData.class,
+            "NULL", Object.class));
         code.areturn();
         // super.toData (fmd, val, ctx);
         ifins.setTarget(code.aload().setThis());
@@ -191,6 +209,17 @@ public class DataCachePCDataGenerator extends PCDataGenerator {
 
         // public boolean isTimedOut ();
         BCField field = addBeanField(bc, "timeout", long.class);
+
+        // public long getTimeOut () { return timeout; }
+        BCMethod getter = bc.declareMethod("getTimeOut", long.class, null);
+        getter.makePublic();
+        Code getCode = getter.getCode(true);
+        getCode.aload().setThis();
+        getCode.getfield().setField(field);
+        getCode.xreturn().setType(long.class);
+        getCode.calculateMaxStack();
+        getCode.calculateMaxLocals();
+
         BCMethod meth = bc.declareMethod("isTimedOut", boolean.class, null);
         Code code = meth.getCode(true);
 
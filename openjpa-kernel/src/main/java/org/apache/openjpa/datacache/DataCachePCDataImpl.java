@@ -52,13 +52,27 @@ public class DataCachePCDataImpl
      * Constructor.
      */
     public DataCachePCDataImpl(Object oid, ClassMetaData meta, String name) {
+        this(oid, meta, name, expiration(meta));
+    }
+
+    /**
+     * Constructor for data whose expiration time has already been computed,
+     * such as data rebuilt from a serialized form.
+     *
+     * @param exp the time in milliseconds at which the data expires, or -1
+     * @since 3.2.3
+     */
+    public DataCachePCDataImpl(Object oid, ClassMetaData meta, String name,
+        long exp) {
         super(oid, meta, name);
+        _exp = exp;
+    }
 
+    private static long expiration(ClassMetaData meta) {
         int timeout = meta.getDataCacheTimeout();
         if (timeout > 0)
-            _exp = System.currentTimeMillis() + timeout;
-        else
-            _exp = -1;
+            return System.currentTimeMillis() + timeout;
+        return -1;
     }
 
     @Override
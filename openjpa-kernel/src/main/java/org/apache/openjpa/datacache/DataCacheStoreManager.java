@@ -800,8 +800,12 @@ public class DataCacheStoreManager extends DelegatingStoreManager {
      */
     private DataCachePCData newPCData(OpenJPAStateManager sm, DataCache cache) {
         ClassMetaData meta = sm.getMetaData();
-        if (_gen != null)
-            return (DataCachePCData) _gen.generatePCData(sm.getObjectId(), meta);
+        if (_gen != null) {
+            DataCachePCData data = (DataCachePCData) _gen.generatePCData
+                (sm.getObjectId(), meta, cache.getName());
+            if (data != null)
+                return data;
+        }
         return new DataCachePCDataImpl(sm.fetchObjectId(), meta, cache.getName());
     }
 
@@ -0,0 +1,488 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.datacache;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+import org.apache.openjpa.event.RemoteCommitListener;
+import org.apache.openjpa.lib.util.Localizer;
+
+/**
+ * A {@link DataCache} implementation that keeps cached data outside of the
+ * Java heap, so that large caches do not add to garbage collection work.
+ * Data is stored in a compact binary form in a ring of direct byte buffer
+ * segments; only the index from oid to location stays on the heap. Writes
+ * are appended to the current segment, and when all segments are full the
+ * oldest segment is evicted as a whole and reused. Pinned data is kept on
+ * the heap and is never evicted.
+ *
+ * Memory is returned to the system when the cache is cleared or closed,
+ * rather than when the buffers are eventually garbage collected.
+ *
+ * Every cache hit decodes a new copy of the data, so this cache trades
+ * some CPU for heap space compared to {@link ConcurrentDataCache}. Values
+ * of types without a compact encoding are stored with java serialization,
+ * and data that cannot be serialized is not cached.
+ *
+ * @since 3.2.3
+ */
+public class OffHeapDataCache
+    extends AbstractDataCache
+    implements RemoteCommitListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Localizer _loc = Localizer.forPackage
+        (OffHeapDataCache.class);
+
+    private static final Object NO_VALUE = new Object();
+
+    private long _capacity = 64L * 1024 * 1024;
+    private int _segmentCount = 16;
+    private int _cacheSize = -1;
+
+    private final ReentrantLock _lock = new ReentrantLock();
+    private final Map<Object, Slot> _index = new ConcurrentHashMap<>();
+    private final Map<Object, Object> _pinned = new ConcurrentHashMap<>();
+    private transient DataCachePCDataCodec _codec;
+    private transient Segment[] _segments;
+    private int _current = 0;
+
+    /**
+     * The total number of bytes of off-heap memory to use for cached data.
+     * Memory is allocated one segment at a time as it is needed. Defaults
+     * to 64 MB.
+     */
+    public void setCapacity(long capacity) {
+        _capacity = capacity;
+    }
+
+    public long getCapacity() {
+        return _capacity;
+    }
+
+    /**
+     * The number of segments that the memory is divided into. When the
+     * cache is full, the oldest segment is evicted, so more segments evict
+     * less data at a time but limit the size of a single cached instance.
+     * Defaults to 16.
+     */
+    public void setSegments(int segments) {
+        _segmentCount = segments;
+    }
+
+    public int getSegments() {
+        return _segmentCount;
+    }
+
+    /**
+     * The maximum number of unpinned instances to cache, in addition to the
+     * limit in bytes set by {@link #setCapacity}. Defaults to -1 for no limit.
+     */
+    public void setCacheSize(int size) {
+        _cacheSize = size;
+    }
+
+    public int getCacheSize() {
+        return _cacheSize;
+    }
+
+    /**
+     * Return the number of bytes currently allocated outside of the heap.
+     */
+    public long getAllocatedBytes() {
+        long bytes = 0;
+        if (_segments == null)
+            return bytes;
+        for (Segment seg : _segments)
+            if (seg.buf != null)
+                bytes += seg.buf.capacity();
+        return bytes;
+    }
+
+    @Override
+    public void initialize(DataCacheManager mgr) {
+        super.initialize(mgr);
+        conf.getRemoteCommitEventManager().addInternalListener(this);
+
+        int count = Math.max(1, _segmentCount);
+        int size = (int) Math.min(Integer.MAX_VALUE, Math.max(1,
+            _capacity / count));
+        _segments = new Segment[count];
+        for (int i = 0; i < count; i++)
+            _segments[i] = new Segment(size);
+        _codec = new DataCachePCDataCodec(conf.getMetaDataRepositoryInstance(),
+            getName());
+    }
+
+    @Override
+    public void unpinAll(Class<?> cls, boolean subs) {
+        if (log.isWarnEnabled())
+            log.warn(_loc.get("cache-class-unpin-all", getName()));
+        unpinAll(new ArrayList<>(_pinned.keySet()));
+    }
+
+    @Override
+    public void writeLock() {
+        _lock.lock();
+    }
+
+    @Override
+    public void writeUnlock() {
+        _lock.unlock();
+    }
+
+    @Override
+    protected DataCachePCData getInternal(Object key) {
+        Object pinned = _pinned.get(key);
+        if (pinned != null)
+            return (pinned == NO_VALUE) ? null : (DataCachePCData) pinned;
+        return read(_index.get(key));
+    }
+
+    @Override
+    protected DataCachePCData putInternal(Object key, DataCachePCData pc) {
+        _lock.lock();
+        try {
+            if (_pinned.containsKey(key))
+                return value(_pinned.put(key, pc));
+
+            byte[] bytes = _codec.encode(pc);
+            Slot old;
+            if (bytes == null || bytes.length > _segments[0].size) {
+                if (log.isTraceEnabled())
+                    log.trace(_loc.get("offheap-cache-skip", key));
+                old = _index.remove(key);
+            } else {
+                if (_cacheSize >= 0 && !_index.containsKey(key))
+                    evictToSize(_cacheSize - 1);
+                old = _index.put(key, append(key, bytes));
+            }
+
+            DataCachePCData val = read(old);
+            if (old != null)
+                keyRemoved(key, false);
+            return val;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    protected DataCachePCData removeInternal(Object key) {
+        _lock.lock();
+        try {
+            if (_pinned.containsKey(key))
+                return value(_pinned.put(key, NO_VALUE));
+
+            Slot old = _index.remove(key);
+            DataCachePCData val = read(old);
+            if (old != null)
+                keyRemoved(key, false);
+            return val;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    protected void removeAllInternal(Class<?> cls, boolean subs) {
+        // as in ConcurrentDataCache, clear everything rather than decoding
+        // every entry to find its type
+        clearInternal();
+    }
+
+    @Override
+    protected void clearInternal() {
+        _lock.lock();
+        try {
+            for (Map.Entry<Object, Object> entry : _pinned.entrySet())
+                if (entry.getValue() != NO_VALUE)
+                    keyRemoved(entry.getKey(), false);
+            _pinned.clear();
+
+            for (Segment seg : _segments)
+                seg.release();
+            List<Object> keys = new ArrayList<>(_index.keySet());
+            _index.clear();
+            for (Object key : keys)
+                keyRemoved(key, false);
+            _current = 0;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    protected void close(boolean clear) {
+        super.close(clear);
+        if (_segments == null)
+            return;
+        _lock.lock();
+        try {
+            for (Segment seg : _segments)
+                seg.release();
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    protected boolean pinInternal(Object key) {
+        _lock.lock();
+        try {
+            Object pinned = _pinned.get(key);
+            if (pinned != null)
+                return pinned != NO_VALUE;
+
+            DataCachePCData val = read(_index.remove(key));
+            _pinned.put(key, (val == null) ? NO_VALUE : val);
+            return val != null;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    protected boolean unpinInternal(Object key) {
+        _lock.lock();
+        try {
+            DataCachePCData val = value(_pinned.remove(key));
+            if (val == null)
+                return false;
+            putInternal(key, val);
+            return true;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    protected boolean recacheUpdates() {
+        return true;
+    }
+
+    private static DataCachePCData value(Object pinned) {
+        return (pinned == null || pinned == NO_VALUE) ? null
+            : (DataCachePCData) pinned;
+    }
+
+    /**
+     * Decode the data at the given slot, returning null if the slot is null
+     * or its segment has been evicted.
+     */
+    private DataCachePCData read(Slot slot) {
+        if (slot == null)
+            return null;
+        byte[] bytes = _segments[slot.segment].read(slot);
+        if (bytes == null)
+            return null;
+        return _codec.decode(slot.key, bytes);
+    }
+
+    /**
+     * Append the given bytes to the current segment, moving to and evicting
+     * the next segment if the current one is full. Must be called with the
+     * lock held.
+     */
+    private Slot append(Object key, byte[] bytes) {
+        Segment seg = _segments[_current];
+        if (!seg.fits(bytes.length)) {
+            advance();
+            seg = _segments[_current];
+        }
+        return seg.append(_current, key, bytes);
+    }
+
+    /**
+     * Evict whole segments, oldest first, until at most the given number of
+     * unpinned instances remain. Must be called with the lock held.
+     */
+    private void evictToSize(int size) {
+        for (int i = 0; i < _segments.length && _index.size() > size; i++)
+            advance();
+    }
+
+    /**
+     * Make the oldest segment the current one, evicting its contents.
+     */
+    private void advance() {
+        _current = (_current + 1) % _segments.length;
+        Segment seg = _segments[_current];
+        List<Slot> evicted = seg.reset();
+        for (Slot slot : evicted)
+            if (_index.remove(slot.key, slot))
+                keyRemoved(slot.key, true);
+        if (log.isTraceEnabled())
+            log.trace(_loc.get("offheap-cache-evict", getName(),
+                evicted.size()));
+    }
+
+    /**
+     * Location of the encoded data for a single key.
+     */
+    private static class Slot {
+
+        final Object key;
+        final int segment;
+        final int generation;
+        final int offset;
+        final int length;
+
+        Slot(Object key, int segment, int generation, int offset,
+            int length) {
+            this.key = key;
+            this.segment = segment;
+            this.generation = generation;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Free the memory of the given direct buffer now instead of waiting for
+     * it to be garbage collected. Falls back to garbage collection if the
+     * JVM does not allow it.
+     */
+    private static void free(ByteBuffer buf) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner",
+                ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buf);
+            return;
+        } catch (NoSuchMethodException nsme) {
+            // java 8; use the buffer's cleaner below
+        } catch (Throwable t) {
+            return;
+        }
+
+        try {
+            Method cleanerMethod = buf.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buf);
+            if (cleaner != null)
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+        } catch (Throwable t) {
+            // leave it to the garbage collector
+        }
+    }
+
+    /**
+     * A direct buffer written sequentially. Reads hold the read lock;
+     * evicting or releasing the segment takes its write lock and bumps its
+     * generation so that readers of evicted slots see a miss instead of
+     * overwritten or freed memory.
+     */
+    private static class Segment {
+
+        final int size;
+        final StampedLock lock = new StampedLock();
+        volatile ByteBuffer buf;
+        volatile int generation = 0;
+
+        // guarded by the cache lock
+        int position = 0;
+        List<Slot> slots = new ArrayList<>();
+
+        Segment(int size) {
+            this.size = size;
+        }
+
+        boolean fits(int length) {
+            return position + length <= size;
+        }
+
+        Slot append(int index, Object key, byte[] bytes) {
+            if (buf == null)
+                buf = ByteBuffer.allocateDirect(size);
+            ByteBuffer dup = buf.duplicate();
+            dup.position(position);
+            dup.put(bytes);
+
+            Slot slot = new Slot(key, index, generation, position,
+                bytes.length);
+            position += bytes.length;
+            slots.add(slot);
+            return slot;
+        }
+
+        byte[] read(Slot slot) {
+            long stamp = lock.readLock();
+            try {
+                if (slot.generation != generation || buf == null)
+                    return null;
+
+                byte[] bytes = new byte[slot.length];
+                ByteBuffer dup = buf.duplicate();
+                dup.position(slot.offset);
+                dup.get(bytes);
+                return bytes;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * Invalidate the segment's contents, returning the slots that were
+         * stored in it.
+         */
+        List<Slot> reset() {
+            long stamp = lock.writeLock();
+            try {
+                generation++;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            List<Slot> evicted = slots;
+            slots = new ArrayList<>();
+            position = 0;
+            return evicted;
+        }
+
+        /**
+         * Invalidate the segment's contents and free its memory. The buffer
+         * is allocated again on the next append.
+         */
+        void release() {
+            long stamp = lock.writeLock();
+            try {
+                generation++;
+                if (buf != null) {
+                    free(buf);
+                    buf = null;
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            slots = new ArrayList<>();
+            position = 0;
+        }
+    }
+}
@@ -259,6 +259,11 @@ public class QueryCacheStoreQuery
         return _query.newCompilationKey();
     }
 
+    @Override
+    public Object newParsedCompilationKey() {
+        return _query.newParsedCompilationKey();
+    }
+
     @Override
     public Object newCompilation() {
         return _query.newCompilation();
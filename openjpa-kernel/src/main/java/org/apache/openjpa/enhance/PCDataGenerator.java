@@ -84,7 +84,19 @@ public class PCDataGenerator
      * Return a {@link PCData} instance for the given oid and metadata.
      */
     public PCData generatePCData(Object oid, ClassMetaData meta) {
-        if (meta == null)
+        return generatePCData(oid, meta, null);
+    }
+
+    /**
+     * Return a {@link PCData} instance for the given oid and metadata,
+     * held by the cache of the given name. Return null if no instance can
+     * be generated for the given type.
+     *
+     * @since 3.2.3
+     */
+    public PCData generatePCData(Object oid, ClassMetaData meta,
+        String cache) {
+        if (meta == null || !isGeneratable(meta))
             return null;
         Class<?> type = meta.getDescribedType();
         DynamicStorage storage = _generated.get(type);
@@ -96,11 +108,23 @@ public class PCDataGenerator
         }
         DynamicPCData data = (DynamicPCData) storage.newInstance();
         data.setId(oid);
+        data.setCache(cache);
         data.setStorageGenerator(this);
         finish(data, meta);
         return data;
     }
 
+    /**
+     * Whether a {@link PCData} class can be generated for the given type.
+     * Types for which this returns false are left to the default
+     * {@link PCData} implementation.
+     *
+     * @since 3.2.3
+     */
+    protected boolean isGeneratable(ClassMetaData meta) {
+        return true;
+    }
+
     /**
      * Actually generate the factory instance.
      */
@@ -163,7 +187,7 @@ public class PCDataGenerator
         addLoadWithFieldsMethod(bc, meta);
         addStoreMethods(bc, meta);
         addNewEmbedded(bc);
-        addGetData(bc);
+        addGetData(bc, meta);
         decorate(bc, meta);
     }
 
@@ -253,6 +277,7 @@ public class PCDataGenerator
      */
     private void addBaseFields(BCClass bc) {
         addBeanField(bc, "id", Object.class);
+        addBeanField(bc, "cache", String.class);
         BCField field = addBeanField(bc, "storageGenerator",
             PCDataGenerator.class);
         field.setAccessFlags(field.getAccessFlags()
@@ -796,10 +821,23 @@ public class PCDataGenerator
         code.invokevirtual().setMethod("storeImplData", void.class,
             new Class[]{ OpenJPAStateManager.class });
 
+        // StateManager dsm = attachStateManager(sm);
+        int dsm = code.getNextLocalsIndex();
+        code.aload().setParam(0);
+        code.invokestatic().setMethod(AbstractPCData.class,
+            "attachStateManager", StateManager.class,
+            new Class[]{ OpenJPAStateManager.class });
+        code.astore().setLocal(dsm);
+
         FieldMetaData[] fmds = meta.getFields();
         Collection<Instruction> jumps = new LinkedList<>();
         int objectCount = 0;
         for (int i = 0; i < fmds.length; i++) {
+            if (fmds[i].getManagement() != FieldMetaData.MANAGE_PERSISTENT) {
+                if (replaceType(fmds[i]) >= JavaTypes.OBJECT)
+                    objectCount++;
+                continue;
+            }
             if (fields) {
                 //  if (fields != null && fields.get(index))
                 setTarget(code.aload().setParam(1), jumps);
@@ -850,7 +888,14 @@ public class PCDataGenerator
             if (replaceType(fmds[i]) >= JavaTypes.OBJECT)
                 objectCount++;
         }
-        setTarget(code.vreturn(), jumps);
+
+        // restoreStateManager(sm, dsm);
+        setTarget(code.aload().setParam(0), jumps);
+        code.aload().setLocal(dsm);
+        code.invokestatic().setMethod(AbstractPCData.class,
+            "restoreStateManager", void.class,
+            new Class[]{ OpenJPAStateManager.class, StateManager.class });
+        code.vreturn();
         code.calculateMaxLocals();
         code.calculateMaxStack();
     }
@@ -950,7 +995,7 @@ public class PCDataGenerator
             new Class[]{ OpenJPAStateManager.class });
         Code code = meth.getCode(true);
         // return getStorageGenerator().generatePCData
-        // 		(sm.getId(), sm.getMetaData());
+        // 		(sm.getId(), sm.getMetaData(), getCache());
         code.aload().setThis();
         code.getfield().setField("storageGenerator", PCDataGenerator.class);
         code.aload().setParam(0);
@@ -959,20 +1004,40 @@ public class PCDataGenerator
         code.aload().setParam(0);
         code.invokeinterface().setMethod(OpenJPAStateManager.class,
             "getMetaData", ClassMetaData.class, null);
+        code.aload().setThis();
+        code.getfield().setField("cache", String.class);
         code.invokevirtual().setMethod(PCDataGenerator.class,
             "generatePCData", PCData.class, new Class[]
-            { Object.class, ClassMetaData.class });
+            { Object.class, ClassMetaData.class, String.class });
         code.areturn();
         code.calculateMaxLocals();
         code.calculateMaxStack();
     }
 
-    private void addGetData(BCClass bc) {
-        // return getObjectField(i);
+    private void addGetData(BCClass bc, ClassMetaData meta) {
+        // public Object getData(int i)
         BCMethod method = bc.declareMethod("getData", Object.class,
             new Class[]{ int.class });
         Code code = method.getCode(true);
-        code.aload().setThis();
+
+        // switch (i)
+        // case x: return <Wrapper>.valueOf(field<x>);
+        // default: return getObject(i);
+        code.iload().setParam(0);
+        LookupSwitchInstruction lswitch = code.lookupswitch();
+        FieldMetaData[] fmds = meta.getFields();
+        for (FieldMetaData fmd : fmds) {
+            int typeCode = replaceType(fmd);
+            if (typeCode >= JavaTypes.OBJECT)
+                continue;
+            Class<?> type = forType(typeCode);
+            lswitch.addCase(fmd.getIndex(), code.aload().setThis());
+            code.getfield().setField(getFieldName(fmd.getIndex()), type);
+            code.invokestatic().setMethod(getWrapper(type), "valueOf",
+                getWrapper(type), new Class[]{ type });
+            code.areturn();
+        }
+        lswitch.setDefaultTarget(code.aload().setThis());
         code.iload().setParam(0);
         code.invokevirtual().setMethod("getObject", Object.class,
             new Class[]{ int.class });
@@ -1074,6 +1139,8 @@ public class PCDataGenerator
 
         void setId(Object oid);
 
+        void setCache(String cache);
+
         PCDataGenerator getStorageGenerator();
 
         void setStorageGenerator (PCDataGenerator generator);
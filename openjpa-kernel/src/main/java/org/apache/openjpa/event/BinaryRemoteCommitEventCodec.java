@@ -0,0 +1,482 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.event;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.security.AccessController;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.openjpa.lib.conf.Configurable;
+import org.apache.openjpa.lib.conf.Configuration;
+import org.apache.openjpa.lib.util.J2DoPrivHelper;
+import org.apache.openjpa.lib.util.MultiClassLoader;
+import org.apache.openjpa.util.BlacklistClassResolver;
+import org.apache.openjpa.util.Id;
+import org.apache.openjpa.util.IntId;
+import org.apache.openjpa.util.LongId;
+import org.apache.openjpa.util.OpenJPAId;
+import org.apache.openjpa.util.StringId;
+
+/**
+ * Compact {@link RemoteCommitEventCodec}. Class names are written once per
+ * event to a dictionary and referenced by index, the common single-field
+ * and datastore oids are written as variable-length integers, and other
+ * oids fall back to java serialization, restricted to the classes that
+ * the remote commit class allow-list permits. Events larger than the
+ * compression threshold are deflated.
+ *
+ * Encoded events start with a format version byte, and events with an
+ * unknown version are rejected, so that the format can evolve while a
+ * cluster is upgraded one node at a time.
+ *
+ * @since 3.2.3
+ */
+public class BinaryRemoteCommitEventCodec
+    implements RemoteCommitEventCodec, Configurable {
+
+    /**
+     * Version of the encoded format.
+     */
+    public static final byte VERSION = 1;
+
+    private static final byte FLAG_COMPRESSED = 1;
+
+    // limit on the inflated size of compressed events, which cannot be
+    // checked against the bytes received
+    private static final int MAX_INFLATED_LENGTH = 64 * 1024 * 1024;
+
+    private static final byte NULL = 0;
+    private static final byte NAME = 1;
+    private static final byte LONG_ID = 2;
+    private static final byte INT_ID = 3;
+    private static final byte STRING_ID = 4;
+    private static final byte DATASTORE_ID = 5;
+    private static final byte SERIALIZED = 6;
+
+    private int _compressionThreshold = 1024;
+    private RemoteCommitClassFilter _filter = new RemoteCommitClassFilter(null);
+
+    /**
+     * The encoded size in bytes above which events are compressed, or -1
+     * to never compress. Defaults to 1024.
+     */
+    public void setCompressionThreshold(int threshold) {
+        _compressionThreshold = threshold;
+    }
+
+    public int getCompressionThreshold() {
+        return _compressionThreshold;
+    }
+
+    @Override
+    public void setConfiguration(Configuration conf) {
+        _filter = new RemoteCommitClassFilter(conf);
+    }
+
+    @Override
+    public void startConfiguration() {
+    }
+
+    @Override
+    public void endConfiguration() {
+    }
+
+    @Override
+    public byte[] encode(RemoteCommitEvent event)
+        throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        Map<String, Integer> names = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+
+        // encode the contents first to build the name dictionary
+        int payload = event.getPayloadType();
+        writeVarInt(out, payload);
+        writeCollection(out, event.getPersistedTypeNames(), names, dictionary);
+        if (payload == RemoteCommitEvent.PAYLOAD_OIDS_WITH_ADDS)
+            writeCollection(out, event.getPersistedObjectIds(), names,
+                dictionary);
+        if (payload == RemoteCommitEvent.PAYLOAD_EXTENTS) {
+            writeCollection(out, event.getUpdatedTypeNames(), names,
+                dictionary);
+            writeCollection(out, event.getDeletedTypeNames(), names,
+                dictionary);
+        } else {
+            writeCollection(out, event.getUpdatedObjectIds(), names,
+                dictionary);
+            writeCollection(out, event.getDeletedObjectIds(), names,
+                dictionary);
+        }
+        out.flush();
+        byte[] contents = bytes.toByteArray();
+
+        bytes = new ByteArrayOutputStream(contents.length + 64);
+        out = new DataOutputStream(bytes);
+        writeVarInt(out, dictionary.size());
+        for (String name : dictionary)
+            out.writeUTF(name);
+        out.write(contents);
+        out.flush();
+        byte[] body = bytes.toByteArray();
+
+        boolean compress = _compressionThreshold >= 0
+            && body.length > _compressionThreshold;
+        bytes = new ByteArrayOutputStream(body.length + 8);
+        out = new DataOutputStream(bytes);
+        out.writeByte(VERSION);
+        out.writeByte(compress ? FLAG_COMPRESSED : 0);
+        if (compress) {
+            writeVarInt(out, body.length);
+            out.write(deflate(body));
+        } else
+            out.write(body);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public RemoteCommitEvent decode(byte[] bytes)
+        throws IOException {
+        if (bytes.length < 2 || bytes[0] != VERSION)
+            throw new IOException("Unsupported remote commit event version "
+                + (bytes.length == 0 ? "" : String.valueOf(bytes[0])));
+
+        byte[] body;
+        DataInputStream in;
+        if ((bytes[1] & FLAG_COMPRESSED) != 0) {
+            in = new DataInputStream(new ByteArrayInputStream(bytes, 2,
+                bytes.length - 2));
+            int length = readVarInt(in);
+            if (length < 0 || length > MAX_INFLATED_LENGTH)
+                throw new IOException("Invalid remote commit event length "
+                    + length);
+            body = new byte[length];
+            inflate(bytes, 2 + varIntLength(body.length), body);
+        } else
+            body = null;
+        in = (body == null)
+            ? new DataInputStream(new ByteArrayInputStream(bytes, 2,
+                bytes.length - 2))
+            : new DataInputStream(new ByteArrayInputStream(body));
+
+        Class<?>[] types = new Class<?>[readCount(in)];
+        String[] dictionary = new String[types.length];
+        for (int i = 0; i < dictionary.length; i++)
+            dictionary[i] = in.readUTF();
+
+        int payload = readVarInt(in);
+        Collection addClasses = readCollection(in, dictionary, types);
+        Collection addIds = null;
+        if (payload == RemoteCommitEvent.PAYLOAD_OIDS_WITH_ADDS)
+            addIds = readCollection(in, dictionary, types);
+        Collection updates = readCollection(in, dictionary, types);
+        Collection deletes = readCollection(in, dictionary, types);
+        return new RemoteCommitEvent(payload, addIds, addClasses, updates,
+            deletes);
+    }
+
+    private void writeCollection(DataOutput out, Collection<?> values,
+        Map<String, Integer> names, List<String> dictionary)
+        throws IOException {
+        writeVarInt(out, values.size());
+        for (Object val : values)
+            writeValue(out, val, names, dictionary);
+    }
+
+    private void writeValue(DataOutput out, Object val,
+        Map<String, Integer> names, List<String> dictionary)
+        throws IOException {
+        if (val == null) {
+            out.writeByte(NULL);
+            return;
+        }
+
+        Class<?> cls = val.getClass();
+        if (cls == String.class) {
+            out.writeByte(NAME);
+            writeName(out, (String) val, names, dictionary);
+        } else if (cls == LongId.class) {
+            out.writeByte(LONG_ID);
+            writeIdType(out, (OpenJPAId) val, names, dictionary);
+            writeVarLong(out, ((LongId) val).getId());
+        } else if (cls == IntId.class) {
+            out.writeByte(INT_ID);
+            writeIdType(out, (OpenJPAId) val, names, dictionary);
+            writeVarLong(out, ((IntId) val).getId());
+        } else if (cls == StringId.class) {
+            out.writeByte(STRING_ID);
+            writeIdType(out, (OpenJPAId) val, names, dictionary);
+            out.writeUTF(((StringId) val).getId());
+        } else if (cls == Id.class) {
+            out.writeByte(DATASTORE_ID);
+            writeIdType(out, (OpenJPAId) val, names, dictionary);
+            writeVarLong(out, ((Id) val).getId());
+        } else {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+                oos.writeObject(val);
+            }
+            out.writeByte(SERIALIZED);
+            writeVarInt(out, bytes.size());
+            out.write(bytes.toByteArray());
+        }
+    }
+
+    private void writeIdType(DataOutput out, OpenJPAId id,
+        Map<String, Integer> names, List<String> dictionary)
+        throws IOException {
+        writeName(out, id.getType().getName(), names, dictionary);
+        out.writeBoolean(id.hasSubclasses());
+    }
+
+    private void writeName(DataOutput out, String name,
+        Map<String, Integer> names, List<String> dictionary)
+        throws IOException {
+        Integer idx = names.get(name);
+        if (idx == null) {
+            idx = dictionary.size();
+            names.put(name, idx);
+            dictionary.add(name);
+        }
+        writeVarInt(out, idx);
+    }
+
+    private Collection<Object> readCollection(DataInputStream in,
+        String[] dictionary, Class<?>[] types)
+        throws IOException {
+        int size = readCount(in);
+        List<Object> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            values.add(readValue(in, dictionary, types));
+        return values;
+    }
+
+    private Object readValue(DataInputStream in, String[] dictionary,
+        Class<?>[] types)
+        throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case NAME:
+                return dictionary[readIndex(in, dictionary.length)];
+            case LONG_ID:
+                Class<?> type = readIdType(in, dictionary, types);
+                boolean subs = in.readBoolean();
+                return new LongId(type, readVarLong(in), subs);
+            case INT_ID:
+                type = readIdType(in, dictionary, types);
+                subs = in.readBoolean();
+                return new IntId(type, (int) readVarLong(in), subs);
+            case STRING_ID:
+                type = readIdType(in, dictionary, types);
+                subs = in.readBoolean();
+                return new StringId(type, in.readUTF(), subs);
+            case DATASTORE_ID:
+                type = readIdType(in, dictionary, types);
+                subs = in.readBoolean();
+                return new Id(type, readVarLong(in), subs);
+            case SERIALIZED:
+                byte[] bytes = new byte[readCount(in)];
+                in.readFully(bytes);
+                try (ObjectInputStream ois = _filter.newObjectInputStream(
+                    new ByteArrayInputStream(bytes))) {
+                    return ois.readObject();
+                } catch (ClassNotFoundException cnfe) {
+                    throw new IOException(cnfe);
+                }
+            default:
+                throw new IOException("Unknown remote commit event tag "
+                    + tag);
+        }
+    }
+
+    /**
+     * Resolve the oid type at the next dictionary index, caching it for the
+     * rest of the event.
+     */
+    private Class<?> readIdType(DataInput in, String[] dictionary,
+        Class<?>[] types)
+        throws IOException {
+        int idx = readIndex(in, types.length);
+        if (types[idx] == null) {
+            String name = BlacklistClassResolver.DEFAULT.check(dictionary[idx]);
+            MultiClassLoader loader = AccessController
+                .doPrivileged(J2DoPrivHelper.newMultiClassLoaderAction());
+            loader.addClassLoader(AccessController.doPrivileged(
+                J2DoPrivHelper.getContextClassLoaderAction()));
+            loader.addClassLoader(getClass().getClassLoader());
+            loader.addClassLoader(MultiClassLoader.SYSTEM_LOADER);
+            try {
+                types[idx] = Class.forName(name, false, loader);
+            } catch (ClassNotFoundException cnfe) {
+                throw new IOException(cnfe);
+            }
+        }
+        return types[idx];
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(
+                bytes.length / 2 + 16);
+            byte[] buf = new byte[4096];
+            while (!deflater.finished())
+                out.write(buf, 0, deflater.deflate(buf));
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void inflate(byte[] bytes, int offset, byte[] out)
+        throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, offset, bytes.length - offset);
+            int len = 0;
+            while (len < out.length && !inflater.finished()) {
+                int n = inflater.inflate(out, len, out.length - len);
+                if (n == 0 && (inflater.needsInput()
+                    || inflater.needsDictionary()))
+                    break;
+                len += n;
+            }
+            // read the trailer so that its checksum is verified
+            if (len == out.length && !inflater.finished()
+                && inflater.inflate(new byte[1]) != 0)
+                throw new IOException("Invalid remote commit event length "
+                    + out.length);
+            if (len != out.length || !inflater.finished())
+                throw new IOException("Truncated remote commit event");
+        } catch (DataFormatException dfe) {
+            throw new IOException(dfe);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Write an unsigned variable-length int.
+     */
+    static void writeVarInt(DataOutput out, int i)
+        throws IOException {
+        while ((i & ~0x7F) != 0) {
+            out.writeByte((i & 0x7F) | 0x80);
+            i >>>= 7;
+        }
+        out.writeByte(i);
+    }
+
+    static int readVarInt(DataInput in)
+        throws IOException {
+        int i = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 28)
+                throw new IOException("Malformed remote commit event");
+            b = in.readByte();
+            i |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return i;
+    }
+
+    /**
+     * Read the number of values or bytes that follow. Every value takes at
+     * least one byte, so counts larger than the rest of the event are
+     * rejected before anything is allocated for them.
+     */
+    private static int readCount(DataInputStream in)
+        throws IOException {
+        int count = readVarInt(in);
+        if (count < 0 || count > in.available())
+            throw new IOException("Invalid count " + count
+                + " in remote commit event");
+        return count;
+    }
+
+    /**
+     * Read an index into the name dictionary.
+     */
+    private static int readIndex(DataInput in, int length)
+        throws IOException {
+        int idx = readVarInt(in);
+        if (idx < 0 || idx >= length)
+            throw new IOException("Invalid name index " + idx
+                + " in remote commit event");
+        return idx;
+    }
+
+    private static int varIntLength(int i) {
+        int len = 1;
+        while ((i & ~0x7F) != 0) {
+            i >>>= 7;
+            len++;
+        }
+        return len;
+    }
+
+    /**
+     * Write a zig-zag encoded variable-length long.
+     */
+    static void writeVarLong(DataOutput out, long l)
+        throws IOException {
+        l = (l << 1) ^ (l >> 63);
+        while ((l & ~0x7FL) != 0) {
+            out.writeByte((int) ((l & 0x7F) | 0x80));
+            l >>>= 7;
+        }
+        out.writeByte((int) l);
+    }
+
+    static long readVarLong(DataInput in)
+        throws IOException {
+        long l = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 63)
+                throw new IOException("Malformed remote commit event");
+            b = in.readByte();
+            l |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (l >>> 1) ^ -(l & 1);
+    }
+}
@@ -0,0 +1,608 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.event;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.openjpa.lib.log.Log;
+import org.apache.openjpa.lib.util.Localizer;
+
+/**
+ * Non-blocking transport of the {@link TCPRemoteCommitProvider}s listening
+ * on a port. A single selector thread accepts and reads the connections of
+ * peers, and writes the packets queued for each peer over one connection
+ * per peer. Received frames are decoded and fired on a separate dispatch
+ * thread, in the order they were received; a connection is not read while
+ * too many of its frames wait to be dispatched. Frames are read by their
+ * length prefix, so packets in the legacy java serialization format are
+ * not accepted.
+ *
+ * @since 3.2.3
+ */
+final class NIOTCPTransport implements Runnable {
+
+    private static final Localizer s_loc = Localizer.forPackage(NIOTCPTransport.class);
+
+    // magic number, version and length
+    private static final int HEADER_LENGTH = 9;
+    private static final long JOIN_MILLIS = 5000;
+    // bytes of received frames waiting to be dispatched before a connection
+    // stops being read
+    private static final long MAX_PENDING_BYTES = 8 * 1024 * 1024;
+
+    // the transports of the ports listened on in this JVM
+    private static final Map<Integer, NIOTCPTransport> s_transports = new HashMap<>();
+
+    private final int _port;
+    private final Log _log;
+    private final byte[] _localhost;
+    private final Selector _selector;
+    private final ServerSocketChannel _server;
+    private final Thread _thread;
+    private final ExecutorService _dispatcher;
+    private final Set<TCPRemoteCommitProvider> _providers = new CopyOnWriteArraySet<>();
+    private final Queue<Runnable> _tasks = new ConcurrentLinkedQueue<>();
+    private volatile boolean _running = true;
+
+    /**
+     * Return the transport listening on the given port, starting it if
+     * needed, and register the given provider to receive its events.
+     */
+    static NIOTCPTransport acquire(final TCPRemoteCommitProvider provider, final int port, final Log log)
+        throws IOException {
+        synchronized (s_transports) {
+            NIOTCPTransport transport = s_transports.get(port);
+            if (transport == null) {
+                transport = new NIOTCPTransport(port, log);
+                s_transports.put(port, transport);
+            }
+            transport._providers.add(provider);
+            return transport;
+        }
+    }
+
+    private NIOTCPTransport(final int port, final Log log) throws IOException {
+        _port = port;
+        _log = log;
+        _localhost = InetAddress.getLocalHost().getAddress();
+        _selector = Selector.open();
+        _server = ServerSocketChannel.open();
+        try {
+            _server.bind(new InetSocketAddress(port));
+            _server.configureBlocking(false);
+            _server.register(_selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException ioe) {
+            _server.close();
+            _selector.close();
+            throw ioe;
+        }
+
+        _dispatcher = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "OpenJPA TCP remote commit dispatcher " + port);
+            thread.setDaemon(true);
+            return thread;
+        });
+        _thread = new Thread(this, "OpenJPA TCP remote commit selector " + port);
+        _thread.setDaemon(true);
+        _thread.start();
+        if (_log.isTraceEnabled()) {
+            _log.trace(s_loc.get("tcp-start-listener", String.valueOf(_port)));
+        }
+    }
+
+    /**
+     * Stop delivering events to the given provider, and stop the transport
+     * once no provider is left. The provider must have closed its peers.
+     */
+    void release(final TCPRemoteCommitProvider provider) {
+        synchronized (s_transports) {
+            _providers.remove(provider);
+            if (!_providers.isEmpty()) {
+                return;
+            }
+            s_transports.remove(_port);
+
+            // wait for the port to be unbound, so that it can be listened on
+            // again right away
+            _running = false;
+            _selector.wakeup();
+            if (Thread.currentThread() != _thread) {
+                try {
+                    _thread.join(JOIN_MILLIS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Create the connection to the given peer.
+     *
+     * @param maxQueued the number of bytes queued before the peer is
+     * disconnected
+     * @param timeout the number of milliseconds closing the peer waits for
+     * its queued packets to be sent
+     */
+    Peer newPeer(final TCPRemoteCommitProvider.HostAddress address, final long maxQueued, final long timeout) {
+        return new Peer(address, maxQueued, timeout);
+    }
+
+    /**
+     * Run the given task on the selector thread.
+     */
+    private void execute(final Runnable task) {
+        _tasks.add(task);
+        _selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        while (_running) {
+            try {
+                Runnable task;
+                while ((task = _tasks.poll()) != null) {
+                    task.run();
+                }
+                _selector.select();
+            } catch (Exception e) {
+                if (_log.isWarnEnabled()) {
+                    _log.warn(s_loc.get("tcp-accept-error"), e);
+                }
+                continue;
+            }
+
+            for (Iterator<SelectionKey> itr = _selector.selectedKeys().iterator(); itr.hasNext();) {
+                SelectionKey key = itr.next();
+                itr.remove();
+                Object att = key.attachment();
+                try {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (att instanceof Peer) {
+                        ((Peer) att).ready(key);
+                    } else {
+                        ((Inbound) att).read();
+                    }
+                } catch (CancelledKeyException cke) {
+                    // the channel was closed
+                } catch (Exception e) {
+                    if (att instanceof Peer) {
+                        ((Peer) att).fail(e);
+                    } else if (att instanceof Inbound) {
+                        ((Inbound) att).close(e);
+                    } else if (_log.isWarnEnabled()) {
+                        _log.warn(s_loc.get("tcp-accept-error"), e);
+                    }
+                }
+            }
+        }
+
+        // We are done listening. Close the connections to and from peers.
+        _dispatcher.shutdown();
+        for (SelectionKey key : _selector.keys()) {
+            try {
+                key.channel().close();
+            } catch (IOException ioe) {
+                if (_log.isWarnEnabled()) {
+                    _log.warn(s_loc.get("tcp-close-error"), ioe);
+                }
+            }
+        }
+        try {
+            _selector.close();
+        } catch (IOException ioe) {
+            if (_log.isWarnEnabled()) {
+                _log.warn(s_loc.get("tcp-close-error"), ioe);
+            }
+        }
+        if (_log.isTraceEnabled()) {
+            _log.trace(s_loc.get("tcp-close-listener", String.valueOf(_port)));
+        }
+    }
+
+    /**
+     * Accept a connection from a peer.
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = _server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Inbound in = new Inbound(channel);
+        if (_log.isTraceEnabled()) {
+            _log.trace(s_loc.get("tcp-received-connection", in._peer));
+        }
+        in._key = channel.register(_selector, SelectionKey.OP_READ, in);
+    }
+
+    /**
+     * Connection from a peer, reading the frames written by
+     * {@link TCPRemoteCommitProvider#broadcast}.
+     */
+    private final class Inbound {
+
+        private final SocketChannel _channel;
+        private final String _peer;
+        private final ByteBuffer _header = ByteBuffer.allocate(HEADER_LENGTH);
+        private ByteBuffer _frame;
+        private byte _version;
+        private SelectionKey _key;
+
+        // bytes of frames waiting to be dispatched
+        private final AtomicLong _pending = new AtomicLong();
+        private volatile boolean _paused = false;
+
+        private Inbound(final SocketChannel channel) {
+            _channel = channel;
+            _peer = channel.socket().getInetAddress().getHostAddress() + ":" + channel.socket().getPort();
+        }
+
+        /**
+         * Read all available frames and hand them to the dispatch thread.
+         */
+        private void read() throws IOException {
+            while (!_paused) {
+                if (_frame == null) {
+                    if (_channel.read(_header) < 0) {
+                        throw new EOFException();
+                    }
+                    if (_header.hasRemaining()) {
+                        return;
+                    }
+                    _header.flip();
+                    int magic = _header.getInt();
+                    _version = _header.get();
+                    int length = _header.getInt();
+                    _header.clear();
+                    if (magic != TCPRemoteCommitProvider.FRAME_MAGIC) {
+                        // java serialization streams start with 0xACED
+                        String msg = (magic >>> 16 == 0xACED) ? "tcp-nio-legacy-error" : "tcp-wrong-frame-error";
+                        throw new IOException(s_loc.get(msg, _peer).getMessage());
+                    }
+                    if (length < 0 || length > TCPRemoteCommitProvider.MAX_FRAME_LENGTH) {
+                        throw new IOException(s_loc.get("tcp-frame-length-error", _peer, length).getMessage());
+                    }
+                    _frame = ByteBuffer.allocate(length);
+                }
+
+                if (_channel.read(_frame) < 0) {
+                    throw new EOFException();
+                }
+                if (_frame.hasRemaining()) {
+                    return;
+                }
+                byte[] frame = _frame.array();
+                _frame = null;
+                if (_version != TCPRemoteCommitProvider.FRAME_VERSION) {
+                    if (_log.isWarnEnabled()) {
+                        _log.warn(s_loc.get("tcp-wrong-version-error", _peer));
+                    }
+                    continue;
+                }
+                if (_log.isTraceEnabled()) {
+                    _log.trace(s_loc.get("tcp-received-event", _peer));
+                }
+                _pending.addAndGet(frame.length);
+                _dispatcher.execute(() -> dispatch(frame));
+                if (_pending.get() > MAX_PENDING_BYTES) {
+                    pause();
+                }
+            }
+        }
+
+        /**
+         * Fire the event in the given frame. Runs on the dispatch thread.
+         */
+        private void dispatch(final byte[] frame) {
+            try {
+                TCPRemoteCommitProvider.dispatch(_providers, _port, _localhost, frame);
+            } catch (Exception e) {
+                if (_log.isWarnEnabled()) {
+                    _log.warn(s_loc.get("tcp-receive-error"), e);
+                }
+            }
+            if (_pending.addAndGet(-frame.length) <= MAX_PENDING_BYTES / 2 && _paused) {
+                execute(this::resume);
+            }
+        }
+
+        /**
+         * Stop reading the connection until the dispatch thread catches up,
+         * so that a fast peer fills its own queue rather than our heap.
+         */
+        private void pause() {
+            _paused = true;
+            _key.interestOps(0);
+            // the dispatch thread may have caught up already
+            if (_pending.get() <= MAX_PENDING_BYTES / 2) {
+                resume();
+            }
+        }
+
+        private void resume() {
+            if (!_paused) {
+                return;
+            }
+            _paused = false;
+            if (_key.isValid()) {
+                _key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        /**
+         * Close the connection after the given failure.
+         */
+        private void close(final Exception e) {
+            if (e instanceof EOFException) {
+                // raised when the peer is properly closing its end
+                if (_log.isTraceEnabled()) {
+                    _log.trace(s_loc.get("tcp-close-socket", _peer));
+                }
+            } else if (_log.isWarnEnabled()) {
+                _log.warn(s_loc.get("tcp-receive-error"), e);
+            }
+            try {
+                _channel.close();
+            } catch (IOException ioe) {
+                if (_log.isWarnEnabled()) {
+                    _log.warn(s_loc.get("tcp-close-socket-error", _peer), ioe);
+                }
+            }
+        }
+    }
+
+    /**
+     * Connection to a peer with the queue of packets to send to it. Packets
+     * are queued by the broadcasting threads and written by the selector
+     * thread, which reports the outcome to the peer's address.
+     */
+    final class Peer {
+
+        private final TCPRemoteCommitProvider.HostAddress _address;
+        private final long _maxQueued;
+        private final long _timeout;
+        private final ArrayDeque<ByteBuffer> _queue = new ArrayDeque<>();
+        private long _queued = 0;
+        private boolean _scheduled = false;
+        private boolean _closed = false;
+        private boolean _dropping = false;
+
+        // only used by the selector thread
+        private SocketChannel _channel;
+        private SelectionKey _key;
+        private ByteBuffer _discard;
+
+        private Peer(final TCPRemoteCommitProvider.HostAddress address, final long maxQueued, final long timeout) {
+            _address = address;
+            _maxQueued = maxQueued;
+            _timeout = timeout;
+        }
+
+        /**
+         * Queue the given packet without blocking. A peer that does not
+         * keep up, so that its queue would grow past the maximum, is
+         * disconnected and its queued packets are dropped; the next packet
+         * after that opens a new connection.
+         */
+        void send(final byte[] bytes) {
+            synchronized (this) {
+                if (_closed || _dropping) {
+                    return;
+                }
+                if (_queued > 0 && _queued + bytes.length > _maxQueued) {
+                    _dropping = true;
+                    IOException ioe = new IOException(s_loc.get("tcp-nio-queue-full",
+                        _address.getAddress().getHostAddress() + ":" + _address.getPort(),
+                        String.valueOf(_maxQueued)).getMessage());
+                    execute(() -> fail(ioe));
+                    return;
+                }
+                _queue.add(ByteBuffer.wrap(bytes));
+                _queued += bytes.length;
+                if (_scheduled) {
+                    return;
+                }
+                _scheduled = true;
+            }
+            execute(this::flush);
+        }
+
+        /**
+         * Wait for the queued packets to be sent, then close the connection.
+         */
+        void close() {
+            synchronized (this) {
+                long deadline = System.currentTimeMillis() + _timeout;
+                while (_running && !_queue.isEmpty()) {
+                    long wait = deadline - System.currentTimeMillis();
+                    if (wait <= 0) {
+                        break;
+                    }
+                    try {
+                        wait(wait);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                _closed = true;
+                _queue.clear();
+                _queued = 0;
+                notifyAll();
+            }
+            execute(this::closeChannel);
+        }
+
+        /**
+         * Connect, or write the queued packets if connected.
+         */
+        private void flush() {
+            synchronized (this) {
+                _scheduled = false;
+                if (_closed) {
+                    return;
+                }
+            }
+            try {
+                if (_channel == null) {
+                    connect();
+                } else if (_channel.isConnected()) {
+                    write();
+                }
+                // else the packets are written once connected
+            } catch (Exception e) {
+                fail(e);
+            }
+        }
+
+        private void connect() throws IOException {
+            _channel = SocketChannel.open();
+            _channel.configureBlocking(false);
+            _channel.socket().setTcpNoDelay(true);
+            _key = _channel.register(_selector, SelectionKey.OP_CONNECT, this);
+            if (_channel.connect(new InetSocketAddress(_address.getAddress(), _address.getPort()))) {
+                connected();
+            }
+        }
+
+        private void connected() throws IOException {
+            if (_log.isTraceEnabled()) {
+                _log.trace(s_loc.get("tcp-open-connection", _address.getAddress() + ":" + _address.getPort(),
+                    String.valueOf(_channel.socket().getLocalPort())));
+            }
+            write();
+        }
+
+        /**
+         * Handle the readiness of the connection.
+         */
+        private void ready(final SelectionKey key) throws IOException {
+            if (key.isConnectable()) {
+                if (_channel.finishConnect()) {
+                    connected();
+                }
+                return;
+            }
+            if (key.isReadable()) {
+                // peers never write back, so this only detects the peer
+                // closing the connection
+                if (_discard == null) {
+                    _discard = ByteBuffer.allocate(64);
+                }
+                _discard.clear();
+                if (_channel.read(_discard) < 0) {
+                    throw new EOFException();
+                }
+            }
+            if (key.isValid() && key.isWritable()) {
+                write();
+            }
+        }
+
+        /**
+         * Write as many queued packets as the connection accepts, in a
+         * single gathering write.
+         */
+        private void write() throws IOException {
+            boolean sent = false;
+            synchronized (this) {
+                if (!_queue.isEmpty()) {
+                    _channel.write(_queue.toArray(new ByteBuffer[0]));
+                    while (!_queue.isEmpty() && !_queue.peek().hasRemaining()) {
+                        _queued -= _queue.poll().capacity();
+                        sent = true;
+                    }
+                }
+                if (sent) {
+                    notifyAll();
+                }
+                _key.interestOps(_queue.isEmpty() ? SelectionKey.OP_READ
+                    : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+            if (sent) {
+                _address.sendSucceeded(_channel.socket().getLocalPort());
+            }
+        }
+
+        /**
+         * Drop the connection and queued packets after the given failure.
+         * The next packet opens a new connection.
+         */
+        private void fail(final Exception e) {
+            boolean pending;
+            boolean closed;
+            synchronized (this) {
+                pending = !_queue.isEmpty();
+                closed = _closed;
+                _queue.clear();
+                _queued = 0;
+                _dropping = false;
+                notifyAll();
+            }
+            closeChannel();
+
+            // an idle connection closed by the peer is simply reopened
+            if (!closed && (pending || !(e instanceof EOFException))) {
+                _address.sendFailed(e);
+            }
+        }
+
+        private void closeChannel() {
+            if (_channel == null) {
+                return;
+            }
+            try {
+                _channel.close();
+            } catch (IOException ioe) {
+                if (_log.isWarnEnabled()) {
+                    _log.warn(s_loc.get("tcp-close-socket-error",
+                        _address.getAddress().getHostAddress() + ":" + _address.getPort()), ioe);
+                }
+            }
+            _channel = null;
+            _key = null;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.event;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.security.AccessController;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.lib.conf.Configuration;
+import org.apache.openjpa.lib.util.J2DoPrivHelper;
+import org.apache.openjpa.lib.util.MultiClassLoader;
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.meta.MetaDataRepository;
+import org.apache.openjpa.util.BlacklistClassResolver;
+import org.apache.openjpa.util.OpenJPAId;
+import org.apache.openjpa.util.Serialization;
+
+/**
+ * Allow-list of the classes that may be deserialized from remote commit
+ * events received from the network: the event itself, the OpenJPA oid
+ * types, the object id classes of the persistent types of the
+ * configuration, enums, and the JDK value and collection types that
+ * make up their fields. Any other class is rejected before it is
+ * initialized. The
+ * {@link BlacklistClassResolver#DEFAULT serialization blacklist} still
+ * applies to the allowed classes.
+ *
+ * @since 3.2.3
+ */
+class RemoteCommitClassFilter {
+
+    private static final Set<String> ALLOWED = new HashSet<>(Arrays.asList(
+        RemoteCommitEvent.class.getName(),
+        "java.lang.Boolean", "java.lang.Byte", "java.lang.Character",
+        "java.lang.Double", "java.lang.Enum", "java.lang.Float",
+        "java.lang.Integer", "java.lang.Long", "java.lang.Number",
+        "java.lang.Object", "java.lang.Short", "java.lang.String",
+        "java.io.Serializable",
+        "java.math.BigDecimal", "java.math.BigInteger",
+        "java.sql.Date", "java.sql.Time", "java.sql.Timestamp",
+        "java.util.ArrayList", "java.util.Arrays$ArrayList",
+        "java.util.Collections$EmptyList", "java.util.Collections$EmptyMap",
+        "java.util.Collections$EmptySet",
+        "java.util.Collections$SingletonList",
+        "java.util.Collections$SingletonMap",
+        "java.util.Collections$SingletonSet",
+        "java.util.Collections$UnmodifiableCollection",
+        "java.util.Collections$UnmodifiableList",
+        "java.util.Collections$UnmodifiableMap",
+        "java.util.Collections$UnmodifiableRandomAccessList",
+        "java.util.Collections$UnmodifiableSet",
+        "java.util.Date", "java.util.HashMap",
+        "java.util.HashSet", "java.util.LinkedHashMap",
+        "java.util.LinkedHashSet", "java.util.LinkedList",
+        "java.util.Locale", "java.util.TreeMap", "java.util.TreeSet",
+        "java.util.UUID"));
+
+    private final Configuration _conf;
+
+    /**
+     * @param conf configuration whose persistent types may send their
+     * object ids, or null to only allow the built-in types
+     */
+    RemoteCommitClassFilter(Configuration conf) {
+        _conf = conf;
+    }
+
+    /**
+     * Return a stream that only deserializes allowed classes.
+     */
+    ObjectInputStream newObjectInputStream(InputStream in)
+        throws IOException {
+        return new FilteringObjectInputStream(in);
+    }
+
+    /**
+     * Whether the class with the given name may be deserialized, loading
+     * it without initialization if its name alone does not tell.
+     */
+    boolean isAllowed(String name, ClassLoader loader) {
+        String elem = name;
+        while (elem.startsWith("["))
+            elem = elem.substring(1);
+        if (elem.length() == 1)
+            return true; // array of primitives
+        if (elem.startsWith("L") && elem.endsWith(";"))
+            elem = elem.substring(1, elem.length() - 1);
+        if (ALLOWED.contains(elem))
+            return true;
+
+        Class<?> cls;
+        try {
+            cls = Class.forName(elem, false, loader);
+        } catch (ClassNotFoundException cnfe) {
+            return false;
+        }
+        return cls.isEnum() || OpenJPAId.class.isAssignableFrom(cls)
+            || isObjectIdType(cls, loader);
+    }
+
+    /**
+     * Whether the given class is the object id class of a persistent type.
+     * The metadata already loaded is checked first; all persistent types
+     * are only loaded if the class is not found there.
+     */
+    private boolean isObjectIdType(Class<?> cls, ClassLoader loader) {
+        if (!(_conf instanceof OpenJPAConfiguration))
+            return false;
+        MetaDataRepository repos = ((OpenJPAConfiguration) _conf).
+            getMetaDataRepositoryInstance();
+        for (ClassMetaData meta : repos.getMetaDatas())
+            if (meta.getObjectIdType() == cls)
+                return true;
+        for (Class<?> type : repos.loadPersistentTypes(false, loader)) {
+            ClassMetaData meta = repos.getMetaData(type, loader, false);
+            if (meta != null && meta.getObjectIdType() == cls)
+                return true;
+        }
+        return false;
+    }
+
+    private class FilteringObjectInputStream
+        extends Serialization.ClassResolvingObjectInputStream {
+
+        FilteringObjectInputStream(InputStream in)
+            throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class resolveClass(ObjectStreamClass desc)
+            throws IOException, ClassNotFoundException {
+            String name = BlacklistClassResolver.DEFAULT.check(desc.getName());
+            MultiClassLoader loader = AccessController
+                .doPrivileged(J2DoPrivHelper.newMultiClassLoaderAction());
+            addContextClassLoaders(loader);
+            loader.addClassLoader(getClass().getClassLoader());
+            loader.addClassLoader(MultiClassLoader.SYSTEM_LOADER);
+            if (!isAllowed(name, loader))
+                throw new InvalidClassException(name,
+                    "not allowed in remote commit events");
+            return super.resolveClass(desc);
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass(String[] interfaces)
+            throws IOException {
+            throw new InvalidClassException("proxies are not allowed in "
+                + "remote commit events");
+        }
+    }
+}
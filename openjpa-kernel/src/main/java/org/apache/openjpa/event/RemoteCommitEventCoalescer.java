@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.event;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.util.OpenJPAId;
+
+/**
+ * Merges {@link RemoteCommitEvent}s into a single event. Added, updated
+ * and deleted ids and classes are unioned, with deletes taking precedence
+ * over updates. Once the number of ids passes the extent threshold, or
+ * when an event tracking changes by type is merged, the merged event
+ * collapses to class-level invalidation. Not thread safe.
+ *
+ * @since 3.2.3
+ */
+class RemoteCommitEventCoalescer {
+
+    private final OpenJPAConfiguration _conf;
+    private final int _extentThreshold;
+
+    private int _payload = -1;
+    private Set<Object> _addClasses = new LinkedHashSet<>();
+    private Set<Object> _addIds = new LinkedHashSet<>();
+    private Set<Object> _updates = new LinkedHashSet<>();
+    private Set<Object> _deletes = new LinkedHashSet<>();
+
+    /**
+     * Constructor.
+     *
+     * @param extentThreshold the number of ids past which the merged event
+     * only carries class names, or -1 for no limit
+     */
+    public RemoteCommitEventCoalescer(OpenJPAConfiguration conf,
+        int extentThreshold) {
+        _conf = conf;
+        _extentThreshold = extentThreshold;
+    }
+
+    /**
+     * Return true if no events have been merged since the last drain.
+     */
+    public boolean isEmpty() {
+        return _payload == -1;
+    }
+
+    /**
+     * The number of ids and class names in the merged event.
+     */
+    public int size() {
+        return _addClasses.size() + _addIds.size() + _updates.size()
+            + _deletes.size();
+    }
+
+    /**
+     * Merge the given event.
+     */
+    public void add(RemoteCommitEvent event) {
+        int payload = event.getPayloadType();
+        _addClasses.addAll(event.getPersistedTypeNames());
+        if (payload == RemoteCommitEvent.PAYLOAD_EXTENTS) {
+            toExtents();
+            _updates.addAll(event.getUpdatedTypeNames());
+            _deletes.addAll(event.getDeletedTypeNames());
+            return;
+        }
+
+        if (_payload == RemoteCommitEvent.PAYLOAD_EXTENTS) {
+            addTypeNames(event.getUpdatedObjectIds(), _updates);
+            addTypeNames(event.getDeletedObjectIds(), _deletes);
+            return;
+        }
+
+        if (payload == RemoteCommitEvent.PAYLOAD_OIDS_WITH_ADDS) {
+            _payload = payload;
+            _addIds.addAll(event.getPersistedObjectIds());
+        } else if (_payload == -1)
+            _payload = RemoteCommitEvent.PAYLOAD_OIDS;
+
+        for (Object oid : event.getDeletedObjectIds()) {
+            _updates.remove(oid);
+            _deletes.add(oid);
+        }
+        for (Object oid : event.getUpdatedObjectIds())
+            if (!_deletes.contains(oid))
+                _updates.add(oid);
+
+        if (_extentThreshold >= 0 && _addIds.size() + _updates.size()
+            + _deletes.size() > _extentThreshold)
+            toExtents();
+    }
+
+    /**
+     * Return the merged event and reset, or return null if no events have
+     * been merged.
+     */
+    public RemoteCommitEvent drain() {
+        if (isEmpty())
+            return null;
+
+        RemoteCommitEvent event = new RemoteCommitEvent(_payload,
+            (_payload == RemoteCommitEvent.PAYLOAD_OIDS_WITH_ADDS)
+                ? new ArrayList<>(_addIds) : null,
+            toList(_addClasses), toList(_updates), toList(_deletes));
+        _payload = -1;
+        _addClasses = new LinkedHashSet<>();
+        _addIds = new LinkedHashSet<>();
+        _updates = new LinkedHashSet<>();
+        _deletes = new LinkedHashSet<>();
+        return event;
+    }
+
+    /**
+     * Replace the merged ids with the names of their classes.
+     */
+    private void toExtents() {
+        if (_payload == RemoteCommitEvent.PAYLOAD_EXTENTS)
+            return;
+
+        _payload = RemoteCommitEvent.PAYLOAD_EXTENTS;
+        Set<Object> updates = new LinkedHashSet<>();
+        addTypeNames(_updates, updates);
+        _updates = updates;
+        Set<Object> deletes = new LinkedHashSet<>();
+        addTypeNames(_deletes, deletes);
+        _deletes = deletes;
+        _addIds = new LinkedHashSet<>();
+    }
+
+    /**
+     * Add the names of the classes of the given oids, including their
+     * subclasses, since the oid of an instance may name a superclass.
+     */
+    private void addTypeNames(Collection<?> oids, Set<Object> names) {
+        ClassMetaData meta;
+        for (Object oid : oids) {
+            // the committing JVM has loaded the metadata of the oid
+            meta = _conf.getMetaDataRepositoryInstance().getMetaData(oid,
+                null, false);
+            if (meta != null) {
+                names.add(meta.getDescribedType().getName());
+                for (Class<?> sub : meta.getPCSubclasses())
+                    names.add(sub.getName());
+            } else if (oid instanceof OpenJPAId)
+                names.add(((OpenJPAId) oid).getType().getName());
+        }
+    }
+
+    private static Collection<Object> toList(Set<Object> set) {
+        return (set.isEmpty()) ? null : new ArrayList<>(set);
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.event;
+
+import java.io.IOException;
+
+/**
+ * Converts {@link RemoteCommitEvent}s to and from the bytes sent between
+ * the {@link TCPRemoteCommitProvider}s of a cluster. All providers of a
+ * cluster must use compatible codecs.
+ *
+ * @since 3.2.3
+ */
+public interface RemoteCommitEventCodec {
+
+    /**
+     * Encode the given event.
+     */
+    byte[] encode(RemoteCommitEvent event)
+        throws IOException;
+
+    /**
+     * Decode an event from bytes produced by {@link #encode}.
+     */
+    RemoteCommitEvent decode(byte[] bytes)
+        throws IOException;
+}
@@ -23,6 +23,8 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
 
 import org.apache.openjpa.conf.OpenJPAConfiguration;
 import org.apache.openjpa.kernel.Broker;
@@ -53,12 +55,19 @@ public class RemoteCommitEventManager
         (RemoteCommitEventManager.class);
 
     private final RemoteCommitProvider _provider;
+    private final transient OpenJPAConfiguration _conf;
     private boolean _transmitPersIds = false;
+    private int _coalesceMillis = 0;
+    private int _coalesceMaxSize = 1000;
+    private int _coalesceExtentThreshold = -1;
+    private transient RemoteCommitEventCoalescer _pending = null;
+    private transient Timer _timer = null;
 
     /**
      * Constructor. Supply configuration.
      */
     public RemoteCommitEventManager(OpenJPAConfiguration conf) {
+        _conf = conf;
         _provider = conf.newRemoteCommitProviderInstance();
         if (_provider != null) {
             _provider.setRemoteCommitEventManager(this);
@@ -95,6 +104,69 @@ public class RemoteCommitEventManager
         _transmitPersIds = transmit;
     }
 
+    /**
+     * The number of milliseconds over which commit events are merged into a
+     * single broadcast, or 0 to broadcast an event for every commit.
+     *
+     * @since 3.2.3
+     */
+    public int getCoalesceMillis() {
+        return _coalesceMillis;
+    }
+
+    /**
+     * The number of milliseconds over which commit events are merged into a
+     * single broadcast, or 0 to broadcast an event for every commit.
+     * Defaults to 0.
+     *
+     * @since 3.2.3
+     */
+    public void setCoalesceMillis(int millis) {
+        _coalesceMillis = millis;
+    }
+
+    /**
+     * The number of ids and class names at which merged events are
+     * broadcast without waiting for the end of the coalescing window.
+     *
+     * @since 3.2.3
+     */
+    public int getCoalesceMaxSize() {
+        return _coalesceMaxSize;
+    }
+
+    /**
+     * The number of ids and class names at which merged events are
+     * broadcast without waiting for the end of the coalescing window, or
+     * 0 for no limit. Defaults to 1000.
+     *
+     * @since 3.2.3
+     */
+    public void setCoalesceMaxSize(int size) {
+        _coalesceMaxSize = size;
+    }
+
+    /**
+     * The number of object ids past which merged events only carry the
+     * names of the changed classes.
+     *
+     * @since 3.2.3
+     */
+    public int getCoalesceExtentThreshold() {
+        return _coalesceExtentThreshold;
+    }
+
+    /**
+     * The number of object ids past which merged events only carry the
+     * names of the changed classes, so that receivers invalidate whole
+     * classes, or -1 to always send ids. Defaults to -1.
+     *
+     * @since 3.2.3
+     */
+    public void setCoalesceExtentThreshold(int threshold) {
+        _coalesceExtentThreshold = threshold;
+    }
+
     /**
      * Adds an OpenJPA-internal listener to this RemoteCommitEventManager.
      * Listeners so registered will be fired before any that are registered
@@ -122,6 +194,13 @@ public class RemoteCommitEventManager
     @Override
     public void close() {
         if (_provider != null) {
+            synchronized (this) {
+                if (_timer != null) {
+                    _timer.cancel();
+                    _timer = null;
+                }
+            }
+            flushPending();
             _provider.close();
             Collection listeners = getListeners();
             for (Object listener : listeners) {
@@ -158,11 +237,59 @@ public class RemoteCommitEventManager
     public void afterCommit(TransactionEvent event) {
         if (_provider != null) {
             RemoteCommitEvent rce = createRemoteCommitEvent(event);
-            if (rce != null)
+            if (rce == null)
+                return;
+            if (_coalesceMillis > 0)
+                coalesce(rce);
+            else
                 _provider.broadcast(rce);
         }
     }
 
+    /**
+     * Merge the given event into the pending event, broadcasting the
+     * pending event if it is full and otherwise making sure that it is
+     * broadcast at the end of the coalescing window.
+     */
+    private void coalesce(RemoteCommitEvent rce) {
+        RemoteCommitEvent full = null;
+        synchronized (this) {
+            if (_pending == null)
+                _pending = new RemoteCommitEventCoalescer(_conf,
+                    _coalesceExtentThreshold);
+            boolean schedule = _pending.isEmpty();
+            _pending.add(rce);
+
+            if (_coalesceMaxSize > 0 && _pending.size() >= _coalesceMaxSize)
+                full = _pending.drain();
+            else if (schedule) {
+                if (_timer == null)
+                    _timer = new Timer("OpenJPA remote commit coalescer",
+                        true);
+                _timer.schedule(new TimerTask() {
+                    @Override
+                    public void run() {
+                        flushPending();
+                    }
+                }, _coalesceMillis);
+            }
+        }
+        if (full != null)
+            _provider.broadcast(full);
+    }
+
+    /**
+     * Broadcast the pending merged event, if any.
+     */
+    private void flushPending() {
+        RemoteCommitEvent rce;
+        synchronized (this) {
+            rce = (_pending == null) ? null : _pending.drain();
+        }
+        if (rce != null)
+            _provider.broadcast(rce);
+    }
+
     /**
      * Create a remote commit event from the given transaction event.
      */
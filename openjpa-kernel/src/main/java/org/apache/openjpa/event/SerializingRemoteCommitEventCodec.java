@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.event;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.apache.openjpa.lib.conf.Configurable;
+import org.apache.openjpa.lib.conf.Configuration;
+
+/**
+ * {@link RemoteCommitEventCodec} using java serialization, restricted to
+ * the classes that the remote commit class allow-list permits.
+ *
+ * @since 3.2.3
+ */
+public class SerializingRemoteCommitEventCodec
+    implements RemoteCommitEventCodec, Configurable {
+
+    private RemoteCommitClassFilter _filter = new RemoteCommitClassFilter(null);
+
+    @Override
+    public void setConfiguration(Configuration conf) {
+        _filter = new RemoteCommitClassFilter(conf);
+    }
+
+    @Override
+    public void startConfiguration() {
+    }
+
+    @Override
+    public void endConfiguration() {
+    }
+
+    @Override
+    public byte[] encode(RemoteCommitEvent event)
+        throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(event);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public RemoteCommitEvent decode(byte[] bytes)
+        throws IOException {
+        try (ObjectInputStream ois = _filter.newObjectInputStream(
+            new ByteArrayInputStream(bytes))) {
+            return (RemoteCommitEvent) ois.readObject();
+        } catch (ClassNotFoundException cnfe) {
+            throw new IOException(cnfe);
+        }
+    }
+}
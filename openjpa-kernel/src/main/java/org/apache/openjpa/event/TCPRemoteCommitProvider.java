@@ -19,7 +19,10 @@
 package org.apache.openjpa.event;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -35,6 +38,7 @@ import java.security.AccessController;
 import java.security.PrivilegedActionException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -51,13 +55,15 @@ import org.apache.commons.pool2.impl.DefaultPooledObject;
 import org.apache.commons.pool2.impl.GenericObjectPool;
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import org.apache.openjpa.lib.conf.Configurable;
+import org.apache.openjpa.lib.conf.Configuration;
+import org.apache.openjpa.lib.conf.Configurations;
 import org.apache.openjpa.lib.log.Log;
 import org.apache.openjpa.lib.util.J2DoPrivHelper;
 import org.apache.openjpa.lib.util.Localizer;
 import org.apache.openjpa.lib.util.StringUtil;
 import org.apache.openjpa.util.GeneralException;
 import org.apache.openjpa.util.InternalException;
-import org.apache.openjpa.util.Serialization;
+import org.apache.openjpa.util.UserException;
 
 
 /**
@@ -92,6 +98,14 @@ public class TCPRemoteCommitProvider
     private TCPPortListener _listener;
     private final BroadcastQueue _broadcastQueue = new BroadcastQueue();
     private final List<BroadcastWorkerThread> _broadcastThreads = Collections.synchronizedList(new LinkedList<>());
+    private String _codecPlugin = "binary";
+    private RemoteCommitEventCodec _codec = new BinaryRemoteCommitEventCodec();
+    private Boolean _legacyProtocol;
+    private String _transport = "blocking";
+    private long _maxQueuedBytes = 8 * 1024 * 1024;
+    private NIOTCPTransport _nio;
+    private Configuration _conf;
+    private RemoteCommitClassFilter _filter = new RemoteCommitClassFilter(null);
 
     protected List<HostAddress> _addresses = new ArrayList<>();
     protected final ReentrantLock _addressesLock;
@@ -282,8 +296,102 @@ public class TCPRemoteCommitProvider
         }
     }
 
+    /**
+     * Set the codec used to encode events, as a plugin string. The
+     * <code>binary</code> codec is the default; <code>java</code> uses java
+     * serialization. All peers in the cluster must use the same codec.
+     *
+     * @param codec codec alias or class name, with optional properties
+     * @since 3.2.3
+     */
+    public void setCodec(final String codec) {
+        _codecPlugin = codec;
+    }
+
+    /**
+     * @return the plugin string of the codec used to encode events.
+     */
+    public String getCodec() {
+        return _codecPlugin;
+    }
+
+    /**
+     * Set whether to send events in the format used by releases before the
+     * introduction of event codecs. Events in both formats are always
+     * accepted, so a cluster can be upgraded one node at a time. The
+     * <code>blocking</code> transport sends the legacy format unless this is
+     * disabled, which should be done once all nodes are upgraded; the
+     * <code>nio</code> transport, which peers of older releases do not
+     * support, sends the new format unless this is enabled.
+     *
+     * @param legacy whether to send events in the legacy format
+     * @since 3.2.3
+     */
+    public void setLegacyProtocol(final boolean legacy) {
+        _legacyProtocol = legacy;
+    }
+
+    /**
+     * @return whether events are sent in the legacy format.
+     */
+    public boolean getLegacyProtocol() {
+        if (_legacyProtocol != null) {
+            return _legacyProtocol;
+        }
+        return !"nio".equals(_transport);
+    }
+
+    /**
+     * Set the transport used to exchange events with peers. The
+     * <code>blocking</code> transport, the default, uses pooled sockets
+     * per peer and a thread per inbound connection. The <code>nio</code>
+     * transport uses one connection per peer and a single selector thread
+     * per listen port, and does not accept packets sent with
+     * {@link #setLegacyProtocol legacy protocol}.
+     *
+     * @param transport <code>blocking</code> or <code>nio</code>
+     * @since 3.2.3
+     */
+    public void setTransport(final String transport) {
+        _transport = transport;
+    }
+
+    /**
+     * @return the transport used to exchange events with peers.
+     */
+    public String getTransport() {
+        return _transport;
+    }
+
+    /**
+     * Set the number of bytes the <code>nio</code> transport queues for a
+     * peer. Broadcasting never waits for a peer; a peer whose queue would
+     * grow larger is disconnected, its queued events are dropped, and it is
+     * treated as unreachable for the recovery time.
+     *
+     * @param maxQueuedBytes the maximum number of bytes queued for a peer
+     * @since 3.2.3
+     */
+    public void setMaxQueuedBytes(final long maxQueuedBytes) {
+        _maxQueuedBytes = maxQueuedBytes;
+    }
+
+    /**
+     * @return the maximum number of bytes queued for a peer.
+     */
+    public long getMaxQueuedBytes() {
+        return _maxQueuedBytes;
+    }
+
     // ---------- Configurable implementation ----------
 
+    @Override
+    public void setConfiguration(final Configuration config) {
+        super.setConfiguration(config);
+        _conf = config;
+        _filter = new RemoteCommitClassFilter(config);
+    }
+
     /**
      * Subclasses that need to perform actions in
      * {@link Configurable#endConfiguration} must invoke this method.
@@ -291,6 +399,38 @@ public class TCPRemoteCommitProvider
     @Override
     public void endConfiguration() {
         super.endConfiguration();
+        _codec = newCodec(_codecPlugin);
+        if ("nio".equals(_transport)) {
+            try {
+                _nio = NIOTCPTransport.acquire(this, _port, log);
+            } catch (IOException ioe) {
+                throw new GeneralException(s_loc.get("tcp-init-exception", String.valueOf(_port)), ioe).
+                        setFatal(true);
+            }
+            // packets are queued per peer, so there is no need for threads
+            // to send them
+            setNumBroadcastThreads(0);
+        } else if ("blocking".equals(_transport)) {
+            listen();
+        } else {
+            throw new UserException(s_loc.get("tcp-bad-transport", _transport));
+        }
+
+        _addressesLock.lock();
+        try {
+            _addresses.forEach(curAddress -> {
+                curAddress.setMaxTotal(_maxTotal);
+                curAddress.setMaxIdle(_maxIdle);
+            });
+        } finally {
+            _addressesLock.unlock();
+        }
+    }
+
+    /**
+     * Register with the listener of the blocking transport for our port.
+     */
+    private void listen() {
         synchronized (s_portListenerMap) {
             // see if a listener exists for this port.
             _listener = s_portListenerMap.get(String.valueOf(_port));
@@ -314,16 +454,26 @@ public class TCPRemoteCommitProvider
             }
             _listener.addProvider(this);
         }
+    }
 
-        _addressesLock.lock();
-        try {
-            _addresses.forEach(curAddress -> {
-                curAddress.setMaxTotal(_maxTotal);
-                curAddress.setMaxIdle(_maxIdle);
-            });
-        } finally {
-            _addressesLock.unlock();
+    private static final String[] CODEC_ALIASES = {
+        "binary", BinaryRemoteCommitEventCodec.class.getName(),
+        "java", SerializingRemoteCommitEventCodec.class.getName(),
+    };
+
+    /**
+     * Create the codec described by the given plugin string.
+     */
+    protected RemoteCommitEventCodec newCodec(final String plugin) {
+        String cls = Configurations.getClassName(plugin);
+        for (int i = 0; i < CODEC_ALIASES.length; i += 2) {
+            if (CODEC_ALIASES[i].equals(cls)) {
+                cls = CODEC_ALIASES[i + 1];
+                break;
+            }
         }
+        return (RemoteCommitEventCodec) Configurations.newInstance(cls, _conf,
+            Configurations.getProperties(plugin), getClass().getClassLoader());
     }
 
     // ---------- RemoteCommitProvider implementation ----------
@@ -333,9 +483,49 @@ public class TCPRemoteCommitProvider
     // 3.4 			= 0x1428acff;
     private static final long PROTOCOL_VERSION = 0x1428acff;
 
+    // Packets encoded with a RemoteCommitEventCodec start with this magic
+    // number instead of a java serialization stream header, followed by the
+    // frame version and the length of the rest of the frame.
+    static final int FRAME_MAGIC = 0x4f4a5043;
+    static final byte FRAME_VERSION = 1;
+
+    // Frames longer than this are rejected without allocating them, so that
+    // a corrupt or hostile length cannot exhaust the heap.
+    static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+
     @Override
     public void broadcast(final RemoteCommitEvent event) {
+        if (getLegacyProtocol()) {
+            broadcastLegacy(event);
+            return;
+        }
+
         // build a packet notifying other JVMs of object changes.
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(baos)) {
+            byte[] payload = _codec.encode(event);
+            out.writeInt(FRAME_MAGIC);
+            out.writeByte(FRAME_VERSION);
+            out.writeInt(8 + 4 + 1 + _localhost.length + payload.length);
+            out.writeLong(_id);
+            out.writeInt(_port);
+            out.writeByte(_localhost.length);
+            out.write(_localhost);
+            out.write(payload);
+            out.flush();
+            send(baos.toByteArray());
+        } catch (IOException ioe) {
+            if (log.isWarnEnabled()) {
+                log.warn(s_loc.get("tcp-payload-create-error"), ioe);
+            }
+        }
+    }
+
+    /**
+     * Send the event in the java serialization format used before event
+     * codecs were introduced.
+     */
+    private void broadcastLegacy(final RemoteCommitEvent event) {
         try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
                 ObjectOutputStream oos = new ObjectOutputStream(baos)) {
 
@@ -345,14 +535,7 @@ public class TCPRemoteCommitProvider
             oos.writeObject(_localhost);
             oos.writeObject(event);
             oos.flush();
-
-            byte[] bytes = baos.toByteArray();
-            baos.close();
-            if (_broadcastThreads.isEmpty()) {
-                sendUpdatePacket(bytes);
-            } else {
-                _broadcastQueue.addPacket(bytes);
-            }
+            send(baos.toByteArray());
         } catch (IOException ioe) {
             if (log.isWarnEnabled()) {
                 log.warn(s_loc.get("tcp-payload-create-error"), ioe);
@@ -360,17 +543,68 @@ public class TCPRemoteCommitProvider
         }
     }
 
+    /**
+     * Send the given packet, or queue it for the broadcast threads.
+     */
+    private void send(final byte[] bytes) {
+        if (_broadcastThreads.isEmpty()) {
+            sendUpdatePacket(bytes);
+        } else {
+            _broadcastQueue.addPacket(bytes);
+        }
+    }
+
+    /**
+     * Decode and fire an event received from a peer.
+     */
+    private void receive(final byte[] payload) {
+        try {
+            eventManager.fireEvent(_codec.decode(payload));
+        } catch (IOException ioe) {
+            if (log.isWarnEnabled()) {
+                log.warn(s_loc.get("tcp-decode-error"), ioe);
+            }
+        }
+    }
+
+    /**
+     * Fire the event in the given frame, which follows the frame header
+     * written by {@link #broadcast}, at each of the given providers that
+     * did not send it.
+     *
+     * @param port the port the frame was received on
+     * @param localhost the address of this host
+     */
+    static void dispatch(final Collection<TCPRemoteCommitProvider> providers, final int port, final byte[] localhost,
+        final byte[] frame) throws IOException {
+        DataInputStream dis = new DataInputStream(new ByteArrayInputStream(frame));
+        long senderId = dis.readLong();
+        int senderPort = dis.readInt();
+        byte[] senderAddress = new byte[dis.readUnsignedByte()];
+        dis.readFully(senderAddress);
+        byte[] payload = new byte[dis.available()];
+        dis.readFully(payload);
+
+        boolean fromSelf = senderPort == port && Arrays.equals(senderAddress, localhost);
+        providers.stream().filter(provider -> senderId != provider._id || !fromSelf).
+                forEach(provider -> provider.receive(payload));
+    }
+
     /**
      * Sends a change notification packet to other machines in this
      * provider cluster.
      */
     private void sendUpdatePacket(final byte[] bytes) {
+        // send outside of the lock, so that a slow peer does not hold up
+        // changes to the addresses
+        List<HostAddress> addresses;
         _addressesLock.lock();
         try {
-            _addresses.forEach(address -> address.sendUpdatePacket(bytes));
+            addresses = new ArrayList<>(_addresses);
         } finally {
             _addressesLock.unlock();
         }
+        addresses.forEach(address -> address.sendUpdatePacket(bytes));
     }
 
     @Override
@@ -397,6 +631,10 @@ public class TCPRemoteCommitProvider
         } finally {
             _addressesLock.unlock();
         }
+
+        if (_nio != null) {
+            _nio.release(this);
+        }
     }
 
     /**
@@ -708,8 +946,62 @@ public class TCPRemoteCommitProvider
              * by {@link TCPRemoteCommitProvider#broadcast(RemoteCommitEvent)}.
              */
             private void handle(final InputStream in) throws IOException, ClassNotFoundException {
-                // This will block waiting for the next
-                ObjectInputStream ois = new Serialization.ClassResolvingObjectInputStream(in);
+                // This will block waiting for the next packet. Packets in
+                // the legacy format start with the java serialization magic
+                // number.
+                in.mark(2);
+                int b1 = in.read();
+                int b2 = in.read();
+                if (b2 == -1) {
+                    throw new EOFException();
+                }
+                in.reset();
+                if (b1 == 0xAC && b2 == 0xED) {
+                    handleLegacy(in);
+                    return;
+                }
+
+                DataInputStream dis = new DataInputStream(in);
+                if (dis.readInt() != FRAME_MAGIC) {
+                    throw new IOException(s_loc.get("tcp-wrong-frame-error",
+                        _s.getInetAddress().getHostAddress() + ":" + _s.getPort()).getMessage());
+                }
+                byte version = dis.readByte();
+                int length = dis.readInt();
+                if (length < 0 || length > MAX_FRAME_LENGTH) {
+                    throw new IOException(s_loc.get("tcp-frame-length-error",
+                        _s.getInetAddress().getHostAddress() + ":" + _s.getPort(), length).getMessage());
+                }
+                byte[] frame = new byte[length];
+                dis.readFully(frame);
+                if (version != FRAME_VERSION) {
+                    if (_log.isWarnEnabled()) {
+                        _log.warn(s_loc.get("tcp-wrong-version-error",
+                            _s.getInetAddress().getHostAddress() + ":" + _s.getPort()));
+                    }
+                    return;
+                }
+
+                if (_log.isTraceEnabled()) {
+                    _log.trace(s_loc.get("tcp-received-event",
+                        _s.getInetAddress().getHostAddress() + ":"
+                            + _s.getPort()));
+                }
+                synchronized (_providers) {
+                    dispatch(_providers, _port, _localhost, frame);
+                }
+            }
+
+            /**
+             * Process a packet written by releases before event codecs.
+             */
+            private void handleLegacy(final InputStream in) throws IOException, ClassNotFoundException {
+                RemoteCommitClassFilter filter;
+                synchronized (_providers) {
+                    filter = _providers.isEmpty() ? new RemoteCommitClassFilter(null)
+                        : _providers.iterator().next()._filter;
+                }
+                ObjectInputStream ois = filter.newObjectInputStream(in);
 
                 long protocolVersion = ois.readLong();
                 if (protocolVersion != PROTOCOL_VERSION) {
@@ -755,6 +1047,7 @@ public class TCPRemoteCommitProvider
         protected int _infosIssued = 0; // limit log entries
 
         protected final GenericObjectPool<Socket> _socketPool; // reusable open sockets
+        private NIOTCPTransport.Peer _peer; // connection of the nio transport
 
         /**
          * Construct a new host address from a string of the form "host:port" or of the form "host".
@@ -800,6 +1093,14 @@ public class TCPRemoteCommitProvider
         }
 
         public void close() {
+            NIOTCPTransport.Peer peer;
+            synchronized (this) {
+                peer = _peer;
+            }
+            if (peer != null) {
+                peer.close();
+            }
+
             // Close the pool of sockets to this peer. This
             // will close all sockets in the pool.
             try {
@@ -819,6 +1120,19 @@ public class TCPRemoteCommitProvider
                     return;
                 }
             }
+            if (_nio != null) {
+                // the selector thread reports the outcome of the send
+                NIOTCPTransport.Peer peer;
+                synchronized (this) {
+                    if (_peer == null) {
+                        _peer = _nio.newPeer(this, _maxQueuedBytes, _recoveryTimeMillis);
+                    }
+                    peer = _peer;
+                }
+                peer.send(bytes);
+                return;
+            }
+
             Socket s = null;
             try {
                 s = getSocket();
@@ -826,12 +1140,7 @@ public class TCPRemoteCommitProvider
                 os.write(bytes);
                 os.flush();
 
-                if (log.isTraceEnabled()) {
-                    log.trace(s_loc.get("tcp-sent-update", 
-                            _address.getHostAddress() + ":" + _port, String.valueOf(s.getLocalPort())));
-                }
-                _isAvailable = true;
-                _infosIssued = 0;
+                sendSucceeded(s.getLocalPort());
                 // Return the socket to the pool; the socket is
                 // still good.
                 returnSocket(s);
@@ -843,30 +1152,50 @@ public class TCPRemoteCommitProvider
                     this.closeSocket(s);
                 }
                 this.clearAllSockets();
+                sendFailed(e);
+            }
+        }
 
-                if (_isAvailable) {
-                    // Log a warning, the peer was up and has now gone down
-                    if (log.isWarnEnabled()) {
-                        log.warn(s_loc.get("tcp-send-error", _address.getHostAddress() + ":" + _port), e);
-                    }
-                    _isAvailable = false;
-                    // Once enough time has passed we will log another warning
-                    _timeLastError = System.currentTimeMillis();
-                } else {
-                    long now = System.currentTimeMillis();
-                    if (now - _timeLastError > _recoveryTimeMillis) {
-                        if (_infosIssued < 5) {
-                            // Enough time has passed, and peer is still down
-                            _timeLastError = System.currentTimeMillis();
-                            // We were trying to reestablish the connection,
-                            // but we failed again. Log a message, but
-                            // lower severity. This log will occur periodically
-                            // for 5 times until the peer comes back.
-                            if (log.isInfoEnabled()) {
-                                log.info(s_loc.get("tcp-send-still-error", _address.getHostAddress() + ":" + _port), e);
-                            }
-                            _infosIssued++;
+        /**
+         * Record that packets were sent to the peer.
+         *
+         * @param localPort the local port of the connection to the peer
+         */
+        protected void sendSucceeded(final int localPort) {
+            if (log.isTraceEnabled()) {
+                log.trace(s_loc.get("tcp-sent-update",
+                        _address.getHostAddress() + ":" + _port, String.valueOf(localPort)));
+            }
+            _isAvailable = true;
+            _infosIssued = 0;
+        }
+
+        /**
+         * Record that sending to the peer failed, and log the failure.
+         */
+        protected void sendFailed(final Exception e) {
+            if (_isAvailable) {
+                // Log a warning, the peer was up and has now gone down
+                if (log.isWarnEnabled()) {
+                    log.warn(s_loc.get("tcp-send-error", _address.getHostAddress() + ":" + _port), e);
+                }
+                _isAvailable = false;
+                // Once enough time has passed we will log another warning
+                _timeLastError = System.currentTimeMillis();
+            } else {
+                long now = System.currentTimeMillis();
+                if (now - _timeLastError > _recoveryTimeMillis) {
+                    if (_infosIssued < 5) {
+                        // Enough time has passed, and peer is still down
+                        _timeLastError = System.currentTimeMillis();
+                        // We were trying to reestablish the connection,
+                        // but we failed again. Log a message, but
+                        // lower severity. This log will occur periodically
+                        // for 5 times until the peer comes back.
+                        if (log.isInfoEnabled()) {
+                            log.info(s_loc.get("tcp-send-still-error", _address.getHostAddress() + ":" + _port), e);
                         }
+                        _infosIssued++;
                     }
                 }
             }
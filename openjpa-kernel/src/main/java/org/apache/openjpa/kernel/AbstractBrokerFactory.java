@@ -62,6 +62,7 @@ import org.apache.openjpa.lib.util.Localizer;
 import org.apache.openjpa.lib.util.StringUtil;
 import org.apache.openjpa.lib.util.collections.MapBackedSet;
 import org.apache.openjpa.lib.util.concurrent.ConcurrentReferenceHashSet;
+import org.apache.openjpa.meta.ClassMetaData;
 import org.apache.openjpa.meta.MetaDataModes;
 import org.apache.openjpa.meta.MetaDataRepository;
 import org.apache.openjpa.util.GeneralException;
@@ -118,6 +119,10 @@ public abstract class AbstractBrokerFactory implements BrokerFactory {
     // and later identified
     private Object _poolKey;
 
+    // detach plans of the persistent types
+    private transient Map<Class<?>, DetachPlan> _detachPlans =
+        new ConcurrentHashMap<>();
+
     /**
      * Return an internal factory pool key for the given configuration.
      *
@@ -166,6 +171,21 @@ public abstract class AbstractBrokerFactory implements BrokerFactory {
         return _conf;
     }
 
+    /**
+     * Return the plan for detaching instances of the given type. Plans are
+     * shared by the brokers of this factory.
+     *
+     * @since 3.2.3
+     */
+    DetachPlan getDetachPlan(ClassMetaData meta) {
+        DetachPlan plan = _detachPlans.get(meta.getDescribedType());
+        if (plan == null || plan.getMetaData() != meta) {
+            plan = new DetachPlan(meta);
+            _detachPlans.put(meta.getDescribedType(), plan);
+        }
+        return plan;
+    }
+
     @Override
     public Broker newBroker() {
         return newBroker(_conf.getConnectionUserName(), _conf.getConnectionPassword());
@@ -398,6 +418,11 @@ public abstract class AbstractBrokerFactory implements BrokerFactory {
                     broker.close();
             }
 
+            // store the parsed queries for the next factory to load
+            QueryCompilationSnapshot snapshot = new QueryCompilationSnapshot(_conf);
+            if (snapshot.isEnabled())
+                snapshot.store();
+
             if(_conf.metaDataRepositoryAvailable()) {
                 // remove metadata repository from listener list
                 PCRegistry.removeRegisterClassListener
@@ -483,6 +508,7 @@ public abstract class AbstractBrokerFactory implements BrokerFactory {
 
         // reset these transient fields to empty values
         _transactional = new ConcurrentHashMap<>();
+        _detachPlans = new ConcurrentHashMap<>();
         _brokers = newBrokerSet();
 
         // turn off logging while de-serializing BrokerFactory
@@ -907,6 +933,10 @@ public abstract class AbstractBrokerFactory implements BrokerFactory {
             mdr.preload();
         }
 
+        QueryCompilationSnapshot snapshot = new QueryCompilationSnapshot(_conf);
+        if (snapshot.isEnabled())
+            snapshot.load();
+
         // Get a DataCacheManager instance up front to avoid threading concerns on first call.
         // _conf.getDataCacheManagerInstance();
 
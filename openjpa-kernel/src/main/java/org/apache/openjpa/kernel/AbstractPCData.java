@@ -28,6 +28,8 @@ import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 
+import org.apache.openjpa.enhance.PersistenceCapable;
+import org.apache.openjpa.enhance.StateManager;
 import org.apache.openjpa.event.OrphanedKeyAction;
 import org.apache.openjpa.meta.FieldMetaData;
 import org.apache.openjpa.meta.JavaTypes;
@@ -64,6 +66,36 @@ public abstract class AbstractPCData
         return getLoaded().get(field);
     }
 
+    /**
+     * If the instance of the given state manager has been detached, give
+     * it back to the state manager so that its fields can be fetched.
+     * Return the detached state manager to pass to
+     * {@link #restoreStateManager} afterwards, or null if the instance
+     * is not detached.
+     *
+     * @since 3.2.3
+     */
+    protected static StateManager attachStateManager(OpenJPAStateManager sm) {
+        PersistenceCapable pc = sm.getPersistenceCapable();
+        if (pc == null || !pc.pcIsDetached())
+            return null;
+        StateManager dsm = pc.pcGetStateManager();
+        pc.pcReplaceStateManager(sm);
+        return dsm;
+    }
+
+    /**
+     * Give the instance of the given state manager back to the detached
+     * state manager returned by {@link #attachStateManager}.
+     *
+     * @since 3.2.3
+     */
+    protected static void restoreStateManager(OpenJPAStateManager sm,
+        StateManager dsm) {
+        if (dsm != null)
+            sm.getPersistenceCapable().pcReplaceStateManager(dsm);
+    }
+
     /**
      * Transform the given data value into its field value.
      */
@@ -407,9 +439,10 @@ public abstract class AbstractPCData
     }
 
     /**
-     * Tracks proxy data along with list elements.
+     * Tracks proxy data along with list elements. Public so that caches
+     * storing data outside the heap can rebuild cached collections.
      */
-    private static class ProxyDataList
+    public static class ProxyDataList
         extends ArrayList {
 
         
@@ -467,6 +467,13 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
         return _factory;
     }
 
+    /**
+     * Return the plan for detaching instances of the given type.
+     */
+    DetachPlan getDetachPlan(ClassMetaData meta) {
+        return _factory.getDetachPlan(meta);
+    }
+
     @Override
     public OpenJPAConfiguration getConfiguration() {
         return _conf;
@@ -3631,7 +3638,7 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
         if (_dmLite == null) {
             _dmLite = new DetachManagerLite(_conf);
         }
-        _dmLite.detachAll(states);
+        _dmLite.detachAll(states, !getMultithreaded());
     }
     @Override
     public Object attach(Object obj, boolean copyNew, OpCallbacks call) {
@@ -21,6 +21,7 @@ package org.apache.openjpa.kernel;
 import java.io.IOException;
 import java.io.ObjectOutput;
 import java.lang.reflect.Array;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Calendar;
@@ -43,7 +44,6 @@ import org.apache.openjpa.lib.util.Localizer;
 import org.apache.openjpa.meta.ClassMetaData;
 import org.apache.openjpa.meta.FieldMetaData;
 import org.apache.openjpa.meta.JavaTypes;
-import org.apache.openjpa.meta.ValueMetaData;
 import org.apache.openjpa.util.CallbackException;
 import org.apache.openjpa.util.ObjectNotFoundException;
 import org.apache.openjpa.util.Proxy;
@@ -78,6 +78,10 @@ public class DetachManager
     private final IdentityHashMap _detached;
     private final DetachFieldManager _fullFM;
 
+    // field managers not in use; detaching a relation while another
+    // instance's fields are detached takes another one
+    private final ArrayDeque<InstanceDetachFieldManager> _fms;
+
     /**
      * Used to prepare a detachable instance that does not externalize
      * detached state.
@@ -95,7 +99,8 @@ public class DetachManager
         boolean setState = meta.getDetachedState() != null
             && !ClassMetaData.SYNTHETIC.equals(meta.getDetachedState());
         BitSet idxs = (setState) ? new BitSet(meta.getFields().length) : null;
-        preDetach(sm.getBroker(), sm, idxs, false, true);
+        preDetach(sm.getBroker(), sm, sm.getBroker().getDetachPlan(meta), idxs,
+            false, true);
 
         if (setState) {
             sm.getPersistenceCapable().pcSetDetachedState(getDetachedState
@@ -122,8 +127,9 @@ public class DetachManager
         // dirty state causes flush
         flushDirty(sm);
 
-        Broker broker = sm.getBroker();
-        preDetach(broker, sm, idxs, false, true);
+        BrokerImpl broker = sm.getBroker();
+        preDetach(broker, sm, broker.getDetachPlan(sm.getMetaData()), idxs,
+            false, true);
 
         // write detached state object and state manager
         DetachOptions opts = broker.getConfiguration().
@@ -144,11 +150,12 @@ public class DetachManager
      * Ready the object for detachment, including loading the fields to be
      * detached and updating version information.
      *
+     * @param plan the detach plan of the instance's type
      * @param idxs the indexes of fields to detach will be set as a side
      * effect of this method
      */
     private static void preDetach(Broker broker, StateManagerImpl sm,
-        BitSet idxs, boolean full,
+        DetachPlan plan, BitSet idxs, boolean full,
         boolean reloadOnDetach) {
         // make sure the existing object has the right fields fetched; call
         // even if using currently-loaded fields for detach to make sure
@@ -180,10 +187,8 @@ public class DetachManager
                 idxs.or(sm.getLoaded());
 
             // clear lrs fields
-            FieldMetaData[] fmds = sm.getMetaData().getFields();
-            for (int i = 0; i < fmds.length; i++)
-                if (fmds[i].isLRS())
-                    idxs.clear(i);
+            for (int lrs : plan.getLargeResultSetFields())
+                idxs.clear(lrs);
         }
     }
 
@@ -278,9 +283,11 @@ public class DetachManager
         if (_full) {
             _detached = null;
             _fullFM = new DetachFieldManager();
+            _fms = null;
         } else {
             _detached = new IdentityHashMap();
             _fullFM = null;
+            _fms = new ArrayDeque<>();
         }
         Compatibility compatibility =
             broker.getConfiguration().getCompatibilityInstance();
@@ -318,7 +325,10 @@ public class DetachManager
 
     /**
      * Return detached versions of all the given instances. If not copying,
-     * null will be returned.
+     * null will be returned. The instances are detached on the calling
+     * thread however many there are, since detaching may load fields,
+     * invokes callbacks and uses the broker, which is not thread safe;
+     * only {@link DetachManagerLite} detaches in parallel.
      */
     public Object[] detachAll(Collection instances) {
         List exceps = null;
@@ -446,8 +456,9 @@ public class DetachManager
             _flushed = true;
         }
 
+        DetachPlan plan = _broker.getDetachPlan(sm.getMetaData());
         BitSet fields = new BitSet();
-        preDetach(_broker, sm, fields, _full,
+        preDetach(_broker, sm, plan, fields, _full,
             _reloadOnDetach);
 
         // create and store new object before copy to avoid endless recursion
@@ -475,9 +486,16 @@ public class DetachManager
             _fullFM.reproxy(detSM);
             _fullFM.setStateManager(null);
         } else {
-            InstanceDetachFieldManager fm = new InstanceDetachFieldManager(detachedPC, detSM);
-            fm.setStateManager(sm);
-            fm.detachFields(fields);
+            InstanceDetachFieldManager fm = _fms.poll();
+            if (fm == null)
+                fm = new InstanceDetachFieldManager();
+            fm.setStateManager(sm, plan, detachedPC, detSM);
+            try {
+                fm.detachFields(fields);
+            } finally {
+                fm.setStateManager(null, null, null, null);
+                _fms.push(fm);
+            }
         }
 
         if (!Boolean.FALSE.equals(sm.getMetaData().usesDetachedState()))
@@ -584,23 +602,29 @@ public class DetachManager
      * FieldManager that can copy all the fields from one
      * PersistenceCapable instance to another. One of the
      * instances must be managed by a StateManager, and the
-     * other must be unmanaged.
+     * other must be unmanaged. Instances are reused for the instances
+     * detached by their detach manager.
      *
      * @author Marc Prud'hommeaux
      */
     private class InstanceDetachFieldManager
         extends DetachFieldManager {
 
-        private final PersistenceCapable _to;
-        private final DetachedStateManager _detSM;
+        private DetachPlan _plan;
+        private PersistenceCapable _to;
+        private DetachedStateManager _detSM;
 
         /**
-         * Constructor. Supply instance to to copy to.
+         * Set the source state manager, the detach plan of its type,
+         * the instance to copy to and its detached state manager.
          */
-        public InstanceDetachFieldManager(PersistenceCapable to,
-            DetachedStateManager detSM) {
+        public void setStateManager(StateManagerImpl sm, DetachPlan plan,
+            PersistenceCapable to, DetachedStateManager detSM) {
+            setStateManager(sm);
+            _plan = plan;
             _to = to;
             _detSM = detSM;
+            clear();
         }
 
         @Override
@@ -615,8 +639,6 @@ public class DetachManager
          */
         public void detachFields(BitSet fgfields) {
             PersistenceCapable from = sm.getPersistenceCapable();
-            FieldMetaData[] pks = sm.getMetaData().getPrimaryKeyFields();
-            FieldMetaData[] fmds = sm.getMetaData().getFields();
 
             if (_copy)
                 _to.pcReplaceStateManager(sm);
@@ -625,13 +647,12 @@ public class DetachManager
                 // equals and hashCode methods, and this ensures that pk fields
                 // are set properly if we return any partially-detached objects
                 // due to reentrant calls when traversing relations
-                for (FieldMetaData pk : pks) {
-                    detachField(from, pk.getIndex(), true);
+                for (int pk : _plan.getPrimaryKeyFields()) {
+                    detachField(from, pk, true);
                 }
                 detachVersion();
-                for (int i = 0; i < fmds.length; i++)
-                    if (!fmds[i].isPrimaryKey() && !fmds[i].isVersion())
-                        detachField(from, i, fgfields.get(i));
+                for (int i : _plan.getFields())
+                    detachField(from, i, fgfields.get(i));
             } finally {
                 // clear the StateManager from the target object
                 if (_copy)
@@ -731,18 +752,9 @@ public class DetachManager
             if (curVal == null)
                 return null;
 
-            FieldMetaData fmd = sm.getMetaData().getField(field);
-
-            boolean cascade = false;
-            if(_cascadeWithDetach
-                || fmd.getCascadeDetach() ==
-                    ValueMetaData.CASCADE_IMMEDIATE
-                || fmd.getKey().getCascadeDetach() ==
-                    ValueMetaData.CASCADE_IMMEDIATE
-                || fmd.getElement().getCascadeDetach() ==
-                    ValueMetaData.CASCADE_IMMEDIATE) {
-                cascade = true;
-            }
+            FieldMetaData fmd = _plan.getField(field);
+            boolean cascade = _cascadeWithDetach
+                || _plan.isCascadeImmediate(field);
 
             Object newVal = null;
             switch (fmd.getDeclaredTypeCode()) {
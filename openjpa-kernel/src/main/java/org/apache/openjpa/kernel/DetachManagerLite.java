@@ -20,6 +20,8 @@ package org.apache.openjpa.kernel;
 
 import java.util.BitSet;
 import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import org.apache.openjpa.conf.OpenJPAConfiguration;
 import org.apache.openjpa.enhance.PersistenceCapable;
@@ -32,10 +34,13 @@ import org.apache.openjpa.util.Proxy;
  */
 public class DetachManagerLite {
     private final boolean _detachProxies;
+    private final int _parallelThreshold;
     private final TransferFieldManager _tsm;
 
     public DetachManagerLite(OpenJPAConfiguration conf) {
         _detachProxies = conf.getDetachStateInstance().getDetachProxyFields();
+        _parallelThreshold = conf.getDetachStateInstance().
+            getParallelThreshold();
         _tsm = new TransferFieldManager();
     }
 
@@ -46,21 +51,54 @@ public class DetachManagerLite {
      *            The StateManagers to be detached.
      */
     public void detachAll(Collection<StateManagerImpl> states) {
+        for (StateManagerImpl sm : states)
+            detach(sm, _tsm);
+    }
+
+    /**
+     * This method will detach all provided StateManagers in place. Once
+     * there are as many StateManagers as the configured parallel threshold,
+     * they are detached on the common fork join pool if allowed.
+     *
+     * @param states
+     *            The StateManagers to be detached.
+     * @param parallel
+     *            Whether the StateManagers may be detached by other threads,
+     *            which is only safe if no other thread uses their context.
+     * @since 3.2.3
+     */
+    public void detachAll(Collection<StateManagerImpl> states,
+        boolean parallel) {
+        if (!parallel || _parallelThreshold <= 0
+            || states.size() < _parallelThreshold) {
+            detachAll(states);
+            return;
+        }
+
+        StateManagerImpl[] sms = states.toArray(
+            new StateManagerImpl[states.size()]);
+        int split = Math.max(1, sms.length
+            / (ForkJoinPool.getCommonPoolParallelism() * 4));
+        ForkJoinPool.commonPool().invoke(new DetachAction(sms, 0,
+            sms.length, split));
+    }
 
-        for (StateManagerImpl sm : states) {
-            ClassMetaData cmd = sm.getMetaData();
-            if (sm.isPersistent() && cmd.isDetachable()) {
-                PersistenceCapable pc = sm.getPersistenceCapable();
-                if (!pc.pcIsDetached()) {
-                    // Detach proxy fields.
-                    BitSet loaded = sm.getLoaded();
-                    for (FieldMetaData fmd : cmd.getProxyFields()) {
-                        if (loaded.get(fmd.getIndex())) {
-                            detachProxyField(fmd, pc, sm, _tsm);
-                        }
+    /**
+     * Detach the given StateManager in place.
+     */
+    private void detach(StateManagerImpl sm, TransferFieldManager fm) {
+        ClassMetaData cmd = sm.getMetaData();
+        if (sm.isPersistent() && cmd.isDetachable()) {
+            PersistenceCapable pc = sm.getPersistenceCapable();
+            if (!pc.pcIsDetached()) {
+                // Detach proxy fields.
+                BitSet loaded = sm.getLoaded();
+                for (FieldMetaData fmd : cmd.getProxyFields()) {
+                    if (loaded.get(fmd.getIndex())) {
+                        detachProxyField(fmd, pc, sm, fm);
                     }
-                    pc.pcReplaceStateManager(null);
                 }
+                pc.pcReplaceStateManager(null);
             }
         }
     }
@@ -120,4 +158,41 @@ public class DetachManagerLite {
         sm.replaceField(pc, fm, fieldIndex);
         fm.clear();
     }
+
+    /**
+     * Detaches a range of StateManagers, splitting it until it is no longer
+     * than the given number of StateManagers. Every range uses its own field
+     * manager.
+     */
+    private class DetachAction
+        extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final StateManagerImpl[] _sms;
+        private final int _start;
+        private final int _end;
+        private final int _split;
+
+        public DetachAction(StateManagerImpl[] sms, int start, int end,
+            int split) {
+            _sms = sms;
+            _start = start;
+            _end = end;
+            _split = split;
+        }
+
+        @Override
+        protected void compute() {
+            if (_end - _start <= _split) {
+                TransferFieldManager fm = new TransferFieldManager();
+                for (int i = _start; i < _end; i++)
+                    detach(_sms[i], fm);
+                return;
+            }
+            int mid = (_start + _end) >>> 1;
+            invokeAll(new DetachAction(_sms, _start, mid, _split),
+                new DetachAction(_sms, mid, _end, _split));
+        }
+    }
 }
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.kernel;
+
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.meta.FieldMetaData;
+import org.apache.openjpa.meta.ValueMetaData;
+
+/**
+ * The fields to detach for instances of a persistent type, worked out
+ * once per type rather than for every detached instance.
+ *
+ * @since 3.2.3
+ */
+final class DetachPlan {
+
+    private static final int[] EMPTY_INDEXES = new int[0];
+
+    private final ClassMetaData _meta;
+    private final FieldMetaData[] _fmds;
+    private final int[] _pks;
+    private final int _version;
+    private final int[] _fields;
+    private final int[] _lrs;
+    private final boolean[] _cascade;
+
+    DetachPlan(ClassMetaData meta) {
+        _meta = meta;
+        _fmds = meta.getFields();
+
+        FieldMetaData[] pks = meta.getPrimaryKeyFields();
+        _pks = new int[pks.length];
+        for (int i = 0; i < pks.length; i++)
+            _pks[i] = pks[i].getIndex();
+        FieldMetaData version = meta.getVersionField();
+        _version = (version == null) ? -1 : version.getIndex();
+
+        int[] fields = new int[_fmds.length];
+        int[] lrs = new int[_fmds.length];
+        int count = 0;
+        int lrsCount = 0;
+        _cascade = new boolean[_fmds.length];
+        for (int i = 0; i < _fmds.length; i++) {
+            if (!_fmds[i].isPrimaryKey() && !_fmds[i].isVersion())
+                fields[count++] = i;
+            if (_fmds[i].isLRS())
+                lrs[lrsCount++] = i;
+            _cascade[i] = _fmds[i].getCascadeDetach()
+                == ValueMetaData.CASCADE_IMMEDIATE
+                || _fmds[i].getKey().getCascadeDetach()
+                == ValueMetaData.CASCADE_IMMEDIATE
+                || _fmds[i].getElement().getCascadeDetach()
+                == ValueMetaData.CASCADE_IMMEDIATE;
+        }
+        _fields = trim(fields, count);
+        _lrs = trim(lrs, lrsCount);
+    }
+
+    private static int[] trim(int[] indexes, int length) {
+        if (length == 0)
+            return EMPTY_INDEXES;
+        if (length == indexes.length)
+            return indexes;
+        int[] trimmed = new int[length];
+        System.arraycopy(indexes, 0, trimmed, 0, length);
+        return trimmed;
+    }
+
+    /**
+     * The type this plan was made for.
+     */
+    public ClassMetaData getMetaData() {
+        return _meta;
+    }
+
+    /**
+     * The field with the given index.
+     */
+    public FieldMetaData getField(int field) {
+        return _fmds[field];
+    }
+
+    /**
+     * The primary key fields, which are detached first.
+     */
+    public int[] getPrimaryKeyFields() {
+        return _pks;
+    }
+
+    /**
+     * The version field, or -1 if the type has none.
+     */
+    public int getVersionField() {
+        return _version;
+    }
+
+    /**
+     * The fields that are neither primary key nor version fields.
+     */
+    public int[] getFields() {
+        return _fields;
+    }
+
+    /**
+     * The large result set fields, which are never detached.
+     */
+    public int[] getLargeResultSetFields() {
+        return _lrs;
+    }
+
+    /**
+     * Whether detach cascades immediately through the given field, its
+     * keys or its elements.
+     */
+    public boolean isCascadeImmediate(int field) {
+        return _cascade[field];
+    }
+}
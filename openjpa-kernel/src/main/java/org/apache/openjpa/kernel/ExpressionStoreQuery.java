@@ -150,6 +150,14 @@ public class ExpressionStoreQuery
         return true;
     }
 
+    /**
+     * Asks the parser for the key of the parsed state set by the facade.
+     */
+    @Override
+    public Object newParsedCompilationKey() {
+        return (_parsed == null) ? null : _parser.getCompilationKey(_parsed);
+    }
+
     @Override
     public FilterListener getFilterListener(String tag) {
         for (FilterListener listener : _listeners)
@@ -21,8 +21,10 @@ package org.apache.openjpa.kernel;
 import java.util.BitSet;
 
 import org.apache.openjpa.datacache.DataCache;
+import org.apache.openjpa.enhance.StateManager;
 import org.apache.openjpa.meta.ClassMetaData;
 import org.apache.openjpa.meta.FieldMetaData;
+import org.apache.openjpa.util.FieldSet;
 
 /**
  * Default {@link PCData} implementation.
@@ -39,7 +41,7 @@ public class PCDataImpl
     private final Class<?> _type;
     private final String _cache;
     private final Object[] _data;
-    private final BitSet _loaded;
+    private final FieldSet _loaded;
     private Object _version = null;
     private Object _impl = null;
     private Object[] _fieldImpl = null;
@@ -58,7 +60,7 @@ public class PCDataImpl
 
         int len = meta.getFields().length;
         _data = new Object[len];
-        _loaded = new BitSet(len);
+        _loaded = new FieldSet();
     }
 
     @Override
@@ -71,9 +73,14 @@ public class PCDataImpl
         return _type;
     }
 
+    /**
+     * Return a copy of the loaded fields. Changing the returned set does not
+     * change the fields of this data; use {@link #setLoaded} for that, and
+     * {@link #isLoaded} to test single fields.
+     */
     @Override
     public BitSet getLoaded() {
-        return _loaded;
+        return _loaded.toBitSet();
     }
 
     @Override
@@ -131,10 +138,7 @@ public class PCDataImpl
     }
 
     public void setLoaded(int index, boolean loaded) {
-        if (loaded)
-            _loaded.set(index);
-        else
-            _loaded.clear(index);
+        _loaded.set(index, loaded);
     }
 
     @Override
@@ -303,17 +307,10 @@ public class PCDataImpl
             return;
 
         int index = fmd.getIndex();
-        OpenJPAStateManager dsm = null;
-        if (sm.getPersistenceCapable().pcIsDetached()) {
-            dsm = (DetachedStateManager) sm.getPersistenceCapable().
-                pcGetStateManager();
-            sm.getPersistenceCapable().pcReplaceStateManager(sm);
-        }
-
+        StateManager dsm = attachStateManager(sm);
         Object val = toData(fmd, sm.fetchField(index, false),
             sm.getContext());
-        if (dsm != null)
-            sm.getPersistenceCapable().pcReplaceStateManager(dsm);
+        restoreStateManager(sm, dsm);
         if (val != NULL)
             setData(index, val);
         else // unable to store field value; clear out any old values
@@ -0,0 +1,315 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.kernel;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import org.apache.openjpa.conf.CacheMarshaller;
+import org.apache.openjpa.conf.CacheMarshallersValue;
+import org.apache.openjpa.conf.NoOpCacheMarshaller;
+import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.kernel.QueryImpl.Compilation;
+import org.apache.openjpa.kernel.QueryImpl.CompilationKey;
+import org.apache.openjpa.kernel.jpql.JPQLExpressionBuilder.ParsedJPQL;
+import org.apache.openjpa.lib.log.Log;
+import org.apache.openjpa.lib.util.Localizer;
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.meta.FieldMetaData;
+import org.apache.openjpa.meta.MetaDataRepository;
+import org.apache.openjpa.meta.ValueMetaData;
+
+/**
+ * Stores the parsed query compilations of the
+ * {@link OpenJPAConfiguration#getQueryCompilationCacheInstance query
+ * compilation cache} through the {@link CacheMarshaller} of id
+ * <code>org.apache.openjpa.kernel.QueryCompilationSnapshot</code>, and loads
+ * them back into the cache of a new factory so that its queries are not parsed
+ * again. Only the parsed form of a query is stored: the executors are created
+ * from it on first use, against the metadata of that time. The compilations
+ * are stored by their candidate type, together with a hash of the metadata of
+ * that type, and those of a type whose hash differs on load are discarded.
+ * The hash covers the resolved metadata of the type and its fields, and the
+ * contents of the class file and XML document the metadata was read from, so
+ * that a change to a mapping annotation or to orm.xml, such as a different
+ * inheritance strategy, also discards the compilations. Only the metadata of
+ * the candidate types is resolved to compute the hashes.
+ *
+ * @since 3.2.3
+ */
+public class QueryCompilationSnapshot {
+
+    private static final Localizer _loc = Localizer.forPackage
+        (QueryCompilationSnapshot.class);
+
+    private final OpenJPAConfiguration _conf;
+    private final Log _log;
+
+    public QueryCompilationSnapshot(OpenJPAConfiguration conf) {
+        _conf = conf;
+        _log = conf.getLog(OpenJPAConfiguration.LOG_RUNTIME);
+    }
+
+    /**
+     * Affirms if a cache marshaller is configured for the snapshot.
+     */
+    public boolean isEnabled() {
+        return _conf.getQueryCompilationCacheInstance() != null
+            && !(getMarshaller() instanceof NoOpCacheMarshaller);
+    }
+
+    /**
+     * Store the parsed compilations of the query compilation cache.
+     *
+     * @return the number of compilations stored
+     */
+    public int store() {
+        Map cache = _conf.getQueryCompilationCacheInstance();
+        if (!isEnabled())
+            return 0;
+
+        // candidate type name -> { metadata hash, compilations }
+        Map<String, Object[]> snapshot = new TreeMap<>();
+        Map<Class<?>, String> hashes = new HashMap<>();
+        int stored = 0;
+        synchronized (cache) {
+            for (Object o : cache.entrySet()) {
+                Map.Entry entry = (Map.Entry) o;
+                if (!isStorable(entry.getKey(), entry.getValue()))
+                    continue;
+                CompilationKey key = (CompilationKey) entry.getKey();
+                Compilation comp = new Compilation();
+                comp.storeData = ((Compilation) entry.getValue()).storeData;
+                Class<?> type = getCandidateType(key, comp);
+                String hash = (type == null) ? null
+                    : hashes.computeIfAbsent(type, this::getMetaDataHash);
+                if (hash == null)
+                    continue;
+                Object[] group = snapshot.computeIfAbsent(type.getName(),
+                    name -> new Object[]{ hash, new HashMap<>() });
+                ((Map<CompilationKey, Compilation>) group[1]).put(key, comp);
+                stored++;
+            }
+        }
+        getMarshaller().store(snapshot);
+        if (_log.isInfoEnabled())
+            _log.info(_loc.get("query-snapshot-stored", stored));
+        return stored;
+    }
+
+    /**
+     * Load the stored compilations into the query compilation cache, except
+     * those whose candidate type has changed since they were stored.
+     * Compilations already in the cache are kept.
+     *
+     * @return the number of compilations loaded
+     */
+    public int load() {
+        Map cache = _conf.getQueryCompilationCacheInstance();
+        if (!isEnabled())
+            return 0;
+
+        // a snapshot of an earlier format is not a map
+        Object stored = getMarshaller().load();
+        if (!(stored instanceof Map))
+            return 0;
+
+        ClassLoader loader = getClassLoader();
+        int loaded = 0;
+        for (Map.Entry<?, ?> group : ((Map<?, ?>) stored).entrySet()) {
+            Object[] data = (Object[]) group.getValue();
+            Class<?> type = classForName((String) group.getKey(), loader);
+            if (type == null || !data[0].equals(getMetaDataHash(type))) {
+                if (_log.isInfoEnabled())
+                    _log.info(_loc.get("query-snapshot-stale", group.getKey()));
+                continue;
+            }
+            synchronized (cache) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) data[1]).entrySet()) {
+                    if (!cache.containsKey(entry.getKey())) {
+                        cache.put(entry.getKey(), entry.getValue());
+                        loaded++;
+                    }
+                }
+            }
+        }
+        if (_log.isInfoEnabled())
+            _log.info(_loc.get("query-snapshot-loaded", loaded));
+        return loaded;
+    }
+
+    /**
+     * Return a hash of the metadata of the given persistent type and of the
+     * sources it was read from, which identifies the metadata the stored
+     * compilations of the type are valid for, or null if the type is not
+     * persistent.
+     */
+    public String getMetaDataHash(Class<?> type) {
+        MetaDataRepository repos = _conf.getMetaDataRepositoryInstance();
+        ClassMetaData meta = repos.getMetaData(type, getClassLoader(), false);
+        if (meta == null)
+            return null;
+        long hash = hash(17, meta);
+        hash = 31 * hash + getClassChecksum(type);
+        if (meta.getSourceFile() != null)
+            hash = 31 * hash + getFileChecksum(meta.getSourceFile());
+        return Long.toHexString(hash);
+    }
+
+    /**
+     * Return the candidate type of the given compilation, or null if unknown.
+     * A query string does not name its candidate type in its key, but its
+     * parsed form knows it once it has been executed.
+     */
+    private static Class<?> getCandidateType(CompilationKey key,
+        Compilation comp) {
+        if (key.candidateType != null)
+            return key.candidateType;
+        if (comp.storeData instanceof ParsedJPQL)
+            return ((ParsedJPQL) comp.storeData).getCandidateType();
+        return null;
+    }
+
+    private ClassLoader getClassLoader() {
+        return _conf.getClassResolverInstance().
+            getClassLoader(getClass(), null);
+    }
+
+    private static Class<?> classForName(String name, ClassLoader loader) {
+        try {
+            return Class.forName(name, false, loader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Hash the resolved metadata of the given type and its declared fields.
+     */
+    private static long hash(long hash, ClassMetaData meta) {
+        hash = hash(hash, meta.getDescribedType().getName());
+        hash = hash(hash, meta.getTypeAlias());
+        hash = hash(hash, name(meta.getPCSuperclass()));
+        hash = hash(hash, name(meta.getObjectIdType()));
+        hash = 31 * hash + meta.getIdentityType();
+        hash = 31 * hash + meta.getIdentityStrategy();
+        hash = 31 * hash + meta.getAccessType();
+        hash = 31 * hash + (meta.isAbstract() ? 1 : 0);
+        hash = 31 * hash + (meta.isEmbeddedOnly() ? 1 : 0);
+        hash = 31 * hash + (meta.isMapped() ? 1 : 0);
+        hash = 31 * hash + (meta.getEmbeddingMetaData() == null ? 0 : 1);
+
+        FieldMetaData[] fmds = meta.getDeclaredFields().clone();
+        Arrays.sort(fmds, Comparator.comparing(FieldMetaData::getName));
+        for (FieldMetaData fmd : fmds) {
+            hash = hash(hash, fmd.getName());
+            hash = hash(hash, fmd.getMappedBy());
+            hash = hash(hash, fmd.getOrderDeclaration());
+            hash = 31 * hash + fmd.getManagement();
+            hash = 31 * hash + fmd.getAssociationType();
+            hash = 31 * hash + (fmd.isPrimaryKey() ? 1 : 0);
+            hash = 31 * hash + (fmd.isVersion() ? 1 : 0);
+            hash = hash(hash, fmd);
+            hash = hash(hash, fmd.getKey());
+            hash = hash(hash, fmd.getElement());
+        }
+        return hash;
+    }
+
+    private static long hash(long hash, ValueMetaData vmd) {
+        hash = hash(hash, name(vmd.getDeclaredType()));
+        hash = 31 * hash + vmd.getDeclaredTypeCode();
+        hash = 31 * hash + (vmd.isEmbedded() ? 1 : 0);
+        return 31 * hash + vmd.getCascadePersist();
+    }
+
+    private static long hash(long hash, String str) {
+        hash = 31 * hash + ((str == null) ? 0 : str.length());
+        for (int i = 0; str != null && i < str.length(); i++)
+            hash = 31 * hash + str.charAt(i);
+        return hash;
+    }
+
+    private static String name(Class<?> cls) {
+        return (cls == null) ? null : cls.getName();
+    }
+
+    /**
+     * Return a checksum of the class file of the given type, which changes
+     * with its mapping annotations, or 0 if it cannot be read.
+     */
+    private static long getClassChecksum(Class<?> type) {
+        String resource = type.getName().replace('.', '/') + ".class";
+        ClassLoader loader = type.getClassLoader();
+        try (InputStream in = (loader == null)
+            ? ClassLoader.getSystemResourceAsStream(resource)
+            : loader.getResourceAsStream(resource)) {
+            return (in == null) ? 0 : checksum(in);
+        } catch (IOException ioe) {
+            return 0;
+        }
+    }
+
+    /**
+     * Return a checksum of the contents of the given metadata document, or
+     * of its path if it cannot be read.
+     */
+    private long getFileChecksum(File file) {
+        try (InputStream in = new FileInputStream(file)) {
+            return checksum(in);
+        } catch (IOException ioe) {
+            return hash(0, file.getPath());
+        }
+    }
+
+    private static long checksum(InputStream in) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buf = new byte[8192];
+        for (int n; (n = in.read(buf)) != -1;)
+            crc.update(buf, 0, n);
+        return crc.getValue();
+    }
+
+    /**
+     * Only compilations of query strings whose parsed form is serializable
+     * are stored.
+     */
+    private static boolean isStorable(Object key, Object value) {
+        if (!(key instanceof CompilationKey) || !(value instanceof Compilation))
+            return false;
+        CompilationKey ckey = (CompilationKey) key;
+        return ckey.query instanceof String
+            && (ckey.storeKey == null || ckey.storeKey instanceof Serializable)
+            && ((Compilation) value).storeData instanceof Serializable;
+    }
+
+    private CacheMarshaller getMarshaller() {
+        return CacheMarshallersValue.getMarshallerById(_conf,
+            QueryCompilationSnapshot.class.getName());
+    }
+}
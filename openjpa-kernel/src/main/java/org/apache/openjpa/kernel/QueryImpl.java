@@ -669,19 +669,24 @@ public class QueryImpl implements Query {
 
     /**
      * Find the cached compilation for the current query, creating one if it
-     * does not exist.
+     * does not exist. A query that has not been parsed from a string is
+     * cached by the {@link StoreQuery#newParsedCompilationKey key} of its
+     * parsed state, if any.
      */
     @SuppressWarnings("unchecked")
     protected Compilation compilationFromCache() {
         Map compCache = _broker.getConfiguration().getQueryCompilationCacheInstance();
-        if (compCache == null || !isParsedQuery()) {
+        Object query = (compCache == null) ? null
+            : (isParsedQuery()) ? getQueryString()
+            : _storeQuery.newParsedCompilationKey();
+        if (query == null) {
             return newCompilation();
         } else {
             CompilationKey key = new CompilationKey();
             key.queryType = _storeQuery.getClass();
             key.candidateType = getCandidateType();
             key.subclasses = hasSubclasses();
-            key.query = getQueryString();
+            key.query = query;
             key.language = getLanguage();
             key.storeKey = _storeQuery.newCompilationKey();
             Compilation comp = (Compilation) compCache.get(key);
@@ -1890,7 +1895,7 @@ public class QueryImpl implements Query {
     /**
      * Struct to hold the unparsed properties associated with a query.
      */
-    private static class CompilationKey
+    static class CompilationKey
         implements Serializable {
 
         
@@ -1898,7 +1903,7 @@ public class QueryImpl implements Query {
         public Class queryType = null;
         public Class candidateType = null;
         public boolean subclasses = true;
-        public String query = null;
+        public Object query = null;
         public String language = null;
         public Object storeKey = null;
 
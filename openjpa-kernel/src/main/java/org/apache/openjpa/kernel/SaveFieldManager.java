@@ -30,6 +30,7 @@ import java.util.Map;
 import org.apache.openjpa.enhance.PersistenceCapable;
 import org.apache.openjpa.meta.FieldMetaData;
 import org.apache.openjpa.meta.JavaTypes;
+import org.apache.openjpa.util.FieldSet;
 import org.apache.openjpa.util.ProxyManager;
 
 /**
@@ -44,8 +45,8 @@ public class SaveFieldManager
     
     private static final long serialVersionUID = 1L;
     private final StateManagerImpl _sm;
-    private final BitSet _unloaded;
-    private BitSet _saved = null;
+    private final FieldSet _unloaded;
+    private FieldSet _saved = null;
     private int[] _copyField = null;
     private transient PersistenceCapable _state = null;
 
@@ -65,9 +66,9 @@ public class SaveFieldManager
         // ones we won't be able to restore
         FieldMetaData[] fields = _sm.getMetaData().getFields();
         if (_sm.isNew() || !_sm.isPersistent() || dirty == null)
-            _unloaded = new BitSet(fields.length);
+            _unloaded = new FieldSet();
         else {
-            _unloaded = (BitSet) dirty.clone();
+            _unloaded = new FieldSet(dirty);
             for (int i = 0; i < fields.length; i++)
                 if (fields[i].getManagement() != FieldMetaData.MANAGE_PERSISTENT)
                     _unloaded.clear(i);
@@ -82,10 +83,21 @@ public class SaveFieldManager
     }
 
     /**
-     * Return the currently-loaded fields that will be unloaded after rollback.
+     * Return a copy of the currently-loaded fields that will be unloaded
+     * after rollback.
      */
     public BitSet getUnloaded() {
-        return _unloaded;
+        return _unloaded.toBitSet();
+    }
+
+    /**
+     * Whether the given currently-loaded field will be unloaded after
+     * rollback.
+     *
+     * @since 3.2.3
+     */
+    public boolean isUnloaded(int field) {
+        return _unloaded.get(field);
     }
 
     /**
@@ -133,7 +145,7 @@ public class SaveFieldManager
         if (_state == null)
             _state = _sm.getPersistenceCapable().pcNewInstance(_sm, true);
         if (_saved == null)
-            _saved = new BitSet(_sm.getMetaData().getFields().length);
+            _saved = new FieldSet();
 
         _saved.set(field);
 
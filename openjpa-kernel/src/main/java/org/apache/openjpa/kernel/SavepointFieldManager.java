@@ -31,6 +31,7 @@ import org.apache.openjpa.enhance.PersistenceCapable;
 import org.apache.openjpa.lib.util.Localizer;
 import org.apache.openjpa.meta.FieldMetaData;
 import org.apache.openjpa.meta.JavaTypes;
+import org.apache.openjpa.util.FieldSet;
 import org.apache.openjpa.util.InternalException;
 import org.apache.openjpa.util.ProxyManager;
 
@@ -63,7 +64,7 @@ class SavepointFieldManager
     // used to track field value during store/fetch cycle
     private Object _field = null;
     private int[] _copyField = null;
-    private BitSet _mutable;
+    private FieldSet _mutable;
 
     /**
      * Constructor. Provide instance to save and indicate whether
@@ -74,8 +75,8 @@ class SavepointFieldManager
         _sm = sm;
         _state = _sm.getPCState();
 
-        _dirty = (BitSet) _sm.getDirty().clone();
-        _flush = (BitSet) _sm.getFlushed().clone();
+        _dirty = _sm.copyDirty();
+        _flush = _sm.copyFlushed();
         _loaded = (BitSet) _sm.getLoaded().clone();
 
         FieldMetaData[] fields = _sm.getMetaData().getFields();
@@ -137,14 +138,16 @@ class SavepointFieldManager
     }
 
     /**
-     * Return the dirty fields during the saved state.
+     * Return the dirty fields during the saved state, or null if the
+     * instance had no dirty mask.
      */
     public BitSet getDirty() {
         return _dirty;
     }
 
     /**
-     * Return the flushed fields during the saved state.
+     * Return the flushed fields during the saved state, or null if the
+     * instance had no flushed mask.
      */
     public BitSet getFlushed() {
         return _flush;
@@ -161,7 +164,7 @@ class SavepointFieldManager
             case JavaTypes.MAP:
             case JavaTypes.OBJECT:
                 if (_mutable == null)
-                    _mutable = new BitSet(_sm.getMetaData().getFields().length);
+                    _mutable = new FieldSet();
                 _mutable.set(field.getIndex());
         }
         if (_mutable == null || !_mutable.get(field.getIndex())) {
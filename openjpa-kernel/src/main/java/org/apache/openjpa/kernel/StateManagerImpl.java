@@ -59,6 +59,7 @@ import org.apache.openjpa.meta.ValueMetaData;
 import org.apache.openjpa.meta.ValueStrategies;
 import org.apache.openjpa.util.ApplicationIds;
 import org.apache.openjpa.util.Exceptions;
+import org.apache.openjpa.util.FieldSet;
 import org.apache.openjpa.util.ImplHelper;
 import org.apache.openjpa.util.InternalException;
 import org.apache.openjpa.util.InvalidStateException;
@@ -114,6 +115,11 @@ public class StateManagerImpl implements OpenJPAStateManager, Serializable {
     // information about the instance
     private transient PersistenceCapable _pc = null;
     protected transient ClassMetaData _meta = null;
+
+    // the loaded, dirty and flushed masks stay BitSets, unlike the delayed
+    // mask: OpenJPAStateManager hands them out live, stores and managers
+    // read them field by field, and this class updates them through its
+    // getters, so a FieldSet would need a BitSet copy per call
     protected BitSet _loaded = null;
 
     // Care needs to be taken when accessing these fields as they will can be null if no fields are
@@ -121,7 +127,7 @@ public class StateManagerImpl implements OpenJPAStateManager, Serializable {
     private BitSet _dirty = null;
     private BitSet _flush = null;
 
-    private BitSet _delayed = null;
+    private FieldSet _delayed = null;
     private int _flags = 0;
 
     // id is the state manager identity; oid is the persistent identity.  oid
@@ -220,10 +226,10 @@ public class StateManagerImpl implements OpenJPAStateManager, Serializable {
         _pc.pcReplaceStateManager(this);
         _state = newState;
 
-        // clone the field bitsets.
-        _dirty=(BitSet)sm.getDirty().clone();
-        _loaded = (BitSet)sm.getLoaded().clone();
-        _flush = (BitSet) sm.getFlushed().clone();
+        // clone the field bitsets, leaving the lazy ones unset
+        _dirty = sm.copyDirty();
+        _loaded = (BitSet) sm.getLoaded().clone();
+        _flush = sm.copyFlushed();
         _version = sm.getVersion();
 
         _oid = sm.getObjectId();
@@ -1018,7 +1024,7 @@ public class StateManagerImpl implements OpenJPAStateManager, Serializable {
                 return fetchField(field, false);
 
             // if the field is dirty but we never loaded it, we can't restore it
-            if (_saved.getUnloaded().get(field))
+            if (_saved.isUnloaded(field))
                 throw new InvalidStateException(_loc.get("initial-unloaded",
                     fmd));
 
@@ -1692,13 +1698,9 @@ public class StateManagerImpl implements OpenJPAStateManager, Serializable {
     @Override
     public void setDelayed(int field, boolean delay) {
         if (_delayed == null) {
-            _delayed = new BitSet();
-        }
-        if (delay) {
-            _delayed.set(field);
-        } else {
-            _delayed.clear(field);
+            _delayed = new FieldSet();
         }
+        _delayed.set(field, delay);
     }
 
     /**
@@ -3094,7 +3096,10 @@ public class StateManagerImpl implements OpenJPAStateManager, Serializable {
                         replaceField(_pc, _saved, i);
 
                 // rollback loaded set
-                _loaded.andNot(_saved.getUnloaded());
+                for (int i = _loaded.nextSetBit(0); i >= 0;
+                    i = _loaded.nextSetBit(i + 1))
+                    if (_saved.isUnloaded(i))
+                        _loaded.clear(i);
             }
         }
         finally {
@@ -3646,6 +3651,14 @@ public class StateManagerImpl implements OpenJPAStateManager, Serializable {
         return _flush;
     }
 
+    /**
+     * Return a copy of the flushed fields, or null if the mask has not been
+     * created.
+     */
+    BitSet copyFlushed() {
+        return (_flush == null) ? null : (BitSet) _flush.clone();
+    }
+
     private boolean isFieldFlushed(int index) {
         if (_flush == null) {
             return false;
@@ -3670,6 +3683,14 @@ public class StateManagerImpl implements OpenJPAStateManager, Serializable {
         return _dirty;
     }
 
+    /**
+     * Return a copy of the dirty fields, or null if the mask has not been
+     * created.
+     */
+    BitSet copyDirty() {
+        return (_dirty == null) ? null : (BitSet) _dirty.clone();
+    }
+
     private boolean isFieldDirty(int index) {
         if (_dirty == null) {
             return false;
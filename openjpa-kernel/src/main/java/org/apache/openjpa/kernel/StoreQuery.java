@@ -86,6 +86,18 @@ public interface StoreQuery
      */
     Object newCompilationKey();
 
+    /**
+     * Create a key that identifies the parsed state given to
+     * {@link #setQuery}, so that its compilation can be cached like that of
+     * a query string. May be null, in which case the compilation is not
+     * cached. Returns null by default.
+     *
+     * @since 3.2.3
+     */
+    default Object newParsedCompilationKey() {
+        return null;
+    }
+
     /**
      * Create a new compilation for this query. May be null.
      */
@@ -31,7 +31,8 @@ import org.apache.openjpa.util.UserException;
  * @author Abe White
  */
 abstract class AggregateVal
-    extends Val {
+    extends Val
+    implements StandardAggregate {
 
     
     private static final long serialVersionUID = 1L;
@@ -53,6 +54,11 @@ abstract class AggregateVal
         return true;
     }
 
+    @Override
+    public boolean isDistinct() {
+        return _val instanceof Distinct;
+    }
+
     @Override
     public Class getType() {
         return getType(_val.getType());
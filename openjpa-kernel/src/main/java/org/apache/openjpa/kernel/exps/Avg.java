@@ -65,4 +65,9 @@ class Avg
             return null;
         return Filters.divide(sum, c, size, int.class);
     }
+
+    @Override
+    public int getFunction() {
+        return AVG;
+    }
 }
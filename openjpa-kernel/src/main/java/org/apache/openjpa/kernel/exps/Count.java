@@ -52,4 +52,9 @@ class Count
                 count++;
         return count;
     }
+
+    @Override
+    public int getFunction() {
+        return COUNT;
+    }
 }
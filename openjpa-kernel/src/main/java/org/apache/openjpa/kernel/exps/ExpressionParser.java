@@ -49,6 +49,17 @@ public interface ExpressionParser
      */
     void populate(Object parsed, ExpressionStoreQuery query);
 
+    /**
+     * Return a key that is equal for parsed forms that compile to the same
+     * query expressions, or null if the compilation of the given parsed
+     * form must not be shared. Returns null by default.
+     *
+     * @since 3.2.3
+     */
+    default Object getCompilationKey(Object parsed) {
+        return null;
+    }
+
     /**
      * Parse the given query string.
      */
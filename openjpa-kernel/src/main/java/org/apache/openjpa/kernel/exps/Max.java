@@ -54,4 +54,9 @@ class Max
         }
         return max;
     }
+
+    @Override
+    public int getFunction() {
+        return MAX;
+    }
 }
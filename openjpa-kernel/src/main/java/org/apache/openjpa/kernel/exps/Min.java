@@ -54,4 +54,9 @@ class Min
         }
         return min;
     }
+
+    @Override
+    public int getFunction() {
+        return MIN;
+    }
 }
@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.kernel.exps;
+
+/**
+ * A standard aggregate function of a query. Lets code outside of the
+ * expression implementations, such as the combination of partial
+ * aggregates of several databases, tell the aggregates apart.
+ *
+ * @since 3.2.3
+ */
+public interface StandardAggregate
+    extends Value {
+
+    int COUNT = 1;
+    int SUM = 2;
+    int MIN = 3;
+    int MAX = 4;
+    int AVG = 5;
+
+    /**
+     * Return the function of this aggregate: one of {@link #COUNT},
+     * {@link #SUM}, {@link #MIN}, {@link #MAX} or {@link #AVG}.
+     */
+    int getFunction();
+
+    /**
+     * Return whether this aggregate applies to the distinct values of its
+     * argument.
+     */
+    boolean isDistinct();
+}
@@ -65,4 +65,9 @@ class Sum
         }
         return sum;
     }
+
+    @Override
+    public int getFunction() {
+        return SUM;
+    }
 }
@@ -283,8 +283,8 @@ public class JPQLExpressionBuilder
 
     @Override
     protected String currentQuery() {
-        return ctx().parsed == null || root().parser == null ? null
-            : root().parser.jpql;
+        return ctx().parsed == null || root() == null ? null
+            : root().jpql;
     }
 
     QueryExpressions getQueryExpressions() {
@@ -1603,7 +1603,7 @@ public class JPQLExpressionBuilder
         final boolean subclasses = true;
 
         // parse the subquery
-        ParsedJPQL parsed = new ParsedJPQL(node.parser.jpql, node);
+        ParsedJPQL parsed = new ParsedJPQL(node.jpql, node);
         Context subContext = new Context(parsed, null, ctx());
         contexts.push(subContext);
 
@@ -2255,7 +2255,7 @@ public class JPQLExpressionBuilder
 
         private static final long serialVersionUID = 1L;
         final int id;
-        final JPQL parser;
+        final String jpql;
         JPQLNode parent;
         JPQLNode[] children;
         String text;
@@ -2264,7 +2264,7 @@ public class JPQLExpressionBuilder
 
         public JPQLNode(JPQL parser, int id) {
             this.id = id;
-            this.parser = parser;
+            this.jpql = parser.jpql;
             this.inEnumPath = parser.inEnumPath;
         }
 
@@ -2410,9 +2410,9 @@ public class JPQLExpressionBuilder
     public static class ParsedJPQL implements Serializable {
         private static final long serialVersionUID = 1L;
 
-        // This is only ever used during parse; when ParsedJPQL instances
-        // are serialized, they will have already been parsed.
-        private final transient JPQLNode root;
+        // The parse tree is serialized with the query, so that a
+        // deserialized instance can be evaluated without parsing again.
+        private final JPQLNode root;
 
         private final String query;
 
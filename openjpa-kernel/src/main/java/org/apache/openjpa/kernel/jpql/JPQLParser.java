@@ -64,6 +64,14 @@ public class JPQLParser
         ((JPQLExpressionBuilder.ParsedJPQL) parsed).populate(query);
     }
 
+    /**
+     * Returns null: JPQL queries are cached by their query string.
+     */
+    @Override
+    public Object getCompilationKey(Object parsed) {
+        return null;
+    }
+
     @Override
     public QueryExpressions eval(Object parsed, ExpressionStoreQuery query,
         ExpressionFactory factory, ClassMetaData candidate) {
@@ -38,6 +38,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
@@ -82,6 +83,7 @@ public abstract class AbstractCFMetaDataFactory
     protected Collection<String> cpath = null;
 
     private Set<String> _typeNames = null;
+    private boolean _index = true;
     public static final String PERSISTENCE_UNIT_ROOT_URL = "PersistenceUnitRootUrl";
     public static final String MAPPING_FILE_NAMES = "MappingFileNames";
     public static final String JAR_FILE_URLS = "JarFiles";
@@ -176,6 +178,23 @@ public abstract class AbstractCFMetaDataFactory
           : new ArrayList<>(Arrays.asList(StringUtil.split(cpath, ";", 0)));
     }
 
+    /**
+     * Whether to list the persistent types of class directories and jars
+     * from their {@link MetaDataIndex} rather than by reading their class
+     * files, when they have a current index. Defaults to true.
+     */
+    public void setIndex(boolean index) {
+        _index = index;
+    }
+
+    /**
+     * Whether to list the persistent types of class directories and jars
+     * from their {@link MetaDataIndex}.
+     */
+    public boolean getIndex() {
+        return _index;
+    }
+
     @Override
     public boolean store(ClassMetaData[] metas, QueryMetaData[] queries,
         SequenceMetaData[] seqs, int mode, Map<File,String> output) {
@@ -652,12 +671,16 @@ public abstract class AbstractCFMetaDataFactory
                 file = value;
                 if (AccessController.doPrivileged(J2DoPrivHelper
                         .isDirectoryAction(file))) {
+                    if (scanIndex(file, names))
+                        continue;
                     if (log.isTraceEnabled())
                         log.trace(_loc.get("scanning-directory", file));
                     scan(new FileMetaDataIterator(file, newMetaDataFilter()),
                             cparser, names, true, file);
                 }
                 else if (file.getName().endsWith(".jar")) {
+                    if (scanIndex(file, names))
+                        continue;
                     if (log.isTraceEnabled())
                         log.trace(_loc.get("scanning-jar", file));
                     try {
@@ -706,6 +729,8 @@ public abstract class AbstractCFMetaDataFactory
                     }
                     else if (AccessController
                             .doPrivileged(J2DoPrivHelper.isDirectoryAction(file))) {
+                        if (scanIndex(file, names))
+                            continue;
                         if (log.isTraceEnabled())
                             log.trace(_loc.get("scanning-directory", file));
                         scan(
@@ -713,6 +738,10 @@ public abstract class AbstractCFMetaDataFactory
                                 cparser, names, true, file);
                         continue;
                     }
+                    else if (file.getName().endsWith(".jar")
+                        && scanIndex(file, names)) {
+                        continue;
+                    }
                 }
                 if ("vfs".equals(url.getProtocol())) {
                     if (log.isTraceEnabled()) {
@@ -772,6 +801,11 @@ public abstract class AbstractCFMetaDataFactory
                 }
                 if ("jar".equals(url.getProtocol())) {
                     if (url.getPath().endsWith("!/")) {
+                        String path = url.getPath();
+                        if (path.startsWith("file:") && scanIndex(new File
+                            (decode(path.substring(5, path.length() - 2))),
+                            names))
+                            continue;
                         if (log.isTraceEnabled())
                             log.trace(_loc.get("scanning-jar-url", url));
                         scan(new ZipFileMetaDataIterator(url,
@@ -959,6 +993,50 @@ public abstract class AbstractCFMetaDataFactory
         return names;
     }
 
+    /**
+     * Add the persistent type names listed by the {@link MetaDataIndex} of
+     * the given class directory or jar.
+     *
+     * @return false if the directory or jar has no current index
+     */
+    private boolean scanIndex(File file, Set<String> names) {
+        if (!_index)
+            return false;
+        String[] clss;
+        try {
+            clss = MetaDataIndex.read(file, newMetaDataFilter());
+        } catch (IOException ioe) {
+            if (log.isWarnEnabled())
+                log.warn(_loc.get("index-unreadable", file, ioe));
+            return false;
+        }
+        if (clss == null) {
+            if (log.isTraceEnabled())
+                log.trace(_loc.get("index-missing", file));
+            return false;
+        }
+        List<String> newNames = Arrays.asList(clss);
+        if (log.isTraceEnabled())
+            log.trace(_loc.get("index-found-names", newNames, file));
+        names.addAll(newNames);
+        return true;
+    }
+
+    /**
+     * Write the {@link MetaDataIndex} of the persistent types of the given
+     * class directory.
+     *
+     * @return the number of persistent types indexed
+     */
+    public int writeIndex(File dir)
+        throws IOException {
+        Set<String> names = new TreeSet<>();
+        scan(new FileMetaDataIterator(dir, newMetaDataFilter()),
+            newClassArgParser(), names, false, dir);
+        MetaDataIndex.write(dir, newMetaDataFilter(), names);
+        return names.size();
+    }
+
     /**
      * Scan for persistent type names using the given metadata iterator.
      */
@@ -0,0 +1,299 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.meta;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.conf.OpenJPAConfigurationImpl;
+import org.apache.openjpa.lib.conf.Configurations;
+import org.apache.openjpa.lib.log.Log;
+import org.apache.openjpa.lib.meta.MetaDataFilter;
+import org.apache.openjpa.lib.util.Localizer;
+import org.apache.openjpa.lib.util.Options;
+
+/**
+ * Index of the persistent types of a class directory or jar, written at
+ * build time to {@link #RESOURCE} so that
+ * {@link AbstractCFMetaDataFactory} can list the persistent types of the
+ * directory or jar without reading its class files. The index records the
+ * name, size and CRC-32 checksum of every class file it was built from, and is
+ * ignored when they no longer match, when a class file of its directory is
+ * newer than the index, or when it was built with another
+ * {@link MetaDataFilter}. It only lists the names of the persistent types;
+ * their metadata is still parsed when the types are first used.
+ *
+ * @since 3.2.3
+ */
+public class MetaDataIndex {
+
+    /**
+     * The resource of the index in its directory or jar.
+     */
+    public static final String RESOURCE = "META-INF/openjpa-metadata.idx";
+
+    private static final int MAGIC = 0x4f4a4d49;
+    private static final int VERSION = 3;
+
+    private static final Localizer _loc = Localizer.forPackage
+        (MetaDataIndex.class);
+
+    private MetaDataIndex() {
+    }
+
+    /**
+     * Write the index of the given persistent types for the given class
+     * directory.
+     */
+    public static void write(File dir, MetaDataFilter filter,
+        Collection<String> names)
+        throws IOException {
+        Stamp stamp = new Stamp(dir, true);
+        File file = new File(dir, RESOURCE);
+        file.getParentFile().mkdirs();
+        try (DataOutputStream out = new DataOutputStream
+            (new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(filter.getClass().getName());
+            out.writeLong(stamp.getSizes());
+            out.writeLong(stamp.getChecksums());
+            out.writeInt(names.size());
+            for (String name : names)
+                out.writeUTF(name);
+        }
+    }
+
+    /**
+     * Return the persistent types listed by the index of the given class
+     * directory or jar, or null if it has no index or if its index is stale.
+     * The class files of a directory are not read: the index is stale if a
+     * class file was added, removed or resized, or was modified after the
+     * index was written. The index of a jar is stale if the names, sizes or
+     * checksums of its class files differ.
+     */
+    public static String[] read(File root, MetaDataFilter filter)
+        throws IOException {
+        if (root.isDirectory()) {
+            File file = new File(root, RESOURCE);
+            if (!file.isFile())
+                return null;
+            Stamp stamp = new Stamp(root, false);
+            if (stamp.newest > file.lastModified())
+                return null;
+            try (InputStream in = new FileInputStream(file)) {
+                return read(in, filter, stamp);
+            }
+        }
+        try (ZipFile zip = new ZipFile(root)) {
+            ZipEntry entry = zip.getEntry(RESOURCE);
+            if (entry == null)
+                return null;
+            try (InputStream in = zip.getInputStream(entry)) {
+                return read(in, filter, new Stamp(zip));
+            }
+        }
+    }
+
+    private static String[] read(InputStream in, MetaDataFilter filter,
+        Stamp stamp)
+        throws IOException {
+        DataInputStream data = new DataInputStream
+            (new BufferedInputStream(in));
+        if (data.readInt() != MAGIC || data.readInt() != VERSION
+            || !filter.getClass().getName().equals(data.readUTF())
+            || data.readLong() != stamp.getSizes())
+            return null;
+        long checksums = data.readLong();
+        if (stamp.checksums && checksums != stamp.getChecksums())
+            return null;
+        String[] names = new String[data.readInt()];
+        for (int i = 0; i < names.length; i++)
+            names[i] = data.readUTF();
+        return names;
+    }
+
+    /**
+     * The names, sizes and CRC-32 checksums of the class files of a directory
+     * or jar, in name order. The checksums of jar entries are read from the
+     * central directory of the jar. Those of the class files of a directory
+     * are only computed when the index is written, as that reads every class
+     * file; at runtime the modification time of the newest class file is
+     * recorded instead.
+     */
+    private static class Stamp {
+        private final Map<String, long[]> _files = new TreeMap<>();
+        final boolean checksums;
+        long newest;
+
+        Stamp(File dir, boolean checksums)
+            throws IOException {
+            this.checksums = checksums;
+            add(dir, "");
+        }
+
+        Stamp(ZipFile zip) {
+            checksums = true;
+            ZipEntry entry;
+            for (Enumeration<? extends ZipEntry> e = zip.entries();
+                e.hasMoreElements();) {
+                entry = e.nextElement();
+                if (entry.getName().endsWith(".class"))
+                    _files.put(entry.getName(), new long[]{ entry.getSize(),
+                        entry.getCrc() });
+            }
+        }
+
+        private void add(File dir, String path)
+            throws IOException {
+            File[] files = dir.listFiles();
+            if (files == null)
+                return;
+            for (File file : files) {
+                if (file.isDirectory())
+                    add(file, path + file.getName() + "/");
+                else if (file.getName().endsWith(".class")) {
+                    _files.put(path + file.getName(), new long[]{
+                        file.length(), checksums ? crc(file) : 0 });
+                    newest = Math.max(newest, file.lastModified());
+                }
+            }
+        }
+
+        private static long crc(File file)
+            throws IOException {
+            CRC32 crc = new CRC32();
+            byte[] buf = new byte[8192];
+            try (InputStream in = new FileInputStream(file)) {
+                for (int read; (read = in.read(buf)) != -1;)
+                    crc.update(buf, 0, read);
+            }
+            return crc.getValue();
+        }
+
+        /**
+         * Hash of the names and sizes of the class files.
+         */
+        long getSizes() {
+            return hash(0);
+        }
+
+        /**
+         * Hash of the names and checksums of the class files.
+         */
+        long getChecksums() {
+            return hash(1);
+        }
+
+        private long hash(int idx) {
+            long hash = 17;
+            for (Map.Entry<String, long[]> entry : _files.entrySet()) {
+                String name = entry.getKey();
+                for (int i = 0; i < name.length(); i++)
+                    hash = 31 * hash + name.charAt(i);
+                hash = 31 * hash + entry.getValue()[idx];
+            }
+            return 31 * hash + _files.size();
+        }
+    }
+
+    /**
+     * Usage: java org.apache.openjpa.meta.MetaDataIndex [option]*
+     * &lt;class directory&gt;+
+     */
+    public static void main(String[] args) {
+        Options opts = new Options();
+        args = opts.setFromCmdLine(args);
+        if (!run(args, opts)) {
+            // START - ALLOW PRINT STATEMENTS
+            System.err.println(_loc.get("index-usage"));
+            // STOP - ALLOW PRINT STATEMENTS
+        }
+    }
+
+    /**
+     * Run the tool. Returns false if invalid options given. Runs against all
+     * the persistence units defined in the resource to parse.
+     */
+    public static boolean run(final String[] args, Options opts) {
+        return Configurations.runAgainstAllAnchors(opts,
+            new Configurations.Runnable() {
+            @Override
+            public boolean run(Options opts) throws IOException {
+                OpenJPAConfiguration conf = new OpenJPAConfigurationImpl();
+                try {
+                    return MetaDataIndex.run(conf, args, opts);
+                } finally {
+                    conf.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Index the given class directories with the metadata factory of the
+     * given configuration. Returns false if invalid options given.
+     */
+    public static boolean run(OpenJPAConfiguration conf, String[] args,
+        Options opts)
+        throws IOException {
+        if (args == null || args.length == 0)
+            return false;
+        List<File> dirs = new ArrayList<>(args.length);
+        for (String arg : args) {
+            File dir = new File(arg);
+            if (!dir.isDirectory())
+                return false;
+            dirs.add(dir);
+        }
+
+        Configurations.populateConfiguration(conf, opts);
+        Log log = conf.getLog(OpenJPAConfiguration.LOG_TOOL);
+        MetaDataFactory mdf = conf.newMetaDataRepositoryInstance().
+            getMetaDataFactory();
+        if (!(mdf instanceof AbstractCFMetaDataFactory)) {
+            log.warn(_loc.get("index-unsupported", mdf));
+            return true;
+        }
+        for (File dir : dirs) {
+            int count = ((AbstractCFMetaDataFactory) mdf).writeIndex(dir);
+            if (log.isInfoEnabled())
+                log.info(_loc.get("index-written", String.valueOf(count),
+                    new File(dir, RESOURCE)));
+        }
+        return true;
+    }
+}
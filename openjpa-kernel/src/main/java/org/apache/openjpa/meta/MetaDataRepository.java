@@ -34,6 +34,7 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.openjpa.conf.OpenJPAConfiguration;
 import org.apache.openjpa.enhance.DynamicPersistenceCapable;
@@ -158,6 +159,7 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
     protected boolean _preload = false;
     protected boolean _preloadComplete = false;
     protected boolean _locking = true;
+    private final ReentrantLock _lock = new ReentrantLock();
     private static final String PRELOAD_STR = "Preload";
 
     // A boolean used to decide whether or not we need to call to PCEnhancer to check whether we have any down level
@@ -181,6 +183,28 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
 
     }
 
+    /**
+     * Lock the repository. Metadata is parsed and resolved, and a mapping
+     * repository reads the database schema, while the repository is locked,
+     * so it is locked with a {@link ReentrantLock} rather than its monitor:
+     * a virtual thread that blocks in I/O while holding a monitor pins its
+     * carrier thread.
+     *
+     * @since 3.2.3
+     */
+    protected void lock() {
+        _lock.lock();
+    }
+
+    /**
+     * Unlock the repository.
+     *
+     * @since 3.2.3
+     */
+    protected void unlock() {
+        _lock.unlock();
+    }
+
     /**
      * Return the configuration for the repository.
      */
@@ -313,7 +337,16 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
      * If the openjpa.MetaDataRepository plugin value Preload=true is set, this method will load all
      * MetaData for all persistent classes and will remove locking from this class.
      */
-    public synchronized void preload() {
+    public void preload() {
+        lock();
+        try {
+            preloadInternal();
+        } finally {
+            unlock();
+        }
+    }
+
+    private void preloadInternal() {
         if (!_preload) {
             return;
         }
@@ -390,8 +423,11 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
      */
     public ClassMetaData getMetaData(Class<?> cls, ClassLoader envLoader, boolean mustExist) {
         if (_locking) {
-            synchronized(this){
+            lock();
+            try {
                 return getMetaDataInternal(cls, envLoader, mustExist);
+            } finally {
+                unlock();
             }
         } else {
             return getMetaDataInternal(cls, envLoader, mustExist);
@@ -642,7 +678,7 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
      * <li>Always make sure the superclass metadata is resolved before the subclass metadata so that
      * the subclass can access the super's list of fields.</li>
      * </ol>
-     * Note that the code calling this method is synchronized, so this method doesn't have to be.
+     * Note that the code calling this method locks the repository, so this method doesn't have to.
      */
     private void resolve(ClassMetaData meta) {
         // return anything that has its metadata resolved, because that means
@@ -863,8 +899,11 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
      */
     public ClassMetaData[] getMetaDatas() {
         if (_locking) {
-            synchronized(this){
+            lock();
+            try {
                 return getMetaDatasInternal();
+            } finally {
+                unlock();
             }
         } else {
             return getMetaDatasInternal();
@@ -929,11 +968,14 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
         ClassMetaData meta = newClassMetaData(cls);
         _factory.getDefaults().populate(meta, access, ignoreTransient);
 
-        // synchronize on this rather than the map, because all other methods
-        // that access _metas are synchronized on this
+        // lock the repository rather than the map, because all other methods
+        // that access _metas lock the repository
         if (_locking) {
-            synchronized(this){
+            lock();
+            try {
                 return metasPutInternal(cls, meta);
+            } finally {
+                unlock();
             }
         } else {
             return metasPutInternal(cls, meta);
@@ -1079,8 +1121,11 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
      */
     public boolean removeMetaData(Class<?> cls) {
         if(_locking){
-            synchronized(this){
+            lock();
+            try {
                 return removeMetaDataInternal(cls);
+            } finally {
+                unlock();
             }
         }else{
             return removeMetaDataInternal(cls);
@@ -1128,8 +1173,11 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
      */
     void setInterfaceImpl(ClassMetaData meta, Class<?> impl) {
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 setInterfaceImplInternal(meta, impl);
+            } finally {
+                unlock();
             }
         } else {
             setInterfaceImplInternal(meta, impl);
@@ -1270,12 +1318,13 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
         ClassMetaData[] mapped = null;
         if (vals != null) {
             if (_locking) {
+                // copy the implementors rather than load their metadata while
+                // holding the monitor of the collection
                 synchronized (vals) {
-                    mapped = getImplementorMetaDatasInternal(vals, envLoader, mustExist);
+                    vals = new ArrayList<>(vals);
                 }
-            } else {
-                mapped = getImplementorMetaDatasInternal(vals, envLoader, mustExist);
             }
+            mapped = getImplementorMetaDatasInternal(vals, envLoader, mustExist);
         }
 
         if (mapped == null && mustExist)
@@ -1346,8 +1395,11 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
         if (cls == null)
             return null;
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 return addPersistenceAwareInternal(cls);
+            } finally {
+                unlock();
             }
         } else {
             return addPersistenceAwareInternal(cls);
@@ -1415,8 +1467,11 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
         if (!iface.isInterface())
             throw new MetaDataException(_loc.get("not-non-mapped", iface));
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 return addNonMappedInterfaceInternal(iface);
+            } finally {
+                unlock();
             }
         } else {
             return addNonMappedInterfaceInternal(iface);
@@ -1451,8 +1506,11 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
             if (_log.isTraceEnabled())
             _log.trace(_loc.get("clear-repos", this));
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 clearInternal();
+            } finally {
+                unlock();
             }
         } else {
             clearInternal();
@@ -1485,8 +1543,11 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
      */
     public Set<String> getPersistentTypeNames(boolean devpath, ClassLoader envLoader) {
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 return getPersistentTypeNamesInternal(devpath, envLoader);
+            } finally {
+                unlock();
             }
         } else {
             return getPersistentTypeNamesInternal(devpath, envLoader);
@@ -1528,8 +1589,11 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
      */
     public Collection<Class<?>> loadPersistentTypes(boolean devpath, ClassLoader envLoader, boolean mustExist) {
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 return loadPersistentTypesInternal(devpath, envLoader, mustExist);
+            } finally {
+                unlock();
             }
         } else {
             return loadPersistentTypesInternal(devpath, envLoader, mustExist);
@@ -1649,10 +1713,19 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
     /**
      * Updates our data structures with the latest registered classes.
      * 
-     * This method is synchronized to make sure that all data structures are fully updated
+     * This method locks the repository to make sure that all data structures are fully updated
      *  before other threads attempt to call this method
      */
-    synchronized Class<?>[] processRegisteredClasses(ClassLoader envLoader) {
+    Class<?>[] processRegisteredClasses(ClassLoader envLoader) {
+        lock();
+        try {
+            return processRegisteredClassesInternal(envLoader);
+        } finally {
+            unlock();
+        }
+    }
+
+    private Class<?>[] processRegisteredClassesInternal(ClassLoader envLoader) {
 
         Class<?>[] reg;
         /*Synchronize `_registered` cache to block MetaDataRepository.register() from adding
@@ -1745,10 +1818,11 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
         if (_log.isTraceEnabled())
             _log.trace(_loc.get("process-registered", cls));
 
-        // update subclass lists; synchronize on this because accessing _metas
+        // update subclass lists; lock the repository because accessing _metas
         // requires it
         Class<?> leastDerived = cls;
-        synchronized (this) {
+        lock();
+        try {
             ClassMetaData meta;
             for (Class<?> anc = cls; (anc = PCRegistry.getPersistentSuperclass(anc)) != null;) {
                 addToCollection(_subs, anc, cls, true);
@@ -1757,6 +1831,8 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
                     meta.clearSubclassCache();
                 leastDerived = anc;
             }
+        } finally {
+            unlock();
         }
 
         // update oid mappings if this is a base concrete class
@@ -1997,8 +2073,11 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
      */
     public QueryMetaData getQueryMetaData(Class<?> cls, String name, ClassLoader envLoader, boolean mustExist) {
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 return getQueryMetaDataInternal(cls, name, envLoader, mustExist);
+            } finally {
+                unlock();
             }
         } else {
             return getQueryMetaDataInternal(cls, name, envLoader, mustExist);
@@ -2072,8 +2151,11 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
      */
     public QueryMetaData[] getQueryMetaDatas() {
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 return _queries.values().toArray(new QueryMetaData[_queries.size()]);
+            } finally {
+                unlock();
             }
         } else {
             return _queries.values().toArray(new QueryMetaData[_queries.size()]);
@@ -2090,8 +2172,11 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
      */
     public QueryMetaData getCachedQueryMetaData(String name) {
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 return _queries.get(name);
+            } finally {
+                unlock();
             }
         } else {
             return _queries.get(name);
@@ -2103,10 +2188,13 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
      */
     public QueryMetaData addQueryMetaData(Class<?> cls, String name) {
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 QueryMetaData meta = newQueryMetaData(cls, name);
                 _queries.put(name, meta);
                 return meta;
+            } finally {
+                unlock();
             }
         }else{
             QueryMetaData meta = newQueryMetaData(cls, name);
@@ -2117,9 +2205,12 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
 
     public QueryMetaData addQueryMetaData(QueryMetaData meta) {
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 final QueryMetaData queryMetaData = _queries.get(meta.getName());
                 return queryMetaData != null ? queryMetaData : _queries.put(meta.getName(), meta);
+            } finally {
+                unlock();
             }
         } else {
             final QueryMetaData queryMetaData = _queries.get(meta.getName());
@@ -2144,8 +2235,11 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
         if (meta == null)
             return false;
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 return _queries.remove(meta.getName()) != null;
+            } finally {
+                unlock();
             }
         } else {
             return _queries.remove(meta.getName()) != null;
@@ -2157,10 +2251,13 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
      */
     public boolean removeQueryMetaData(Class<?> cls, String name) {
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 if (name == null)
                     return false;
                 return _queries.remove(name) != null;
+            } finally {
+                unlock();
             }
         } else {
             if (name == null)
@@ -2197,8 +2294,11 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
      */
     public SequenceMetaData getSequenceMetaData(String name, ClassLoader envLoader, boolean mustExist) {
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 return getSequenceMetaDataInternal(name, envLoader, mustExist);
+            } finally {
+                unlock();
             }
         } else {
             return getSequenceMetaDataInternal(name, envLoader, mustExist);
@@ -2274,8 +2374,11 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
      */
     public SequenceMetaData[] getSequenceMetaDatas() {
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 return _seqs.values().toArray(new SequenceMetaData[_seqs.size()]);
+            } finally {
+                unlock();
             }
         } else {
             return _seqs.values().toArray(new SequenceMetaData[_seqs.size()]);
@@ -2287,8 +2390,11 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
      */
     public SequenceMetaData getCachedSequenceMetaData(String name) {
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 return _seqs.get(name);
+            } finally {
+                unlock();
             }
         } else {
             return _seqs.get(name);
@@ -2300,10 +2406,13 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
      */
     public SequenceMetaData addSequenceMetaData(String name) {
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 SequenceMetaData meta = newSequenceMetaData(name);
                 _seqs.put(name, meta);
                 return meta;
+            } finally {
+                unlock();
             }
         } else {
             SequenceMetaData meta = newSequenceMetaData(name);
@@ -2326,8 +2435,11 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
         if (meta == null)
             return false;
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 return _seqs.remove(meta.getName()) != null;
+            } finally {
+                unlock();
             }
         } else {
             return _seqs.remove(meta.getName()) != null;
@@ -2341,8 +2453,11 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
         if (name == null)
             return false;
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 return _seqs.remove(name) != null;
+            } finally {
+                unlock();
             }
         } else {
             return _seqs.remove(name) != null;
@@ -2363,13 +2478,16 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
      */
     public void addSystemListener(Object listener) {
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 // copy to avoid issues with ListenerList and avoid unncessary
                 // locking on the list during runtime
                 LifecycleEventManager.ListenerList listeners = new LifecycleEventManager.ListenerList(_listeners);
                 listeners.add(listener);
                 _listeners = listeners;
                 _systemListenersActivated = true;
+            } finally {
+                unlock();
             }
         } else {
             LifecycleEventManager.ListenerList listeners = new LifecycleEventManager.ListenerList(_listeners);
@@ -2384,8 +2502,11 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
      */
     public boolean removeSystemListener(Object listener) {
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 return removeSystemListenerInternal(listener);
+            } finally {
+                unlock();
             }
         } else {
             return removeSystemListenerInternal(listener);
@@ -2417,8 +2538,11 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
     @Override
     public void close() {
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 closeInternal();
+            } finally {
+                unlock();
             }
         } else {
             closeInternal();
@@ -2469,8 +2593,11 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
      */
     public XMLMetaData getXMLMetaData(Class<?> cls) {
         if (_locking) {
-            synchronized (this) {
+            lock();
+            try {
                 return getXMLMetaDataInternal(cls);
+            } finally {
+                unlock();
             }
         } else {
             return getXMLMetaDataInternal(cls);
@@ -2503,8 +2630,11 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
     public XMLClassMetaData addXMLClassMetaData(Class<?> type) {
         XMLClassMetaData meta = newXMLClassMetaData(type);
         if(_locking){
-            synchronized(this){
+            lock();
+            try {
                 _xmlmetas.put(type, meta);
+            } finally {
+                unlock();
             }
         }else{
             _xmlmetas.put(type, meta);
@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Compact set of field indexes. The first 64 fields are kept in a single
+ * <code>long</code>, so that the set of a type with fewer fields is one
+ * small object, where a {@link BitSet} is two. Used for the field masks
+ * that are held per instance and are not handed out through the
+ * {@link BitSet} based APIs.
+ *
+ * @since 3.2.3
+ */
+public final class FieldSet
+    implements Cloneable, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // fields 0 to 63
+    private long _bits = 0L;
+
+    // fields from 64, null until one is set
+    private long[] _words = null;
+
+    public FieldSet() {
+    }
+
+    /**
+     * Constructor. Copies the fields of the given mask.
+     */
+    public FieldSet(BitSet fields) {
+        if (fields == null)
+            return;
+        for (int i = fields.nextSetBit(0); i >= 0;
+            i = fields.nextSetBit(i + 1))
+            set(i);
+    }
+
+    /**
+     * Whether the given field is in the set.
+     */
+    public boolean get(int field) {
+        if (field < 64)
+            return (_bits & (1L << field)) != 0;
+        int word = (field >> 6) - 1;
+        return _words != null && word < _words.length
+            && (_words[word] & (1L << field)) != 0;
+    }
+
+    /**
+     * Add the given field to the set.
+     */
+    public void set(int field) {
+        if (field < 64) {
+            _bits |= 1L << field;
+            return;
+        }
+        int word = (field >> 6) - 1;
+        if (_words == null)
+            _words = new long[word + 1];
+        else if (word >= _words.length)
+            _words = Arrays.copyOf(_words, word + 1);
+        _words[word] |= 1L << field;
+    }
+
+    /**
+     * Add or remove the given field.
+     */
+    public void set(int field, boolean value) {
+        if (value)
+            set(field);
+        else
+            clear(field);
+    }
+
+    /**
+     * Remove the given field from the set.
+     */
+    public void clear(int field) {
+        if (field < 64) {
+            _bits &= ~(1L << field);
+            return;
+        }
+        int word = (field >> 6) - 1;
+        if (_words != null && word < _words.length)
+            _words[word] &= ~(1L << field);
+    }
+
+    /**
+     * Remove all fields from the set.
+     */
+    public void clear() {
+        _bits = 0L;
+        _words = null;
+    }
+
+    /**
+     * Whether the set has no fields.
+     */
+    public boolean isEmpty() {
+        if (_bits != 0L)
+            return false;
+        if (_words != null)
+            for (long word : _words)
+                if (word != 0L)
+                    return false;
+        return true;
+    }
+
+    /**
+     * Return the index of the first field in the set at or after the given
+     * index, or -1 if there is none.
+     */
+    public int nextSetBit(int from) {
+        if (from < 64) {
+            long bits = _bits & (-1L << from);
+            if (bits != 0L)
+                return Long.numberOfTrailingZeros(bits);
+            from = 64;
+        }
+        if (_words == null)
+            return -1;
+        int word = (from >> 6) - 1;
+        if (word >= _words.length)
+            return -1;
+        long bits = _words[word] & (-1L << from);
+        while (true) {
+            if (bits != 0L)
+                return ((word + 1) << 6) + Long.numberOfTrailingZeros(bits);
+            if (++word == _words.length)
+                return -1;
+            bits = _words[word];
+        }
+    }
+
+    /**
+     * Return the number of fields in the set.
+     */
+    public int cardinality() {
+        int count = Long.bitCount(_bits);
+        if (_words != null)
+            for (long word : _words)
+                count += Long.bitCount(word);
+        return count;
+    }
+
+    /**
+     * Return the fields as a new {@link BitSet}.
+     */
+    public BitSet toBitSet() {
+        if (_words == null)
+            return BitSet.valueOf(new long[]{ _bits });
+        long[] words = new long[_words.length + 1];
+        words[0] = _bits;
+        System.arraycopy(_words, 0, words, 1, _words.length);
+        return BitSet.valueOf(words);
+    }
+
+    @Override
+    public FieldSet clone() {
+        try {
+            FieldSet clone = (FieldSet) super.clone();
+            if (_words != null)
+                clone._words = _words.clone();
+            return clone;
+        } catch (CloneNotSupportedException cnse) {
+            throw new InternalException(cnse);
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other == this)
+            return true;
+        if (!(other instanceof FieldSet))
+            return false;
+        FieldSet fields = (FieldSet) other;
+        if (_bits != fields._bits)
+            return false;
+        int len = Math.max(length(_words), length(fields._words));
+        for (int i = 0; i < len; i++)
+            if (word(_words, i) != word(fields._words, i))
+                return false;
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        long hash = _bits;
+        for (int i = 0, len = length(_words); i < len; i++)
+            hash ^= word(_words, i) * (i + 2);
+        return (int) (hash >> 32) ^ (int) hash;
+    }
+
+    @Override
+    public String toString() {
+        return toBitSet().toString();
+    }
+
+    private static int length(long[] words) {
+        return (words == null) ? 0 : words.length;
+    }
+
+    private static long word(long[] words, int i) {
+        return (words == null || i >= words.length) ? 0L : words[i];
+    }
+}
@@ -0,0 +1,563 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.util;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link CacheMap} whose hard references are split into independently
+ * locked stripes, each tracking its own recency order. Operations on a key
+ * only lock the stripe of that key, so concurrent cache hits on different
+ * keys do not serialize on a map-wide lock. When the cache is full, the
+ * least recently used entry of the stripe being written to is moved to the
+ * soft map, which gives an approximation of global LRU order for uniformly
+ * distributed keys. Pinning and soft overflow behave as in {@link CacheMap}.
+ *
+ * Changes to the map share its read lock, so that the holder of its
+ * {@link #writeLock} excludes all of them, as with {@link CacheMap}. The
+ * write lock does not block {@link #get}.
+ *
+ * @since 3.2.3
+ */
+public class StripedCacheMap
+    extends CacheMap {
+
+    private final Stripe[] _stripes;
+    private final boolean _lru;
+
+    // number of unpinned hard references
+    private final AtomicInteger _size = new AtomicInteger();
+    // number of pinned values (not including keys not mapped to values)
+    private final AtomicInteger _pinnedSize = new AtomicInteger();
+    private volatile int _max;
+
+    /**
+     * Create a non-LRU cache map with a size of 1000.
+     */
+    public StripedCacheMap() {
+        this(false, 1000);
+    }
+
+    /**
+     * Create a cache map with a size of 1000.
+     *
+     * @param lru if true, evict least recently used entries; otherwise
+     * evict in insertion order
+     */
+    public StripedCacheMap(boolean lru) {
+        this(lru, 1000);
+    }
+
+    /**
+     * Create a cache map with the given properties.
+     */
+    public StripedCacheMap(boolean lru, int max) {
+        this(lru, max, max / 2, .75F, 16);
+    }
+
+    /**
+     * Create a cache map with the given properties. The number of stripes
+     * is the given concurrency level or twice the number of available
+     * processors, whichever is larger, rounded up to a power of two.
+     */
+    public StripedCacheMap(boolean lru, int max, int size, float load,
+        int concurrencyLevel) {
+        super(false, 0, size, load, 1);
+        _lru = lru;
+        _max = (max < 0) ? Integer.MAX_VALUE : max;
+
+        int level = Math.max(concurrencyLevel,
+            2 * Runtime.getRuntime().availableProcessors());
+        int stripes = 1;
+        while (stripes < level && stripes < (1 << 16))
+            stripes <<= 1;
+        _stripes = new Stripe[stripes];
+        for (int i = 0; i < stripes; i++)
+            _stripes[i] = new Stripe(lru);
+    }
+
+    /**
+     * Return the stripe for the given key.
+     */
+    private Stripe stripeFor(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return _stripes[h & (_stripes.length - 1)];
+    }
+
+    /**
+     * Lock the stripe of the given key for a change to the map. Changes
+     * share the read lock of the map, so that they wait for the holder of
+     * the write lock.
+     */
+    private Stripe lockForChange(Object key) {
+        readLock();
+        Stripe stripe = stripeFor(key);
+        stripe.lock();
+        return stripe;
+    }
+
+    /**
+     * Release the locks taken by {@link #lockForChange}.
+     */
+    private void unlockForChange(Stripe stripe) {
+        stripe.unlock();
+        readUnlock();
+    }
+
+    /**
+     * Return the number of stripes.
+     */
+    public int getStripeCount() {
+        return _stripes.length;
+    }
+
+    @Override
+    public boolean isLRU() {
+        return _lru;
+    }
+
+    @Override
+    public void setCacheSize(int size) {
+        readLock();
+        try {
+            _max = (size < 0) ? Integer.MAX_VALUE : size;
+            for (Stripe stripe : _stripes) {
+                if (_size.get() <= _max)
+                    break;
+                stripe.lock();
+                try {
+                    while (_size.get() > _max && !stripe.map.isEmpty())
+                        evictEldest(stripe, null);
+                } finally {
+                    stripe.unlock();
+                }
+            }
+        } finally {
+            readUnlock();
+        }
+    }
+
+    @Override
+    public int getCacheSize() {
+        int max = _max;
+        return (max == Integer.MAX_VALUE) ? -1 : max;
+    }
+
+    @Override
+    public boolean pin(Object key) {
+        Stripe stripe = lockForChange(key);
+        try {
+            if (pinnedMap.containsKey(key))
+                return pinnedMap.get(key) != null;
+
+            Object val = stripe.map.remove(key);
+            if (val != null)
+                _size.decrementAndGet();
+            else
+                val = remove(softMap, key);
+
+            put(pinnedMap, key, val);
+            if (val != null) {
+                _pinnedSize.incrementAndGet();
+                return true;
+            }
+            return false;
+        } finally {
+            unlockForChange(stripe);
+        }
+    }
+
+    @Override
+    public boolean unpin(Object key) {
+        Stripe stripe = lockForChange(key);
+        try {
+            Object val = remove(pinnedMap, key);
+            if (val != null) {
+                _pinnedSize.decrementAndGet();
+                put(key, val);
+                return true;
+            }
+            return false;
+        } finally {
+            unlockForChange(stripe);
+        }
+    }
+
+    @Override
+    public Object get(Object key) {
+        Stripe stripe = stripeFor(key);
+        stripe.lock();
+        try {
+            Object val = stripe.map.get(key);
+            if (val != null)
+                return val;
+
+            val = pinnedMap.get(key);
+            if (val != null || _max == 0)
+                return val;
+
+            // promote soft hits back into the hard references
+            val = softMap.get(key);
+            if (val != null && remove(softMap, key) != null
+                && !pinnedMap.containsKey(key)) {
+                stripe.map.put(key, val);
+                if (_size.incrementAndGet() > _max)
+                    evict(stripe, key);
+            }
+            return val;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public Object put(Object key, Object value) {
+        Stripe stripe = lockForChange(key);
+        try {
+            // if the key is pinned, just interact directly with the pinned map
+            Object val;
+            if (pinnedMap.containsKey(key)) {
+                val = put(pinnedMap, key, value);
+                if (val == null)
+                    _pinnedSize.incrementAndGet();
+                else
+                    entryRemoved(key, val, false);
+                entryAdded(key, value);
+                return val;
+            }
+
+            // if no hard refs, don't put anything
+            if (_max == 0)
+                return null;
+
+            val = stripe.map.put(key, value);
+            if (val == null) {
+                val = remove(softMap, key);
+                if (_size.incrementAndGet() > _max)
+                    evict(stripe, key);
+            }
+            if (val != null)
+                entryRemoved(key, val, false);
+            entryAdded(key, value);
+            return val;
+        } finally {
+            unlockForChange(stripe);
+        }
+    }
+
+    @Override
+    public Object remove(Object key) {
+        Stripe stripe = lockForChange(key);
+        try {
+            // re-put pinned keys with null value; we still want key pinned
+            Object val;
+            if (pinnedMap.containsKey(key)) {
+                val = put(pinnedMap, key, null);
+                if (val != null) {
+                    _pinnedSize.decrementAndGet();
+                    entryRemoved(key, val, false);
+                }
+                return val;
+            }
+
+            val = stripe.map.remove(key);
+            if (val != null)
+                _size.decrementAndGet();
+            else
+                val = softMap.remove(key);
+            if (val != null)
+                entryRemoved(key, val, false);
+            return val;
+        } finally {
+            unlockForChange(stripe);
+        }
+    }
+
+    /**
+     * Move an entry other than the given key out of the hard references
+     * after the size limit was exceeded. The given stripe is locked by the
+     * caller; other stripes are only tried without blocking, so the limit
+     * may be exceeded briefly under contention.
+     */
+    private void evict(Stripe stripe, Object key) {
+        if (evictEldest(stripe, key))
+            return;
+        for (Stripe other : _stripes) {
+            if (_size.get() <= _max)
+                return;
+            if (other == stripe || !other.tryLock())
+                continue;
+            try {
+                if (evictEldest(other, null))
+                    return;
+            } finally {
+                other.unlock();
+            }
+        }
+    }
+
+    /**
+     * Move the eldest entry of the given locked stripe, unless it is the
+     * given key, to the soft map. Return false if there was nothing to
+     * evict.
+     */
+    private boolean evictEldest(Stripe stripe, Object key) {
+        Iterator<Map.Entry<Object, Object>> itr =
+            stripe.map.entrySet().iterator();
+        if (!itr.hasNext())
+            return false;
+        Map.Entry<Object, Object> eldest = itr.next();
+        if (key != null && key.equals(eldest.getKey()))
+            return false;
+
+        itr.remove();
+        _size.decrementAndGet();
+        cacheMapOverflowRemoved(eldest.getKey(), eldest.getValue());
+        return true;
+    }
+
+    /**
+     * Removes pinned objects as well as unpinned ones.
+     */
+    @Override
+    public void clear() {
+        writeLock();
+        for (Stripe stripe : _stripes)
+            stripe.lock();
+        try {
+            notifyEntryRemovals(pinnedMap.entrySet());
+            pinnedMap.clear();
+            _pinnedSize.set(0);
+
+            for (Stripe stripe : _stripes) {
+                notifyEntryRemovals(stripe.map.entrySet());
+                stripe.map.clear();
+            }
+            _size.set(0);
+
+            notifyEntryRemovals(softMap.entrySet());
+            softMap.clear();
+        } finally {
+            for (int i = _stripes.length - 1; i >= 0; i--)
+                _stripes[i].unlock();
+            writeUnlock();
+        }
+    }
+
+    private void notifyEntryRemovals(Set<?> set) {
+        Map.Entry<?, ?> entry;
+        for (Object o : set) {
+            entry = (Map.Entry<?, ?>) o;
+            if (entry.getValue() != null)
+                entryRemoved(entry.getKey(), entry.getValue(), false);
+        }
+    }
+
+    @Override
+    public int size() {
+        return _pinnedSize.get() + _size.get() + softMap.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        Stripe stripe = stripeFor(key);
+        stripe.lock();
+        try {
+            if (stripe.map.containsKey(key))
+                return true;
+        } finally {
+            stripe.unlock();
+        }
+        return pinnedMap.get(key) != null || softMap.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object val) {
+        for (Stripe stripe : _stripes) {
+            stripe.lock();
+            try {
+                if (stripe.map.containsValue(val))
+                    return true;
+            } finally {
+                stripe.unlock();
+            }
+        }
+        return pinnedMap.containsValue(val) || softMap.containsValue(val);
+    }
+
+    /**
+     * Return a snapshot of the current entries with non-null values.
+     */
+    private List<Map.Entry<Object, Object>> snapshot() {
+        List<Map.Entry<Object, Object>> entries = new ArrayList<>(size());
+        addEntries(entries, pinnedMap);
+        for (Stripe stripe : _stripes) {
+            stripe.lock();
+            try {
+                addEntries(entries, stripe.map);
+            } finally {
+                stripe.unlock();
+            }
+        }
+        addEntries(entries, softMap);
+        return entries;
+    }
+
+    private static void addEntries(List<Map.Entry<Object, Object>> entries,
+        Map<?, ?> map) {
+        Map.Entry<?, ?> entry;
+        for (Object o : map.entrySet()) {
+            entry = (Map.Entry<?, ?>) o;
+            if (entry.getValue() != null)
+                entries.add(new AbstractMap.SimpleImmutableEntry<Object,
+                    Object>(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    @Override
+    public Set keySet() {
+        return new AbstractSet() {
+            @Override
+            public int size() {
+                return StripedCacheMap.this.size();
+            }
+
+            @Override
+            public Iterator iterator() {
+                return new SnapshotIterator(SnapshotIterator.KEY);
+            }
+        };
+    }
+
+    @Override
+    public Collection values() {
+        return new AbstractCollection() {
+            @Override
+            public int size() {
+                return StripedCacheMap.this.size();
+            }
+
+            @Override
+            public Iterator iterator() {
+                return new SnapshotIterator(SnapshotIterator.VALUE);
+            }
+        };
+    }
+
+    @Override
+    public Set entrySet() {
+        return new AbstractSet() {
+            @Override
+            public int size() {
+                return StripedCacheMap.this.size();
+            }
+
+            @Override
+            public boolean add(Object o) {
+                Map.Entry entry = (Map.Entry) o;
+                put(entry.getKey(), entry.getValue());
+                return true;
+            }
+
+            @Override
+            public Iterator iterator() {
+                return new SnapshotIterator(SnapshotIterator.ENTRY);
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "StripedCacheMap:" + snapshot() + "::" + softMap.toString();
+    }
+
+    /**
+     * Hard references of one stripe, guarded by the stripe itself.
+     */
+    private static class Stripe
+        extends ReentrantLock {
+
+        private static final long serialVersionUID = 1L;
+
+        final LinkedHashMap<Object, Object> map;
+
+        Stripe(boolean lru) {
+            map = new LinkedHashMap<>(16, .75F, lru);
+        }
+    }
+
+    /**
+     * Iterator over a snapshot of the entries. Removal removes the last
+     * returned key from the map.
+     */
+    private class SnapshotIterator
+        implements Iterator {
+
+        public static final int ENTRY = 0;
+        public static final int KEY = 1;
+        public static final int VALUE = 2;
+
+        private final Iterator<Map.Entry<Object, Object>> _itr;
+        private final int _type;
+        private Map.Entry<Object, Object> _last = null;
+
+        public SnapshotIterator(int type) {
+            _type = type;
+            _itr = snapshot().iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _itr.hasNext();
+        }
+
+        @Override
+        public Object next() {
+            _last = _itr.next();
+            switch (_type) {
+                case KEY:
+                    return _last.getKey();
+                case VALUE:
+                    return _last.getValue();
+                default:
+                    return _last;
+            }
+        }
+
+        @Override
+        public void remove() {
+            if (_last == null)
+                throw new IllegalStateException();
+            StripedCacheMap.this.remove(_last.getKey());
+            _last = null;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.datacache;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.event.RemoteCommitEventManager;
+import org.apache.openjpa.lib.log.Log;
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.meta.MetaDataRepository;
+import org.apache.openjpa.util.LongId;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Tests that invalidations of a striped {@link ConcurrentDataCache} wait
+ * for the holder of its write lock, as the store manager's get, version
+ * compare and put sequence relies on.
+ */
+public class ConcurrentDataCacheStripedTest {
+
+    private ClassMetaData _meta;
+    private ConcurrentDataCache _cache;
+
+    @Before
+    public void setUp() {
+        MetaDataRepository repos = Mockito.mock(MetaDataRepository.class);
+        _meta = DataCachePCDataCodecTest.mockMetaData(repos,
+            DataCachePCDataCodecTest.Entity.class, 2);
+
+        OpenJPAConfiguration conf = Mockito.mock(OpenJPAConfiguration.class);
+        Mockito.when(conf.getLog(Mockito.anyString()))
+            .thenReturn(Mockito.mock(Log.class));
+        Mockito.when(conf.getRemoteCommitEventManager())
+            .thenReturn(Mockito.mock(RemoteCommitEventManager.class));
+
+        _cache = new ConcurrentDataCache();
+        _cache.setName("test");
+        _cache.setStriped(true);
+        _cache.setConfiguration(conf);
+        _cache.initialize(Mockito.mock(DataCacheManager.class));
+        _cache.put(newData(1, 1));
+    }
+
+    @After
+    public void tearDown() {
+        _cache.close();
+    }
+
+    @Test
+    public void removeWaitsForWriteLock() throws Exception {
+        assertInvalidationWaits(new Thread(() -> _cache.remove(oid(1))));
+    }
+
+    @Test
+    public void removeAllWaitsForWriteLock() throws Exception {
+        assertInvalidationWaits(new Thread(() -> _cache.removeAll
+            (DataCachePCDataCodecTest.Entity.class, false)));
+    }
+
+    @Test
+    public void clearWaitsForWriteLock() throws Exception {
+        assertInvalidationWaits(new Thread(() -> _cache.clear()));
+    }
+
+    /**
+     * Start the given invalidation between the get and the put of a
+     * version 1 instance that is being replaced under the write lock, and
+     * assert that it only runs once the lock is released.
+     */
+    private void assertInvalidationWaits(Thread invalidation)
+        throws Exception {
+        _cache.writeLock();
+        try {
+            DataCachePCData cached = _cache.get(oid(1));
+            Assert.assertEquals(Integer.valueOf(1), cached.getVersion());
+
+            invalidation.start();
+            awaitBlocked(invalidation);
+            _cache.put(newData(1, 1));
+        } finally {
+            _cache.writeUnlock();
+        }
+        invalidation.join(TimeUnit.SECONDS.toMillis(10));
+        Assert.assertFalse(invalidation.isAlive());
+        Assert.assertNull(_cache.get(oid(1)));
+    }
+
+    /**
+     * Wait until the given thread blocks, or fail if it finishes first.
+     */
+    private static void awaitBlocked(Thread thread)
+        throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < end) {
+            switch (thread.getState()) {
+                case WAITING:
+                case TIMED_WAITING:
+                case BLOCKED:
+                    return;
+                case TERMINATED:
+                    Assert.fail("invalidation did not wait for the write lock");
+                default:
+                    Thread.sleep(1);
+            }
+        }
+        Assert.fail("invalidation did not start");
+    }
+
+    private static LongId oid(long id) {
+        return new LongId(DataCachePCDataCodecTest.Entity.class, id);
+    }
+
+    private DataCachePCDataImpl newData(long id, int version) {
+        DataCachePCDataImpl data = new DataCachePCDataImpl(oid(id), _meta,
+            "test");
+        data.setData(0, "value " + id);
+        data.setVersion(version);
+        return data;
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.datacache;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.openjpa.kernel.AbstractPCData;
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.meta.FieldMetaData;
+import org.apache.openjpa.meta.MetaDataRepository;
+import org.apache.openjpa.util.Id;
+import org.apache.openjpa.util.IntId;
+import org.apache.openjpa.util.LongId;
+import org.apache.openjpa.util.OpenJPAId;
+import org.apache.openjpa.util.StringId;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class DataCachePCDataCodecTest {
+
+    private MetaDataRepository _repos;
+    private ClassMetaData _meta;
+    private ClassMetaData _embedMeta;
+    private DataCachePCDataCodec _codec;
+
+    @Before
+    public void setUp() {
+        _repos = Mockito.mock(MetaDataRepository.class);
+        _meta = mockMetaData(_repos, Entity.class, 3);
+        _embedMeta = mockMetaData(_repos, Embed.class, 2);
+        _codec = new DataCachePCDataCodec(_repos, "test");
+    }
+
+    static ClassMetaData mockMetaData(MetaDataRepository repos,
+        Class<?> type, int fields) {
+        ClassMetaData meta = Mockito.mock(ClassMetaData.class);
+        Mockito.when(meta.getDescribedType()).thenReturn((Class) type);
+        Mockito.when(meta.getFields()).thenReturn(new FieldMetaData[fields]);
+        Mockito.when(repos.getMetaData(type, null, true)).thenReturn(meta);
+        return meta;
+    }
+
+    @Test
+    public void roundTripsPrimitiveWrappers() {
+        assertRoundTrip(null);
+        assertRoundTrip(Boolean.TRUE);
+        assertRoundTrip(Boolean.FALSE);
+        assertRoundTrip((byte) -7);
+        assertRoundTrip((short) 1234);
+        assertRoundTrip('x');
+        assertRoundTrip(Integer.MIN_VALUE);
+        assertRoundTrip(Integer.MAX_VALUE);
+        assertRoundTrip(Long.MIN_VALUE);
+        assertRoundTrip(-1L);
+        assertRoundTrip(3.25f);
+        assertRoundTrip(Float.NaN);
+        assertRoundTrip(-0.0d);
+        assertRoundTrip(Double.MAX_VALUE);
+    }
+
+    @Test
+    public void roundTripsStringsAndNumbers() {
+        assertRoundTrip("");
+        assertRoundTrip("héllo 世界");
+        assertRoundTrip(new BigDecimal("-12345678901234567890.0042"));
+        assertRoundTrip(new BigInteger("-98765432109876543210"));
+    }
+
+    @Test
+    public void roundTripsTemporalTypes() {
+        assertRoundTrip(new Date(1234567890123L));
+        assertRoundTrip(new java.sql.Date(1234567890123L));
+        assertRoundTrip(new Time(45296000L));
+        Timestamp ts = new Timestamp(1234567890123L);
+        ts.setNanos(123456789);
+        assertRoundTrip(ts);
+    }
+
+    @Test
+    public void roundTripsArraysCollectionsAndMaps() {
+        byte[] bytes = new byte[]{ 1, 2, 3, -1 };
+        Assert.assertArrayEquals(bytes, (byte[]) roundTrip(bytes));
+
+        Object[] arr = new Object[]{ 1, "two", null, 3L };
+        Assert.assertArrayEquals(arr, (Object[]) roundTrip(arr));
+
+        AbstractPCData.ProxyDataList list =
+            new AbstractPCData.ProxyDataList(3);
+        list.add("a");
+        list.add(2);
+        list.add(null);
+        list.nextSequence = 7;
+        AbstractPCData.ProxyDataList copy =
+            (AbstractPCData.ProxyDataList) roundTrip(list);
+        Assert.assertEquals(list, copy);
+        Assert.assertEquals(7, copy.nextSequence);
+
+        Map<Object, Object> map = new HashMap<>();
+        map.put("a", 1);
+        map.put(2L, null);
+        assertRoundTrip(map);
+        Assert.assertSame(Collections.EMPTY_MAP,
+            roundTrip(Collections.EMPTY_MAP));
+    }
+
+    @Test
+    public void roundTripsObjectIds() {
+        assertRoundTripId(new LongId(Entity.class, 42L, false));
+        assertRoundTripId(new IntId(Entity.class, -5, true));
+        assertRoundTripId(new StringId(Entity.class, "key", false));
+        assertRoundTripId(new Id(Entity.class, 99L, true));
+    }
+
+    @Test
+    public void roundTripsSerializableValues() {
+        assertRoundTrip(UUID.fromString("123e4567-e89b-12d3-a456-426614174000"));
+        assertRoundTrip(Arrays.asList("a", "b"));
+    }
+
+    @Test
+    public void roundTripsEmbeddedData() {
+        DataCachePCDataImpl embed = new DataCachePCDataImpl(
+            new LongId(Embed.class, 1L), _embedMeta, "test");
+        embed.setData(0, "street");
+        embed.setData(1, 12);
+
+        DataCachePCDataImpl copy = (DataCachePCDataImpl) roundTrip(embed);
+        Assert.assertEquals(Embed.class, copy.getType());
+        Assert.assertEquals(embed.getId(), copy.getId());
+        Assert.assertEquals("street", copy.getData(0));
+        Assert.assertEquals(12, copy.getData(1));
+    }
+
+    @Test
+    public void roundTripsFieldStates() {
+        DataCachePCDataImpl data = new DataCachePCDataImpl(
+            new LongId(Entity.class, 1L), _meta, "test", 1000L);
+        data.setVersion(3);
+        data.setImplData("impl");
+        data.setData(0, "loaded");
+        data.setIntermediate(1, 55L);
+        data.setImplData(2, "field impl");
+
+        DataCachePCDataImpl copy = decode(data);
+        Assert.assertEquals(1000L, copy.getTimeOut());
+        Assert.assertEquals(3, copy.getVersion());
+        Assert.assertEquals("impl", copy.getImplData());
+        Assert.assertTrue(copy.isLoaded(0));
+        Assert.assertEquals("loaded", copy.getData(0));
+        Assert.assertFalse(copy.isLoaded(1));
+        Assert.assertEquals(55L, copy.getIntermediate(1));
+        Assert.assertFalse(copy.isLoaded(2));
+        Assert.assertEquals("field impl", copy.getImplData(2));
+    }
+
+    @Test
+    public void doesNotEncodeUnserializableValues() {
+        DataCachePCDataImpl data = new DataCachePCDataImpl(
+            new LongId(Entity.class, 1L), _meta, "test");
+        data.setData(0, new Object());
+        Assert.assertNull(_codec.encode(data));
+    }
+
+    private void assertRoundTrip(Object val) {
+        Assert.assertEquals(val, roundTrip(val));
+    }
+
+    private void assertRoundTripId(OpenJPAId oid) {
+        Object copy = roundTrip(oid);
+        Assert.assertEquals(oid.getClass(), copy.getClass());
+        Assert.assertEquals(oid, copy);
+        Assert.assertEquals(oid.hasSubclasses(),
+            ((OpenJPAId) copy).hasSubclasses());
+    }
+
+    /**
+     * Store the given value in a field of an entity's data and return the
+     * value of that field after a round trip through the codec.
+     */
+    private Object roundTrip(Object val) {
+        DataCachePCDataImpl data = new DataCachePCDataImpl(
+            new LongId(Entity.class, 1L), _meta, "test");
+        data.setData(1, val);
+        DataCachePCDataImpl copy = decode(data);
+        Assert.assertTrue(copy.isLoaded(1));
+        return copy.getData(1);
+    }
+
+    private DataCachePCDataImpl decode(DataCachePCDataImpl data) {
+        byte[] bytes = _codec.encode(data);
+        Assert.assertNotNull(bytes);
+        return (DataCachePCDataImpl) _codec.decode(data.getId(), bytes);
+    }
+
+    public static class Entity {
+    }
+
+    public static class Embed {
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.datacache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.event.RemoteCommitEventManager;
+import org.apache.openjpa.lib.log.Log;
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.meta.MetaDataRepository;
+import org.apache.openjpa.util.LongId;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class OffHeapDataCacheTest {
+
+    private static final int SEGMENTS = 4;
+    private static final int PER_SEGMENT = 2;
+
+    private ClassMetaData _meta;
+    private OffHeapDataCache _cache;
+    private int _entryLength;
+    private final List<Object> _evicted = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        MetaDataRepository repos = Mockito.mock(MetaDataRepository.class);
+        _meta = DataCachePCDataCodecTest.mockMetaData(repos,
+            DataCachePCDataCodecTest.Entity.class, 3);
+        _entryLength = new DataCachePCDataCodec(repos, "test")
+            .encode(newData(0)).length;
+
+        OpenJPAConfiguration conf = Mockito.mock(OpenJPAConfiguration.class);
+        Mockito.when(conf.getLog(Mockito.anyString()))
+            .thenReturn(Mockito.mock(Log.class));
+        Mockito.when(conf.getRemoteCommitEventManager())
+            .thenReturn(Mockito.mock(RemoteCommitEventManager.class));
+        Mockito.when(conf.getMetaDataRepositoryInstance()).thenReturn(repos);
+
+        _cache = new OffHeapDataCache();
+        _cache.setName("test");
+        _cache.setSegments(SEGMENTS);
+        _cache.setCapacity((long) SEGMENTS * PER_SEGMENT * _entryLength);
+        _cache.setConfiguration(conf);
+        _cache.initialize(Mockito.mock(DataCacheManager.class));
+        _cache.addExpirationListener(event -> {
+            if (event.getExpired())
+                _evicted.add(event.getKey());
+        });
+    }
+
+    @After
+    public void tearDown() {
+        _cache.close();
+    }
+
+    @Test
+    public void readsBackCachedData() {
+        _cache.put(newData(1));
+        DataCachePCData data = _cache.get(oid(1));
+        Assert.assertNotNull(data);
+        Assert.assertEquals("value 001", data.getData(0));
+        Assert.assertEquals(1L, data.getData(1));
+        Assert.assertNull(_cache.get(oid(2)));
+    }
+
+    @Test
+    public void evictsOldestSegmentWhenFull() {
+        int count = SEGMENTS * PER_SEGMENT;
+        for (int i = 0; i < count; i++)
+            _cache.put(newData(i));
+        for (int i = 0; i < count; i++)
+            Assert.assertTrue(String.valueOf(i), _cache.contains(oid(i)));
+        Assert.assertTrue(_evicted.isEmpty());
+
+        _cache.put(newData(count));
+        Assert.assertEquals(PER_SEGMENT, _evicted.size());
+        for (int i = 0; i < PER_SEGMENT; i++) {
+            Assert.assertTrue(_evicted.contains(oid(i)));
+            Assert.assertNull(_cache.get(oid(i)));
+        }
+        for (int i = PER_SEGMENT; i <= count; i++)
+            Assert.assertNotNull(String.valueOf(i), _cache.get(oid(i)));
+    }
+
+    @Test
+    public void replacingDataDoesNotEvict() {
+        _cache.put(newData(1));
+        DataCachePCDataImpl data = newData(1);
+        data.setData(0, "changed");
+        _cache.put(data);
+        Assert.assertEquals("changed", _cache.get(oid(1)).getData(0));
+        Assert.assertTrue(_evicted.isEmpty());
+    }
+
+    @Test
+    public void limitsNumberOfInstances() {
+        _cache.setCacheSize(3);
+        for (int i = 0; i < 10; i++)
+            _cache.put(newData(i));
+
+        int cached = 0;
+        for (int i = 0; i < 10; i++)
+            if (_cache.contains(oid(i)))
+                cached++;
+        Assert.assertTrue(String.valueOf(cached), cached > 0 && cached <= 3);
+        Assert.assertNotNull(_cache.get(oid(9)));
+    }
+
+    @Test
+    public void skipsDataLargerThanSegment() {
+        DataCachePCDataImpl data = newData(1);
+        data.setData(2, new byte[PER_SEGMENT * _entryLength]);
+        _cache.put(data);
+        Assert.assertNull(_cache.get(oid(1)));
+        Assert.assertEquals(0, _cache.getAllocatedBytes());
+    }
+
+    @Test
+    public void pinnedDataIsNotEvicted() {
+        _cache.put(newData(0));
+        Assert.assertTrue(_cache.pin(oid(0)));
+        for (int i = 1; i <= SEGMENTS * PER_SEGMENT * 2; i++)
+            _cache.put(newData(i));
+        Assert.assertNotNull(_cache.get(oid(0)));
+        Assert.assertFalse(_evicted.contains(oid(0)));
+    }
+
+    @Test
+    public void allocatesSegmentsLazily() {
+        long segment = PER_SEGMENT * _entryLength;
+        Assert.assertEquals(0, _cache.getAllocatedBytes());
+        _cache.put(newData(0));
+        Assert.assertEquals(segment, _cache.getAllocatedBytes());
+        for (int i = 1; i < SEGMENTS * PER_SEGMENT; i++)
+            _cache.put(newData(i));
+        Assert.assertEquals(SEGMENTS * segment, _cache.getAllocatedBytes());
+    }
+
+    @Test
+    public void releasesMemoryOnClear() {
+        for (int i = 0; i < SEGMENTS * PER_SEGMENT; i++)
+            _cache.put(newData(i));
+        _cache.clear();
+        Assert.assertEquals(0, _cache.getAllocatedBytes());
+        Assert.assertNull(_cache.get(oid(0)));
+
+        _cache.put(newData(0));
+        Assert.assertNotNull(_cache.get(oid(0)));
+        Assert.assertEquals(PER_SEGMENT * _entryLength,
+            _cache.getAllocatedBytes());
+    }
+
+    @Test
+    public void releasesMemoryOnClose() {
+        for (int i = 0; i < SEGMENTS * PER_SEGMENT; i++)
+            _cache.put(newData(i));
+        _cache.close();
+        Assert.assertTrue(_cache.isClosed());
+        Assert.assertEquals(0, _cache.getAllocatedBytes());
+        Assert.assertNull(_cache.get(oid(0)));
+    }
+
+    private static LongId oid(long id) {
+        return new LongId(DataCachePCDataCodecTest.Entity.class, id);
+    }
+
+    /**
+     * Data of a fixed encoded length for the instance with the given id.
+     */
+    private DataCachePCDataImpl newData(long id) {
+        DataCachePCDataImpl data = new DataCachePCDataImpl(oid(id), _meta,
+            "test");
+        data.setData(0, String.format("value %03d", id));
+        data.setData(1, id);
+        return data;
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.event;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.meta.MetaDataRepository;
+import org.apache.openjpa.util.Id;
+import org.apache.openjpa.util.IntId;
+import org.apache.openjpa.util.LongId;
+import org.apache.openjpa.util.ObjectId;
+import org.apache.openjpa.util.StringId;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class BinaryRemoteCommitEventCodecTest {
+
+    @Test
+    public void roundTripsObjectIds() throws IOException {
+        List<Object> updates = Arrays.asList(new LongId(String.class, 1L),
+            new LongId(String.class, -123456789012L, false),
+            new IntId(Integer.class, 42), new StringId(String.class, "key"),
+            new Id(String.class, 7L), new ObjectId(String.class, "compound"));
+        RemoteCommitEvent event = new RemoteCommitEvent(
+            RemoteCommitEvent.PAYLOAD_OIDS_WITH_ADDS,
+            Collections.singletonList(new LongId(String.class, 2L)),
+            Collections.singletonList(String.class.getName()), updates,
+            Collections.emptyList());
+
+        RemoteCommitEvent decoded = roundTrip(
+            new BinaryRemoteCommitEventCodec(), event);
+        Assert.assertEquals(RemoteCommitEvent.PAYLOAD_OIDS_WITH_ADDS,
+            decoded.getPayloadType());
+        Assert.assertEquals(new ArrayList<>(event.getPersistedObjectIds()),
+            new ArrayList<>(decoded.getPersistedObjectIds()));
+        Assert.assertEquals(new ArrayList<>(event.getPersistedTypeNames()),
+            new ArrayList<>(decoded.getPersistedTypeNames()));
+        Assert.assertEquals(updates,
+            new ArrayList<>(decoded.getUpdatedObjectIds()));
+        Assert.assertFalse(((LongId) new ArrayList<>(
+            decoded.getUpdatedObjectIds()).get(1)).hasSubclasses());
+        Assert.assertTrue(decoded.getDeletedObjectIds().isEmpty());
+    }
+
+    @Test
+    public void roundTripsExtents() throws IOException {
+        RemoteCommitEvent event = new RemoteCommitEvent(
+            RemoteCommitEvent.PAYLOAD_EXTENTS, null,
+            Collections.singletonList("a.B"), Arrays.asList("a.B", "a.C"),
+            Collections.singletonList("a.C"));
+
+        RemoteCommitEvent decoded = roundTrip(
+            new BinaryRemoteCommitEventCodec(), event);
+        Assert.assertEquals(Arrays.asList("a.B", "a.C"),
+            new ArrayList<>(decoded.getUpdatedTypeNames()));
+        Assert.assertEquals(Collections.singletonList("a.C"),
+            new ArrayList<>(decoded.getDeletedTypeNames()));
+    }
+
+    @Test
+    public void compressesLargeEvents() throws IOException {
+        List<Object> updates = new ArrayList<>();
+        for (long i = 0; i < 5000; i++)
+            updates.add(new LongId(String.class, i));
+        RemoteCommitEvent event = new RemoteCommitEvent(
+            RemoteCommitEvent.PAYLOAD_OIDS, null, null, updates, null);
+
+        BinaryRemoteCommitEventCodec codec = new BinaryRemoteCommitEventCodec();
+        byte[] compressed = codec.encode(event);
+        codec.setCompressionThreshold(-1);
+        byte[] plain = codec.encode(event);
+        Assert.assertTrue(compressed.length < plain.length);
+        Assert.assertTrue(plain.length
+            < new SerializingRemoteCommitEventCodec().encode(event).length);
+        Assert.assertEquals(updates, new ArrayList<>(
+            codec.decode(compressed).getUpdatedObjectIds()));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsUnknownVersion() throws IOException {
+        BinaryRemoteCommitEventCodec codec = new BinaryRemoteCommitEventCodec();
+        byte[] bytes = codec.encode(new RemoteCommitEvent(
+            RemoteCommitEvent.PAYLOAD_OIDS, null, null, null, null));
+        bytes[0] = BinaryRemoteCommitEventCodec.VERSION + 1;
+        codec.decode(bytes);
+    }
+
+    @Test
+    public void rejectsTruncatedEvents() throws IOException {
+        BinaryRemoteCommitEventCodec codec = new BinaryRemoteCommitEventCodec();
+        byte[] bytes = codec.encode(new RemoteCommitEvent(
+            RemoteCommitEvent.PAYLOAD_OIDS_WITH_ADDS,
+            Collections.singletonList(new LongId(String.class, 2L)),
+            Collections.singletonList(String.class.getName()),
+            Arrays.asList(new StringId(String.class, "key"),
+                new ObjectId(String.class, "compound")),
+            Collections.singletonList(new Id(String.class, 7L))));
+        for (int i = 0; i < bytes.length; i++)
+            assertRejected(codec, Arrays.copyOf(bytes, i));
+
+        codec.setCompressionThreshold(0);
+        bytes = codec.encode(new RemoteCommitEvent(
+            RemoteCommitEvent.PAYLOAD_OIDS, null, null,
+            Collections.singletonList(new LongId(String.class, 1L)), null));
+        for (int i = 0; i < bytes.length; i++)
+            assertRejected(codec, Arrays.copyOf(bytes, i));
+    }
+
+    @Test
+    public void rejectsOversizedCounts() throws IOException {
+        BinaryRemoteCommitEventCodec codec = new BinaryRemoteCommitEventCodec();
+        // dictionary size
+        assertRejected(codec, event(Integer.MAX_VALUE));
+        assertRejected(codec, event(3, 0));
+        // collection size
+        assertRejected(codec, event(0, RemoteCommitEvent.PAYLOAD_OIDS,
+            Integer.MAX_VALUE));
+        assertRejected(codec, event(0, RemoteCommitEvent.PAYLOAD_OIDS, 4, 0,
+            0, 0));
+        // serialized oid length
+        assertRejected(codec, event(0, RemoteCommitEvent.PAYLOAD_OIDS, 0, 1,
+            6, 1000, 0, 0));
+        // name index
+        assertRejected(codec, event(0, RemoteCommitEvent.PAYLOAD_OIDS, 1, 1,
+            0, 0));
+        // inflated length
+        assertRejected(codec, new byte[]{ BinaryRemoteCommitEventCodec.VERSION,
+            1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07 });
+    }
+
+    @Test
+    public void rejectsNegativeCounts() throws IOException {
+        BinaryRemoteCommitEventCodec codec = new BinaryRemoteCommitEventCodec();
+        assertRejected(codec, event(-1));
+        assertRejected(codec, event(0, RemoteCommitEvent.PAYLOAD_OIDS, -1));
+        assertRejected(codec, new byte[]{ BinaryRemoteCommitEventCodec.VERSION,
+            1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F });
+        // varint longer than an int
+        assertRejected(codec, new byte[]{ BinaryRemoteCommitEventCodec.VERSION,
+            0, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80,
+            (byte) 0x80, 0x01 });
+    }
+
+    @Test
+    public void rejectsClassesOutsideAllowList() throws IOException {
+        Gadget.read = false;
+        RemoteCommitEvent event = new RemoteCommitEvent(
+            RemoteCommitEvent.PAYLOAD_OIDS, null, null,
+            Collections.singletonList(new Gadget()), null);
+        assertRejected(new BinaryRemoteCommitEventCodec(),
+            new BinaryRemoteCommitEventCodec().encode(event));
+        assertRejected(new SerializingRemoteCommitEventCodec(),
+            new SerializingRemoteCommitEventCodec().encode(event));
+        Assert.assertFalse(Gadget.read);
+    }
+
+    @Test
+    public void allowsObjectIdClassesOfPersistentTypes() throws IOException {
+        AppId oid = new AppId();
+        oid.id = 7;
+        RemoteCommitEvent event = new RemoteCommitEvent(
+            RemoteCommitEvent.PAYLOAD_OIDS, null, null,
+            Arrays.asList(oid, new ObjectId(String.class, new java.util.Date(1L)),
+            new ObjectId(String.class, Thread.State.NEW)), null);
+
+        ClassMetaData meta = Mockito.mock(ClassMetaData.class);
+        Mockito.when(meta.getObjectIdType()).thenReturn((Class) AppId.class);
+        MetaDataRepository repos = Mockito.mock(MetaDataRepository.class);
+        Mockito.when(repos.getMetaDatas())
+            .thenReturn(new ClassMetaData[]{ meta });
+        OpenJPAConfiguration conf = Mockito.mock(OpenJPAConfiguration.class);
+        Mockito.when(conf.getMetaDataRepositoryInstance()).thenReturn(repos);
+
+        BinaryRemoteCommitEventCodec binary = new BinaryRemoteCommitEventCodec();
+        assertRejected(binary, binary.encode(event));
+        binary.setConfiguration(conf);
+        Assert.assertEquals(new ArrayList<>(event.getUpdatedObjectIds()),
+            new ArrayList<>(roundTrip(binary, event).getUpdatedObjectIds()));
+
+        SerializingRemoteCommitEventCodec java =
+            new SerializingRemoteCommitEventCodec();
+        assertRejected(java, java.encode(event));
+        java.setConfiguration(conf);
+        Assert.assertEquals(new ArrayList<>(event.getUpdatedObjectIds()),
+            new ArrayList<>(roundTrip(java, event).getUpdatedObjectIds()));
+    }
+
+    /**
+     * Records whether it was ever deserialized.
+     */
+    public static class Gadget implements Serializable {
+        private static final long serialVersionUID = 1L;
+        static boolean read;
+
+        private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+            read = true;
+            in.defaultReadObject();
+        }
+    }
+
+    /**
+     * Application identity class.
+     */
+    public static class AppId implements Serializable {
+        private static final long serialVersionUID = 1L;
+        public int id;
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof AppId && ((AppId) other).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id;
+        }
+    }
+
+    /**
+     * Uncompressed event bytes with the given values as variable-length
+     * ints.
+     */
+    private static byte[] event(int... values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(BinaryRemoteCommitEventCodec.VERSION);
+        out.writeByte(0);
+        for (int value : values)
+            BinaryRemoteCommitEventCodec.writeVarInt(out, value);
+        return bytes.toByteArray();
+    }
+
+    private static void assertRejected(RemoteCommitEventCodec codec,
+        byte[] bytes) {
+        try {
+            codec.decode(bytes);
+            Assert.fail("Decoded " + Arrays.toString(bytes));
+        } catch (IOException ioe) {
+            // expected
+        }
+    }
+
+    private static RemoteCommitEvent roundTrip(RemoteCommitEventCodec codec,
+        RemoteCommitEvent event) throws IOException {
+        return codec.decode(codec.encode(event));
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.event;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.lib.conf.Configuration;
+import org.apache.openjpa.lib.log.Log;
+import org.apache.openjpa.util.LongId;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Exchanges events between providers using the nio transport over the
+ * loopback interface.
+ */
+public class NIOTCPTransportTest {
+
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    private final List<TCPRemoteCommitProvider> _providers = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for (TCPRemoteCommitProvider provider : _providers)
+            provider.close();
+    }
+
+    @Test
+    public void exchangesEvents() throws Exception {
+        int port1 = freePort();
+        int port2 = freePort();
+        BlockingQueue<RemoteCommitEvent> received1 = new LinkedBlockingQueue<>();
+        BlockingQueue<RemoteCommitEvent> received2 = new LinkedBlockingQueue<>();
+        TCPRemoteCommitProvider provider1 = newProvider(port1, port2, received1);
+        TCPRemoteCommitProvider provider2 = newProvider(port2, port1, received2);
+
+        for (long i = 0; i < 100; i++)
+            provider1.broadcast(event(i));
+        provider2.broadcast(event(-1));
+
+        for (long i = 0; i < 100; i++)
+            Assert.assertEquals(Collections.singletonList(oid(i)),
+                new ArrayList<>(poll(received2).getUpdatedObjectIds()));
+        Assert.assertEquals(Collections.singletonList(oid(-1)),
+            new ArrayList<>(poll(received1).getUpdatedObjectIds()));
+    }
+
+    @Test
+    public void readsFramesSplitAndCombinedAcrossWrites() throws Exception {
+        int port = freePort();
+        BlockingQueue<RemoteCommitEvent> received = new LinkedBlockingQueue<>();
+        newProvider(port, freePort(), received);
+
+        byte[] frame1 = frame(event(1));
+        byte[] frame2 = frame(event(2));
+        byte[] frame3 = frame(event(3));
+        try (Socket s = new Socket("localhost", port)) {
+            s.setTcpNoDelay(true);
+            OutputStream out = s.getOutputStream();
+            // a frame one byte at a time, with the header split
+            for (byte b : frame1) {
+                out.write(b);
+                out.flush();
+            }
+            // two frames in a single write
+            byte[] both = new byte[frame2.length + frame3.length];
+            System.arraycopy(frame2, 0, both, 0, frame2.length);
+            System.arraycopy(frame3, 0, both, frame2.length, frame3.length);
+            out.write(both);
+            out.flush();
+
+            for (long i = 1; i <= 3; i++)
+                Assert.assertEquals(Collections.singletonList(oid(i)),
+                    new ArrayList<>(poll(received).getUpdatedObjectIds()));
+        }
+    }
+
+    @Test
+    public void closesConnectionOnInvalidFrames() throws Exception {
+        int port = freePort();
+        newProvider(port, freePort(), new LinkedBlockingQueue<>());
+
+        // wrong magic number
+        assertClosed(port, new byte[]{ 1, 2, 3, 4, 1, 0, 0, 0, 0 });
+        // negative length
+        assertClosed(port, header(-1));
+        // oversized length
+        assertClosed(port, header(TCPRemoteCommitProvider.MAX_FRAME_LENGTH + 1));
+    }
+
+    @Test
+    public void reconnectsToRestartedPeer() throws Exception {
+        int port1 = freePort();
+        int port2 = freePort();
+        TCPRemoteCommitProvider provider1 = newProvider(port1, port2,
+            new LinkedBlockingQueue<>());
+        provider1.setRecoveryTimeMillis(0);
+        TCPRemoteCommitProvider.HostAddress peer = provider1._addresses.get(0);
+
+        // nothing listens on the peer's port yet
+        provider1.broadcast(event(1));
+        waitFor(() -> !peer._isAvailable);
+
+        BlockingQueue<RemoteCommitEvent> received = new LinkedBlockingQueue<>();
+        TCPRemoteCommitProvider provider2 = newProvider(port2, port1, received);
+        Assert.assertEquals(oid(2), broadcastUntilReceived(provider1, 2,
+            received));
+        Assert.assertTrue(peer._isAvailable);
+
+        // restart the peer; the next events reopen the connection
+        provider2.close();
+        _providers.remove(provider2);
+        received.clear();
+        newProvider(port2, port1, received);
+        Assert.assertEquals(oid(3), broadcastUntilReceived(provider1, 3,
+            received));
+    }
+
+    @Test
+    public void disconnectsPeerThatDoesNotRead() throws Exception {
+        int port1 = freePort();
+        try (ServerSocket server = new ServerSocket()) {
+            // a peer that accepts but never reads
+            server.setReceiveBufferSize(4096);
+            server.bind(new InetSocketAddress("localhost", 0));
+            TCPRemoteCommitProvider provider = newProvider(port1,
+                server.getLocalPort(), new LinkedBlockingQueue<>());
+            provider.setMaxQueuedBytes(64 * 1024);
+            TCPRemoteCommitProvider.HostAddress peer = provider._addresses.get(0);
+
+            List<Object> oids = new ArrayList<>();
+            for (long i = 0; i < 5000; i++)
+                oids.add(oid(i * 1000003));
+            RemoteCommitEvent big = new RemoteCommitEvent(
+                RemoteCommitEvent.PAYLOAD_OIDS, null, null, oids, null);
+
+            provider.broadcast(big);
+            try (Socket s = server.accept()) {
+                s.setReceiveBufferSize(4096);
+                // broadcasting must not wait for the stalled peer
+                long start = System.currentTimeMillis();
+                for (int i = 0; i < 1000 && peer._isAvailable; i++)
+                    provider.broadcast(big);
+                Assert.assertTrue(System.currentTimeMillis() - start
+                    < TIMEOUT_MILLIS);
+                waitFor(() -> !peer._isAvailable);
+
+                // the connection to the peer was dropped
+                s.setSoTimeout((int) TIMEOUT_MILLIS);
+                InputStream in = s.getInputStream();
+                byte[] buf = new byte[64 * 1024];
+                try {
+                    while (in.read(buf) >= 0)
+                        ;
+                } catch (IOException ioe) {
+                    // reset by the sender
+                }
+            }
+        }
+    }
+
+    @Test
+    public void sendsLegacyFormatByDefaultOnlyWhenBlocking() throws Exception {
+        TCPRemoteCommitProvider provider = new TCPRemoteCommitProvider();
+        Assert.assertTrue(provider.getLegacyProtocol());
+        provider.setTransport("nio");
+        Assert.assertFalse(provider.getLegacyProtocol());
+        provider.setLegacyProtocol(true);
+        Assert.assertTrue(provider.getLegacyProtocol());
+        provider.setTransport("blocking");
+        provider.setLegacyProtocol(false);
+        Assert.assertFalse(provider.getLegacyProtocol());
+    }
+
+    private TCPRemoteCommitProvider newProvider(int port, int peerPort,
+        BlockingQueue<RemoteCommitEvent> received) throws Exception {
+        Configuration conf = Mockito.mock(Configuration.class);
+        Mockito.when(conf.getLog(Mockito.anyString()))
+            .thenReturn(Mockito.mock(Log.class));
+        RemoteCommitEventManager mgr = Mockito.mock(
+            RemoteCommitEventManager.class);
+        Mockito.when(mgr.fireEvent(Mockito.any())).thenAnswer(inv -> {
+            received.add(inv.getArgument(0));
+            return new Exception[0];
+        });
+
+        TCPRemoteCommitProvider provider = new TCPRemoteCommitProvider();
+        provider.setConfiguration(conf);
+        provider.setRemoteCommitEventManager(mgr);
+        provider.setPort(port);
+        provider.setTransport("nio");
+        provider.setAddresses("127.0.0.1:" + peerPort);
+        provider.setRecoveryTimeMillis(100);
+        provider.endConfiguration();
+        _providers.add(provider);
+        return provider;
+    }
+
+    private static Object broadcastUntilReceived(
+        TCPRemoteCommitProvider provider, long id,
+        BlockingQueue<RemoteCommitEvent> received) throws Exception {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            provider.broadcast(event(id));
+            RemoteCommitEvent event = received.poll(100,
+                TimeUnit.MILLISECONDS);
+            if (event != null)
+                return event.getUpdatedObjectIds().iterator().next();
+        }
+        throw new AssertionError("No event received");
+    }
+
+    private static void assertClosed(int port, byte[] bytes)
+        throws IOException {
+        try (Socket s = new Socket("localhost", port)) {
+            s.setSoTimeout((int) TIMEOUT_MILLIS);
+            s.getOutputStream().write(bytes);
+            s.getOutputStream().flush();
+            try {
+                Assert.assertEquals(-1, s.getInputStream().read());
+            } catch (SocketTimeoutException ste) {
+                Assert.fail("Connection not closed");
+            } catch (IOException ioe) {
+                // reset
+            }
+        }
+    }
+
+    private static void waitFor(Condition condition) throws Exception {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.holds()) {
+            Assert.assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static RemoteCommitEvent poll(
+        BlockingQueue<RemoteCommitEvent> received) throws Exception {
+        RemoteCommitEvent event = received.poll(TIMEOUT_MILLIS,
+            TimeUnit.MILLISECONDS);
+        Assert.assertNotNull(event);
+        return event;
+    }
+
+    /**
+     * A frame as written by another JVM.
+     */
+    private static byte[] frame(RemoteCommitEvent event) throws IOException {
+        byte[] payload = new BinaryRemoteCommitEventCodec().encode(event);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(TCPRemoteCommitProvider.FRAME_MAGIC);
+        out.writeByte(TCPRemoteCommitProvider.FRAME_VERSION);
+        out.writeInt(8 + 4 + 1 + 4 + payload.length);
+        out.writeLong(-1);
+        out.writeInt(-1);
+        out.writeByte(4);
+        out.write(new byte[]{ 10, 0, 0, 1 });
+        out.write(payload);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] header(int length) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(TCPRemoteCommitProvider.FRAME_MAGIC);
+        out.writeByte(TCPRemoteCommitProvider.FRAME_VERSION);
+        out.writeInt(length);
+        return bytes.toByteArray();
+    }
+
+    private static RemoteCommitEvent event(long id) {
+        return new RemoteCommitEvent(RemoteCommitEvent.PAYLOAD_OIDS, null,
+            null, Collections.singletonList(oid(id)), null);
+    }
+
+    private static Object oid(long id) {
+        return new LongId(String.class, id);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket s = new ServerSocket(0)) {
+            return s.getLocalPort();
+        }
+    }
+
+    private interface Condition {
+        boolean holds();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.openjpa.util.LongId;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RemoteCommitEventCoalescerTest {
+
+    @Test
+    public void mergesObjectIds() {
+        RemoteCommitEventCoalescer coalescer =
+            new RemoteCommitEventCoalescer(null, -1);
+        Assert.assertTrue(coalescer.isEmpty());
+        Assert.assertNull(coalescer.drain());
+
+        LongId one = new LongId(String.class, 1L);
+        LongId two = new LongId(String.class, 2L);
+        LongId three = new LongId(String.class, 3L);
+        coalescer.add(new RemoteCommitEvent(RemoteCommitEvent.PAYLOAD_OIDS,
+            null, Collections.singletonList("a.B"), Arrays.asList(one, two),
+            null));
+        coalescer.add(new RemoteCommitEvent(RemoteCommitEvent.PAYLOAD_OIDS,
+            null, Collections.singletonList("a.B"),
+            Arrays.asList(two, three), Collections.singletonList(one)));
+        Assert.assertEquals(4, coalescer.size());
+
+        RemoteCommitEvent event = coalescer.drain();
+        Assert.assertTrue(coalescer.isEmpty());
+        Assert.assertEquals(RemoteCommitEvent.PAYLOAD_OIDS,
+            event.getPayloadType());
+        Assert.assertEquals(Collections.singletonList("a.B"),
+            new ArrayList<>(event.getPersistedTypeNames()));
+        Assert.assertEquals(Arrays.asList(two, three),
+            new ArrayList<>(event.getUpdatedObjectIds()));
+        Assert.assertEquals(Collections.singletonList(one),
+            new ArrayList<>(event.getDeletedObjectIds()));
+    }
+
+    @Test
+    public void keepsPersistedObjectIds() {
+        RemoteCommitEventCoalescer coalescer =
+            new RemoteCommitEventCoalescer(null, -1);
+        LongId one = new LongId(String.class, 1L);
+        coalescer.add(new RemoteCommitEvent(RemoteCommitEvent.PAYLOAD_OIDS,
+            null, null, Collections.singletonList(one), null));
+        coalescer.add(new RemoteCommitEvent(
+            RemoteCommitEvent.PAYLOAD_OIDS_WITH_ADDS,
+            Collections.singletonList(new LongId(String.class, 2L)),
+            Collections.singletonList("a.B"), null, null));
+
+        RemoteCommitEvent event = coalescer.drain();
+        Assert.assertEquals(RemoteCommitEvent.PAYLOAD_OIDS_WITH_ADDS,
+            event.getPayloadType());
+        Assert.assertEquals(1, event.getPersistedObjectIds().size());
+        Assert.assertEquals(Collections.singletonList(one),
+            new ArrayList<>(event.getUpdatedObjectIds()));
+    }
+
+    @Test
+    public void mergesExtents() {
+        RemoteCommitEventCoalescer coalescer =
+            new RemoteCommitEventCoalescer(null, -1);
+        coalescer.add(new RemoteCommitEvent(RemoteCommitEvent.PAYLOAD_EXTENTS,
+            null, null, Collections.singletonList("a.B"), null));
+        coalescer.add(new RemoteCommitEvent(RemoteCommitEvent.PAYLOAD_EXTENTS,
+            null, null, Collections.singletonList("a.B"),
+            Collections.singletonList("a.C")));
+
+        RemoteCommitEvent event = coalescer.drain();
+        Assert.assertEquals(RemoteCommitEvent.PAYLOAD_EXTENTS,
+            event.getPayloadType());
+        Assert.assertEquals(Collections.singletonList("a.B"),
+            new ArrayList<>(event.getUpdatedTypeNames()));
+        Assert.assertEquals(Collections.singletonList("a.C"),
+            new ArrayList<>(event.getDeletedTypeNames()));
+    }
+}
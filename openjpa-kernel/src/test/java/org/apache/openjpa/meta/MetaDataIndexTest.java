@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.meta;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.openjpa.lib.meta.MetaDataFilter;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MetaDataIndexTest {
+
+    private static final String[] NAMES = { "a.A", "a.b.B" };
+
+    @Rule
+    public TemporaryFolder _tmp = new TemporaryFolder();
+
+    @Test
+    public void readsIndexOfUnchangedDirectory() throws IOException {
+        File dir = classDir();
+        MetaDataIndex.write(dir, new Filter(), Arrays.asList(NAMES));
+        Assert.assertArrayEquals(NAMES, MetaDataIndex.read(dir, new Filter()));
+    }
+
+    @Test
+    public void ignoresIndexOfDirectoryWithChangedClassFile()
+        throws IOException {
+        File dir = classDir();
+        MetaDataIndex.write(dir, new Filter(), Arrays.asList(NAMES));
+
+        // same name and size, written after the index
+        File file = new File(dir, "a/b/B.class");
+        write(file, new byte[]{ 1, 2, 4 });
+        Assert.assertTrue(file.setLastModified(new File(dir,
+            MetaDataIndex.RESOURCE).lastModified() + 2000));
+        Assert.assertNull(MetaDataIndex.read(dir, new Filter()));
+    }
+
+    @Test
+    public void ignoresIndexOfDirectoryWithResizedClassFile()
+        throws IOException {
+        File dir = classDir();
+        MetaDataIndex.write(dir, new Filter(), Arrays.asList(NAMES));
+
+        // same name and modification time, different size, so the
+        // modification time alone does not tell
+        File file = new File(dir, "a/b/B.class");
+        long modified = file.lastModified();
+        write(file, new byte[]{ 1, 2, 3, 4 });
+        Assert.assertTrue(file.setLastModified(modified));
+        Assert.assertNull(MetaDataIndex.read(dir, new Filter()));
+    }
+
+    @Test
+    public void ignoresIndexOfDirectoryWithAddedClassFile()
+        throws IOException {
+        File dir = classDir();
+        MetaDataIndex.write(dir, new Filter(), Arrays.asList(NAMES));
+
+        write(new File(dir, "a/C.class"), new byte[]{ 5 });
+        Assert.assertNull(MetaDataIndex.read(dir, new Filter()));
+    }
+
+    @Test
+    public void ignoresIndexWrittenWithAnotherFilter() throws IOException {
+        File dir = classDir();
+        MetaDataIndex.write(dir, new Filter(), Arrays.asList(NAMES));
+        Assert.assertNull(MetaDataIndex.read(dir, name -> true));
+    }
+
+    @Test
+    public void readsIndexOfJarUntilClassFileChanges() throws IOException {
+        File dir = classDir();
+        MetaDataIndex.write(dir, new Filter(), Arrays.asList(NAMES));
+
+        File jar = jar(dir, "a/b/B.class", new byte[]{ 1, 2, 3 });
+        Assert.assertArrayEquals(NAMES, MetaDataIndex.read(jar, new Filter()));
+
+        jar = jar(dir, "a/b/B.class", new byte[]{ 1, 2, 4 });
+        Assert.assertNull(MetaDataIndex.read(jar, new Filter()));
+    }
+
+    private File classDir() throws IOException {
+        File dir = _tmp.newFolder();
+        write(new File(dir, "a/A.class"), new byte[]{ 0, 0 });
+        write(new File(dir, "a/b/B.class"), new byte[]{ 1, 2, 3 });
+        return dir;
+    }
+
+    /**
+     * Jar the index and class files of the given directory, replacing the
+     * content of the given class file.
+     */
+    private File jar(File dir, String replaced, byte[] content)
+        throws IOException {
+        File jar = _tmp.newFile();
+        try (ZipOutputStream out = new ZipOutputStream
+            (new FileOutputStream(jar))) {
+            for (String name : new String[]{ MetaDataIndex.RESOURCE,
+                "a/A.class", "a/b/B.class" }) {
+                out.putNextEntry(new ZipEntry(name));
+                out.write(name.equals(replaced) ? content
+                    : Files.readAllBytes(new File(dir, name).toPath()));
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    private static void write(File file, byte[] content) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content);
+    }
+
+    private static class Filter implements MetaDataFilter {
+        @Override
+        public boolean matches(Resource rsrc) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.meta;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.openjpa.conf.Compatibility;
+import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.lib.log.NoneLogFactory;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Loads metadata from many virtual threads while the metadata factory
+ * blocks, and checks that no virtual thread is pinned to its carrier
+ * thread. Runs on JDK 21 to 23 with <code>-Djdk.tracePinnedThreads</code>,
+ * which the <code>pinning</code> profile sets; it is skipped elsewhere.
+ */
+public class MetaDataRepositoryPinningTest {
+
+    private static final int THREADS = 200;
+    private static final Method NEW_VIRTUAL_THREAD_EXECUTOR;
+    static {
+        Method method;
+        try {
+            method = Executors.class.getMethod
+                ("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException nsme) {
+            method = null;
+        }
+        NEW_VIRTUAL_THREAD_EXECUTOR = method;
+    }
+
+    private static final Class<?>[] TYPES = {
+        ClassMetaData.class, FieldMetaData.class, ValueMetaData.class,
+        SequenceMetaData.class, QueryMetaData.class, MetaDataIndex.class,
+        MetaDataRepository.class, MetaDataDefaults.class,
+        MetaDataFactory.class, MetaDataModes.class,
+    };
+
+    private MetaDataRepository _repos;
+
+    @Before
+    public void setUp() {
+        Assume.assumeNotNull(System.getProperty("jdk.tracePinnedThreads"));
+        Assume.assumeNotNull(NEW_VIRTUAL_THREAD_EXECUTOR);
+
+        // proxies rather than mocks: mocks answer while holding a monitor of
+        // their own, and inline mocks hang the JDK's tracing of pinned threads
+        OpenJPAConfiguration conf = stub(OpenJPAConfiguration.class,
+            (proxy, method, args) -> {
+                if ("getLog".equals(method.getName()))
+                    return NoneLogFactory.NoneLog.getInstance();
+                if ("getCompatibilityInstance".equals(method.getName()))
+                    return new Compatibility();
+                return null;
+            });
+        MetaDataFactory factory = stub(MetaDataFactory.class,
+            (proxy, method, args) -> {
+                // stands in for reading a metadata file or the database schema
+                if ("load".equals(method.getName()))
+                    Thread.sleep(5);
+                return null;
+            });
+
+        _repos = new MetaDataRepository();
+        _repos.setConfiguration(conf);
+        _repos.setMetaDataFactory(factory);
+    }
+
+    @Test
+    public void doesNotPinVirtualThreadsWhileLoading() throws Exception {
+        // monitors still pin virtual threads on this JDK
+        final Object monitor = new Object();
+        Assume.assumeTrue(tracePinned(() -> {
+            synchronized (monitor) {
+                sleep(5);
+            }
+        }).contains("<== monitors"));
+
+        String trace = tracePinned(() -> {
+            for (Class<?> type : TYPES)
+                Assert.assertNull(_repos.getMetaData(type, null, false));
+        });
+        for (String line : trace.split("\\R"))
+            Assert.assertFalse(trace, line.contains("<== monitors")
+                && line.contains(MetaDataRepository.class.getName()));
+    }
+
+    /**
+     * Run the given task on {@link #THREADS} virtual threads and return what
+     * the JDK printed about pinned threads in the meantime.
+     */
+    private static String tracePinned(Runnable task) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(bytes, true));
+        ExecutorService executor = (ExecutorService)
+            NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+        try {
+            List<Future<?>> futures = new ArrayList<>(THREADS);
+            for (int i = 0; i < THREADS; i++)
+                futures.add(executor.submit(task));
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdown();
+            System.setOut(out);
+        }
+        return bytes.toString();
+    }
+
+    private static <T> T stub(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(),
+            new Class<?>[]{ type }, handler));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
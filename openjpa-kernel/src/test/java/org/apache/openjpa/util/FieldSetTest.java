@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.util;
+
+import java.util.BitSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FieldSetTest {
+
+    private static final int[] FIELDS = { 0, 5, 63, 64, 100, 130, 200 };
+
+    @Test
+    public void matchesBitSet() {
+        FieldSet fields = new FieldSet();
+        BitSet bits = new BitSet();
+        for (int field : FIELDS) {
+            fields.set(field);
+            bits.set(field);
+        }
+        fields.clear(100);
+        bits.clear(100);
+        fields.clear(1000);
+
+        Assert.assertEquals(bits, fields.toBitSet());
+        Assert.assertEquals(bits.cardinality(), fields.cardinality());
+        for (int i = 0; i < 256; i++) {
+            Assert.assertEquals(bits.get(i), fields.get(i));
+            Assert.assertEquals(bits.nextSetBit(i), fields.nextSetBit(i));
+        }
+        Assert.assertEquals(fields, new FieldSet(bits));
+        Assert.assertEquals(fields.hashCode(), new FieldSet(bits).hashCode());
+    }
+
+    @Test
+    public void cloneIsIndependent() {
+        FieldSet fields = new FieldSet();
+        fields.set(3);
+        fields.set(70);
+        FieldSet clone = fields.clone();
+        clone.set(4);
+        clone.clear(70);
+
+        Assert.assertTrue(fields.get(70));
+        Assert.assertFalse(fields.get(4));
+        Assert.assertTrue(clone.get(3));
+        Assert.assertFalse(clone.get(70));
+    }
+
+    @Test
+    public void emptyAfterClear() {
+        FieldSet fields = new FieldSet();
+        Assert.assertTrue(fields.isEmpty());
+        Assert.assertEquals(-1, fields.nextSetBit(0));
+        fields.set(65, true);
+        Assert.assertFalse(fields.isEmpty());
+        fields.set(65, false);
+        Assert.assertTrue(fields.isEmpty());
+        Assert.assertEquals(new FieldSet(), fields);
+        fields.set(1);
+        fields.clear();
+        Assert.assertTrue(fields.isEmpty());
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StripedCacheMapTest {
+
+    @Test
+    public void overflowMovesToSoftMap() {
+        StripedCacheMap map = new StripedCacheMap(true, 10, 10, .75F, 1);
+        for (int i = 0; i < 20; i++)
+            map.put(i, "v" + i);
+
+        Assert.assertEquals(10, map.size() - map.softMap.size());
+        Assert.assertEquals(20, map.size());
+        for (int i = 0; i < 20; i++)
+            Assert.assertEquals("v" + i, map.get(i));
+    }
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvicted() {
+        StripedCacheMap map = new StripedCacheMap(true, 3, 3, .75F, 1);
+        map.setSoftReferenceSize(0);
+        map.put("a", "1");
+        map.put("b", "2");
+        map.put("c", "3");
+        map.get("a");
+        map.put("d", "4");
+
+        Assert.assertNull(map.get("b"));
+        Assert.assertEquals("1", map.get("a"));
+        Assert.assertEquals(3, map.size());
+    }
+
+    @Test
+    public void pinnedEntriesAreNotEvicted() {
+        StripedCacheMap map = new StripedCacheMap(true, 2, 2, .75F, 1);
+        map.setSoftReferenceSize(0);
+        map.put("pinned", "p");
+        Assert.assertTrue(map.pin("pinned"));
+        for (int i = 0; i < 10; i++)
+            map.put(i, i);
+
+        Assert.assertEquals("p", map.get("pinned"));
+        Assert.assertEquals(3, map.size());
+
+        // removing a pinned key keeps the pin
+        Assert.assertEquals("p", map.remove("pinned"));
+        Assert.assertFalse(map.containsKey("pinned"));
+        Assert.assertTrue(map.getPinnedKeys().contains("pinned"));
+        Assert.assertFalse(map.unpin("pinned"));
+
+        Assert.assertFalse(map.pin("missing"));
+        map.put("missing", "m");
+        Assert.assertTrue(map.unpin("missing"));
+        Assert.assertEquals("m", map.get("missing"));
+    }
+
+    @Test
+    public void zeroCacheSizeOnlyKeepsPinned() {
+        StripedCacheMap map = new StripedCacheMap();
+        map.setCacheSize(0);
+        map.put("a", "1");
+        Assert.assertNull(map.get("a"));
+        map.pin("b");
+        map.put("b", "2");
+        Assert.assertEquals("2", map.get("b"));
+    }
+
+    @Test
+    public void entryRemovalIsNotified() {
+        final List<Object> removed = new ArrayList<>();
+        StripedCacheMap map = new StripedCacheMap(false, 100) {
+            @Override
+            protected void entryRemoved(Object key, Object value,
+                boolean expired) {
+                removed.add(key);
+            }
+        };
+        map.put("a", "1");
+        map.put("a", "2");
+        map.remove("a");
+        map.put("b", "3");
+        map.clear();
+
+        Assert.assertEquals(3, removed.size());
+        Assert.assertEquals(0, map.size());
+    }
+
+    @Test
+    public void concurrentPutsRespectSize() throws Exception {
+        final StripedCacheMap map = new StripedCacheMap(true, 100, 100, .75F,
+            8);
+        map.setSoftReferenceSize(0);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int base = t * 10000;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    map.put(base + i, i);
+                    map.get(base + i / 2);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        Assert.assertTrue(map.size() <= 100 + map.getStripeCount());
+        Set<Object> keys = new HashSet<>(map.keySet());
+        Assert.assertEquals(map.size(), keys.size());
+    }
+
+    @Test
+    public void writeLockExcludesChanges() throws Exception {
+        final StripedCacheMap map = new StripedCacheMap(true, 100);
+        map.put("a", "1");
+        final CountDownLatch started = new CountDownLatch(1);
+        Thread remover = new Thread(() -> {
+            started.countDown();
+            map.remove("a");
+        });
+
+        map.writeLock();
+        try {
+            remover.start();
+            started.await();
+            Thread.sleep(100);
+            Assert.assertTrue(remover.isAlive());
+            Assert.assertEquals("1", map.get("a"));
+            map.put("a", "2");
+        } finally {
+            map.writeUnlock();
+        }
+        remover.join();
+        Assert.assertNull(map.get("a"));
+    }
+}
@@ -25,6 +25,9 @@ import java.util.Comparator;
  * A result object provider that merges multiple result object provider
  * delegates. Support exists for maintaining ordering of the internally held
  * results, provided that each of the individual results is itself ordered.
+ * Ordered results are merged with a heap of the current value of each
+ * delegate, and each delegate is only advanced once its current value has
+ * been returned.
  *
  * @author Abe White
  * @author Marc Prud'hommeaux
@@ -41,6 +44,9 @@ public class MergedResultObjectProvider implements ResultObjectProvider {
     private final byte[] _status;
     private Object[] _values;
     private Object[] _orderValues;
+    private final int[] _heap;
+    private int _heapSize = -1;
+    private int _last = -1;
     private Object _cur = null;
     private int _size = -1;
 
@@ -61,6 +67,7 @@ public class MergedResultObjectProvider implements ResultObjectProvider {
         _status = new byte[rops.length];
         _values = (comp == null) ? null : new Object[rops.length];
         _orderValues = (comp == null) ? null : new Object[rops.length];
+        _heap = (comp == null) ? null : new int[rops.length];
     }
 
     @Override
@@ -138,6 +145,8 @@ public class MergedResultObjectProvider implements ResultObjectProvider {
 
     private void clear() {
         _cur = null;
+        _heapSize = -1;
+        _last = -1;
         for (int i = 0; i < _rops.length; i++) {
             _status[i] = OPENED;
             if (_values != null)
@@ -156,67 +165,120 @@ public class MergedResultObjectProvider implements ResultObjectProvider {
 
     @Override
     public boolean next() throws Exception {
-        // initialize all rops with the latest values
-        boolean hasValue = false;
+        if (_comp != null)
+            return nextOrdered();
+
         for (int i = 0; i < _status.length; i++) {
             switch (_status[i]) {
                 case UNOPENED:
-                    // this will only ever be the case if we aren't ordering
                     _rops[i].open();
                     _status[i] = OPENED;
                     // no break
                 case OPENED:
-                    // if this rop has a value, cache it; if we're not ordering,
-                    // then that's the value to return
+                    // if this rop has a value, that's the value to return
                     if (_rops[i].next()) {
-                        if (_comp == null) {
-                            _cur = _rops[i].getResultObject();
-                            return true;
-                        } else {
-                            hasValue = true;
-                            _status[i] = VALUE;
-                            _values[i] = _rops[i].getResultObject();
-                            _orderValues[i] = getOrderingValue(_values[i],
-                                i, _rops[i]);
-                        }
-                    } else
-                        _status[i] = DONE;
-                    break;
-                case VALUE:
-                    // we only use this state when ordering
-                    hasValue = true;
+                        _cur = _rops[i].getResultObject();
+                        return true;
+                    }
+                    _status[i] = DONE;
                     break;
             }
         }
 
-        // if we get to this point without a comparator, it means none
-        // of our rops have any more values
-        if (_comp == null || !hasValue)
-            return false;
+        // none of our rops have any more values
+        return false;
+    }
 
-        // for all the rops with values, find the 'least' one according to
-        // the comparator
-        int least = -1;
-        Object orderVal = null;
-        for (int i = 0; i < _orderValues.length; i++) {
-            if (_status[i] != VALUE)
-                continue;
-            if (least == -1 || _comp.compare(_orderValues[i], orderVal) < 0) {
-                least = i;
-                orderVal = _orderValues[i];
-            }
+    /**
+     * Return the least of the current values of the delegates.
+     */
+    private boolean nextOrdered() throws Exception {
+        if (_heapSize == -1) {
+            // initialize all rops with their first values
+            _heapSize = 0;
+            for (int i = 0; i < _rops.length; i++)
+                if (advance(i))
+                    push(i);
+        } else if (_last != -1 && advance(_last)) {
+            // only the rop whose value was returned last needs a new value
+            push(_last);
         }
 
+        _last = -1;
+        if (_heapSize == 0)
+            return false;
+
         // assign the least value to the current one, and clear the cached
-        // value for that rop so that we know to get the next value for
+        // value for that rop so that we know to get its next value for
         // the next comparison
+        int least = pop();
         _cur = _values[least];
         _values[least] = null;
         _orderValues[least] = null;
         _status[least] = OPENED;
+        _last = least;
         return true;
     }
 
+    /**
+     * Cache the next value of the given rop, returning false if it has none.
+     */
+    private boolean advance(int idx) throws Exception {
+        if (_status[idx] == DONE)
+            return false;
+        if (_status[idx] == UNOPENED) {
+            _rops[idx].open();
+            _status[idx] = OPENED;
+        }
+        if (!_rops[idx].next()) {
+            _status[idx] = DONE;
+            return false;
+        }
+        _status[idx] = VALUE;
+        _values[idx] = _rops[idx].getResultObject();
+        _orderValues[idx] = getOrderingValue(_values[idx], idx, _rops[idx]);
+        return true;
+    }
+
+    /**
+     * Whether the current value of the first given rop comes before that of
+     * the second. Equal values are taken in the order of the rops.
+     */
+    private boolean before(int idx1, int idx2) {
+        int cmp = _comp.compare(_orderValues[idx1], _orderValues[idx2]);
+        return cmp < 0 || (cmp == 0 && idx1 < idx2);
+    }
+
+    private void push(int idx) {
+        int pos = _heapSize++;
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (!before(idx, _heap[parent]))
+                break;
+            _heap[pos] = _heap[parent];
+            pos = parent;
+        }
+        _heap[pos] = idx;
+    }
+
+    private int pop() {
+        int least = _heap[0];
+        int idx = _heap[--_heapSize];
+        int pos = 0;
+        int half = _heapSize >>> 1;
+        while (pos < half) {
+            int child = 2 * pos + 1;
+            if (child + 1 < _heapSize && before(_heap[child + 1], _heap[child]))
+                child++;
+            if (!before(_heap[child], idx))
+                break;
+            _heap[pos] = _heap[child];
+            pos = child;
+        }
+        _heap[pos] = idx;
+        return least;
+    }
+
     @Override
     public Object getResultObject() throws Exception {
         return _cur;
@@ -1132,6 +1132,8 @@ public class AnnotationPersistenceMappingParser
                 return EagerFetchModes.EAGER_JOIN;
             case PARALLEL:
                 return EagerFetchModes.EAGER_PARALLEL;
+            case BATCH:
+                return EagerFetchModes.EAGER_BATCH;
             default:
                 throw new InternalException();
         }
@@ -32,7 +32,8 @@ import org.apache.openjpa.persistence.OpenJPAEnum;
 public enum FetchMode implements OpenJPAEnum<FetchMode>{
     NONE(EagerFetchModes.EAGER_NONE, "none"),
     JOIN(EagerFetchModes.EAGER_JOIN, "join"),
-    PARALLEL(EagerFetchModes.EAGER_PARALLEL, "parallel");
+    PARALLEL(EagerFetchModes.EAGER_PARALLEL, "parallel"),
+    BATCH(EagerFetchModes.EAGER_BATCH, "batch");
 
     private final int eagerFetchConstant;
     private final String[] _names;
@@ -58,6 +59,9 @@ public enum FetchMode implements OpenJPAEnum<FetchMode>{
             case EagerFetchModes.EAGER_PARALLEL:
                 return PARALLEL;
 
+            case EagerFetchModes.EAGER_BATCH:
+                return BATCH;
+
             default:
                 throw new IllegalArgumentException(kernelConstant + "");
         }
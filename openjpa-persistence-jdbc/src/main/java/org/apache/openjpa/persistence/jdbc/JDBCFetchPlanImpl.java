@@ -46,12 +46,14 @@ public class JDBCFetchPlanImpl
     private DelegatingJDBCFetchConfiguration _fetch;
     static {
         registerHint(new String[]{"openjpa.FetchPlan.EagerFetchMode", "openjpa.jdbc.EagerFetchMode"},
-            new HintValueConverter.StringToInteger(new String[]{"none", "0", "join", "1", "parallel", "2"},
+            new HintValueConverter.StringToInteger(new String[]{"none", "0", "join", "1", "parallel", "2", "batch", "3"},
                 new int[]{EagerFetchModes.EAGER_NONE, EagerFetchModes.EAGER_NONE,
                           EagerFetchModes.EAGER_JOIN, EagerFetchModes.EAGER_JOIN,
-                          EagerFetchModes.EAGER_PARALLEL,EagerFetchModes.EAGER_PARALLEL}),
+                          EagerFetchModes.EAGER_PARALLEL,EagerFetchModes.EAGER_PARALLEL,
+                          EagerFetchModes.EAGER_BATCH, EagerFetchModes.EAGER_BATCH}),
             new HintValueConverter.EnumToInteger(FetchMode.class,
-                new int[]{EagerFetchModes.EAGER_NONE, EagerFetchModes.EAGER_JOIN, EagerFetchModes.EAGER_PARALLEL}));
+                new int[]{EagerFetchModes.EAGER_NONE, EagerFetchModes.EAGER_JOIN, EagerFetchModes.EAGER_PARALLEL,
+                    EagerFetchModes.EAGER_BATCH}));
         registerHint(new String[]{"openjpa.JoinSyntax", "openjpa.jdbc.JoinSyntax","openjpa.FetchPlan.JoinSyntax"},
             new HintValueConverter.EnumToInteger(JoinSyntax.class,
                 new int[]{JoinSyntaxes.SYNTAX_SQL92, JoinSyntaxes.SYNTAX_TRADITIONAL, JoinSyntaxes.SYNTAX_DATABASE}),
@@ -1588,6 +1588,8 @@ public class XMLPersistenceMappingParser
             return EagerFetchModes.EAGER_JOIN;
         else if (mode.equals("PARALLEL"))
             return EagerFetchModes.EAGER_PARALLEL;
+        else if (mode.equals("BATCH"))
+            return EagerFetchModes.EAGER_BATCH;
         else
             throw new InternalException();
     }
@@ -1806,6 +1808,8 @@ public class XMLPersistenceMappingParser
                 fm.setEagerFetchMode(EagerFetchModes.EAGER_JOIN);
             } else if (eagerFetchMode.equalsIgnoreCase("PARALLEL")) {
                 fm.setEagerFetchMode(EagerFetchModes.EAGER_PARALLEL);
+            } else if (eagerFetchMode.equalsIgnoreCase("BATCH")) {
+                fm.setEagerFetchMode(EagerFetchModes.EAGER_BATCH);
             }
         }
     }
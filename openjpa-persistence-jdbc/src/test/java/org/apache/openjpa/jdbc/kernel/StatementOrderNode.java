@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.jdbc.kernel;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+
+@Entity
+public class StatementOrderNode {
+
+    @Id
+    private long id;
+
+    private String name;
+
+    @ManyToOne
+    private StatementOrderNode parent;
+
+    public StatementOrderNode() {
+    }
+
+    public StatementOrderNode(long id, String name,
+        StatementOrderNode parent) {
+        this.id = id;
+        this.name = name;
+        this.parent = parent;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public StatementOrderNode getParent() {
+        return parent;
+    }
+
+    public void setParent(StatementOrderNode parent) {
+        this.parent = parent;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.jdbc.kernel;
+
+import javax.persistence.EntityManager;
+
+import org.apache.openjpa.jdbc.conf.JDBCConfiguration;
+import org.apache.openjpa.persistence.test.SQLListenerTestCase;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that {@link BatchingStatementOrderUpdateManager} groups the rows of
+ * a flush by their SQL without breaking the order that foreign keys need.
+ */
+public class TestBatchingStatementOrder
+    extends SQLListenerTestCase {
+
+    private static final int ROWS = 10;
+
+    @Before
+    public void setUp() {
+        setUp(StatementOrderNode.class, StatementOrderLeaf.class,
+            "openjpa.jdbc.UpdateManager", "batching-statement-order",
+            "openjpa.jdbc.DBDictionary", "derby(BatchLimit=100)");
+    }
+
+    @Test
+    public void testUnrelatedRowsAreBatchedBySQL() {
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        for (int i = 0; i < ROWS; i++) {
+            em.persist(new StatementOrderNode(i, "node" + i, null));
+            em.persist(new StatementOrderLeaf(i, "leaf" + i));
+        }
+        FlushStatistics stats = getFlushStatistics();
+        stats.reset();
+        em.getTransaction().commit();
+        em.close();
+
+        Assert.assertEquals(stats.toString(), 2 * ROWS, stats.getRowCount());
+        Assert.assertEquals(stats.toString(), 2, stats.getBatchCount());
+        Assert.assertEquals(stats.toString(), 2, stats.getStatementCount());
+        Assert.assertEquals(ROWS, stats.getRowsPerBatch(), 0);
+    }
+
+    @Test
+    public void testSelfReferencesInsertParentsFirst() {
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        // persist each node before its parent, between unrelated rows
+        StatementOrderNode[] nodes = new StatementOrderNode[ROWS];
+        for (int i = 0; i < ROWS; i++)
+            nodes[i] = new StatementOrderNode(i, "node" + i, null);
+        for (int i = ROWS - 1; i >= 0; i--) {
+            if (i > 0)
+                nodes[i].setParent(nodes[i / 2]);
+            em.persist(nodes[i]);
+            em.persist(new StatementOrderLeaf(i, "leaf" + i));
+        }
+        FlushStatistics stats = getFlushStatistics();
+        stats.reset();
+        em.getTransaction().commit();
+        em.close();
+
+        Assert.assertEquals(stats.toString(), 2 * ROWS, stats.getRowCount());
+        Assert.assertTrue(stats.toString(),
+            stats.getStatementCount() < 2 * ROWS);
+        assertParents(ROWS, 0);
+    }
+
+    @Test
+    public void testMixedInsertsAndDeletes() {
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        StatementOrderNode root = new StatementOrderNode(0, "root", null);
+        em.persist(root);
+        for (int i = 1; i < ROWS; i++) {
+            em.persist(new StatementOrderNode(i, "node" + i, root));
+            em.persist(new StatementOrderLeaf(i, "leaf" + i));
+        }
+        em.getTransaction().commit();
+        em.close();
+
+        // replace the root, delete half the nodes and insert new nodes, one
+        // of them with the id of a deleted node
+        long newRoot = 2 * ROWS;
+        em = emf.createEntityManager();
+        em.getTransaction().begin();
+        StatementOrderNode replacement = new StatementOrderNode(newRoot,
+            "new root", null);
+        for (int i = 1; i < ROWS; i++) {
+            StatementOrderNode node = em.find(StatementOrderNode.class,
+                (long) i);
+            if (i % 2 == 0) {
+                em.remove(node);
+                em.remove(em.find(StatementOrderLeaf.class, (long) i));
+            } else
+                node.setParent(replacement);
+        }
+        em.remove(em.find(StatementOrderNode.class, 0L));
+        em.persist(replacement);
+        em.persist(new StatementOrderNode(2, "node2 again", replacement));
+        for (int i = 1; i < ROWS; i++)
+            em.persist(new StatementOrderLeaf(ROWS + i, "leaf" + (ROWS + i)));
+        em.getTransaction().commit();
+        em.close();
+
+        em = emf.createEntityManager();
+        Assert.assertNull(em.find(StatementOrderNode.class, 0L));
+        for (int i = 1; i < ROWS; i++) {
+            StatementOrderNode node = em.find(StatementOrderNode.class,
+                (long) i);
+            if (i % 2 == 0 && i != 2)
+                Assert.assertNull(node);
+            else {
+                Assert.assertEquals(newRoot, node.getParent().getId());
+                Assert.assertEquals(i == 2, node.getName().endsWith("again"));
+            }
+            Assert.assertEquals(i % 2 != 0,
+                em.find(StatementOrderLeaf.class, (long) i) != null);
+            Assert.assertNotNull(em.find(StatementOrderLeaf.class,
+                (long) ROWS + i));
+        }
+        em.close();
+    }
+
+    /**
+     * Assert that each of the first given number of nodes has the parent
+     * at half its id, except the root.
+     */
+    private void assertParents(int count, long root) {
+        EntityManager em = emf.createEntityManager();
+        for (long i = 0; i < count; i++) {
+            StatementOrderNode node = em.find(StatementOrderNode.class, i);
+            if (i == root)
+                Assert.assertNull(node.getParent());
+            else
+                Assert.assertEquals(i / 2, node.getParent().getId());
+        }
+        em.close();
+    }
+
+    private FlushStatistics getFlushStatistics() {
+        return ((BatchingConstraintUpdateManager) ((JDBCConfiguration)
+            emf.getConfiguration()).getUpdateManagerInstance()).
+            getFlushStatistics();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.jdbc.kernel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.openjpa.jdbc.conf.JDBCConfiguration;
+import org.apache.openjpa.persistence.OpenJPAEntityManager;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+import org.apache.openjpa.persistence.test.SQLListenerTestCase;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the batched inserts of instances with IDENTITY keys whose rows in
+ * collection and join tables refer to them. Runs against H2, whose driver
+ * returns the keys of every batched row.
+ */
+public class TestIdentityBatching
+    extends SQLListenerTestCase {
+
+    private static final int OWNERS = 8;
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    @Test
+    public void testBatchingConstraintUpdateManager() {
+        assertBatchedGraph("batching-constraint");
+    }
+
+    @Test
+    public void testBatchingStatementOrderUpdateManager() {
+        assertBatchedGraph("batching-statement-order");
+    }
+
+    private void assertBatchedGraph(String updateManager) {
+        emf = createEMF(IdentityOwner.class, IdentityTag.class,
+            "openjpa.ConnectionDriverName", "org.h2.Driver",
+            "openjpa.ConnectionURL", "jdbc:h2:mem:identity"
+                + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1",
+            "openjpa.jdbc.DBDictionary", "h2(BatchLimit=100)",
+            "openjpa.jdbc.UpdateManager", updateManager);
+
+        OpenJPAEntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        List<IdentityTag> tags = new ArrayList<>();
+        List<IdentityOwner> owners = new ArrayList<>();
+        for (int i = 0; i < OWNERS; i++) {
+            IdentityTag tag = new IdentityTag("tag" + i);
+            tags.add(tag);
+            IdentityOwner owner = new IdentityOwner("owner" + i);
+            owner.setMainTag(tag);
+            owner.getLabels().addAll(Arrays.asList("a" + i, "b" + i));
+            owners.add(owner);
+        }
+        for (int i = 0; i < OWNERS; i++) {
+            owners.get(i).getTags().add(tags.get(i));
+            owners.get(i).getTags().add(tags.get((i + 1) % OWNERS));
+            em.persist(owners.get(i));
+            em.persist(tags.get(i));
+        }
+        FlushStatistics stats = getFlushStatistics(emf);
+        stats.reset();
+        em.getTransaction().commit();
+        em.close();
+
+        // owners, tags, two labels and two join rows per owner
+        Assert.assertEquals(stats.toString(), 6 * OWNERS,
+            stats.getRowCount());
+        Assert.assertTrue(stats.toString(), stats.getBatchedRowCount() > 0);
+
+        em = emf.createEntityManager();
+        for (int i = 0; i < OWNERS; i++) {
+            IdentityOwner owner = em.find(IdentityOwner.class,
+                owners.get(i).getId());
+            Assert.assertEquals("owner" + i, owner.getName());
+            Assert.assertEquals("tag" + i, owner.getMainTag().getName());
+            Assert.assertEquals(Arrays.asList("a" + i, "b" + i),
+                new ArrayList<>(owner.getLabels()));
+            Assert.assertEquals(2, owner.getTags().size());
+            Assert.assertEquals("tag" + i, owner.getTags().get(0).getName());
+            Assert.assertEquals("tag" + ((i + 1) % OWNERS),
+                owner.getTags().get(1).getName());
+        }
+        em.close();
+    }
+
+    private static FlushStatistics getFlushStatistics(
+        OpenJPAEntityManagerFactorySPI emf) {
+        return ((BatchingConstraintUpdateManager) ((JDBCConfiguration)
+            emf.getConfiguration()).getUpdateManagerInstance()).
+            getFlushStatistics();
+    }
+}
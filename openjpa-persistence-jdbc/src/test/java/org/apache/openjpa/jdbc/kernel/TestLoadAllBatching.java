@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.jdbc.kernel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.PersistenceUnitUtil;
+
+import org.apache.openjpa.persistence.OpenJPAEntityManager;
+import org.apache.openjpa.persistence.test.SQLListenerTestCase;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that {@link JDBCStoreManager#loadAll} initializes hollow instances
+ * of a mapping with one select per batch of ids, and that the instances it
+ * loads are the same as those loaded one at a time.
+ */
+public class TestLoadAllBatching
+    extends SQLListenerTestCase {
+
+    private static final int ITEMS = 12;
+
+    @Before
+    public void setUp() {
+        setUp(LoadAllItem.class, LoadAllBase.class, LoadAllSub.class);
+        OpenJPAEntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        for (int i = 0; i < ITEMS; i++) {
+            em.persist(new LoadAllItem(i, "item" + i, "detail" + i));
+            em.persist((i % 2 == 0) ? new LoadAllBase(i, "base" + i)
+                : new LoadAllSub(i, "sub" + i, "extra" + i));
+        }
+        em.getTransaction().commit();
+        em.close();
+    }
+
+    @Test
+    public void testInstancesOfAMappingAreLoadedWithOneSelect() {
+        OpenJPAEntityManager em = emf.createEntityManager();
+        resetSQL();
+        Collection<LoadAllItem> items = em.findAll(LoadAllItem.class,
+            ids(0, ITEMS));
+        Assert.assertEquals(sql.toString(), 1, count("SELECT"));
+        assertSameAsFind(items, LoadAllItem.class);
+        em.close();
+    }
+
+    @Test
+    public void testMissingRowsAreNull() {
+        OpenJPAEntityManager em = emf.createEntityManager();
+        List<Long> ids = ids(ITEMS - 2, ITEMS + 2);
+        resetSQL();
+        List<LoadAllItem> items = new ArrayList<>(em.findAll
+            (LoadAllItem.class, ids));
+        Assert.assertEquals(sql.toString(), 1, count("SELECT"));
+        Assert.assertEquals(4, items.size());
+        Assert.assertEquals(ITEMS - 2, items.get(0).getId());
+        Assert.assertEquals(ITEMS - 1, items.get(1).getId());
+        Assert.assertNull(items.get(2));
+        Assert.assertNull(items.get(3));
+        em.close();
+    }
+
+    @Test
+    public void testLeafSubclassIsBatched() {
+        OpenJPAEntityManager em = emf.createEntityManager();
+        List<Long> ids = new ArrayList<>();
+        for (long i = 1; i < ITEMS; i += 2)
+            ids.add(i);
+        resetSQL();
+        Collection<LoadAllSub> subs = em.findAll(LoadAllSub.class, ids);
+        Assert.assertEquals(sql.toString(), 1, count("SELECT"));
+        for (LoadAllSub sub : subs)
+            Assert.assertEquals("extra" + sub.getId(), sub.getExtra());
+        assertSameAsFind(subs, LoadAllSub.class);
+        em.close();
+    }
+
+    @Test
+    public void testMappingWithSubclassesLoadsExactTypes() {
+        OpenJPAEntityManager em = emf.createEntityManager();
+        Collection<LoadAllBase> bases = em.findAll(LoadAllBase.class,
+            ids(0, ITEMS));
+        int i = 0;
+        for (LoadAllBase base : bases) {
+            Assert.assertEquals(i, base.getId());
+            Assert.assertEquals((i % 2 == 0) ? LoadAllBase.class
+                : LoadAllSub.class, base.getClass());
+            i++;
+        }
+        assertSameAsFind(bases, LoadAllBase.class);
+        em.close();
+    }
+
+    @Test
+    public void testFetchGroupsApplyToTheBatchSelect() {
+        PersistenceUnitUtil util = emf.getPersistenceUnitUtil();
+        OpenJPAEntityManager em = emf.createEntityManager();
+        Collection<LoadAllItem> items = em.findAll(LoadAllItem.class,
+            ids(0, ITEMS));
+        for (LoadAllItem item : items)
+            Assert.assertFalse(util.isLoaded(item, "detail"));
+        em.close();
+
+        em = emf.createEntityManager();
+        em.getFetchPlan().addFetchGroup("detail");
+        resetSQL();
+        items = em.findAll(LoadAllItem.class, ids(0, ITEMS));
+        Assert.assertEquals(sql.toString(), 1, count("SELECT"));
+        for (LoadAllItem item : items) {
+            Assert.assertTrue(util.isLoaded(item, "detail"));
+            Assert.assertEquals("detail" + item.getId(), item.getDetail());
+        }
+        Assert.assertEquals(sql.toString(), 1, count("SELECT"));
+        em.close();
+    }
+
+    @Test
+    public void testLoadedAndHollowInstancesMix() {
+        OpenJPAEntityManager em = emf.createEntityManager();
+        LoadAllItem loaded = em.find(LoadAllItem.class, 3L);
+        resetSQL();
+        List<LoadAllItem> items = new ArrayList<>(em.findAll
+            (LoadAllItem.class, ids(0, ITEMS)));
+        // the loaded instance is only checked for existence
+        Assert.assertEquals(sql.toString(), 1, count("SELECT t0.id"));
+        Assert.assertSame(loaded, items.get(3));
+        assertSameAsFind(items, LoadAllItem.class);
+        em.close();
+    }
+
+    private static List<Long> ids(long from, long to) {
+        List<Long> ids = new ArrayList<>();
+        for (long i = from; i < to; i++)
+            ids.add(i);
+        return ids;
+    }
+
+    /**
+     * Assert that the given instances hold the same state as those found
+     * one at a time by another entity manager.
+     */
+    private <T> void assertSameAsFind(Collection<T> found, Class<T> type) {
+        OpenJPAEntityManager em = emf.createEntityManager();
+        try {
+            for (T pc : found) {
+                T one = em.find(type,
+                    emf.getPersistenceUnitUtil().getIdentifier(pc));
+                Assert.assertEquals(one.getClass(), pc.getClass());
+                Assert.assertEquals(describe(one), describe(pc));
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    private static String describe(Object pc) {
+        if (pc instanceof LoadAllItem) {
+            LoadAllItem item = (LoadAllItem) pc;
+            return Arrays.asList(item.getId(), item.getName(),
+                item.getDetail()).toString();
+        }
+        LoadAllBase base = (LoadAllBase) pc;
+        return Arrays.asList(base.getId(), base.getName(),
+            (pc instanceof LoadAllSub) ? ((LoadAllSub) pc).getExtra() : null)
+            .toString();
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.jdbc.kernel;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.apache.openjpa.kernel.Broker;
+import org.apache.openjpa.kernel.Seq;
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.persistence.JPAFacadeHelper;
+import org.apache.openjpa.persistence.OpenJPAEntityManager;
+import org.apache.openjpa.persistence.jdbc.BatchRegion;
+import org.apache.openjpa.persistence.test.SQLListenerTestCase;
+import org.apache.openjpa.util.StoreException;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the table and native sequences that allocate their next block of
+ * values in the background once the values left drop to a threshold.
+ */
+public class TestSequencePrefetch
+    extends SQLListenerTestCase {
+
+    private static final int ALLOCATE = 10;
+    private static final int THRESHOLD = 3;
+    private static final int THREADS = 8;
+    private static final int VALUES = 250;
+
+    // the name of the threads that allocate blocks in the background
+    private static final String PREFETCH_THREAD = "openjpa-seq-";
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private FailingDataSource _ds;
+    private Seq _seq;
+    private ClassMetaData _meta;
+    private final List<OpenJPAEntityManager> _ems = new ArrayList<>();
+
+    @Override
+    public void tearDown() {
+        for (OpenJPAEntityManager em : _ems)
+            if (em.isOpen())
+                em.close();
+        super.tearDown();
+    }
+
+    @Test
+    public void testTableSequenceHandsOutDistinctValuesConcurrently()
+        throws Exception {
+        createTableSequence();
+        assertDistinctWithoutGaps(nextConcurrently());
+    }
+
+    @Test
+    public void testNativeSequenceHandsOutDistinctValuesConcurrently()
+        throws Exception {
+        setUpSequence("native(Sequence=PREFETCH_SEQ, Allocate=" + ALLOCATE
+            + ", PrefetchThreshold=" + THRESHOLD + ")",
+            "openjpa.jdbc.DBDictionary",
+            "derby(NextSequenceQuery=VALUES NEXT VALUE FOR {0})");
+        ((NativeJDBCSeq) _seq).refreshSequence();
+        assertDistinctWithoutGaps(nextConcurrently());
+    }
+
+    @Test
+    public void testFailedPrefetchIsRolledBackAndAllocatedAgain() {
+        createTableSequence();
+        Broker broker = newBroker();
+        List<Long> values = new ArrayList<>();
+        _ds.failCommit = true;
+        for (int i = 0; i < ALLOCATE * 3; i++)
+            values.add(next(broker));
+
+        Assert.assertTrue(_ds.failures.get() > 0);
+        Assert.assertEquals(_ds.failures.get(), _ds.rollbacks.get());
+        // the blocks whose allocation failed are not lost
+        for (int i = 0; i < values.size(); i++)
+            Assert.assertEquals(values.get(0) + i, values.get(i).longValue());
+    }
+
+    @Test
+    public void testFailedPrefetchIsReportedToTheAllocatingThread() {
+        createTableSequence();
+        Broker broker = newBroker();
+        long first = next(broker);
+        // the allocation in the thread that needs the value fails too
+        _ds.failCommit = true;
+        _ds.failConnect = true;
+        try {
+            for (int i = 0; i < ALLOCATE; i++)
+                next(broker);
+            Assert.fail("sequence did not fail");
+        } catch (StoreException se) {
+            Throwable cause = se.getCause();
+            Assert.assertEquals(FailingDataSource.CONNECT_FAILED,
+                cause.getMessage());
+            Assert.assertEquals(Arrays.asList(FailingDataSource.COMMIT_FAILED),
+                messages(cause.getSuppressed()));
+        }
+
+        _ds.failCommit = false;
+        _ds.failConnect = false;
+        Assert.assertEquals(first + ALLOCATE, next(broker));
+    }
+
+    @Test
+    public void testCloseStopsTheAllocatingThread() throws Exception {
+        createTableSequence();
+        Broker broker = newBroker();
+        List<Long> values = new ArrayList<>();
+        for (int i = 0; i < ALLOCATE; i++)
+            values.add(next(broker));
+        Assert.assertFalse(prefetchThreads().isEmpty());
+
+        _seq.close();
+        for (Thread thread : prefetchThreads())
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        Assert.assertEquals(Collections.emptyList(), prefetchThreads());
+
+        // the next blocks are allocated by the thread that needs a value
+        for (int i = 0; i < ALLOCATE * 2; i++)
+            values.add(next(broker));
+        assertDistinctWithoutGaps(values);
+    }
+
+    /**
+     * Set up the default table sequence and create its table.
+     */
+    private void createTableSequence() {
+        setUpSequence("table(Table=PREFETCH_SEQ, Allocate=" + ALLOCATE
+            + ", PrefetchThreshold=" + THRESHOLD + ")");
+        try {
+            ((TableJDBCSeq) _seq).refreshTable();
+        } catch (SQLException se) {
+            throw new AssertionError(se);
+        }
+    }
+
+    /**
+     * Create a factory whose system sequence is given by the given plugin
+     * string, and whose second data source can be made to fail. The given
+     * property name and value pairs are added to the configuration.
+     */
+    private void setUpSequence(String seq, Object... props) {
+        String url = "jdbc:derby:memory:prefetch"
+            + DATABASES.incrementAndGet() + ";create=true";
+        _ds = new FailingDataSource(url);
+        List<Object> args = new ArrayList<>(Arrays.asList(BatchRegion.class,
+            "openjpa.ConnectionURL", url, "openjpa.ConnectionFactory2", _ds,
+            "openjpa.Sequence", seq));
+        args.addAll(Arrays.asList(props));
+        setUp(args.toArray());
+        _seq = (Seq) emf.getConfiguration().getSequenceInstance();
+        _meta = emf.getConfiguration().getMetaDataRepositoryInstance()
+            .getMetaData(BatchRegion.class, null, true);
+    }
+
+    private Broker newBroker() {
+        OpenJPAEntityManager em = emf.createEntityManager();
+        _ems.add(em);
+        return JPAFacadeHelper.toBroker(em);
+    }
+
+    private long next(Broker broker) {
+        return ((Number) _seq.next(broker, _meta)).longValue();
+    }
+
+    /**
+     * Take {@link #VALUES} values in each of {@link #THREADS} threads, each
+     * with a broker of its own.
+     */
+    private List<Long> nextConcurrently() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                final Broker broker = newBroker();
+                futures.add(pool.submit(() -> {
+                    List<Long> values = new ArrayList<>(VALUES);
+                    for (int j = 0; j < VALUES; j++)
+                        values.add(next(broker));
+                    return values;
+                }));
+            }
+            List<Long> values = new ArrayList<>();
+            for (Future<List<Long>> future : futures)
+                values.addAll(future.get(60, TimeUnit.SECONDS));
+            return values;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Assert that the given values are distinct, and that no more values
+     * than a block are skipped between two of them.
+     */
+    private static void assertDistinctWithoutGaps(List<Long> values) {
+        Assert.assertEquals(values.size(), new HashSet<>(values).size());
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        for (int i = 1; i < sorted.size(); i++)
+            Assert.assertTrue(sorted.toString(),
+                sorted.get(i) - sorted.get(i - 1) <= ALLOCATE);
+    }
+
+    private static List<String> messages(Throwable[] ts) {
+        List<String> messages = new ArrayList<>();
+        for (Throwable t : ts)
+            messages.add(t.getMessage());
+        return messages;
+    }
+
+    private static List<Thread> prefetchThreads() {
+        List<Thread> threads = new ArrayList<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet())
+            if (thread.getName().startsWith(PREFETCH_THREAD + "Table")
+                && thread.isAlive())
+                threads.add(thread);
+        return threads;
+    }
+
+    private static boolean isPrefetchThread() {
+        return Thread.currentThread().getName().startsWith(PREFETCH_THREAD);
+    }
+
+    /**
+     * Data source whose connections can be made to fail to commit in the
+     * threads that allocate blocks in the background, and to fail to
+     * connect in the other threads.
+     */
+    public static class FailingDataSource
+        implements DataSource {
+
+        static final String COMMIT_FAILED = "commit failed";
+        static final String CONNECT_FAILED = "connect failed";
+
+        private final String _url;
+
+        volatile boolean failCommit = false;
+        volatile boolean failConnect = false;
+        final AtomicInteger failures = new AtomicInteger();
+        final AtomicInteger rollbacks = new AtomicInteger();
+
+        FailingDataSource(String url) {
+            _url = url;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            final boolean prefetch = isPrefetchThread();
+            if (failConnect && !prefetch)
+                throw new SQLException(CONNECT_FAILED);
+            final Connection conn = DriverManager.getConnection(_url);
+            return (Connection) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class[]{ Connection.class },
+                (proxy, method, args) -> {
+                    if (prefetch && failCommit
+                        && "commit".equals(method.getName())) {
+                        failures.incrementAndGet();
+                        throw new SQLException(COMMIT_FAILED);
+                    }
+                    if (prefetch && "rollback".equals(method.getName())
+                        && args == null)
+                        rollbacks.incrementAndGet();
+                    try {
+                        return method.invoke(conn, args);
+                    } catch (InvocationTargetException ite) {
+                        throw ite.getCause();
+                    }
+                });
+        }
+
+        @Override
+        public Connection getConnection(String user, String pass)
+            throws SQLException {
+            return getConnection();
+        }
+
+        @Override
+        public PrintWriter getLogWriter() {
+            return null;
+        }
+
+        @Override
+        public void setLogWriter(PrintWriter out) {
+        }
+
+        @Override
+        public void setLoginTimeout(int seconds) {
+        }
+
+        @Override
+        public int getLoginTimeout() {
+            return 0;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            throw new SQLException(iface.getName());
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.kernel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+
+import org.apache.openjpa.conf.OpenJPAVersionAndConfigurationTypeValidationPolicy;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+import org.apache.openjpa.persistence.jdbc.BatchCustomer;
+import org.apache.openjpa.persistence.jdbc.BatchLine;
+import org.apache.openjpa.persistence.jdbc.BatchOrder;
+import org.apache.openjpa.persistence.jdbc.BatchRegion;
+import org.apache.openjpa.persistence.test.SQLListenerTestCase;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that the parsed queries stored by {@link QueryCompilationSnapshot}
+ * when a factory closes are loaded by the next factory, except those of
+ * candidate types whose mapping has changed.
+ */
+public class TestQueryCompilationSnapshot
+    extends SQLListenerTestCase {
+
+    private static final String TYPES = BatchRegion.class.getName() + ";"
+        + BatchCustomer.class.getName() + ";" + BatchOrder.class.getName()
+        + ";" + BatchLine.class.getName();
+
+    private File _file;
+
+    @Before
+    public void setUp() throws IOException {
+        _file = File.createTempFile("queries", ".ser");
+        _file.delete();
+    }
+
+    @After
+    @Override
+    public void tearDown() {
+        super.tearDown();
+        _file.delete();
+    }
+
+    @Test
+    public void testSnapshotIsLoadedByTheNextFactory() {
+        storeSnapshot();
+
+        OpenJPAEntityManagerFactorySPI next = createEMF(
+            "openjpa.MetaDataFactory", "jpa(Types=" + TYPES + ")",
+            "openjpa.CacheMarshallers", marshaller(true));
+        Map<?, ?> cache = compilations(next);
+        Assert.assertEquals(2, cache.size());
+        runQueries(next);
+        Assert.assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testStaleSnapshotIsDiscarded() {
+        storeSnapshot();
+
+        // the mapping of BatchRegion changes, that of BatchCustomer does not
+        OpenJPAEntityManagerFactorySPI next = createEMF(
+            "openjpa.MetaDataFactory", "jpa(Types=" + TYPES
+            + ", Resources=META-INF/snapshot-orm.xml)",
+            "openjpa.CacheMarshallers", marshaller(true));
+        Map<?, ?> cache = compilations(next);
+        Assert.assertEquals(1, cache.size());
+        runQueries(next);
+        Assert.assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testMetaDataHashIsOfTheCandidateType() {
+        storeSnapshot();
+        OpenJPAEntityManagerFactorySPI plain = createEMF(
+            "openjpa.MetaDataFactory", "jpa(Types=" + TYPES + ")");
+        OpenJPAEntityManagerFactorySPI changed = createEMF(
+            "openjpa.MetaDataFactory", "jpa(Types=" + TYPES
+            + ", Resources=META-INF/snapshot-orm.xml)");
+        QueryCompilationSnapshot before = new QueryCompilationSnapshot(
+            plain.getConfiguration());
+        QueryCompilationSnapshot after = new QueryCompilationSnapshot(
+            changed.getConfiguration());
+        Assert.assertNotEquals(before.getMetaDataHash(BatchRegion.class),
+            after.getMetaDataHash(BatchRegion.class));
+        Assert.assertEquals(before.getMetaDataHash(BatchCustomer.class),
+            after.getMetaDataHash(BatchCustomer.class));
+        Assert.assertNull(before.getMetaDataHash(String.class));
+    }
+
+    /**
+     * Run the queries with a factory that stores its snapshot when closed.
+     */
+    private void storeSnapshot() {
+        OpenJPAEntityManagerFactorySPI first = createEMF(
+            "openjpa.MetaDataFactory", "jpa(Types=" + TYPES + ")",
+            "openjpa.CacheMarshallers", marshaller(false));
+        runQueries(first);
+        Assert.assertEquals(2, compilations(first).size());
+        first.close();
+        Assert.assertTrue(_file.exists());
+    }
+
+    private void runQueries(OpenJPAEntityManagerFactorySPI factory) {
+        EntityManager em = factory.createEntityManager();
+        em.createQuery("select r from BatchRegion r where r.id > :id")
+            .setParameter("id", 0L).getResultList();
+        em.createQuery("select c from BatchCustomer c order by c.name")
+            .getResultList();
+        em.close();
+    }
+
+    /**
+     * Return the query compilation cache of the given factory, after the
+     * factory has been initialized and has loaded its snapshot.
+     */
+    private static Map<?, ?> compilations(
+        OpenJPAEntityManagerFactorySPI factory) {
+        factory.createEntityManager().close();
+        return factory.getConfiguration().getQueryCompilationCacheInstance();
+    }
+
+    private String marshaller(boolean load) {
+        return "default(Id=" + QueryCompilationSnapshot.class.getName()
+            + ", OutputFile=" + _file.getAbsolutePath()
+            + (load ? ", InputURL=" + _file.toURI() : "")
+            + ", ValidationPolicy=" + OpenJPAVersionAndConfigurationTypeValidationPolicy.class.getName() + ")";
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.criteria;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.ParameterExpression;
+import javax.persistence.criteria.Root;
+
+import org.apache.openjpa.kernel.PreparedQueryCache;
+import org.apache.openjpa.persistence.OpenJPAEntityManager;
+import org.apache.openjpa.persistence.jdbc.BatchCustomer;
+import org.apache.openjpa.persistence.jdbc.BatchLine;
+import org.apache.openjpa.persistence.jdbc.BatchOrder;
+import org.apache.openjpa.persistence.jdbc.BatchRegion;
+import org.apache.openjpa.persistence.test.SQLListenerTestCase;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests that criteria queries built alike share their compilation and
+ * prepared SQL, and that queries which differ in their literals, fetch joins
+ * or use of parameters do not.
+ */
+public class TestCriteriaFingerprint
+    extends SQLListenerTestCase {
+
+    private static final int ORDERS = 10;
+
+    private final Set<String> _fingerprints = new HashSet<>();
+
+    @Override
+    protected void setUp(Object... props) {
+        Object[] all = Arrays.copyOf(new Object[]{ BatchRegion.class,
+            BatchCustomer.class, BatchOrder.class, BatchLine.class },
+            4 + props.length);
+        System.arraycopy(props, 0, all, 4, props.length);
+        super.setUp(all);
+
+        OpenJPAEntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        BatchCustomer customer = new BatchCustomer(1, "customer", null);
+        for (int i = 0; i < ORDERS; i++) {
+            BatchOrder order = new BatchOrder(i, i);
+            order.addLine(new BatchLine(100 + i, "product" + i));
+            customer.addOrder(order);
+        }
+        em.persist(customer);
+        em.getTransaction().commit();
+        em.close();
+    }
+
+    @Test
+    public void testParameterValuesShareACompilation() {
+        setUp("openjpa.jdbc.QuerySQLCache", "false");
+        Map<?, ?> compilations = emf.getConfiguration()
+            .getQueryCompilationCacheInstance();
+        OpenJPAEntityManager em = emf.createEntityManager();
+
+        Assert.assertEquals(6, countAbove(em, 3));
+        int size = compilations.size();
+        Assert.assertEquals(1, countAbove(em, 8));
+        Assert.assertEquals(ORDERS, countAbove(em, -1));
+        Assert.assertEquals(size, compilations.size());
+
+        Assert.assertEquals(6, countAboveLiteral(em, 3));
+        Assert.assertEquals(size + 1, compilations.size());
+        Assert.assertEquals(6, countAboveLiteral(em, 3));
+        Assert.assertEquals(size + 1, compilations.size());
+        // a literal compiles to a constant, so another value is another query
+        Assert.assertEquals(1, countAboveLiteral(em, 8));
+        Assert.assertEquals(size + 2, compilations.size());
+        em.close();
+    }
+
+    @Test
+    public void testParameterValuesShareAPreparedQuery() {
+        setUp();
+        PreparedQueryCache prepared = emf.getConfiguration()
+            .getQuerySQLCacheInstance();
+        OpenJPAEntityManager em = emf.createEntityManager();
+
+        Assert.assertEquals(6, countAbove(em, 3));
+        Assert.assertEquals(1, prepared.getMapView().size());
+        resetSQL();
+        Assert.assertEquals(1, countAbove(em, 8));
+        Assert.assertEquals(4, countAbove(em, 5));
+        Assert.assertEquals(1, prepared.getMapView().size());
+        Assert.assertEquals(2, count("SELECT"));
+        em.close();
+    }
+
+    @Test
+    public void testFetchJoinsAreNotShared() {
+        setUp("openjpa.jdbc.QuerySQLCache", "false");
+        OpenJPAEntityManager em = emf.createEntityManager();
+
+        String plain = fetchOrders(em, false, false);
+        String lines = fetchOrders(em, true, false);
+        String both = fetchOrders(em, true, true);
+        Assert.assertNotEquals(plain, lines);
+        Assert.assertNotEquals(lines, both);
+        Assert.assertNotEquals(plain, both);
+        Assert.assertEquals(lines, fetchOrders(em, true, false));
+
+        // the fetch joins of a path are a set, whose order does not matter
+        CriteriaBuilderImpl cb = (CriteriaBuilderImpl) em.getCriteriaBuilder();
+        CriteriaQuery<BatchOrder> q = cb.createQuery(BatchOrder.class);
+        Root<BatchOrder> o = q.from(BatchOrder.class);
+        o.fetch("customer", JoinType.LEFT);
+        o.fetch("lines", JoinType.LEFT);
+        q.select(o).distinct(true);
+        Assert.assertEquals(both, ((OpenJPACriteriaQuery<?>) q)
+            .getFingerprint());
+        em.close();
+    }
+
+    @Test
+    public void testUnnamedParametersAreMatchedByIndex() {
+        setUp();
+        OpenJPAEntityManager em = emf.createEntityManager();
+        for (int i = 0; i < 2; i++) {
+            // amount >= 2 and amount <= 5 and amount <= 2
+            Assert.assertEquals(1, countBetween(em, false, 2, 5));
+            // amount >= 2 and amount <= 5 and amount <= 5
+            Assert.assertEquals(4, countBetween(em, true, 2, 5));
+            Assert.assertEquals(2, countBetween(em, true, 1, 2));
+        }
+        em.close();
+    }
+
+    @Test
+    public void testNamedParametersAreMatchedByName() {
+        setUp();
+        OpenJPAEntityManager em = emf.createEntityManager();
+        for (int i = 0; i < 2; i++) {
+            CriteriaBuilderImpl cb = (CriteriaBuilderImpl) em
+                .getCriteriaBuilder();
+            CriteriaQuery<BatchOrder> q = cb.createQuery(BatchOrder.class);
+            Root<BatchOrder> o = q.from(BatchOrder.class);
+            // declared in the opposite order of their use
+            ParameterExpression<Integer> max = cb.parameter(Integer.class,
+                "high");
+            ParameterExpression<Integer> min = cb.parameter(Integer.class,
+                "low");
+            q.select(o).where(cb.ge(o.<Integer> get("amount"), min),
+                cb.le(o.<Integer> get("amount"), max));
+            Assert.assertEquals(4, em.createQuery(q).setParameter(min, 3 + i)
+                .setParameter(max, 6 + i).getResultList().size());
+        }
+        em.close();
+    }
+
+    private int countAbove(OpenJPAEntityManager em, int amount) {
+        CriteriaBuilderImpl cb = (CriteriaBuilderImpl) em.getCriteriaBuilder();
+        CriteriaQuery<BatchOrder> q = cb.createQuery(BatchOrder.class);
+        Root<BatchOrder> o = q.from(BatchOrder.class);
+        ParameterExpression<Integer> min = cb.parameter(Integer.class, "low");
+        q.select(o).where(cb.gt(o.<Integer> get("amount"), min));
+        return em.createQuery(q).setParameter(min, amount).getResultList()
+            .size();
+    }
+
+    private int countAboveLiteral(OpenJPAEntityManager em, int amount) {
+        CriteriaBuilderImpl cb = (CriteriaBuilderImpl) em.getCriteriaBuilder();
+        CriteriaQuery<BatchOrder> q = cb.createQuery(BatchOrder.class);
+        Root<BatchOrder> o = q.from(BatchOrder.class);
+        q.select(o).where(cb.gt(o.<Integer> get("amount"),
+            cb.literal(amount)));
+        return em.createQuery(q).getResultList().size();
+    }
+
+    /**
+     * Count the orders of an amount between the given bounds and at most the
+     * lower or the upper bound, using unnamed parameters.
+     */
+    private int countBetween(OpenJPAEntityManager em, boolean upper,
+        int lower, int higher) {
+        CriteriaBuilderImpl cb = (CriteriaBuilderImpl) em.getCriteriaBuilder();
+        CriteriaQuery<BatchOrder> q = cb.createQuery(BatchOrder.class);
+        Root<BatchOrder> o = q.from(BatchOrder.class);
+        ParameterExpression<Integer> a = cb.parameter(Integer.class);
+        ParameterExpression<Integer> b = cb.parameter(Integer.class);
+        q.select(o).where(cb.ge(o.<Integer> get("amount"), a),
+            cb.le(o.<Integer> get("amount"), b),
+            cb.le(o.<Integer> get("amount"), upper ? b : a));
+        return em.createQuery(q).setParameter(a, lower)
+            .setParameter(b, higher).getResultList().size();
+    }
+
+    /**
+     * Run a query for the orders with the given fetch joins and return its
+     * fingerprint.
+     */
+    private String fetchOrders(OpenJPAEntityManager em, boolean lines,
+        boolean customer) {
+        CriteriaBuilderImpl cb = (CriteriaBuilderImpl) em.getCriteriaBuilder();
+        CriteriaQuery<BatchOrder> q = cb.createQuery(BatchOrder.class);
+        Root<BatchOrder> o = q.from(BatchOrder.class);
+        if (lines)
+            o.fetch("lines", JoinType.LEFT);
+        if (customer)
+            o.fetch("customer", JoinType.LEFT);
+        q.select(o).distinct(true);
+
+        Map<?, ?> compilations = emf.getConfiguration()
+            .getQueryCompilationCacheInstance();
+        String fingerprint = ((OpenJPACriteriaQuery<?>) q).getFingerprint();
+        int size = compilations.size();
+        List<BatchOrder> result = em.createQuery(q).getResultList();
+        Assert.assertEquals(ORDERS, result.size());
+        // only a query with a new fingerprint is compiled
+        Assert.assertEquals(_fingerprints.add(fingerprint) ? size + 1 : size,
+            compilations.size());
+        return fingerprint;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.datacache;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+import org.apache.openjpa.persistence.DataCache;
+
+@Entity
+@DataCache(timeout = CachedValues.TIMEOUT)
+public class CachedValues {
+
+    /**
+     * The milliseconds the values stay in the data cache.
+     */
+    public static final int TIMEOUT = 2000;
+
+    @Id
+    private long id;
+
+    private boolean booleanValue;
+    private byte byteValue;
+    private char charValue;
+    private short shortValue;
+    private int intValue;
+    private long longValue;
+    private float floatValue;
+    private double doubleValue;
+    private String stringValue;
+
+    public CachedValues() {
+    }
+
+    public CachedValues(long id) {
+        this.id = id;
+        booleanValue = true;
+        byteValue = (byte) (id - 128);
+        charValue = (char) ('a' + id);
+        shortValue = (short) (id - 32768);
+        intValue = (int) id + Integer.MIN_VALUE;
+        longValue = id + Long.MIN_VALUE;
+        floatValue = id + 0.25f;
+        doubleValue = id - 0.125;
+        stringValue = "values" + id;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Describe all values, for comparison.
+     */
+    public String describe() {
+        return id + " " + booleanValue + " " + byteValue + " " + charValue
+            + " " + shortValue + " " + intValue + " " + longValue + " "
+            + floatValue + " " + doubleValue + " " + stringValue;
+    }
+}
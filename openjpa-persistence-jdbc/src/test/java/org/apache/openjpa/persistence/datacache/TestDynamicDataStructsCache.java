@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.datacache;
+
+import java.util.List;
+
+import org.apache.openjpa.datacache.DataCache;
+import org.apache.openjpa.datacache.DataCachePCData;
+import org.apache.openjpa.datacache.DataCachePCDataImpl;
+import org.apache.openjpa.persistence.JPAFacadeHelper;
+import org.apache.openjpa.persistence.OpenJPAEntityManager;
+import org.apache.openjpa.persistence.jdbc.BatchCustomer;
+import org.apache.openjpa.persistence.jdbc.BatchLine;
+import org.apache.openjpa.persistence.jdbc.BatchOrder;
+import org.apache.openjpa.persistence.jdbc.BatchRegion;
+import org.apache.openjpa.persistence.test.SQLListenerTestCase;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the data cache with <code>openjpa.DynamicDataStructs</code>, which
+ * caches instances in data structures generated for their types.
+ */
+public class TestDynamicDataStructsCache
+    extends SQLListenerTestCase {
+
+    private static final int INSTANCES = 5;
+
+    @Test
+    public void testInstancesClearedBeforeCommitAreCached() {
+        setUpCache("true");
+        OpenJPAEntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        for (int i = 0; i < INSTANCES; i++)
+            em.persist(new CachedValues(i));
+        em.flush();
+        em.clear();
+        em.getTransaction().commit();
+        em.close();
+
+        assertCachedValues();
+    }
+
+    @Test
+    public void testPrimitivesRoundTripThroughOffHeapCache() {
+        setUpCache("offheap");
+        persistValues();
+        assertCachedValues();
+        // decoded data is read again
+        assertCachedValues();
+    }
+
+    @Test
+    public void testTimeout() throws InterruptedException {
+        setUpCache("true");
+        long start = System.currentTimeMillis();
+        persistValues();
+        long end = System.currentTimeMillis();
+
+        DataCachePCData data = cached(CachedValues.class, 0L);
+        Assert.assertFalse(data instanceof DataCachePCDataImpl);
+        Assert.assertTrue(data.getTimeOut() >= start + CachedValues.TIMEOUT);
+        Assert.assertTrue(data.getTimeOut() <= end + CachedValues.TIMEOUT);
+        Assert.assertFalse(data.isTimedOut());
+
+        Thread.sleep(data.getTimeOut() - System.currentTimeMillis() + 100);
+        Assert.assertTrue(data.isTimedOut());
+        OpenJPAEntityManager em = emf.createEntityManager();
+        resetSQL();
+        Assert.assertNotNull(em.find(CachedValues.class, 0L));
+        Assert.assertEquals(sql.toString(), 1, count("SELECT"));
+        em.close();
+    }
+
+    @Test
+    public void testOrderedFieldsUseDefaultData() {
+        setUpCache("true");
+        OpenJPAEntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        BatchRegion region = new BatchRegion(1, "region");
+        BatchCustomer customer = new BatchCustomer(1, "customer", region);
+        for (int i = INSTANCES; i > 0; i--)
+            customer.addOrder(new BatchOrder(i, i * 10));
+        em.persist(region);
+        em.persist(customer);
+        em.getTransaction().commit();
+        em.close();
+
+        // the orders of the customer are ordered by their id
+        Assert.assertFalse(cached(BatchRegion.class, 1L)
+            instanceof DataCachePCDataImpl);
+        Assert.assertTrue(cached(BatchCustomer.class, 1L)
+            instanceof DataCachePCDataImpl);
+        Assert.assertTrue(cached(BatchOrder.class, 1L)
+            instanceof DataCachePCDataImpl);
+
+        em = emf.createEntityManager();
+        List<BatchOrder> orders = em.find(BatchCustomer.class, 1L).getOrders();
+        Assert.assertEquals(INSTANCES, orders.size());
+        for (int i = 0; i < INSTANCES; i++)
+            Assert.assertEquals(i + 1, orders.get(i).getId());
+        em.close();
+    }
+
+    /**
+     * Create a factory that caches all types in the data cache given by
+     * the given plugin string, in generated data structures.
+     */
+    private void setUpCache(String cache) {
+        setUp(CachedValues.class, BatchRegion.class, BatchCustomer.class,
+            BatchOrder.class, BatchLine.class,
+            "openjpa.DynamicDataStructs", "true",
+            "openjpa.DataCache", cache,
+            "openjpa.RemoteCommitProvider", "sjvm");
+    }
+
+    private void persistValues() {
+        OpenJPAEntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        for (int i = 0; i < INSTANCES; i++)
+            em.persist(new CachedValues(i));
+        em.getTransaction().commit();
+        em.close();
+    }
+
+    /**
+     * Assert that the values are found in the cache, without a select, and
+     * equal to the values that were stored.
+     */
+    private void assertCachedValues() {
+        OpenJPAEntityManager em = emf.createEntityManager();
+        resetSQL();
+        for (int i = 0; i < INSTANCES; i++)
+            Assert.assertEquals(new CachedValues(i).describe(),
+                em.find(CachedValues.class, (long) i).describe());
+        Assert.assertEquals(sql.toString(), 0, count("SELECT"));
+        em.close();
+    }
+
+    /**
+     * Return the cached data of the instance with the given type and id.
+     */
+    private DataCachePCData cached(Class<?> type, long id) {
+        OpenJPAEntityManager em = emf.createEntityManager();
+        try {
+            Object oid = JPAFacadeHelper.toBroker(em).newObjectId(type, id);
+            DataCache cache = emf.getConfiguration()
+                .getDataCacheManagerInstance().getSystemDataCache();
+            DataCachePCData data = cache.get(oid);
+            Assert.assertNotNull(type.getName(), data);
+            return data;
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.jdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.CascadeType;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.OrderBy;
+
+@Entity
+public class BatchCustomer {
+
+    @Id
+    private long id;
+
+    private String name;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    private BatchRegion region;
+
+    @OneToMany(mappedBy = "customer", cascade = CascadeType.PERSIST)
+    @OrderBy("id")
+    private List<BatchOrder> orders = new ArrayList<>();
+
+    public BatchCustomer() {
+    }
+
+    public BatchCustomer(long id, String name, BatchRegion region) {
+        this.id = id;
+        this.name = name;
+        this.region = region;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public BatchRegion getRegion() {
+        return region;
+    }
+
+    public List<BatchOrder> getOrders() {
+        return orders;
+    }
+
+    public void addOrder(BatchOrder order) {
+        order.setCustomer(this);
+        orders.add(order);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.jdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.CascadeType;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.OrderBy;
+
+@Entity
+public class BatchOrder {
+
+    @Id
+    private long id;
+
+    private int amount;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    private BatchCustomer customer;
+
+    @OneToMany(mappedBy = "order", cascade = CascadeType.PERSIST)
+    @OrderBy("id")
+    @EagerFetchMode(FetchMode.BATCH)
+    private List<BatchLine> lines = new ArrayList<>();
+
+    public BatchOrder() {
+    }
+
+    public BatchOrder(long id, int amount) {
+        this.id = id;
+        this.amount = amount;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+
+    public BatchCustomer getCustomer() {
+        return customer;
+    }
+
+    void setCustomer(BatchCustomer customer) {
+        this.customer = customer;
+    }
+
+    public List<BatchLine> getLines() {
+        return lines;
+    }
+
+    public void addLine(BatchLine line) {
+        line.setOrder(this);
+        lines.add(line);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.jdbc;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.CascadeType;
+import javax.persistence.ElementCollection;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.ManyToMany;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.OrderBy;
+import javax.persistence.OrderColumn;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+import org.apache.openjpa.persistence.LRS;
+
+@Entity
+public class DetachNode {
+
+    @Id
+    private long id;
+
+    private String name;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date created;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @OrderColumn
+    private List<String> tags = new ArrayList<>();
+
+    @ManyToMany
+    @LRS
+    private Collection<BatchRegion> regions = new ArrayList<>();
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    private DetachNode parent;
+
+    @OneToMany(mappedBy = "parent", cascade = CascadeType.ALL)
+    @OrderBy("id")
+    private List<DetachNode> children = new ArrayList<>();
+
+    public DetachNode() {
+    }
+
+    public DetachNode(long id, String name) {
+        this.id = id;
+        this.name = name;
+        this.created = new Date(id);
+        tags.add(name);
+        tags.add("tag" + id);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Date getCreated() {
+        return created;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public Collection<BatchRegion> getRegions() {
+        return regions;
+    }
+
+    public DetachNode getParent() {
+        return parent;
+    }
+
+    public List<DetachNode> getChildren() {
+        return children;
+    }
+
+    public void addChild(DetachNode child) {
+        child.parent = this;
+        children.add(child);
+    }
+}
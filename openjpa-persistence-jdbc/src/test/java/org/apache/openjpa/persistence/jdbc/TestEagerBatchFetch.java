@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.jdbc;
+
+import java.util.List;
+
+import javax.persistence.LockModeType;
+
+import org.apache.openjpa.persistence.OpenJPAEntityManager;
+import org.apache.openjpa.persistence.test.SQLListenerTestCase;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the batch eager fetch mode, which loads a lazy relation of every
+ * instance of a query result with one select when the relation of the first
+ * of them is accessed.
+ */
+public class TestEagerBatchFetch
+    extends SQLListenerTestCase {
+
+    private static final int CUSTOMERS = 10;
+    private static final int REGIONS = 4;
+    private static final int ORDERS = 3;
+    private static final int LINES = 2;
+
+    @Before
+    public void setUp() {
+        setUp(BatchRegion.class, BatchCustomer.class, BatchOrder.class,
+            BatchLine.class);
+        OpenJPAEntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        BatchRegion[] regions = new BatchRegion[REGIONS];
+        for (int i = 0; i < REGIONS; i++) {
+            regions[i] = new BatchRegion(i, "region" + i);
+            em.persist(regions[i]);
+        }
+        long id = 0;
+        for (int i = 0; i < CUSTOMERS; i++) {
+            BatchCustomer customer = new BatchCustomer(i, "customer" + i,
+                regions[i % REGIONS]);
+            for (int j = 0; j < ORDERS; j++) {
+                BatchOrder order = new BatchOrder(id++, i * j);
+                for (int k = 0; k < LINES; k++)
+                    order.addLine(new BatchLine(id++, "product" + k));
+                customer.addOrder(order);
+            }
+            em.persist(customer);
+        }
+        em.getTransaction().commit();
+        em.close();
+    }
+
+    @Test
+    public void testToManyRelationIsLoadedForTheWholeResult() {
+        // the second query runs from the prepared SQL cache
+        String expected = describeOrders(FetchMode.PARALLEL, CUSTOMERS);
+        Assert.assertEquals(expected, describeOrders(FetchMode.BATCH, 1));
+    }
+
+    @Test
+    public void testToOneRelationIsLoadedForTheWholeResult() {
+        OpenJPAEntityManager em = emf.createEntityManager();
+        ((JDBCFetchPlan) em.getFetchPlan()).setEagerFetchMode
+            (FetchMode.BATCH);
+        List<BatchCustomer> customers = em.createQuery("select c from "
+            + "BatchCustomer c order by c.id", BatchCustomer.class)
+            .getResultList();
+        resetSQL();
+        for (BatchCustomer customer : customers)
+            Assert.assertEquals("region" + (customer.getId() % REGIONS),
+                customer.getRegion().getName());
+        Assert.assertEquals(sql.toString(), 1, count("SELECT"));
+        em.close();
+    }
+
+    @Test
+    public void testNextLevelOfTheGraphIsBatched() {
+        OpenJPAEntityManager em = emf.createEntityManager();
+        ((JDBCFetchPlan) em.getFetchPlan()).setEagerFetchMode
+            (FetchMode.BATCH);
+        List<BatchCustomer> customers = em.createQuery("select c from "
+            + "BatchCustomer c order by c.id", BatchCustomer.class)
+            .getResultList();
+        resetSQL();
+        StringBuilder buf = new StringBuilder();
+        for (BatchCustomer customer : customers)
+            for (BatchOrder order : customer.getOrders())
+                for (BatchLine line : order.getLines())
+                    buf.append(order.getId()).append(':')
+                        .append(line.getId()).append(' ');
+        Assert.assertEquals(sql.toString(), 2, count("SELECT"));
+        Assert.assertEquals(describeLines(), buf.toString());
+        em.close();
+    }
+
+    @Test
+    public void testFieldModeAppliesWithoutPlanMode() {
+        OpenJPAEntityManager em = emf.createEntityManager();
+        List<BatchOrder> orders = em.createQuery("select o from "
+            + "BatchOrder o order by o.id", BatchOrder.class)
+            .getResultList();
+        resetSQL();
+        for (BatchOrder order : orders)
+            Assert.assertEquals(LINES, order.getLines().size());
+        Assert.assertEquals(sql.toString(), 1, count("SELECT"));
+        em.close();
+    }
+
+    @Test
+    public void testPessimisticLockDisablesBatching() {
+        OpenJPAEntityManager em = emf.createEntityManager();
+        ((JDBCFetchPlan) em.getFetchPlan()).setEagerFetchMode
+            (FetchMode.BATCH);
+        em.getTransaction().begin();
+        List<BatchCustomer> customers = em.createQuery("select c from "
+            + "BatchCustomer c order by c.id", BatchCustomer.class)
+            .setLockMode(LockModeType.PESSIMISTIC_READ)
+            .getResultList();
+        resetSQL();
+        for (BatchCustomer customer : customers)
+            Assert.assertEquals(ORDERS, customer.getOrders().size());
+        Assert.assertEquals(sql.toString(), CUSTOMERS, count("SELECT"));
+        em.getTransaction().rollback();
+        em.close();
+    }
+
+    /**
+     * Walk the orders of all customers with the given eager fetch mode,
+     * assert the number of selects it takes, and describe what was found.
+     */
+    private String describeOrders(FetchMode mode, int selects) {
+        OpenJPAEntityManager em = emf.createEntityManager();
+        ((JDBCFetchPlan) em.getFetchPlan()).setEagerFetchMode(mode);
+        List<BatchCustomer> customers = em.createQuery("select c from "
+            + "BatchCustomer c order by c.id", BatchCustomer.class)
+            .getResultList();
+        resetSQL();
+        StringBuilder buf = new StringBuilder();
+        for (BatchCustomer customer : customers) {
+            buf.append(customer.getName()).append('[');
+            for (BatchOrder order : customer.getOrders())
+                buf.append(order.getId()).append('=')
+                    .append(order.getAmount()).append(' ');
+            buf.append(']');
+        }
+        Assert.assertEquals(sql.toString(), selects, count("SELECT"));
+        em.close();
+        return buf.toString();
+    }
+
+    /**
+     * Describe the lines of all orders, loaded one order at a time.
+     */
+    private String describeLines() {
+        OpenJPAEntityManager em = emf.createEntityManager();
+        List<BatchCustomer> customers = em.createQuery("select c from "
+            + "BatchCustomer c order by c.id", BatchCustomer.class)
+            .getResultList();
+        StringBuilder buf = new StringBuilder();
+        for (BatchCustomer customer : customers)
+            for (BatchOrder order : customer.getOrders())
+                for (BatchLine line : order.getLines())
+                    buf.append(order.getId()).append(':')
+                        .append(line.getId()).append(' ');
+        em.close();
+        return buf.toString();
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.jdbc;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.apache.openjpa.enhance.PersistenceCapable;
+import org.apache.openjpa.kernel.DetachedStateManager;
+import org.apache.openjpa.persistence.test.SQLListenerTestCase;
+import org.apache.openjpa.util.Proxy;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests detaching many instances at once, both by the lite detach on the
+ * common fork join pool and by cascading detach of a graph.
+ */
+public class TestParallelDetach
+    extends SQLListenerTestCase {
+
+    private static final int NODES = 200;
+
+    @Test
+    public void testParallelLiteDetachUnproxiesFields() {
+        List<DetachNode> nodes = detachLite(
+            "loaded(LiteAutoDetach=true, ParallelThreshold=2)");
+        for (DetachNode node : nodes) {
+            Assert.assertFalse(node.getTags() instanceof Proxy);
+            Assert.assertFalse(node.getCreated() instanceof Proxy);
+            assertFields(node);
+        }
+    }
+
+    @Test
+    public void testParallelLiteDetachKeepsProxiesWithoutOwner() {
+        List<DetachNode> nodes = detachLite("loaded(LiteAutoDetach=true, "
+            + "ParallelThreshold=2, DetachProxyFields=false)");
+        for (DetachNode node : nodes) {
+            Assert.assertTrue(node.getTags() instanceof Proxy);
+            Assert.assertNull(((Proxy) node.getTags()).getOwner());
+            Assert.assertTrue(node.getCreated() instanceof Proxy);
+            Assert.assertNull(((Proxy) node.getCreated()).getOwner());
+            assertFields(node);
+        }
+        // changes to the detached proxies are not tracked
+        DetachNode node = nodes.get(0);
+        node.getTags().add("more");
+        node.getCreated().setTime(1L);
+        Assert.assertEquals(3, node.getTags().size());
+    }
+
+    @Test
+    public void testLiteDetachBelowThreshold() {
+        List<DetachNode> nodes = detachLite("loaded(LiteAutoDetach=true, "
+            + "ParallelThreshold=" + (NODES + 1) + ")");
+        for (DetachNode node : nodes) {
+            Assert.assertFalse(node.getTags() instanceof Proxy);
+            assertFields(node);
+        }
+    }
+
+    @Test
+    public void testCascadingDetachOfGraph() {
+        setUp(DetachNode.class, BatchRegion.class);
+        // three levels of three children each below the root
+        DetachNode root = new DetachNode(0, "node0");
+        addChildren(root, 3, new long[] { 1 });
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        em.persist(root);
+        em.getTransaction().commit();
+        em.close();
+
+        em = emf.createEntityManager();
+        root = em.find(DetachNode.class, 0L);
+        Assert.assertEquals(40, load(root));
+        em.detach(root);
+        Assert.assertEquals(40, assertDetached(em, root));
+        em.close();
+    }
+
+    /**
+     * Persist {@link #NODES} nodes with a region each, read them and their
+     * regions, and clear the persistence context with the given detach
+     * state.
+     */
+    private List<DetachNode> detachLite(String detachState) {
+        setUp(DetachNode.class, BatchRegion.class,
+            "openjpa.DetachState", detachState);
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        BatchRegion region = new BatchRegion(1, "region");
+        em.persist(region);
+        for (int i = 0; i < NODES; i++) {
+            DetachNode node = new DetachNode(i, "node" + i);
+            node.getRegions().add(region);
+            em.persist(node);
+        }
+        em.getTransaction().commit();
+        em.close();
+
+        em = emf.createEntityManager();
+        List<DetachNode> nodes = em.createQuery(
+            "select n from DetachNode n order by n.id", DetachNode.class)
+            .getResultList();
+        Assert.assertEquals(NODES, nodes.size());
+        for (DetachNode node : nodes) {
+            Assert.assertTrue(node.getRegions() instanceof Proxy);
+            Assert.assertEquals(1, node.getRegions().size());
+        }
+        em.clear();
+        for (DetachNode node : nodes)
+            Assert.assertFalse(em.contains(node));
+        em.close();
+        return nodes;
+    }
+
+    /**
+     * Assert the fields of a node read by {@link #detachLite}, whose large
+     * result set field is dropped on detach.
+     */
+    private static void assertFields(DetachNode node) {
+        Assert.assertNull(((PersistenceCapable) node).pcGetStateManager());
+        Assert.assertEquals("node" + node.getId(), node.getName());
+        Assert.assertEquals(new Date(node.getId()), node.getCreated());
+        Assert.assertEquals(Arrays.asList(node.getName(),
+            "tag" + node.getId()), node.getTags());
+        Assert.assertNull(node.getRegions());
+    }
+
+    /**
+     * Add the given number of levels of three children below the given node,
+     * taking their ids from the given counter.
+     */
+    private static void addChildren(DetachNode node, int levels, long[] ids) {
+        if (levels == 0)
+            return;
+        for (int i = 0; i < 3; i++) {
+            long id = ids[0]++;
+            DetachNode child = new DetachNode(id, "node" + id);
+            node.addChild(child);
+            addChildren(child, levels - 1, ids);
+        }
+    }
+
+    /**
+     * Load the children of the given node and their descendants, and return
+     * the number of nodes in the graph.
+     */
+    private static int load(DetachNode node) {
+        int count = 1;
+        for (DetachNode child : node.getChildren())
+            count += load(child);
+        return count;
+    }
+
+    /**
+     * Assert that the given node and its descendants are detached with all
+     * their fields, and return the number of nodes in the graph.
+     */
+    private static int assertDetached(EntityManager em, DetachNode node) {
+        Assert.assertFalse(em.contains(node));
+        Assert.assertEquals("node" + node.getId(), node.getName());
+        Assert.assertEquals(new Date(node.getId()), node.getCreated());
+        Assert.assertEquals(Arrays.asList(node.getName(),
+            "tag" + node.getId()), node.getTags());
+        // proxies track changes for the detached state manager
+        Object sm = ((PersistenceCapable) node).pcGetStateManager();
+        Assert.assertTrue(sm instanceof DetachedStateManager);
+        Assert.assertSame(sm, ((Proxy) node.getTags()).getOwner());
+        Assert.assertSame(sm, ((Proxy) node.getChildren()).getOwner());
+        int count = 1;
+        for (DetachNode child : node.getChildren()) {
+            Assert.assertSame(node, child.getParent());
+            count += assertDetached(em, child);
+        }
+        return count;
+    }
+}
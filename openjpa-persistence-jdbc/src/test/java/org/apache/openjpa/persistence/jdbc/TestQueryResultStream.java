@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.jdbc;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.openjpa.lib.jdbc.AbstractJDBCListener;
+import org.apache.openjpa.lib.jdbc.JDBCEvent;
+import org.apache.openjpa.lib.jdbc.JDBCListener;
+import org.apache.openjpa.persistence.AutoDetachType;
+import org.apache.openjpa.persistence.OpenJPAEntityManager;
+import org.apache.openjpa.persistence.OpenJPAPersistence;
+import org.apache.openjpa.persistence.OpenJPAQuery;
+import org.apache.openjpa.persistence.test.SQLListenerTestCase;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests query results read as a stream from a cursor that stays open until
+ * the stream is closed or read to its end.
+ */
+public class TestQueryResultStream
+    extends SQLListenerTestCase {
+
+    private static final int CUSTOMERS = 10;
+    private static final int ORDERS = 3;
+
+    // fewer rows than the results, so that the cursor stays open
+    private static final int BATCH = 2;
+
+    private final AtomicInteger _connections = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        setUp(BatchRegion.class, BatchCustomer.class, BatchOrder.class,
+            BatchLine.class, "openjpa.jdbc.JDBCListeners",
+            new JDBCListener[]{ new ConnectionListener() });
+        OpenJPAEntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        long id = 0;
+        for (int i = 0; i < CUSTOMERS; i++) {
+            BatchCustomer customer = new BatchCustomer(i, "customer" + i,
+                null);
+            // the amounts of the orders of different customers interleave
+            for (int j = 0; j < ORDERS; j++)
+                customer.addOrder(new BatchOrder(id++, j * CUSTOMERS + i));
+            em.persist(customer);
+        }
+        em.getTransaction().commit();
+        em.close();
+    }
+
+    @Test
+    public void testStreamKeepsCursorOpenUntilClosed() {
+        OpenJPAEntityManager em = emf.createEntityManager();
+        int open = _connections.get();
+        Stream<BatchCustomer> stream = em.createQuery("select c from "
+            + "BatchCustomer c order by c.id", BatchCustomer.class)
+            .setHint("openjpa.FetchBatchSize", BATCH).getResultStream();
+        Iterator<BatchCustomer> itr = stream.iterator();
+        Assert.assertEquals(0, itr.next().getId());
+        Assert.assertEquals(open + 1, _connections.get());
+        stream.close();
+        Assert.assertEquals(open, _connections.get());
+        em.close();
+    }
+
+    @Test
+    public void testTerminalOperationClosesCursor() {
+        OpenJPAEntityManager em = emf.createEntityManager();
+        int open = _connections.get();
+        List<Long> ids = em.createQuery("select c.id from BatchCustomer c "
+            + "order by c.id", Long.class).setHint("openjpa.FetchBatchSize", BATCH)
+            .getResultStream().collect(Collectors.toList());
+        Assert.assertEquals(CUSTOMERS, ids.size());
+        for (int i = 0; i < CUSTOMERS; i++)
+            Assert.assertEquals(i, ids.get(i).longValue());
+        Assert.assertEquals(open, _connections.get());
+        em.close();
+    }
+
+    @Test
+    public void testDistinctStreamDropsRepeatedResults() {
+        OpenJPAEntityManager em = emf.createEntityManager();
+        String jpql = "select %s o.customer from BatchOrder o "
+            + "order by o.amount";
+        List<Long> rows = new ArrayList<>();
+        for (BatchCustomer customer : em.createQuery(String.format(jpql, ""),
+            BatchCustomer.class).getResultList())
+            rows.add(customer.getId());
+        // the repeated customers are not consecutive
+        Assert.assertEquals(CUSTOMERS * ORDERS, rows.size());
+        Assert.assertNotEquals(rows.get(0), rows.get(1));
+
+        List<Long> ids;
+        try (Stream<BatchCustomer> stream = em.createQuery(String.format(jpql,
+            "distinct"), BatchCustomer.class).getResultStream()) {
+            ids = stream.map(BatchCustomer::getId)
+                .collect(Collectors.toList());
+        }
+        Assert.assertEquals(rows.subList(0, CUSTOMERS), ids);
+        em.close();
+    }
+
+    @Test
+    public void testDetachingStream() {
+        OpenJPAEntityManager em = emf.createEntityManager();
+        OpenJPAQuery<BatchCustomer> q = OpenJPAPersistence.cast(
+            em.createQuery("select c from BatchCustomer c",
+            BatchCustomer.class));
+        Set<Long> ids = new HashSet<>();
+        try (Stream<BatchCustomer> stream = q.getResultStream(true)) {
+            stream.forEach(c -> {
+                Assert.assertTrue(em.contains(c));
+                ids.add(c.getId());
+            });
+        }
+        Assert.assertEquals(CUSTOMERS, ids.size());
+        Assert.assertEquals(0, em.getManagedObjects().size());
+        em.close();
+    }
+
+    @Test
+    public void testNonTransactionalDetachReadsResultsEagerly() {
+        OpenJPAEntityManager em = emf.createEntityManager();
+        em.setAutoDetach(AutoDetachType.NON_TRANSACTIONAL_READ, true);
+        int open = _connections.get();
+        Stream<BatchCustomer> stream = em.createQuery("select c from "
+            + "BatchCustomer c", BatchCustomer.class).getResultStream();
+        // the results were read into a list and detached by the query
+        Assert.assertEquals(open, _connections.get());
+        List<BatchCustomer> customers = stream.collect(Collectors.toList());
+        Assert.assertEquals(CUSTOMERS, customers.size());
+        for (BatchCustomer customer : customers)
+            Assert.assertFalse(em.contains(customer));
+        em.close();
+    }
+
+    /**
+     * Counts the connections that are open.
+     */
+    private class ConnectionListener
+        extends AbstractJDBCListener {
+
+        @Override
+        public void afterConnect(JDBCEvent event) {
+            _connections.incrementAndGet();
+        }
+
+        @Override
+        public void beforeClose(JDBCEvent event) {
+            _connections.decrementAndGet();
+        }
+    }
+}
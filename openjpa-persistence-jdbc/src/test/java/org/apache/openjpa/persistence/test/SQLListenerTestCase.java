@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.Persistence;
+
+import org.apache.openjpa.lib.jdbc.AbstractJDBCListener;
+import org.apache.openjpa.lib.jdbc.JDBCEvent;
+import org.apache.openjpa.lib.jdbc.JDBCListener;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+import org.junit.After;
+
+/**
+ * Base class of tests which run against an in-memory Derby database and
+ * record the SQL they issue. Each factory gets a database of its own whose
+ * schema is built from the given persistent types.
+ */
+public abstract class SQLListenerTestCase {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    /**
+     * The SQL issued through the factories of this test, in order.
+     */
+    protected final List<String> sql = new CopyOnWriteArrayList<>();
+
+    protected OpenJPAEntityManagerFactorySPI emf;
+
+    private final List<OpenJPAEntityManagerFactorySPI> _emfs =
+        new ArrayList<>();
+
+    /**
+     * Create {@link #emf} for the given persistent types and property
+     * name and value pairs.
+     */
+    protected void setUp(Object... props) {
+        emf = createEMF(props);
+    }
+
+    /**
+     * Create a factory for the given persistent types and property name and
+     * value pairs, on a database of its own.
+     */
+    protected OpenJPAEntityManagerFactorySPI createEMF(Object... props) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("openjpa.ConnectionDriverName",
+            "org.apache.derby.jdbc.EmbeddedDriver");
+        map.put("openjpa.ConnectionURL", "jdbc:derby:memory:openjpa"
+            + DATABASES.incrementAndGet() + ";create=true");
+        map.put("openjpa.jdbc.SynchronizeMappings",
+            "buildSchema(ForeignKeys=true)");
+        map.put("openjpa.DynamicEnhancementAgent", "false");
+        map.put("openjpa.RuntimeUnenhancedClasses", "unsupported");
+        map.put("openjpa.Log", "DefaultLevel=WARN");
+        map.put("openjpa.jdbc.JDBCListeners",
+            new JDBCListener[]{ new Listener() });
+
+        StringBuilder types = new StringBuilder();
+        for (int i = 0; i < props.length; i++) {
+            if (props[i] instanceof Class) {
+                if (types.length() > 0)
+                    types.append(';');
+                types.append(((Class<?>) props[i]).getName());
+            } else
+                map.put((String) props[i], props[++i]);
+        }
+        if (types.length() > 0)
+            map.put("openjpa.MetaDataFactory", "jpa(Types=" + types + ")");
+
+        OpenJPAEntityManagerFactorySPI factory =
+            (OpenJPAEntityManagerFactorySPI) Persistence
+            .createEntityManagerFactory("test", map);
+        _emfs.add(factory);
+        return factory;
+    }
+
+    @After
+    public void tearDown() {
+        for (OpenJPAEntityManagerFactorySPI factory : _emfs)
+            if (factory.isOpen())
+                factory.close();
+        _emfs.clear();
+        emf = null;
+    }
+
+    /**
+     * Forget the SQL recorded so far.
+     */
+    protected void resetSQL() {
+        sql.clear();
+    }
+
+    /**
+     * Return the number of recorded statements that start with the given
+     * text, ignoring case.
+     */
+    protected int count(String prefix) {
+        int count = 0;
+        for (String stmnt : sql)
+            if (stmnt.regionMatches(true, 0, prefix, 0, prefix.length()))
+                count++;
+        return count;
+    }
+
+    private class Listener
+        extends AbstractJDBCListener {
+
+        @Override
+        public void beforeExecuteStatement(JDBCEvent event) {
+            if (event.getSQL() != null)
+                sql.add(event.getSQL());
+        }
+    }
+}
@@ -1917,14 +1917,26 @@ public class EntityManagerImpl
     /**
      * Create a query from the given CritriaQuery.
      * Compile to register the parameters in this query.
+     * A query is identified by its fingerprint, if any, so that structurally
+     * identical queries share their prepared query.
      */
     @Override
     public <T> TypedQuery<T> createQuery(CriteriaQuery<T> criteriaQuery) {
-        ((OpenJPACriteriaQuery<T>)criteriaQuery).compile();
-
-        org.apache.openjpa.kernel.Query kernelQuery =_broker.newQuery(OpenJPACriteriaBuilder.LANG_CRITERIA, criteriaQuery);
+        OpenJPACriteriaQuery<T> criteria = (OpenJPACriteriaQuery<T>)criteriaQuery;
+        criteria.compile();
+
+        String qid = criteria.getFingerprint();
+        PreparedQuery pq = (qid == null) ? null : getPreparedQuery(qid);
+        org.apache.openjpa.kernel.Query kernelQuery;
+        if (pq == null || !pq.isInitialized()) {
+            kernelQuery = _broker.newQuery(OpenJPACriteriaBuilder.LANG_CRITERIA, criteriaQuery);
+        } else {
+            kernelQuery = _broker.newQuery(pq.getLanguage(), pq);
+            pq.setInto(kernelQuery);
+        }
 
-        QueryImpl<T> facadeQuery = newQueryImpl(kernelQuery, null).setId(criteriaQuery.toString());
+        QueryImpl<T> facadeQuery = newQueryImpl(kernelQuery, null)
+            .setId(qid == null ? criteriaQuery.toString() : qid).setCriteria(criteria);
         Set<ParameterExpression<?>> params = criteriaQuery.getParameters();
 
         for (ParameterExpression<?> param : params) {
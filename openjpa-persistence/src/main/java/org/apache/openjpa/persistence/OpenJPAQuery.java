@@ -23,6 +23,7 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import javax.persistence.FlushModeType;
 import javax.persistence.Query;
@@ -162,6 +163,25 @@ public interface OpenJPAQuery<X> extends TypedQuery<X> {
      */
     OpenJPAQuery<X>closeAll();
 
+    /**
+     * Execute a query that returns a stream of results, read lazily from a
+     * forward-only cursor of {@link FetchPlan#getFetchBatchSize} rows, or
+     * of 1000 rows if the fetch plan reads all rows at once. Closing the
+     * stream, or reading it to its end, closes the cursor. The stream of a
+     * distinct query keeps the ids of the results it has returned, to drop
+     * the later rows of a to-many join that repeat them.
+     * The results are read into a list first if the cursor cannot stay
+     * open: when non-transactional reads are detached
+     * ({@link AutoDetachType#NON_TRANSACTIONAL_READ}) and no transaction is
+     * active, and for aggregate and grouping queries.
+     *
+     * @param detach whether to detach each instance of the results once the
+     * stream has moved past it or has been closed, so that the instances
+     * already read do not accumulate in the persistence context
+     * @since 3.2.3
+     */
+    Stream<X> getResultStream(boolean detach);
+
     /**
      * Returns a description of the commands that will be sent to
      * the datastore in order to execute this query. This will
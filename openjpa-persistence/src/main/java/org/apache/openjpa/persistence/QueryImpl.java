@@ -21,12 +21,22 @@ package org.apache.openjpa.persistence;
 import static org.apache.openjpa.kernel.QueryLanguages.LANG_PREPARED_SQL;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.persistence.FlushModeType;
 import javax.persistence.LockModeType;
@@ -34,6 +44,7 @@ import javax.persistence.NoResultException;
 import javax.persistence.NonUniqueResultException;
 import javax.persistence.Query;
 import javax.persistence.TypedQuery;
+import javax.persistence.criteria.ParameterExpression;
 
 import org.apache.openjpa.conf.Compatibility;
 import org.apache.openjpa.conf.OpenJPAConfiguration;
@@ -42,6 +53,7 @@ import org.apache.openjpa.kernel.DelegatingQuery;
 import org.apache.openjpa.kernel.DelegatingResultList;
 import org.apache.openjpa.kernel.DistinctResultList;
 import org.apache.openjpa.kernel.FetchConfiguration;
+import org.apache.openjpa.kernel.OpenJPAStateManager;
 import org.apache.openjpa.kernel.PreparedQuery;
 import org.apache.openjpa.kernel.PreparedQueryCache;
 import org.apache.openjpa.kernel.QueryHints;
@@ -57,6 +69,7 @@ import org.apache.openjpa.lib.util.Localizer;
 import org.apache.openjpa.lib.util.OrderedMap;
 import org.apache.openjpa.meta.QueryMetaData;
 import org.apache.openjpa.persistence.criteria.OpenJPACriteriaBuilder;
+import org.apache.openjpa.persistence.criteria.OpenJPACriteriaQuery;
 import org.apache.openjpa.util.ImplHelper;
 import org.apache.openjpa.util.RuntimeExceptionTranslator;
 import org.apache.openjpa.util.UserException;
@@ -71,9 +84,13 @@ import org.apache.openjpa.util.UserException;
 public class QueryImpl<X> extends AbstractQuery<X> implements Serializable {
     private static final long serialVersionUID = 1L;
     private static final Localizer _loc = Localizer.forPackage(QueryImpl.class);
+
+    // fetch batch size of streamed results when the fetch plan has none
+    private static final int STREAM_FETCH_BATCH_SIZE = 1000;
 	private transient FetchPlan _fetch;
 
 	private String _id;
+    private transient OpenJPACriteriaQuery<?> _criteria;
     private transient ReentrantLock _lock = null;
 	private HintHandler _hintHandler;
     private DelegatingQuery _query;
@@ -294,6 +311,8 @@ public class QueryImpl<X> extends AbstractQuery<X> implements Serializable {
 		    lock();
             Map params = getParameterValues();
             boolean registered = preExecute(params);
+            if (OpenJPACriteriaBuilder.LANG_CRITERIA.equals(getLanguage()))
+                params = toPlanParameters(params, false);
             Object result = _query.execute(params);
             if (registered) {
                 postExecute(result);
@@ -331,6 +350,53 @@ public class QueryImpl<X> extends AbstractQuery<X> implements Serializable {
 		}
 	}
 
+	@Override
+	public Stream<X> getResultStream() {
+	    return getResultStream(false);
+	}
+
+	@Override
+	public Stream<X> getResultStream(boolean detach) {
+		_em.assertNotCloseInvoked();
+		boolean queryFetchPlanUsed = pushQueryFetchPlan();
+		FetchConfiguration fetch = _query.getFetchConfiguration();
+		int batch = fetch.getFetchBatchSize();
+		if (batch < 0)
+		    fetch.setFetchBatchSize(STREAM_FETCH_BATCH_SIZE);
+		Object ob;
+		try {
+		    ob = execute();
+		} finally {
+		    fetch.setFetchBatchSize(batch);
+			popQueryFetchPlan(queryFetchPlanUsed);
+		}
+		List<?> list = (ob instanceof List) ? (List<?>) ob
+		    : Collections.singletonList(ob);
+		if (list instanceof ResultList)
+		    list = new DelegatingResultList((ResultList) list,
+		        PersistenceExceptions.getRollbackTranslator(_em));
+		Iterator<?> itr = list.iterator();
+		if (list instanceof ResultList)
+		    itr = new ClosingIterator(itr, (ResultList<?>) list);
+		// the SQL of a distinct query is distinct; what remains are the
+		// rows of to-many joins, which need not be consecutive
+		if (_query.isDistinct())
+		    itr = new DistinctIterator(itr);
+		DetachingIterator detaching = null;
+		if (detach)
+		    itr = detaching = new DetachingIterator(itr);
+		Stream<X> stream = (Stream<X>) StreamSupport.stream(
+		    Spliterators.spliteratorUnknownSize(itr, Spliterator.ORDERED),
+		    false);
+		if (detaching != null)
+		    stream = stream.onClose(detaching::detachLast);
+		if (list instanceof ResultList) {
+		    final ResultList<?> res = (ResultList<?>) list;
+		    stream = stream.onClose(res::close);
+		}
+		return stream;
+	}
+
 	/**
 	 * Execute a query that returns a single result.
 	 */
@@ -589,7 +655,7 @@ public class QueryImpl<X> extends AbstractQuery<X> implements Serializable {
             PreparedQuery pq = _em.getPreparedQuery(_id);
             if (pq.isInitialized()) {
                 try {
-                    Map rep = pq.reparametrize(params, _em.getBroker());
+                    Map rep = pq.reparametrize(toPlanParameters(params, true), _em.getBroker());
                     params.clear();
                     params.putAll(rep);
                 } catch (UserException ue) {
@@ -642,23 +708,102 @@ public class QueryImpl<X> extends AbstractQuery<X> implements Serializable {
         if (cached == null)
             return;
         Broker broker = _em.getBroker();
-        // Critical assumption: Only JPQL queries are cached and more
-        // importantly, the identifier of the prepared query is the original
-        // JPQL String
-        String JPQL = JPQLParser.LANG_JPQL;
-        String jpql = _id;
-
-        org.apache.openjpa.kernel.Query newQuery = broker.newQuery(JPQL, jpql);
-        newQuery.getFetchConfiguration().copy(_query.getFetchConfiguration());
-        newQuery.compile();
+        org.apache.openjpa.kernel.Query newQuery;
+        if (_criteria != null) {
+            // the identifier of a criteria query is its fingerprint
+            if (!LANG_PREPARED_SQL.equals(getLanguage()))
+                return;
+            newQuery = broker.newQuery(OpenJPACriteriaBuilder.LANG_CRITERIA, _criteria);
+            newQuery.getFetchConfiguration().copy(_query.getFetchConfiguration());
+        } else {
+            // Critical assumption: Only JPQL queries are cached and more
+            // importantly, the identifier of the prepared query is the original
+            // JPQL String
+            String JPQL = JPQLParser.LANG_JPQL;
+            String jpql = _id;
+
+            newQuery = broker.newQuery(JPQL, jpql);
+            newQuery.getFetchConfiguration().copy(_query.getFetchConfiguration());
+            newQuery.compile();
+        }
         _query = new DelegatingQuery(newQuery, _em.getExceptionTranslator());
     }
 
+    /**
+     * Keys the given values of the parameters of the criteria query this
+     * query is created from by the parameters of the plan that executes it.
+     * The plan may have been compiled or prepared for another query with the
+     * same fingerprint. A named parameter is matched by its name. An unnamed
+     * parameter is matched by its index, which the fingerprint renders at each
+     * place the parameter is used. A prepared query keys the parameters by
+     * name or index, a compilation by the parameter expressions it was
+     * compiled from. The values are returned as given if the parameters of the
+     * plan do not match.
+     */
+    private Map<Object, Object> toPlanParameters(Map<Object, Object> params, boolean prepared) {
+        if (_criteria == null || params.isEmpty())
+            return params;
+        Set<ParameterExpression<?>> declared = _criteria.getParameters();
+        List<Object> keys = null;
+        if (!prepared) {
+            keys = new ArrayList<>(_query.getOrderedParameterTypes().keySet());
+            if (keys.size() != declared.size())
+                return params;
+        }
+        Map<Object, Object> result = new HashMap<>();
+        int i = 0;
+        for (ParameterExpression<?> param : declared) {
+            if (!params.containsKey(param))
+                return params;
+            Object key;
+            if (prepared)
+                key = (param.getName() != null) ? param.getName() : (Object) i;
+            else
+                key = findPlanParameter(param, i, keys);
+            if (key == null)
+                return params;
+            result.put(key, params.get(param));
+            i++;
+        }
+        return result;
+    }
+
+    /**
+     * Finds the parameter of a compiled plan that matches the given parameter
+     * registered at the given index, or null if none.
+     */
+    private static Object findPlanParameter(ParameterExpression<?> param, int index, List<Object> keys) {
+        if (param.getName() == null) {
+            Object key = keys.get(index);
+            return (key == param || isPlanParameter(key, null, param.getParameterType())) ? key : null;
+        }
+        for (Object key : keys) {
+            if (key == param || isPlanParameter(key, param.getName(), param.getParameterType()))
+                return key;
+        }
+        return null;
+    }
+
+    private static boolean isPlanParameter(Object key, String name, Class<?> type) {
+        if (!(key instanceof ParameterExpression))
+            return false;
+        ParameterExpression<?> param = (ParameterExpression<?>) key;
+        return Objects.equals(name, param.getName()) && type == param.getParameterType();
+    }
+
     // package protected
     QueryImpl setId(String id) {
         _id = id;
         return this;
     }
+
+    /**
+     * Sets the criteria query this query is created from.
+     */
+    QueryImpl setCriteria(OpenJPACriteriaQuery<?> criteria) {
+        _criteria = criteria;
+        return this;
+    }
     // ================ End of Prepared Query related methods =====================
 
     @Override
@@ -688,4 +833,128 @@ public class QueryImpl<X> extends AbstractQuery<X> implements Serializable {
         String result = _query.getQueryString();
         return result != null ? result : _id;
     }
+
+    /**
+     * Iterator over streamed results that closes their list once the last
+     * result has been read, so that a terminal operation that consumes the
+     * whole stream releases the cursor even if the stream is not closed.
+     */
+    private static class ClosingIterator implements Iterator<Object> {
+        private final Iterator<?> _itr;
+        private final ResultList<?> _res;
+        private boolean _closed = false;
+
+        ClosingIterator(Iterator<?> itr, ResultList<?> res) {
+            _itr = itr;
+            _res = res;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (_closed)
+                return false;
+            if (_itr.hasNext())
+                return true;
+            _closed = true;
+            _res.close();
+            return false;
+        }
+
+        @Override
+        public Object next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return _itr.next();
+        }
+    }
+
+    /**
+     * Iterator over streamed results that skips each result equal to a
+     * result before it. Persistent instances are compared by their object
+     * ids, which are taken while the instances are still managed. The keys
+     * of the results read so far are kept until the stream is done with.
+     */
+    private class DistinctIterator implements Iterator<Object> {
+        private final Iterator<?> _itr;
+        private final Set<Object> _seen = new HashSet<>();
+        private Object _next = null;
+        private boolean _hasNext = false;
+
+        DistinctIterator(Iterator<?> itr) {
+            _itr = itr;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!_hasNext && _itr.hasNext()) {
+                _next = _itr.next();
+                _hasNext = _seen.add(key(_next));
+            }
+            return _hasNext;
+        }
+
+        @Override
+        public Object next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            Object next = _next;
+            _hasNext = false;
+            _next = null;
+            return next;
+        }
+
+        private Object key(Object o) {
+            if (o instanceof Object[]) {
+                Object[] vals = (Object[]) o;
+                List<Object> keys = new ArrayList<>(vals.length);
+                for (Object val : vals)
+                    keys.add(key(val));
+                return keys;
+            }
+            OpenJPAStateManager sm = (o == null) ? null
+                : _em.getBroker().getStateManager(o);
+            return (sm == null) ? o : sm.getObjectId();
+        }
+    }
+
+    /**
+     * Iterator over streamed results that detaches the instances of each
+     * result once the next result is asked for, or once the stream is
+     * closed.
+     */
+    private class DetachingIterator implements Iterator<Object> {
+        private final Iterator<?> _itr;
+        private Object _last = null;
+
+        DetachingIterator(Iterator<?> itr) {
+            _itr = itr;
+        }
+
+        @Override
+        public boolean hasNext() {
+            detachLast();
+            return _itr.hasNext();
+        }
+
+        @Override
+        public Object next() {
+            detachLast();
+            _last = _itr.next();
+            return _last;
+        }
+
+        void detachLast() {
+            if (_last instanceof Object[]) {
+                for (Object o : (Object[]) _last)
+                    detach(o);
+            } else
+                detach(_last);
+            _last = null;
+        }
+
+        private void detach(Object o) {
+            if (o != null && _em.getBroker().getStateManager(o) != null)
+                _em.detach(o);
+        }
+    }
 }
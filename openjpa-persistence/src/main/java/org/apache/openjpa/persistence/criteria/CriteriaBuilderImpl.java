@@ -145,6 +145,14 @@ public class CriteriaBuilderImpl implements OpenJPACriteriaBuilder, ExpressionPa
         query.setQuery(parsed);
     }
 
+    /**
+     * Gets the fingerprint of the given criteria query.
+     */
+    @Override
+    public Object getCompilationKey(Object parsed) {
+        return ((CriteriaQueryImpl<?>) parsed).getFingerprint();
+    }
+
     @Override
     public <N extends Number> Expression<N> abs(Expression<N> x) {
         return new Expressions.Abs<>(x);
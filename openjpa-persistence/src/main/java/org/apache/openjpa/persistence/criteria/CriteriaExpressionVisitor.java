@@ -107,4 +107,29 @@ public interface CriteriaExpressionVisitor {
             }
         }
     }
+
+    /**
+     * A visitor to detect nodes whose compilation depends on the values bound
+     * to the parameters of a query.
+     *
+     * @since 3.2.3
+     */
+    public static class ParameterValueVisitor extends AbstractVisitor {
+        private boolean _dependent;
+
+        @Override
+        public void enter(CriteriaExpression expr) {
+            if (expr instanceof Expressions.In
+                && ((Expressions.In<?>)expr).expandsParameter()) {
+                _dependent = true;
+            }
+        }
+
+        /**
+         * Affirms if any visited node depends on a parameter value.
+         */
+        public boolean isDependent() {
+            return _dependent;
+        }
+    }
 }
@@ -21,6 +21,7 @@ package org.apache.openjpa.persistence.criteria;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
@@ -685,6 +686,10 @@ class CriteriaQueryImpl<T> implements OpenJPACriteriaQuery<T>, AliasContext {
     private void collectParameters(CriteriaExpressionVisitor visitor) {
         if (_compiled)
             return;
+        visit(visitor);
+    }
+
+    private void visit(CriteriaExpressionVisitor visitor) {
         if (_where != null) {
             _where.acceptVisit(visitor);
         }
@@ -694,7 +699,7 @@ class CriteriaQueryImpl<T> implements OpenJPACriteriaQuery<T>, AliasContext {
 
         if (_subqueries != null) {
             for (Subquery<?> subq : _subqueries) {
-                ((SubqueryImpl<?>)subq).getDelegate().collectParameters(visitor);
+                ((SubqueryImpl<?>)subq).getDelegate().visit(visitor);
             }
         }
     }
@@ -709,6 +714,38 @@ class CriteriaQueryImpl<T> implements OpenJPACriteriaQuery<T>, AliasContext {
         return buffer.toString().trim();
     }
 
+    /**
+     * Gets the CQL of this query followed by its result type and the types of
+     * its parameters in the order of their registration. Literals are part of
+     * the fingerprint, values bound to the parameters are not. Unnamed
+     * parameters are rendered by their index and fetch joins in sorted order,
+     * so that the fingerprint does not depend on the instances of the nodes.
+     *
+     * @return null if an IN predicate of this query is expanded over the
+     * value bound to its parameter, or if this query can not be rendered.
+     */
+    @Override
+    public String getFingerprint() {
+        compile();
+        CriteriaExpressionVisitor.ParameterValueVisitor visitor =
+            new CriteriaExpressionVisitor.ParameterValueVisitor();
+        visit(visitor);
+        if (visitor.isDependent())
+            return null;
+
+        StringBuilder buffer;
+        try {
+            buffer = new StringBuilder(toCQL());
+        } catch (RuntimeException e) {
+            return null;
+        }
+        buffer.append(" /* ").append(_resultClass == null ? null : _resultClass.getName());
+        for (Class<?> type : _params.values()) {
+            buffer.append(", ").append(type.getName());
+        }
+        return buffer.append(" */").toString();
+    }
+
     void render(StringBuilder buffer, Set<Root<?>> roots, List<Join<?,?>> correlatedJoins) {
         buffer.append("SELECT ");
         if (isDistinct()) buffer.append(" DISTINCT ");
@@ -767,8 +804,14 @@ class CriteriaQueryImpl<T> implements OpenJPACriteriaQuery<T>, AliasContext {
         if (fetches == null) {
             return;
         }
+        // fetches are rendered in a stable order for the fingerprint
+        List<String> paths = new ArrayList<>(fetches.size());
         for (Fetch j : fetches) {
-            buffer.append(((ExpressionImpl<?>)j).asValue(this)).append(" ");
+            paths.add(((ExpressionImpl<?>)j).asValue(this).toString());
+        }
+        Collections.sort(paths);
+        for (String path : paths) {
+            buffer.append(path).append(" ");
         }
     }
 
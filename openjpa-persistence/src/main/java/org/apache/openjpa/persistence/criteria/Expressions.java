@@ -1457,6 +1457,15 @@ class Expressions {
             return this;
         }
 
+        /**
+         * Affirms if this predicate is compiled to a disjunction over the
+         * elements of the value bound to its parameter.
+         */
+        boolean expandsParameter() {
+            return _exps.size() == 1 && _exps.get(0) instanceof Equal
+                && ((Equal) _exps.get(0)).e2 instanceof BindableParameter;
+        }
+
         @Override
         public PredicateImpl not() {
             In<T> notIn = new In<>(e);
@@ -43,5 +43,20 @@ public interface OpenJPACriteriaQuery<T> extends CriteriaQuery<T> {
      * @return the same instance compiled.
      */
     OpenJPACriteriaQuery<T> compile();
+
+    /**
+     * Gets a key that is equal for the queries of the same structure, whatever
+     * the values bound to their parameters. Structurally identical queries
+     * share their compilation and prepared query.
+     *
+     * @return a key for this query, or null if the compilation of this query
+     * depends on the values bound to its parameters. Returns null by default,
+     * so that the query is not shared.
+     *
+     * @since 3.2.3
+     */
+    default String getFingerprint() {
+        return null;
+    }
 }
 
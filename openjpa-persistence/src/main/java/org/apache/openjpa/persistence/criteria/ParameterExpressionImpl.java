@@ -133,7 +133,11 @@ class ParameterExpressionImpl<T> extends ExpressionImpl<T>
 
     @Override
     public StringBuilder asValue(AliasContext q) {
-        return Expressions.asValue(q, ":", _name == null ? "param" : _name);
+        // an unnamed parameter is rendered by its index so that queries that
+        // use their parameters in different places have different CQL
+        if (_name == null)
+            return Expressions.asValue(q, "?", _index + 1);
+        return Expressions.asValue(q, ":", _name);
     }
 
     @Override
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice;
+
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pool of {@link SliceThread slice threads} that creates threads as
+ * needed and reuses idle threads. Selected by the <code>cached</code> alias
+ * of the <code>openjpa.slice.ThreadingPolicy</code> property.
+ *
+ * @since 3.2.3
+ */
+public class CachedSliceThreadPool extends ThreadPoolExecutor {
+
+    public CachedSliceThreadPool() {
+        super(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+            new SynchronousQueue<>(), new SliceThread.Factory());
+    }
+
+    /**
+     * Sets the number of seconds idle threads are kept alive.
+     */
+    public void setKeepAliveTime(long seconds) {
+        setKeepAliveTime(seconds, TimeUnit.SECONDS);
+    }
+}
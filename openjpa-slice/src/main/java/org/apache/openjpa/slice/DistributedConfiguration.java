@@ -19,6 +19,7 @@
 package org.apache.openjpa.slice;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.openjpa.conf.OpenJPAConfiguration;
 
@@ -176,4 +177,37 @@ public interface DistributedConfiguration extends OpenJPAConfiguration {
      */
     void setFinderTargetPolicy(String policy);
 
+    /**
+     * Gets the executor that runs database operations such as query or flush
+     * on the individual slices in parallel. The operations know the thread
+     * that submitted them, see {@link SliceThread#currentParent()}.
+     *
+     * @since 3.2.3
+     */
+    ExecutorService getThreadingPolicyInstance();
+
+    /**
+     * Gets the executor, as a plugin string, that runs database operations
+     * on the individual slices.
+     *
+     * @since 3.2.3
+     */
+    String getThreadingPolicy();
+
+    /**
+     * Sets the executor that runs database operations on the individual
+     * slices.
+     *
+     * @since 3.2.3
+     */
+    void setThreadingPolicyInstance(ExecutorService pool);
+
+    /**
+     * Sets the executor, from the given plugin string, that runs database
+     * operations on the individual slices.
+     *
+     * @since 3.2.3
+     */
+    void setThreadingPolicy(String policy);
+
 }
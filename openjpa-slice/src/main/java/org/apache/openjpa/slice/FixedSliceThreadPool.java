@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded pool of {@link SliceThread slice threads}. Operations wait in
+ * a queue while all threads are busy, which caps the number of threads
+ * when many brokers query many slices concurrently. Selected by the
+ * <code>fixed</code> alias of the <code>openjpa.slice.ThreadingPolicy</code>
+ * property.
+ * <br>
+ * An operation submitted by an operation that already runs on a thread of
+ * this pool runs in the submitting thread instead of waiting in the queue.
+ * Otherwise operations that wait for operations they submit could take up
+ * every thread while what they wait for never leaves the queue.
+ *
+ * @since 3.2.3
+ */
+public class FixedSliceThreadPool extends ThreadPoolExecutor {
+    private final ThreadLocal<Boolean> _worker = new ThreadLocal<>();
+
+    public FixedSliceThreadPool() {
+        super(10, 10, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            new SliceThread.Factory());
+        allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (_worker.get() != null && !isShutdown())
+            command.run();
+        else
+            super.execute(command);
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        _worker.set(Boolean.TRUE);
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        _worker.remove();
+        super.afterExecute(r, t);
+    }
+
+    /**
+     * Sets the maximum number of threads.
+     */
+    public void setThreads(int threads) {
+        if (threads < getCorePoolSize()) {
+            setCorePoolSize(threads);
+            setMaximumPoolSize(threads);
+        } else {
+            setMaximumPoolSize(threads);
+            setCorePoolSize(threads);
+        }
+    }
+
+    /**
+     * Gets the maximum number of threads.
+     */
+    public int getThreads() {
+        return getMaximumPoolSize();
+    }
+
+    /**
+     * Sets the number of seconds idle threads are kept alive.
+     */
+    public void setKeepAliveTime(long seconds) {
+        setKeepAliveTime(seconds, TimeUnit.SECONDS);
+    }
+}
@@ -41,7 +41,7 @@ public class ReentrantSliceLock extends ReentrantLock {
      */
     @Override
     public void lock() {
-        if (Thread.currentThread() instanceof SliceThread)
+        if (SliceThread.currentParent() != null)
             return;
         super.lock();
     }
@@ -51,7 +51,7 @@ public class ReentrantSliceLock extends ReentrantLock {
      */
     @Override
     public void unlock() {
-        if (Thread.currentThread() instanceof SliceThread)
+        if (SliceThread.currentParent() != null)
             return;
         super.unlock();
     }
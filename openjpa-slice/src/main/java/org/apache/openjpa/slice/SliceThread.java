@@ -18,12 +18,19 @@
  */
 package org.apache.openjpa.slice;
 
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A thread to execute operation against each database slice.
+ * <br>
+ * Operations submitted through an executor {@link #track tracked} by this
+ * class know the thread that submitted them even when they do not run on a
+ * <code>SliceThread</code>, such as on pooled or virtual threads.
  *
  * @author Pinaki Poddar
  *
@@ -31,6 +38,7 @@ import java.util.concurrent.ThreadFactory;
 public class SliceThread extends Thread {
     private final Thread _parent;
     private static ExecutorService _pool;
+    private static final ThreadLocal<Thread> _taskParent = new ThreadLocal<>();
 
     public SliceThread(String name, Thread parent, Runnable r) {
         super(r, name);
@@ -50,25 +58,112 @@ public class SliceThread extends Thread {
         return _parent;
     }
 
+    /**
+     * Gets the thread on whose behalf the current thread executes an
+     * operation against a slice, or null if the current thread is not
+     * executing such an operation.
+     *
+     * @since 3.2.3
+     */
+    public static Thread currentParent() {
+        Thread parent = _taskParent.get();
+        if (parent == null && Thread.currentThread() instanceof SliceThread)
+            parent = ((SliceThread) Thread.currentThread()).getParent();
+        return parent;
+    }
+
     /**
      * Create a cached pool of <em>slice</em> threads.
      * The thread factory creates specialized threads for preferential locking treatment.
      *
+     * @deprecated use {@link DistributedConfiguration#getThreadingPolicyInstance()}
      */
-
-    public static ExecutorService getPool() {
+    @Deprecated
+    public static synchronized ExecutorService getPool() {
         if (_pool == null) {
-            _pool = Executors.newCachedThreadPool(new SliceThreadFactory());
+            _pool = track(new CachedSliceThreadPool());
         }
         return _pool;
     }
 
-    private static class SliceThreadFactory implements ThreadFactory {
-        int n = 0;
+    /**
+     * Wraps the given executor so that the operations it executes know the
+     * thread that submitted them.
+     *
+     * @see #currentParent()
+     * @since 3.2.3
+     */
+    public static ExecutorService track(ExecutorService executor) {
+        if (executor instanceof TrackingExecutorService)
+            return executor;
+        return new TrackingExecutorService(executor);
+    }
+
+    /**
+     * Creates <em>slice</em> threads for the thread that starts them.
+     *
+     * @since 3.2.3
+     */
+    public static class Factory implements ThreadFactory {
+        private final AtomicInteger n = new AtomicInteger();
         @Override
         public Thread newThread(Runnable r) {
             Thread parent = Thread.currentThread();
-            return new SliceThread(parent.getName()+"-slice-"+n++, parent, r);
+            return new SliceThread(parent.getName()+"-slice-"+n.getAndIncrement(), parent, r);
+        }
+    }
+
+    /**
+     * Records the submitting thread as the parent of each operation.
+     */
+    private static class TrackingExecutorService extends AbstractExecutorService {
+        private final ExecutorService _delegate;
+
+        TrackingExecutorService(ExecutorService delegate) {
+            _delegate = delegate;
+        }
+
+        @Override
+        public void execute(final Runnable command) {
+            Thread current = currentParent();
+            final Thread parent = (current == null) ? Thread.currentThread() : current;
+            _delegate.execute(() -> {
+                Thread old = _taskParent.get();
+                _taskParent.set(parent);
+                try {
+                    command.run();
+                } finally {
+                    if (old == null)
+                        _taskParent.remove();
+                    else
+                        _taskParent.set(old);
+                }
+            });
+        }
+
+        @Override
+        public void shutdown() {
+            _delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return _delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return _delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return _delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return _delegate.awaitTermination(timeout, unit);
         }
     }
 }
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes each operation against a slice on a new virtual thread, so that
+ * operations blocked on JDBC do not hold platform threads. Selected by the
+ * <code>virtual</code> alias of the <code>openjpa.slice.ThreadingPolicy</code>
+ * property.
+ * <br>
+ * Virtual threads require Java 21. On earlier runtimes the operations run
+ * on a {@link CachedSliceThreadPool}.
+ *
+ * @since 3.2.3
+ */
+public class VirtualSliceExecutor extends AbstractExecutorService {
+    private final ExecutorService _delegate;
+    private final boolean _virtual;
+
+    public VirtualSliceExecutor() {
+        ExecutorService delegate;
+        try {
+            // looked up reflectively to run on runtimes before Java 21
+            delegate = (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (Exception e) {
+            delegate = null;
+        }
+        _virtual = delegate != null;
+        _delegate = (_virtual) ? delegate : new CachedSliceThreadPool();
+    }
+
+    /**
+     * Affirms if operations run on virtual threads.
+     */
+    public boolean isVirtual() {
+        return _virtual;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        _delegate.execute(command);
+    }
+
+    @Override
+    public void shutdown() {
+        _delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return _delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return _delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return _delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return _delegate.awaitTermination(timeout, unit);
+    }
+}
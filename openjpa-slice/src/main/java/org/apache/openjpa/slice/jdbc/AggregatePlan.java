@@ -0,0 +1,627 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice.jdbc;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.openjpa.jdbc.kernel.exps.JDBCExpressionFactory;
+import org.apache.openjpa.kernel.ExpressionStoreQuery;
+import org.apache.openjpa.kernel.Filters;
+import org.apache.openjpa.kernel.StoreContext;
+import org.apache.openjpa.kernel.StoreQuery;
+import org.apache.openjpa.kernel.exps.AbstractExpressionVisitor;
+import org.apache.openjpa.kernel.exps.Exp;
+import org.apache.openjpa.kernel.exps.Expression;
+import org.apache.openjpa.kernel.exps.ExpressionParser;
+import org.apache.openjpa.kernel.exps.InMemoryExpressionFactory;
+import org.apache.openjpa.kernel.exps.Path;
+import org.apache.openjpa.kernel.exps.QueryExpressions;
+import org.apache.openjpa.kernel.exps.StandardAggregate;
+import org.apache.openjpa.kernel.exps.Subquery;
+import org.apache.openjpa.kernel.exps.Val;
+import org.apache.openjpa.kernel.exps.Value;
+import org.apache.openjpa.lib.util.Localizer;
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.util.UnsupportedException;
+
+/**
+ * Plans an aggregate query across slices. Each slice selects partial
+ * aggregates per group: AVG is replaced by SUM and COUNT, and the grouping
+ * values and the values used by HAVING and ORDER BY are selected as hidden
+ * columns. The partial rows of all
+ * slices are then combined per group, and the projections, HAVING and
+ * ORDER BY are evaluated on the combined aggregates.
+ * <br>
+ * A query that cannot be combined, such as one that aggregates distinct
+ * values, is left as is. It runs correctly only if a single slice is
+ * targeted.
+ *
+ * @since 3.2.3
+ */
+class AggregatePlan {
+    static final int KEY   = 0;
+    static final int COUNT = StandardAggregate.COUNT;
+    static final int SUM   = StandardAggregate.SUM;
+    static final int MIN   = StandardAggregate.MIN;
+    static final int MAX   = StandardAggregate.MAX;
+    static final int AVG   = StandardAggregate.AVG;
+
+    private static final String[] NAMES =
+        { null, "COUNT", "SUM", "MIN", "MAX", "AVG" };
+
+    private static final Localizer _loc =
+        Localizer.forPackage(AggregatePlan.class);
+
+    private final String _unsupported;
+    private final List<Integer> _ops = new ArrayList<>();
+    private final List<Integer> _keys = new ArrayList<>();
+    private final List<int[]> _aggregates = new ArrayList<>();
+    private int[] _projectionSlots;
+    private Value[] _projections;
+    private Class<?>[] _types;
+    private Exp _having;
+    private int[] _orderingSlots;
+    private Value[] _ordering;
+    private boolean[] _ascending;
+
+    private AggregatePlan(String unsupported) {
+        _unsupported = unsupported;
+    }
+
+    /**
+     * Plan the given aggregate query and rewrite the query expressions
+     * of the given slice executors to select partial aggregates.
+     *
+     * @param q the distributed query
+     * @param parser the parser of the query
+     * @param parsed the parsed query
+     * @param meta the candidate metadata
+     * @param exps the expressions of the distributed query
+     * @param slices the executors of each slice
+     */
+    public static AggregatePlan newPlan(ExpressionStoreQuery q,
+        ExpressionParser parser, Object parsed, ClassMetaData meta,
+        QueryExpressions exps, List<StoreQuery.Executor> slices) {
+        for (StoreQuery.Executor slice : slices)
+            if (slice.getQueryExpressions().length != 1)
+                return new AggregatePlan(_loc.get("aggregate-uncombinable",
+                    "UNION").getMessage());
+
+        // the combined aggregates are evaluated in memory
+        QueryExpressions mem = parser.eval(parsed, q,
+            new PartialAggregateFactory(), meta);
+        String unsupported = check(slices.get(0).getQueryExpressions()[0],
+            mem);
+        if (unsupported != null)
+            return new AggregatePlan(unsupported);
+
+        // the expressions of each slice are parsed alike, so each rewrite
+        // lays out the same columns; the first rewrite fails before it
+        // changes any expressions
+        AggregatePlan plan = null;
+        for (StoreQuery.Executor slice : slices) {
+            AggregatePlan p = new AggregatePlan(null);
+            try {
+                p.rewrite(slice.getQueryExpressions()[0], mem);
+            } catch (UnsupportedException ue) {
+                return new AggregatePlan(ue.getMessage());
+            }
+            if (plan == null)
+                plan = p;
+        }
+        plan._types = new Class<?>[exps.projections.length];
+        for (int i = 0; i < exps.projections.length; i++)
+            plan._types[i] = exps.projections[i].getType();
+        return plan;
+    }
+
+    /**
+     * Return the reason the query cannot be combined, or null if it can.
+     */
+    public String getUnsupported() {
+        return _unsupported;
+    }
+
+    /**
+     * Return the grouping key of the given partial row.
+     */
+    public List<Object> key(Object[] row) {
+        Object[] key = new Object[_keys.size()];
+        for (int i = 0; i < key.length; i++)
+            key[i] = row[_keys.get(i)];
+        return Arrays.asList(key);
+    }
+
+    /**
+     * Combine the partial aggregates of the given row into the given
+     * partial row of the same group. A null partial aggregate comes from
+     * a slice without values for the group and is ignored, as SUM and
+     * COUNT ignore it when adding.
+     */
+    public void combine(Object[] into, Object[] row) {
+        for (int i = 0; i < into.length; i++) {
+            switch (_ops.get(i)) {
+                case COUNT:
+                case SUM:
+                    into[i] = add(into[i], row[i]);
+                    break;
+                case MIN:
+                    if (row[i] != null && (into[i] == null
+                        || compare(row[i], into[i]) < 0))
+                        into[i] = row[i];
+                    break;
+                case MAX:
+                    if (row[i] != null && (into[i] == null
+                        || compare(row[i], into[i]) > 0))
+                        into[i] = row[i];
+                    break;
+                default:
+                    if (into[i] == null)
+                        into[i] = row[i];
+            }
+        }
+    }
+
+    /**
+     * Return the values of the aggregates of the given combined row.
+     */
+    public Object[] aggregates(Object[] row) {
+        Object[] aggs = new Object[_aggregates.size()];
+        int[] agg;
+        for (int i = 0; i < aggs.length; i++) {
+            agg = _aggregates.get(i);
+            if (agg[0] == AVG)
+                aggs[i] = avg(row[agg[1]], row[agg[2]]);
+            else
+                aggs[i] = row[agg[1]];
+        }
+        return aggs;
+    }
+
+    /**
+     * Return true if the group of the given aggregates satisfies the
+     * HAVING clause.
+     */
+    public boolean matches(Object[] aggs, StoreContext ctx,
+        Object[] params) {
+        return _having == null || _having.evaluate(aggs, aggs, ctx, params);
+    }
+
+    /**
+     * Return the projections of the given combined row and its aggregates.
+     */
+    public Object[] project(Object[] row, Object[] aggs, StoreContext ctx,
+        Object[] params) {
+        Object[] result = new Object[_types.length];
+        for (int i = 0; i < result.length; i++) {
+            if (_projections[i] != null)
+                result[i] = ((Val) _projections[i]).evaluate(aggs, aggs,
+                    ctx, params);
+            else
+                result[i] = row[_projectionSlots[i]];
+            result[i] = Filters.convert(result[i], _types[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Return true if the combined groups are to be ordered.
+     */
+    public boolean isOrdered() {
+        return _ascending.length > 0;
+    }
+
+    /**
+     * Return the values to order the given combined row by.
+     */
+    public Object[] ordering(Object[] row, Object[] aggs, StoreContext ctx,
+        Object[] params) {
+        Object[] ordering = new Object[_ascending.length];
+        for (int i = 0; i < ordering.length; i++) {
+            if (_ordering[i] != null)
+                ordering[i] = ((Val) _ordering[i]).evaluate(aggs, aggs,
+                    ctx, params);
+            else
+                ordering[i] = row[_orderingSlots[i]];
+        }
+        return ordering;
+    }
+
+    /**
+     * Compare the given ordering values.
+     */
+    public int compareOrdering(Object[] o1, Object[] o2) {
+        int cmp;
+        for (int i = 0; i < _ascending.length; i++) {
+            cmp = compare(o1[i], o2[i]);
+            if (cmp != 0)
+                return (_ascending[i]) ? cmp : -cmp;
+        }
+        return 0;
+    }
+
+    /**
+     * Rewrite the given slice expressions, laying out the hidden columns
+     * in the order that the in-memory expressions are numbered. Throws
+     * {@link UnsupportedException} before changing the expressions
+     * if the query cannot be combined.
+     */
+    private void rewrite(QueryExpressions exps, QueryExpressions mem) {
+        JDBCExpressionFactory fact = new JDBCExpressionFactory(null);
+        List<Value> cols = new ArrayList<>();
+
+        int n = exps.projections.length;
+        _projectionSlots = new int[n];
+        _projections = new Value[n];
+        for (int i = 0; i < n; i++) {
+            List<Value> aggs = aggregates(exps.projections[i]);
+            if (aggs.isEmpty()) {
+                _projectionSlots[i] = add(exps.projections[i], KEY, cols);
+                _keys.add(_projectionSlots[i]);
+            } else {
+                addAll(aggs, mem.projections[i], fact, cols);
+                _projections[i] = mem.projections[i];
+            }
+        }
+
+        // group on the grouping values, which need not be selected
+        for (int i = 0; i < exps.grouping.length; i++)
+            _keys.add(add(exps.grouping[i], KEY, cols));
+
+        // a having clause without aggregates filters on the grouping values
+        // alone, which is as correct in each slice as it is centrally
+        Expression having = exps.having;
+        if (having != null) {
+            List<Value> aggs = aggregates(having);
+            if (!aggs.isEmpty()) {
+                addAll(aggs, mem.having, fact, cols);
+                _having = (Exp) mem.having;
+                having = null;
+            }
+        }
+
+        int o = exps.ordering.length;
+        _orderingSlots = new int[o];
+        _ordering = new Value[o];
+        _ascending = exps.ascending;
+        for (int i = 0; i < o; i++) {
+            int proj = indexOf(exps.orderingClauses[i],
+                exps.projectionAliases);
+            if (proj == -1)
+                proj = indexOf(exps.orderingClauses[i],
+                    exps.projectionClauses);
+            if (proj != -1 && _projections[proj] != null)
+                _ordering[i] = _projections[proj];
+            else if (proj != -1)
+                _orderingSlots[i] = _projectionSlots[proj];
+            else {
+                // ordering without aggregates is on grouping values, which
+                // are the same in every partial row of a group
+                List<Value> aggs = aggregates(exps.ordering[i]);
+                if (aggs.isEmpty())
+                    _orderingSlots[i] = add(exps.ordering[i], KEY, cols);
+                else {
+                    addAll(aggs, mem.ordering[i], fact, cols);
+                    _ordering[i] = mem.ordering[i];
+                }
+            }
+        }
+
+        exps.having = having;
+        exps.ordering = QueryExpressions.EMPTY_VALUES;
+        exps.ascending = StoreQuery.EMPTY_BOOLEANS;
+        exps.orderingClauses = StoreQuery.EMPTY_STRINGS;
+        exps.orderingAliases = StoreQuery.EMPTY_STRINGS;
+
+        exps.projections = cols.toArray(new Value[cols.size()]);
+        exps.projectionClauses = new String[cols.size()];
+        Arrays.fill(exps.projectionClauses, "");
+        exps.projectionAliases = exps.projectionClauses;
+    }
+
+    /**
+     * Select the partial aggregates of the given slice aggregates and
+     * number the corresponding in-memory aggregates.
+     */
+    private void addAll(List<Value> aggs, Expression mem,
+        JDBCExpressionFactory fact, List<Value> cols) {
+        List<SlotVal> slots = new ArrayList<>();
+        if (mem != null)
+            mem.acceptVisit(new SlotVisitor(slots));
+        addAll(aggs, slots, fact, cols);
+    }
+
+    private void addAll(List<Value> aggs, Value mem,
+        JDBCExpressionFactory fact, List<Value> cols) {
+        List<SlotVal> slots = new ArrayList<>();
+        mem.acceptVisit(new SlotVisitor(slots));
+        addAll(aggs, slots, fact, cols);
+    }
+
+    private void addAll(List<Value> aggs, List<SlotVal> slots,
+        JDBCExpressionFactory fact, List<Value> cols) {
+        if (aggs.size() != slots.size())
+            throw new UnsupportedException(_loc.get
+                ("aggregate-uncombinable", aggs));
+
+        Value agg;
+        for (int i = 0; i < aggs.size(); i++) {
+            agg = aggs.get(i);
+            slots.get(i).setSlot(_aggregates.size());
+            int op = op(agg);
+            if (op == AVG) {
+                Value arg = argument(agg);
+                _aggregates.add(new int[]{ AVG, add(fact.sum(arg), SUM, cols),
+                    add(fact.count(arg), COUNT, cols) });
+            } else
+                _aggregates.add(new int[]{ op, add(agg, op, cols) });
+        }
+    }
+
+    private int add(Value val, int op, List<Value> cols) {
+        cols.add(val);
+        _ops.add(op);
+        return cols.size() - 1;
+    }
+
+    private static int indexOf(String clause, String[] clauses) {
+        if (clause == null || clause.length() == 0)
+            return -1;
+        for (int i = 0; i < clauses.length; i++)
+            if (clause.equals(clauses[i]))
+                return i;
+        return -1;
+    }
+
+    /**
+     * Return the reason the given slice expressions cannot be combined, or
+     * null if they can. Partial aggregates of distinct values cannot be
+     * combined, and a HAVING clause that mixes aggregates with paths cannot
+     * be evaluated on the combined aggregates.
+     */
+    private static String check(QueryExpressions exps, QueryExpressions mem) {
+        final String[] unsupported = new String[1];
+        AbstractExpressionVisitor visitor = new AbstractExpressionVisitor() {
+            @Override
+            public void enter(Value val) {
+                int op = op(val);
+                if (val instanceof Subquery)
+                    unsupported[0] = "subquery";
+                else if (op == KEY && val.isAggregate())
+                    unsupported[0] = "user-defined aggregate";
+                else if (op != KEY && op != MIN && op != MAX
+                    && ((StandardAggregate) val).isDistinct())
+                    unsupported[0] = NAMES[op] + "(DISTINCT)";
+            }
+        };
+        for (Value val : exps.projections)
+            val.acceptVisit(visitor);
+        if (exps.having != null)
+            exps.having.acceptVisit(visitor);
+        for (Value val : exps.ordering)
+            val.acceptVisit(visitor);
+        if (unsupported[0] == null && mem.having != null
+            && !aggregates(exps.having).isEmpty()) {
+            final boolean[] path = new boolean[1];
+            mem.having.acceptVisit(new AbstractExpressionVisitor() {
+                @Override
+                public void enter(Value val) {
+                    if (val instanceof Path)
+                        path[0] = true;
+                }
+            });
+            if (path[0])
+                unsupported[0] = "HAVING";
+        }
+        return (unsupported[0] == null) ? null
+            : _loc.get("aggregate-uncombinable", unsupported[0]).getMessage();
+    }
+
+    /**
+     * Return the outermost aggregates within the given slice value or
+     * expression, in visiting order.
+     */
+    private static List<Value> aggregates(Object exp) {
+        final List<Value> aggs = new ArrayList<>();
+        AbstractExpressionVisitor visitor = new AbstractExpressionVisitor() {
+            private int _depth = 0;
+
+            @Override
+            public void enter(Value val) {
+                if (_depth > 0)
+                    _depth++;
+                else if (op(val) != KEY) {
+                    aggs.add(val);
+                    _depth++;
+                }
+            }
+
+            @Override
+            public void exit(Value val) {
+                if (_depth > 0)
+                    _depth--;
+            }
+        };
+        if (exp instanceof Value)
+            ((Value) exp).acceptVisit(visitor);
+        else
+            ((Expression) exp).acceptVisit(visitor);
+        return aggs;
+    }
+
+    /**
+     * Return the operation of the given aggregate, or {@link #KEY} if it
+     * is not one of the standard aggregates.
+     */
+    static int op(Value val) {
+        if (val instanceof StandardAggregate)
+            return ((StandardAggregate) val).getFunction();
+        return KEY;
+    }
+
+    /**
+     * Return the argument of the given aggregate.
+     */
+    private static Value argument(final Value agg) {
+        final Value[] arg = new Value[1];
+        agg.acceptVisit(new AbstractExpressionVisitor() {
+            @Override
+            public void enter(Value val) {
+                if (val != agg && arg[0] == null)
+                    arg[0] = val;
+            }
+        });
+        return arg[0];
+    }
+
+    private static Object add(Object o1, Object o2) {
+        if (o1 == null)
+            return o2;
+        if (o2 == null)
+            return o1;
+        if (o1 instanceof BigDecimal || o2 instanceof BigDecimal
+            || o1 instanceof BigInteger || o2 instanceof BigInteger)
+            return ((BigDecimal) Filters.convert(o1, BigDecimal.class)).add
+                ((BigDecimal) Filters.convert(o2, BigDecimal.class));
+        if (o1 instanceof Double || o2 instanceof Double
+            || o1 instanceof Float || o2 instanceof Float)
+            return ((Number) o1).doubleValue() + ((Number) o2).doubleValue();
+        return ((Number) o1).longValue() + ((Number) o2).longValue();
+    }
+
+    private static Object avg(Object sum, Object count) {
+        if (sum == null || count == null || ((Number) count).longValue() == 0)
+            return null;
+        return ((Number) sum).doubleValue() / ((Number) count).longValue();
+    }
+
+    /**
+     * Compare two values, with nulls ordered first.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    static int compare(Object o1, Object o2) {
+        if (o1 == o2)
+            return 0;
+        if (o1 == null)
+            return -1;
+        if (o2 == null)
+            return 1;
+        if (o1 instanceof Number && o2 instanceof Number
+            && o1.getClass() != o2.getClass()) {
+            Class<?> c = Filters.promote(o1.getClass(), o2.getClass());
+            o1 = Filters.convert(o1, c);
+            o2 = Filters.convert(o2, c);
+        }
+        if (o1 instanceof Comparable)
+            return ((Comparable) o1).compareTo(o2);
+        throw new UnsupportedException(_loc.get
+            ("aggregate-unsupported-on-type", "ORDER BY",
+            o1.getClass().getName()));
+    }
+
+    /**
+     * Numbers the in-memory aggregates of an expression in visiting order.
+     */
+    private static class SlotVisitor extends AbstractExpressionVisitor {
+        private final List<SlotVal> _slots;
+
+        public SlotVisitor(List<SlotVal> slots) {
+            _slots = slots;
+        }
+
+        @Override
+        public void enter(Value val) {
+            if (val instanceof SlotVal)
+                _slots.add((SlotVal) val);
+        }
+    }
+
+    /**
+     * An in-memory aggregate whose value is read from the combined
+     * aggregates of a group.
+     */
+    static class SlotVal extends Val {
+        private static final long serialVersionUID = 1L;
+        private final Value _agg;
+        private int _slot = -1;
+
+        public SlotVal(Value agg) {
+            _agg = agg;
+        }
+
+        void setSlot(int slot) {
+            _slot = slot;
+        }
+
+        @Override
+        public boolean isAggregate() {
+            return true;
+        }
+
+        @Override
+        public Class getType() {
+            return _agg.getType();
+        }
+
+        @Override
+        public void setImplicitType(Class type) {
+            _agg.setImplicitType(type);
+        }
+
+        @Override
+        protected Object eval(Object candidate, Object orig,
+            StoreContext ctx, Object[] params) {
+            return ((Object[]) candidate)[_slot];
+        }
+    }
+
+    /**
+     * Parses the standard aggregates of a query as {@link SlotVal}s.
+     */
+    static class PartialAggregateFactory extends InMemoryExpressionFactory {
+        @Override
+        public Value count(Value val) {
+            return new SlotVal(super.count(val));
+        }
+
+        @Override
+        public Value sum(Value val) {
+            return new SlotVal(super.sum(val));
+        }
+
+        @Override
+        public Value avg(Value val) {
+            return new SlotVal(super.avg(val));
+        }
+
+        @Override
+        public Value min(Value val) {
+            return new SlotVal(super.min(val));
+        }
+
+        @Override
+        public Value max(Value val) {
+            return new SlotVal(super.max(val));
+        }
+    }
+}
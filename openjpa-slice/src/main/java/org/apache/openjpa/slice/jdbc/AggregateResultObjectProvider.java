@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice.jdbc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.openjpa.kernel.StoreContext;
+import org.apache.openjpa.lib.rop.ListResultObjectProvider;
+import org.apache.openjpa.lib.rop.ResultObjectProvider;
+import org.apache.openjpa.lib.util.Localizer;
+import org.apache.openjpa.util.InternalException;
+
+/**
+ * Combines the partial aggregates selected by each slice for an
+ * {@link AggregatePlan}. The partial rows are hashed on their grouping
+ * values, and the HAVING and ORDER BY clauses are applied to the combined
+ * groups.
+ *
+ * @since 3.2.3
+ */
+class AggregateResultObjectProvider implements ResultObjectProvider {
+    private final ResultObjectProvider[] _rops;
+    private final AggregatePlan _plan;
+    private final StoreContext _ctx;
+    private final Object[] _params;
+    private ResultObjectProvider _groups;
+
+    private static final Localizer _loc =
+        Localizer.forPackage(AggregateResultObjectProvider.class);
+
+    public AggregateResultObjectProvider(ResultObjectProvider[] rops,
+        AggregatePlan plan, StoreContext ctx, Object[] params) {
+        _rops = rops;
+        _plan = plan;
+        _ctx = ctx;
+        _params = params;
+    }
+
+    @Override
+    public boolean supportsRandomAccess() {
+        return true;
+    }
+
+    @Override
+    public void open() throws Exception {
+        Map<List<Object>, Object[]> groups = new LinkedHashMap<>();
+        List<Object> key;
+        Object[] row;
+        Object[] group;
+        for (ResultObjectProvider rop : _rops) {
+            rop.open();
+            while (rop.next()) {
+                row = (Object[]) rop.getResultObject();
+                key = _plan.key(row);
+                group = groups.get(key);
+                if (group == null)
+                    groups.put(key, row.clone());
+                else
+                    _plan.combine(group, row);
+            }
+        }
+
+        List<Object[]> results = new ArrayList<>(groups.size());
+        Object[] aggs;
+        for (Object[] combined : groups.values()) {
+            aggs = _plan.aggregates(combined);
+            if (!_plan.matches(aggs, _ctx, _params))
+                continue;
+            results.add(new Object[]{
+                _plan.project(combined, aggs, _ctx, _params),
+                (_plan.isOrdered()) ? _plan.ordering(combined, aggs, _ctx,
+                    _params) : null });
+        }
+        if (_plan.isOrdered())
+            Collections.sort(results, (o1, o2) -> _plan.compareOrdering
+                ((Object[]) o1[1], (Object[]) o2[1]));
+
+        List<Object> projections = new ArrayList<>(results.size());
+        for (Object[] result : results)
+            projections.add(result[0]);
+        _groups = new ListResultObjectProvider(projections);
+        _groups.open();
+    }
+
+    @Override
+    public Object getResultObject() throws Exception {
+        return groups().getResultObject();
+    }
+
+    @Override
+    public boolean next() throws Exception {
+        return groups().next();
+    }
+
+    @Override
+    public boolean absolute(int pos) throws Exception {
+        return groups().absolute(pos);
+    }
+
+    @Override
+    public int size() throws Exception {
+        return groups().size();
+    }
+
+    @Override
+    public void reset() throws Exception {
+        groups().reset();
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (_groups != null)
+            _groups.close();
+        _groups = null;
+        for (ResultObjectProvider rop : _rops)
+            rop.close();
+    }
+
+    @Override
+    public void handleCheckedException(Exception e) {
+        _rops[0].handleCheckedException(e);
+    }
+
+    private ResultObjectProvider groups() {
+        if (_groups == null)
+            throw new InternalException(_loc.get("not-open"));
+        return _groups;
+    }
+}
@@ -30,6 +30,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import javax.sql.DataSource;
 import javax.sql.XADataSource;
@@ -51,13 +52,17 @@ import org.apache.openjpa.lib.util.J2DoPrivHelper;
 import org.apache.openjpa.lib.util.Localizer;
 import org.apache.openjpa.meta.ClassMetaData;
 import org.apache.openjpa.meta.MetaDataRepository;
+import org.apache.openjpa.slice.CachedSliceThreadPool;
 import org.apache.openjpa.slice.DistributedBrokerImpl;
 import org.apache.openjpa.slice.DistributionPolicy;
 import org.apache.openjpa.slice.FinderTargetPolicy;
+import org.apache.openjpa.slice.FixedSliceThreadPool;
 import org.apache.openjpa.slice.ProductDerivation;
 import org.apache.openjpa.slice.QueryTargetPolicy;
 import org.apache.openjpa.slice.ReplicationPolicy;
 import org.apache.openjpa.slice.Slice;
+import org.apache.openjpa.slice.SliceThread;
+import org.apache.openjpa.slice.VirtualSliceExecutor;
 import org.apache.openjpa.util.UserException;
 
 /**
@@ -84,6 +89,8 @@ public class DistributedJDBCConfigurationImpl extends JDBCConfigurationImpl
     public PluginValue queryTargetPolicyPlugin;
     public PluginValue finderTargetPolicyPlugin;
     public StringListValue replicatedTypesPlugin;
+    public PluginValue threadingPolicyPlugin;
+    private ExecutorService _executor;
 
     private ReplicatedTypeRepository _replicationRepos;
 
@@ -122,6 +129,13 @@ public class DistributedJDBCConfigurationImpl extends JDBCConfigurationImpl
         replicatedTypesPlugin = new StringListValue(PREFIX_SLICE + "ReplicatedTypes");
         addValue(replicatedTypesPlugin);
 
+        threadingPolicyPlugin = addPlugin(PREFIX_SLICE + "ThreadingPolicy", true);
+        threadingPolicyPlugin.setAlias("cached", CachedSliceThreadPool.class.getName());
+        threadingPolicyPlugin.setAlias("fixed", FixedSliceThreadPool.class.getName());
+        threadingPolicyPlugin.setAlias("virtual", VirtualSliceExecutor.class.getName());
+        threadingPolicyPlugin.setDefault("cached");
+        threadingPolicyPlugin.setString("cached");
+
         lenientPlugin = addBoolean(PREFIX_SLICE + "Lenient");
         lenientPlugin.setDefault("true");
 
@@ -326,6 +340,53 @@ public class DistributedJDBCConfigurationImpl extends JDBCConfigurationImpl
         finderTargetPolicyPlugin.setString(policy);
     }
 
+    @Override
+    public synchronized ExecutorService getThreadingPolicyInstance() {
+        if (_executor == null) {
+            ExecutorService pool = (ExecutorService) threadingPolicyPlugin.get();
+            if (pool == null) {
+                pool = (ExecutorService) threadingPolicyPlugin.instantiate(ExecutorService.class,
+                        this, true);
+            }
+            if (pool instanceof VirtualSliceExecutor && !((VirtualSliceExecutor) pool).isVirtual()) {
+                Log log = getConfigurationLog();
+                if (log.isWarnEnabled())
+                    log.warn(_loc.get("no-virtual-threads", threadingPolicyPlugin.getProperty()));
+            }
+            _executor = SliceThread.track(pool);
+        }
+        return _executor;
+    }
+
+    @Override
+    public String getThreadingPolicy() {
+        return threadingPolicyPlugin.getString();
+    }
+
+    @Override
+    public synchronized void setThreadingPolicyInstance(ExecutorService pool) {
+        threadingPolicyPlugin.set(pool);
+        _executor = null;
+    }
+
+    @Override
+    public synchronized void setThreadingPolicy(String policy) {
+        threadingPolicyPlugin.setString(policy);
+        _executor = null;
+    }
+
+    /**
+     * Shuts down the threads used to execute operations against the slices.
+     */
+    @Override
+    protected void preClose() {
+        synchronized (this) {
+            if (_executor != null)
+                _executor.shutdown();
+        }
+        super.preClose();
+    }
+
     @Override
     public DistributedDataSource getConnectionFactory() {
         if (virtualDataSource == null) {
@@ -59,7 +59,6 @@ import org.apache.openjpa.slice.Slice;
 import org.apache.openjpa.slice.SliceImplHelper;
 import org.apache.openjpa.slice.SliceInfo;
 import org.apache.openjpa.slice.SlicePersistence;
-import org.apache.openjpa.slice.SliceThread;
 import org.apache.openjpa.util.InternalException;
 import org.apache.openjpa.util.StoreException;
 
@@ -270,7 +269,7 @@ class DistributedJDBCStoreManager extends JDBCStoreManager
         Map<String, StateManagerSet> subsets = bin(sms, null);
         Collection<StateManagerSet> remaining =
             new ArrayList<>(subsets.values());
-        ExecutorService threadPool = SliceThread.getPool();
+        ExecutorService threadPool = _conf.getThreadingPolicyInstance();
         for (SliceStoreManager slice : _slices) {
             StateManagerSet subset = subsets.get(slice.getName());
             if (subset.isEmpty())
@@ -38,7 +38,6 @@ import org.apache.openjpa.lib.rop.RangeResultObjectProvider;
 import org.apache.openjpa.lib.rop.ResultObjectProvider;
 import org.apache.openjpa.meta.ClassMetaData;
 import org.apache.openjpa.slice.DistributedConfiguration;
-import org.apache.openjpa.slice.SliceThread;
 import org.apache.openjpa.util.StoreException;
 
 /**
@@ -116,7 +115,17 @@ class DistributedSQLStoreQuery extends SQLStoreQuery {
 			List<SliceStoreManager> targets = findTargets();
 			QueryContext ctx = q.getContext();
 			boolean isReplicated = containsReplicated(ctx);
-            ExecutorService threadPool = SliceThread.getPool();
+			// the results of several slices are merged before the start of the
+			// range can be skipped, so each slice returns up to the end of
+			// the range
+			boolean single = isReplicated || targets.size() == 1;
+			Range sliceRange = range;
+			if (!single) {
+			    sliceRange = new Range(0L, range.end);
+			    sliceRange.lrs = range.lrs;
+			}
+            ExecutorService threadPool = owner.getDistributedStore().getConfiguration()
+                .getThreadingPolicyInstance();
 			for (int i = 0; i < owner._queries.size(); i++) {
                 // if replicated, then execute only on single slice
 				if (isReplicated && !usedExecutors.isEmpty()) {
@@ -134,7 +143,7 @@ class DistributedSQLStoreQuery extends SQLStoreQuery {
                 call.executor = executor;
                 call.query = query;
                 call.params = params;
-                call.range = range;
+                call.range = sliceRange;
                 futures.add(threadPool.submit(call));
 			}
 			for (Future<ResultObjectProvider> future : futures) {
@@ -153,7 +162,6 @@ class DistributedSQLStoreQuery extends SQLStoreQuery {
 			boolean[] ascending = getAscending(q);
 			boolean isAscending = ascending.length > 0;
 			boolean isAggregate = ctx.isAggregate();
-			boolean hasRange = ctx.getEndRange() != Long.MAX_VALUE;
 			if (isAggregate) {
 				result = new UniqueResultObjectProvider(tmp, q,
 						getQueryExpressions());
@@ -164,9 +172,9 @@ class DistributedSQLStoreQuery extends SQLStoreQuery {
 			} else {
 				result = new MergedResultObjectProvider(tmp);
 			}
-			if (hasRange) {
-                result = new RangeResultObjectProvider(result,
-                        ctx.getStartRange(), ctx.getEndRange());
+			if (!single && (range.start != 0L || range.end != Long.MAX_VALUE)) {
+                result = new RangeResultObjectProvider(result, range.start,
+                    range.end);
 			}
 			return result;
 		}
@@ -195,7 +203,8 @@ class DistributedSQLStoreQuery extends SQLStoreQuery {
 			Iterator<StoreQuery> qs = owner._queries.iterator();
 			List<Future<Number>> futures = null;
 			int result = 0;
-            ExecutorService threadPool = SliceThread.getPool();
+            ExecutorService threadPool = owner.getDistributedStore().getConfiguration()
+                .getThreadingPolicyInstance();
 			for (Executor ex : executors) {
 				if (futures == null)
                     futures = new ArrayList<>();
@@ -224,7 +233,8 @@ class DistributedSQLStoreQuery extends SQLStoreQuery {
 			Iterator<StoreQuery> qs = owner._queries.iterator();
 			List<Future<Number>> futures = null;
 			int result = 0;
-            ExecutorService threadPool = SliceThread.getPool();
+            ExecutorService threadPool = owner.getDistributedStore().getConfiguration()
+                .getThreadingPolicyInstance();
 			for (Executor ex : executors) {
 				if (futures == null)
                     futures = new ArrayList<>();
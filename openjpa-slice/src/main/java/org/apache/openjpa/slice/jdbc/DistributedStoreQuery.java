@@ -35,13 +35,14 @@ import org.apache.openjpa.kernel.QueryContext;
 import org.apache.openjpa.kernel.StoreManager;
 import org.apache.openjpa.kernel.StoreQuery;
 import org.apache.openjpa.kernel.exps.ExpressionParser;
+import org.apache.openjpa.kernel.exps.QueryExpressions;
 import org.apache.openjpa.lib.rop.MergedResultObjectProvider;
 import org.apache.openjpa.lib.rop.RangeResultObjectProvider;
 import org.apache.openjpa.lib.rop.ResultObjectProvider;
 import org.apache.openjpa.meta.ClassMetaData;
 import org.apache.openjpa.slice.DistributedConfiguration;
-import org.apache.openjpa.slice.SliceThread;
 import org.apache.openjpa.util.StoreException;
+import org.apache.openjpa.util.UnsupportedException;
 
 /**
  * A query for distributed databases.
@@ -76,6 +77,14 @@ class DistributedStoreQuery extends JDBCStoreQuery {
 		for (StoreQuery q : _queries) {
 			ex.addExecutor(q.newDataStoreExecutor(meta, subs));
 		}
+		QueryExpressions exps = ex.getQueryExpressions()[0];
+		// groups of several slices are combined even without aggregates in
+		// the projections, since a group may span slices
+		if (exps.isAggregate() || (exps.grouping.length > 0
+			&& exps.projections.length > 0)) {
+			ex.plan = AggregatePlan.newPlan(this, _parser,
+				ctx.getCompilation(), meta, exps, ex.executors);
+		}
 		return ex;
 	}
 
@@ -97,6 +106,7 @@ class DistributedStoreQuery extends JDBCStoreQuery {
         private static final long serialVersionUID = 1L;
         private List<Executor> executors = new ArrayList<>();
 		private DistributedStoreQuery owner = null;
+		private AggregatePlan plan = null;
 
         public ParallelExecutor(DistributedStoreQuery dsq, ClassMetaData meta,
                 boolean subclasses, ExpressionParser parser, Object parsed,
@@ -122,7 +132,22 @@ class DistributedStoreQuery extends JDBCStoreQuery {
 			List<SliceStoreManager> targets = findTargets();
 			QueryContext ctx = q.getContext();
 			boolean isReplicated = containsReplicated(ctx);
-            ExecutorService threadPool = SliceThread.getPool();
+			// the results of several slices are merged before the start of the
+			// range can be skipped, so each slice returns up to the end of
+			// the range. Partial aggregates are combined before the range
+			// applies, so each slice returns all its groups
+			boolean single = isReplicated || targets.size() == 1;
+			boolean combine = plan != null && plan.getUnsupported() == null;
+			if (plan != null && !combine && !single) {
+			    throw new UnsupportedException(plan.getUnsupported());
+			}
+			Range sliceRange = range;
+			if (combine || !single) {
+			    sliceRange = new Range(0L, combine ? Long.MAX_VALUE : range.end);
+			    sliceRange.lrs = range.lrs;
+			}
+            ExecutorService threadPool = owner.getDistributedStore().getConfiguration()
+                .getThreadingPolicyInstance();
 
 			for (int i = 0; i < owner._queries.size(); i++) {
                 // if replicated, then execute only on single slice
@@ -136,7 +161,7 @@ class DistributedStoreQuery extends JDBCStoreQuery {
                 call.executor = executors.get(i);
                 call.query = owner._queries.get(i);
                 call.params = params;
-                call.range = range;
+                call.range = sliceRange;
 				usedExecutors.add(call.executor);
                 futures.add(threadPool.submit(call));
 			}
@@ -154,10 +179,9 @@ class DistributedStoreQuery extends JDBCStoreQuery {
 			ResultObjectProvider result = null;
 			boolean[] ascending = getAscending(q);
 			boolean isAscending = ascending.length > 0;
-			boolean isAggregate = ctx.isAggregate();
-			boolean hasRange = ctx.getEndRange() != Long.MAX_VALUE;
-			if (isAggregate) {
-				result = new UniqueResultObjectProvider(tmp, q,	getQueryExpressions());
+			if (combine) {
+				result = new AggregateResultObjectProvider(tmp, plan,
+					ctx.getStoreContext(), params);
 			} else if (isAscending) {
                 result = new OrderingMergedResultObjectProvider(tmp, ascending,
                     usedExecutors.toArray(new Executor[usedExecutors.size()]),
@@ -165,8 +189,10 @@ class DistributedStoreQuery extends JDBCStoreQuery {
 			} else {
 				result = new MergedResultObjectProvider(tmp);
 			}
-			if (hasRange) {
-                result = new RangeResultObjectProvider(result, ctx.getStartRange(), ctx.getEndRange());
+			if ((combine || !single)
+				&& (range.start != 0L || range.end != Long.MAX_VALUE)) {
+                result = new RangeResultObjectProvider(result, range.start,
+                    range.end);
 			}
 			return result;
 		}
@@ -194,7 +220,8 @@ class DistributedStoreQuery extends JDBCStoreQuery {
         public Number executeDelete(StoreQuery q, Object[] params) {
 			List<Future<Number>> futures = new ArrayList<>();
 			int result = 0;
-            ExecutorService threadPool = SliceThread.getPool();
+            ExecutorService threadPool = owner.getDistributedStore().getConfiguration()
+                .getThreadingPolicyInstance();
 			List<SliceStoreManager> targets = findTargets();
 			for (int i = 0; i < owner._queries.size(); i++) {
                 StoreManager sm = owner.getDistributedStore().getSlice(i);
@@ -226,7 +253,8 @@ class DistributedStoreQuery extends JDBCStoreQuery {
 			Iterator<StoreQuery> qs = owner._queries.iterator();
 			List<Future<Number>> futures = null;
 			int result = 0;
-            ExecutorService threadPool = SliceThread.getPool();
+            ExecutorService threadPool = owner.getDistributedStore().getConfiguration()
+                .getThreadingPolicyInstance();
 			for (Executor ex : executors) {
 				if (futures == null)
                     futures = new ArrayList<>();
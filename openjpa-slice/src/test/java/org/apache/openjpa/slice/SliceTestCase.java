@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.junit.After;
+
+/**
+ * Base class of tests which run against {@link #SLICES three slices}, each
+ * an in-memory Derby database of its own. {@link SliceItem Items} are
+ * distributed to the slices by their id.
+ */
+public abstract class SliceTestCase {
+
+    /**
+     * The names of the slices, in order.
+     */
+    protected static final List<String> SLICES =
+        Arrays.asList("One", "Two", "Three");
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    protected EntityManagerFactory emf;
+
+    /**
+     * Create {@link #emf} for the given persistent types and property name
+     * and value pairs.
+     */
+    protected void setUp(Object... props) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("openjpa.BrokerFactory", "slice");
+        map.put("openjpa.ConnectionDriverName",
+            "org.apache.derby.jdbc.EmbeddedDriver");
+        map.put("openjpa.slice.Names", String.join(",", SLICES));
+        for (String slice : SLICES)
+            map.put("openjpa.slice." + slice + ".ConnectionURL",
+                "jdbc:derby:memory:slice" + DATABASES.incrementAndGet()
+                + ";create=true");
+        map.put("openjpa.slice.DistributionPolicy",
+            ByIdDistributionPolicy.class.getName());
+        map.put("openjpa.jdbc.SynchronizeMappings", "buildSchema");
+        map.put("openjpa.DynamicEnhancementAgent", "false");
+        map.put("openjpa.RuntimeUnenhancedClasses", "unsupported");
+        map.put("openjpa.Log", "DefaultLevel=WARN");
+
+        StringBuilder types = new StringBuilder();
+        for (int i = 0; i < props.length; i++) {
+            if (props[i] instanceof Class) {
+                if (types.length() > 0)
+                    types.append(';');
+                types.append(((Class<?>) props[i]).getName());
+            } else
+                map.put((String) props[i], props[++i]);
+        }
+        if (types.length() > 0)
+            map.put("openjpa.MetaDataFactory", "jpa(Types=" + types + ")");
+        emf = Persistence.createEntityManagerFactory("slice", map);
+    }
+
+    @After
+    public void tearDown() {
+        if (emf != null && emf.isOpen())
+            emf.close();
+        emf = null;
+    }
+
+    /**
+     * Persist the given instances in a transaction of their own.
+     */
+    protected void persist(Object... pcs) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            for (Object pc : pcs)
+                em.persist(pc);
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Stores each {@link SliceItem} in the slice at the index of its id
+     * modulo the number of slices.
+     */
+    public static class ByIdDistributionPolicy implements DistributionPolicy {
+        @Override
+        public String distribute(Object pc, List<String> slices, Object ctx) {
+            long id = ((SliceItem) pc).getId();
+            return slices.get((int) (id % slices.size()));
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the combination of the partial aggregates of grouped queries that
+ * span several slices.
+ */
+public class TestSliceAggregates extends SliceTestCase {
+
+    // each item is stored in the slice at the index of its id modulo 3
+    private static SliceItem[] items() {
+        return new SliceItem[] {
+            new SliceItem(0, 0, "a", 5),
+            new SliceItem(1, 0, "a", null),
+            new SliceItem(2, 0, "a", 3),
+            new SliceItem(4, 0, "a", 7),
+            // slice One only has a null amount for b
+            new SliceItem(3, 0, "b", null),
+            new SliceItem(5, 0, "b", 10),
+            new SliceItem(6, 0, null, 2),
+            new SliceItem(7, 0, null, 4),
+            new SliceItem(8, 0, "c", null),
+        };
+    }
+
+    private EntityManager em;
+
+    @Before
+    public void setUp() {
+        setUp(SliceItem.class);
+        persist((Object[]) items());
+        em = emf.createEntityManager();
+    }
+
+    @Test
+    public void testGroupedAggregates() {
+        List<Object[]> rows = em.createQuery("select i.category, count(i), "
+            + "count(i.amount), sum(i.amount), avg(i.amount), "
+            + "min(i.amount), max(i.amount) from SliceItem i "
+            + "group by i.category", Object[].class).getResultList();
+        Map<String, List<SliceItem>> groups = groups();
+        Assert.assertEquals(groups.size(), rows.size());
+        for (Object[] row : rows) {
+            List<SliceItem> group = groups.remove((String) row[0]);
+            Assert.assertNotNull(String.valueOf(row[0]), group);
+            List<Integer> amounts = new ArrayList<>();
+            for (SliceItem item : group)
+                if (item.getAmount() != null)
+                    amounts.add(item.getAmount());
+            Assert.assertEquals((long) group.size(),
+                ((Number) row[1]).longValue());
+            Assert.assertEquals((long) amounts.size(),
+                ((Number) row[2]).longValue());
+            if (amounts.isEmpty()) {
+                for (int i = 3; i < row.length; i++)
+                    Assert.assertNull(row[0] + " " + i, row[i]);
+                continue;
+            }
+            long sum = 0;
+            for (Integer amount : amounts)
+                sum += amount;
+            Assert.assertEquals(sum, ((Number) row[3]).longValue());
+            Assert.assertEquals((double) sum / amounts.size(),
+                ((Number) row[4]).doubleValue(), 0.001);
+            Assert.assertEquals(amounts.stream().min(Integer::compare).get()
+                .intValue(), ((Number) row[5]).intValue());
+            Assert.assertEquals(amounts.stream().max(Integer::compare).get()
+                .intValue(), ((Number) row[6]).intValue());
+        }
+        Assert.assertTrue(groups.isEmpty());
+    }
+
+    @Test
+    public void testMinAndMaxIgnoreNullPartials() {
+        Object[] row = em.createQuery("select min(i.amount), max(i.amount) "
+            + "from SliceItem i where i.category = 'b'", Object[].class)
+            .getSingleResult();
+        Assert.assertEquals(10, ((Number) row[0]).intValue());
+        Assert.assertEquals(10, ((Number) row[1]).intValue());
+    }
+
+    @Test
+    public void testHavingOnCombinedAggregates() {
+        List<Object[]> rows = em.createQuery("select i.category, "
+            + "sum(i.amount) from SliceItem i group by i.category "
+            + "having count(i) > 1 order by sum(i.amount) desc",
+            Object[].class).getResultList();
+        Assert.assertEquals(3, rows.size());
+        Assert.assertEquals("a", rows.get(0)[0]);
+        Assert.assertEquals(15L, ((Number) rows.get(0)[1]).longValue());
+        Assert.assertEquals("b", rows.get(1)[0]);
+        Assert.assertEquals(10L, ((Number) rows.get(1)[1]).longValue());
+        Assert.assertNull(rows.get(2)[0]);
+        Assert.assertEquals(6L, ((Number) rows.get(2)[1]).longValue());
+
+        // no slice holds more than one amount of the null group, so only
+        // the combined count passes
+        List<String> categories = em.createQuery("select i.category "
+            + "from SliceItem i group by i.category "
+            + "having count(i.amount) = 2 and min(i.amount) < 4",
+            String.class).getResultList();
+        Assert.assertEquals(Arrays.asList((String) null), categories);
+    }
+
+    @Test
+    public void testGroupsWithoutAggregatesAreCombined() {
+        List<String> categories = em.createQuery("select i.category "
+            + "from SliceItem i group by i.category order by i.category",
+            String.class).getResultList();
+        // the combined groups are ordered in memory, with nulls first
+        Assert.assertEquals(Arrays.asList(null, "a", "b", "c"), categories);
+    }
+
+    @Test
+    public void testDistinctAggregateIsUnsupported() {
+        try {
+            em.createQuery("select count(distinct i.amount) "
+                + "from SliceItem i").getResultList();
+            Assert.fail();
+        } catch (PersistenceException pe) {
+            Assert.assertTrue(pe.getMessage(),
+                pe.getMessage().contains("COUNT(DISTINCT)"));
+        }
+    }
+
+    private static Map<String, List<SliceItem>> groups() {
+        Map<String, List<SliceItem>> groups = new HashMap<>();
+        for (SliceItem item : items())
+            groups.computeIfAbsent(item.getCategory(),
+                k -> new ArrayList<>()).add(item);
+        return groups;
+    }
+}
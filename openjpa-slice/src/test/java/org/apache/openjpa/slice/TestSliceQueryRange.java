@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the merge of ordered results and the ranges of queries that span
+ * several slices.
+ */
+public class TestSliceQueryRange extends SliceTestCase {
+
+    private static final int ITEMS = 30;
+
+    private EntityManager em;
+
+    @Before
+    public void setUp() {
+        setUp(SliceItem.class);
+        SliceItem[] items = new SliceItem[ITEMS];
+        // every score is shared by three items, one on each slice
+        for (int i = 0; i < ITEMS; i++)
+            items[i] = new SliceItem(i, (ITEMS - 1 - i) / 3, null, null);
+        persist((Object[]) items);
+        em = emf.createEntityManager();
+    }
+
+    @Test
+    public void testOrderedMergeKeepsSliceOrderForTies() {
+        List<SliceItem> items = em.createQuery(
+            "select i from SliceItem i order by i.score", SliceItem.class)
+            .getResultList();
+        Assert.assertEquals(ITEMS, items.size());
+        Assert.assertEquals(ITEMS, new HashSet<>(items).size());
+        for (int i = 1; i < items.size(); i++) {
+            SliceItem prev = items.get(i - 1);
+            SliceItem cur = items.get(i);
+            Assert.assertTrue(prev.getScore() <= cur.getScore());
+            if (prev.getScore() == cur.getScore())
+                Assert.assertTrue(SLICES.indexOf(SlicePersistence.getSlice(prev))
+                    < SLICES.indexOf(SlicePersistence.getSlice(cur)));
+        }
+    }
+
+    @Test
+    public void testOrderedMergeWithSecondaryOrdering() {
+        List<SliceItem> items = em.createQuery("select i from SliceItem i "
+            + "order by i.score desc, i.id", SliceItem.class)
+            .getResultList();
+        Assert.assertEquals(ITEMS, items.size());
+        for (int i = 0; i < ITEMS; i++)
+            Assert.assertEquals(i, items.get(i).getId());
+    }
+
+    @Test
+    public void testRangeOfOrderedQuery() {
+        String jpql = "select i.id from SliceItem i order by i.id";
+        List<Long> all = em.createQuery(jpql, Long.class).getResultList();
+        assertRange(all, 0, 5);
+        assertRange(all, 4, 7);
+        assertRange(all, 13, 1);
+        assertRange(all, 25, 10);
+        assertRange(all, 40, 5);
+        Assert.assertEquals(all.subList(20, ITEMS), em.createQuery(jpql,
+            Long.class).setFirstResult(20).getResultList());
+    }
+
+    @Test
+    public void testRangeOfUnorderedQuery() {
+        Query q = em.createQuery("select i.id from SliceItem i");
+        Assert.assertEquals(7, q.setFirstResult(4).setMaxResults(7)
+            .getResultList().size());
+        Assert.assertEquals(ITEMS - 25, q.setFirstResult(25).setMaxResults(10)
+            .getResultList().size());
+
+        HashSet<Object> ids = new HashSet<>();
+        for (int first = 0; first < ITEMS; first += 4)
+            ids.addAll(q.setFirstResult(first).setMaxResults(4)
+                .getResultList());
+        Assert.assertEquals(ITEMS, ids.size());
+    }
+
+    @Test
+    public void testRangeOfNativeQuery() {
+        Query q = em.createNativeQuery("SELECT id FROM SliceItem");
+        Assert.assertEquals(ITEMS, q.getResultList().size());
+        Assert.assertEquals(7, q.setFirstResult(4).setMaxResults(7)
+            .getResultList().size());
+        Assert.assertEquals(ITEMS - 25, q.setFirstResult(25).setMaxResults(10)
+            .getResultList().size());
+    }
+
+    @Test
+    public void testRangeOfQueryOnSingleSlice() {
+        List<Long> ids = em.createQuery(
+            "select i.id from SliceItem i order by i.id", Long.class)
+            .setHint(SlicePersistence.HINT_TARGET, "Two")
+            .setFirstResult(2).setMaxResults(3).getResultList();
+        // slice Two holds the items whose id is 1 modulo 3
+        Assert.assertEquals(Arrays.asList(7L, 10L, 13L), ids);
+    }
+
+    private void assertRange(List<Long> all, int first, int max) {
+        List<Long> range = em.createQuery(
+            "select i.id from SliceItem i order by i.id", Long.class)
+            .setFirstResult(first).setMaxResults(max).getResultList();
+        Assert.assertEquals(all.subList(Math.min(first, all.size()),
+            Math.min(first + max, all.size())), range);
+    }
+}
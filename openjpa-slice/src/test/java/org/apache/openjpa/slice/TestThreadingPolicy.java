@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.slice.jdbc.DistributedJDBCConfigurationImpl;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the pools selected by <code>openjpa.slice.ThreadingPolicy</code>.
+ */
+public class TestThreadingPolicy {
+    private static final int TASKS = 4;
+
+    private DistributedJDBCConfigurationImpl _conf;
+
+    @After
+    public void tearDown() {
+        if (_conf != null)
+            _conf.close();
+    }
+
+    @Test
+    public void testFixedPoolCapsThreads() throws Exception {
+        Set<Thread> threads = runConcurrently("fixed(Threads=2)");
+        Assert.assertEquals(2, threads.size());
+    }
+
+    @Test
+    public void testCachedPoolGrows() throws Exception {
+        Set<Thread> threads = runConcurrently("cached");
+        Assert.assertEquals(TASKS, threads.size());
+    }
+
+    @Test
+    public void testFixedPoolRunsNestedOperationsInline() throws Exception {
+        ExecutorService pool = executor("fixed(Threads=1)");
+        final Thread caller = Thread.currentThread();
+        Future<Thread> outer = pool.submit(() -> {
+            Future<Thread> inner = pool.submit(() -> {
+                Assert.assertSame(caller, SliceThread.currentParent());
+                return Thread.currentThread();
+            });
+            Assert.assertSame(Thread.currentThread(),
+                inner.get(10, TimeUnit.SECONDS));
+            return Thread.currentThread();
+        });
+        Assert.assertTrue(outer.get(10, TimeUnit.SECONDS)
+            instanceof SliceThread);
+    }
+
+    /**
+     * Run {@link #TASKS} operations that wait for each other, so that each
+     * needs a thread of its own until the pool runs out of threads, and
+     * return the threads they ran on.
+     */
+    private Set<Thread> runConcurrently(String policy) throws Exception {
+        ExecutorService pool = executor(policy);
+        final Thread caller = Thread.currentThread();
+        final CountDownLatch started = new CountDownLatch(TASKS);
+        List<Future<Thread>> futures = new ArrayList<>();
+        for (int i = 0; i < TASKS; i++) {
+            futures.add(pool.submit(() -> {
+                Assert.assertSame(caller, SliceThread.currentParent());
+                started.countDown();
+                started.await(500, TimeUnit.MILLISECONDS);
+                return Thread.currentThread();
+            }));
+        }
+        Set<Thread> threads = new HashSet<>();
+        for (Future<Thread> future : futures) {
+            Thread thread = future.get(10, TimeUnit.SECONDS);
+            Assert.assertTrue(thread instanceof SliceThread);
+            threads.add(thread);
+        }
+        return threads;
+    }
+
+    private ExecutorService executor(String policy) {
+        _conf = new DistributedJDBCConfigurationImpl();
+        _conf.setThreadingPolicy(policy);
+        Assert.assertEquals(policy, _conf.getThreadingPolicy());
+        return _conf.getThreadingPolicyInstance();
+    }
+}
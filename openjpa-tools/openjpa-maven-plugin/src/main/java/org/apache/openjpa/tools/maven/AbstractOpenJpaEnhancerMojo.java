@@ -27,6 +27,7 @@ import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.openjpa.enhance.PCEnhancer;
 import org.apache.openjpa.lib.util.Options;
+import org.apache.openjpa.meta.MetaDataIndex;
 import org.codehaus.plexus.util.FileUtils;
 
 /**
@@ -72,6 +73,17 @@ public abstract class AbstractOpenJpaEnhancerMojo extends AbstractOpenJpaMojo {
      */
     private static final String OPTION_USE_TEMP_CLASSLOADER = "tcl";
 
+    /**
+     * Whether to write an index of the persistent types of the enhanced
+     * classes to <code>META-INF/openjpa-metadata.idx</code>. At runtime the
+     * persistent types of the directory or jar are then read from the index
+     * instead of scanning its class files. The index is ignored once the
+     * class files change.
+     * @since 3.2.3
+     */
+    @Parameter(defaultValue="true")
+    protected boolean metaDataIndex;
+
 
     /**
      * {@inheritDoc}
@@ -91,6 +103,10 @@ public abstract class AbstractOpenJpaEnhancerMojo extends AbstractOpenJpaMojo {
         List<File> entities = findEntityClassFiles();
 
         enhance(entities);
+
+        if (metaDataIndex) {
+            index();
+        }
     }
 
     /**
@@ -136,4 +152,19 @@ public abstract class AbstractOpenJpaEnhancerMojo extends AbstractOpenJpaMojo {
         }
     }
 
+    /**
+     * Writes the index of the persistent types of the enhanced classes.
+     *
+     * @throws MojoExecutionException if the index could not be written
+     */
+    private void index() throws MojoExecutionException {
+        String[] args = new String[] { getEntityClasses().getAbsolutePath() };
+
+        boolean ok = MetaDataIndex.run(args, createOptions());
+
+        if (!ok) {
+            throw new MojoExecutionException("The OpenJPA MetaDataIndex tool detected an error!");
+        }
+    }
+
 }
@@ -23,6 +23,8 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.openjpa.meta.ClassMetaData;
 
@@ -43,6 +45,10 @@ public class XMLStore {
     // store gets locked during transactions
     private boolean _locked;
 
+    // guards the store, which loads and writes files while held
+    private final ReentrantLock _lock = new ReentrantLock();
+    private final Condition _unlocked = _lock.newCondition();
+
     /**
      * Constructor; supply configuration.
      */
@@ -53,18 +59,28 @@ public class XMLStore {
     /**
      * Return the data for the given oid, or null if it does not exist.
      */
-    public synchronized ObjectData getData(ClassMetaData meta, Object oid) {
-        meta = getLeastDerived(meta);
-        return (ObjectData) getMap(meta).get(oid);
+    public ObjectData getData(ClassMetaData meta, Object oid) {
+        _lock.lock();
+        try {
+            meta = getLeastDerived(meta);
+            return (ObjectData) getMap(meta).get(oid);
+        } finally {
+            _lock.unlock();
+        }
     }
 
     /**
      * Return all datas for the base class of the given type.
      */
-    public synchronized ObjectData[] getData(ClassMetaData meta) {
-        meta = getLeastDerived(meta);
-        Collection vals = getMap(meta).values();
-        return (ObjectData[]) vals.toArray(new ObjectData[vals.size()]);
+    public ObjectData[] getData(ClassMetaData meta) {
+        _lock.lock();
+        try {
+            meta = getLeastDerived(meta);
+            Collection vals = getMap(meta).values();
+            return (ObjectData[]) vals.toArray(new ObjectData[vals.size()]);
+        } finally {
+            _lock.unlock();
+        }
     }
 
     /**
@@ -101,14 +117,16 @@ public class XMLStore {
      * Begin a datastore transaction. Obtains an exclusive write lock on the
      * store.
      */
-    public synchronized void beginTransaction() {
-        // lock store
-        while (_locked)
-            try {
-                wait();
-            } catch (InterruptedException ie) {
-            }
-        _locked = true;
+    public void beginTransaction() {
+        _lock.lock();
+        try {
+            // lock store
+            while (_locked)
+                _unlocked.awaitUninterruptibly();
+            _locked = true;
+        } finally {
+            _lock.unlock();
+        }
     }
 
     /**
@@ -117,10 +135,11 @@ public class XMLStore {
      * @param updates {@link ObjectData} instances to insert or update
      * @param deletes {@link ObjectData} instances to delete
      */
-    public synchronized void endTransaction(Collection<ObjectData> updates,
-                                            Collection<ObjectData> deletes) {
+    public void endTransaction(Collection<ObjectData> updates,
+                               Collection<ObjectData> deletes) {
         // track dirty types
         Set dirty = new HashSet();
+        _lock.lock();
         try {
             // commit updates
             if (updates != null) {
@@ -149,8 +168,9 @@ public class XMLStore {
         }
         finally {
             // unlock store
-            notify();
             _locked = false;
+            _unlocked.signal();
+            _lock.unlock();
         }
     }
 }